@@ -0,0 +1,68 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.security.cert.CertificateParsingException;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+
+import org.junit.Test;
+
+public class AuthOutcomeTest
+{
+  @Test
+  public void testForStatus()
+  {
+    assertEquals(AuthOutcome.Authenticated, AuthOutcome.forStatus(200));
+    assertEquals(AuthOutcome.Forbidden, AuthOutcome.forStatus(401));
+    assertEquals(AuthOutcome.Unexpected, AuthOutcome.forStatus(403));
+    assertEquals(AuthOutcome.Unexpected, AuthOutcome.forStatus(500));
+  }
+  
+  @Test
+  public void testForFailure()
+  {
+    assertEquals(AuthOutcome.Rejected, AuthOutcome.forFailure(new SSLHandshakeException("Received fatal alert: bad_certificate")));
+    assertEquals(AuthOutcome.Rejected, AuthOutcome.forFailure(new SSLHandshakeException("Received fatal alert: certificate_unknown")));
+    assertEquals(AuthOutcome.Rejected, AuthOutcome.forFailure(new SSLException("Received fatal alert: certificate_required")));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new SSLHandshakeException("PKIX path building failed")));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new SSLHandshakeException("Received fatal alert: protocol_version")));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new SSLException("Unrecognized SSL message, plaintext connection?")));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new SSLException("Broken pipe")));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new SSLException((String)null)));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new ConnectException("Connection refused")));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new IOException("Connection reset")));
+    assertEquals(AuthOutcome.Unreachable, AuthOutcome.forFailure(new CertificateParsingException()));
+  }
+  
+  @Test(expected=IllegalStateException.class)
+  public void testForFailureRethrows()
+  {
+    AuthOutcome.forFailure(new IllegalStateException());
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MonitorPodsTest
+{
+  private static void assertDelayBounds(long intervalMillis, int jitterPercent, long min, long max)
+  {
+    boolean low = false;
+    boolean high = false;
+    
+    for(int i=0 ; i<10000 ; i++)
+    {
+      long delay = MonitorPods.getNextDelayMillis(intervalMillis, jitterPercent);
+      
+      assertTrue("Delay " + delay + " below " + min, delay >= min);
+      assertTrue("Delay " + delay + " above " + max, delay <= max);
+      
+      low |= delay < intervalMillis;
+      high |= delay > intervalMillis;
+    }
+    
+    // The delay varies both ways around the interval
+    assertTrue(low);
+    assertTrue(high);
+  }
+  
+  @Test
+  public void testNoJitter()
+  {
+    assertEquals(30000, MonitorPods.getNextDelayMillis(30000, 0));
+    assertEquals(30000, MonitorPods.getNextDelayMillis(30000, -5));
+  }
+  
+  @Test
+  public void testJitterBounds()
+  {
+    assertDelayBounds(30000, 10, 27000, 33000);
+    assertDelayBounds(1000, 50, 500, 1500);
+  }
+  
+  @Test
+  public void testJitterLimited()
+  {
+    assertDelayBounds(1000, 100, 0, 2000);
+    assertDelayBounds(1000, 250, 0, 2000);
+  }
+}
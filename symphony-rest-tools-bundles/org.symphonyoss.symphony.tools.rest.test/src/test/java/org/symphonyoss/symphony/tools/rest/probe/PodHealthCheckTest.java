@@ -0,0 +1,208 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.security.cert.CertificateParsingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.jcurl.JCurl;
+import org.symphonyoss.symphony.tools.rest.Srt;
+import org.symphonyoss.symphony.tools.rest.model.IModelListener;
+import org.symphonyoss.symphony.tools.rest.model.IModelObject;
+import org.symphonyoss.symphony.tools.rest.model.InvalidConfigException;
+import org.symphonyoss.symphony.tools.rest.model.Pod;
+import org.symphonyoss.symphony.tools.rest.model.PodManager;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpResult;
+import org.symphonyoss.symphony.tools.rest.util.net.IHttpTransport;
+
+public class PodHealthCheckTest
+{
+  /**
+   * A transport which returns the given HealthCheck response, streamed through
+   * the extractor of the request.
+   */
+  private static class CannedTransport implements IHttpTransport
+  {
+    private final int    status_;
+    private final String body_;
+    
+    CannedTransport(int status, String body)
+    {
+      status_ = status;
+      body_ = body;
+    }
+    
+    @Override
+    public HttpResult execute(HttpRequest request) throws IOException, CertificateParsingException
+    {
+      return new HttpResult(status_, request.isExpectedStatus(status_), Srt.MIME_JSON, null, null,
+          request.getJsonExtractor().extract(body_, request.getJsonVisitor()));
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> executeAsync(HttpRequest request)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getName()
+    {
+      return "canned";
+    }
+  }
+  
+  private final List<IModelObject> changed_ = new ArrayList<>();
+  private final List<IModelObject> structureChanged_ = new ArrayList<>();
+  private Pod                      pod_;
+  
+  private void createPod() throws InvalidConfigException, IOException
+  {
+    PodManager manager = new PodManager(new File(System.getProperty("java.io.tmpdir")));
+    
+    manager.addListener(new IModelListener()
+    {
+      @Override
+      public void modelObjectChanged(IModelObject modelObject)
+      {
+        changed_.add(modelObject);
+      }
+      
+      @Override
+      public void modelObjectStructureChanged(IModelObject modelObject)
+      {
+        structureChanged_.add(modelObject);
+      }
+    });
+    
+    pod_ = Pod.newBuilder()
+        .setName("pod.example.com")
+        .setPodUrl(new URL("https://pod.example.com"))
+        .build(manager);
+    
+    PodHealthCheck.reset(pod_);
+  }
+  
+  private PodHealthCheck check(int status, String body) throws IOException, CertificateParsingException
+  {
+    PodHealthCheck healthCheck = new PodHealthCheck(pod_);
+    
+    changed_.clear();
+    structureChanged_.clear();
+    
+    healthCheck.execute(new CannedTransport(status, body),
+        HttpRequest.newBuilder(JCurl.builder(), new URL("https://pod.example.com/webcontroller/HealthCheck/aggregated"), null)
+          .setExpectedStatus(200, 500));
+    
+    return healthCheck;
+  }
+  
+  @Test
+  public void testSteadyState() throws InvalidConfigException, IOException, CertificateParsingException
+  {
+    createPod();
+    
+    String body = "{\"keymanager\":true,\"pod\":true,\"agentservice\":false}";
+    
+    check(200, body);
+    
+    assertTrue(structureChanged_.size() > 0);
+    
+    PodHealthCheck healthCheck = check(200, body);
+    
+    // An unchanged HealthCheck fires no model events at all
+    assertEquals(0, changed_.size());
+    assertEquals(0, structureChanged_.size());
+    assertEquals(ComponentStatus.Error, healthCheck.getStatus());
+    assertEquals(1, healthCheck.getFailedComponents());
+  }
+  
+  @Test
+  public void testFlipAppearDisappear() throws InvalidConfigException, IOException, CertificateParsingException
+  {
+    createPod();
+    
+    check(200, "{\"keymanager\":true,\"pod\":true}");
+    
+    IModelObject keyManager = pod_.getComponent("keymanager");
+    
+    // Flip
+    PodHealthCheck healthCheck = check(500, "{\"keymanager\":false,\"pod\":true}");
+    
+    assertEquals(ComponentStatus.Failed, keyManager.getComponentStatus());
+    assertEquals(ComponentStatus.Failed, healthCheck.getStatus());
+    assertEquals(1, healthCheck.getFailedComponents());
+    assertTrue(changed_.contains(keyManager));
+    assertTrue(changed_.contains(pod_));
+    assertTrue(changed_.contains(pod_.getDynamicContainer()));
+    assertEquals(0, structureChanged_.size());
+    
+    // Appear
+    healthCheck = check(500, "{\"keymanager\":false,\"pod\":true,\"relay\":true}");
+    
+    assertEquals(Arrays.asList("keymanager", "pod", "relay"), new ArrayList<>(healthCheck.getComponents().keySet()));
+    assertEquals(ComponentStatus.OK, pod_.getComponent("relay").getComponentStatus());
+    assertEquals(1, healthCheck.getFailedComponents());
+    assertTrue(structureChanged_.size() > 0);
+    
+    // Disappear, taking the only failure with it
+    healthCheck = check(200, "{\"pod\":true,\"relay\":true}");
+    
+    assertEquals(Arrays.asList("pod", "relay"), new ArrayList<>(healthCheck.getComponents().keySet()));
+    assertNull(keyManager.getComponentStatus());
+    assertEquals(0, healthCheck.getFailedComponents());
+    assertEquals(ComponentStatus.OK, healthCheck.getStatus());
+    assertTrue(changed_.contains(keyManager));
+    assertTrue(changed_.contains(pod_));
+  }
+  
+  @Test
+  public void testAllDisappear() throws InvalidConfigException, IOException, CertificateParsingException
+  {
+    createPod();
+    
+    check(500, "{\"keymanager\":false}");
+    
+    assertEquals(ComponentStatus.Failed, pod_.getDynamicContainer().getComponentStatus());
+    
+    check(200, "{}");
+    
+    // No component has a status, so neither does the container
+    assertNull(pod_.getComponent("keymanager").getComponentStatus());
+    assertNull(pod_.getDynamicContainer().getComponentStatus());
+    assertTrue(changed_.contains(pod_.getDynamicContainer()));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.tools.rest.probe.ProbeOutcomeCache.Outcome;
+import org.symphonyoss.symphony.tools.rest.util.home.KeyValueLog;
+
+public class ProbeOutcomeCacheTest
+{
+  private KeyValueLog createStore() throws IOException
+  {
+    File file = File.createTempFile("ProbeOutcomeCacheTest", ".log");
+    
+    file.delete();
+    file.deleteOnExit();
+    
+    return new KeyValueLog(file);
+  }
+  
+  private Probe createProbe()
+  {
+    return new Probe("pod", "-api", ".example.com", 8444, "/sessionauth").setProbePath("/v1/authenticate", null);
+  }
+  
+  @Test
+  public void testCache() throws IOException
+  {
+    ProbeOutcomeCache cache = new ProbeOutcomeCache(createStore(), 60000);
+    
+    assertNull(cache.get(createProbe(), "-"));
+    
+    cache.put(createProbe(), "-", Outcome.HttpStatus, "404");
+    
+    assertEquals(Outcome.HttpStatus, cache.get(createProbe(), "-").getOutcome());
+    assertEquals("404", cache.get(createProbe(), "-").getDetail());
+    assertNull(cache.get(createProbe(), "bot.p12"));
+    
+    cache.remove(createProbe(), "-");
+    
+    assertNull(cache.get(createProbe(), "-"));
+  }
+  
+  @Test
+  public void testExpiry() throws IOException
+  {
+    KeyValueLog       store = createStore();
+    ProbeOutcomeCache cache = new ProbeOutcomeCache(store, 1);
+    
+    cache.put(createProbe(), "-", Outcome.ConnectFailed, "");
+    
+    try
+    {
+      Thread.sleep(10);
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    
+    assertNull(cache.get(createProbe(), "-"));
+    assertEquals(0, store.size());
+  }
+  
+  @Test
+  public void testExpiredOutcomesPurged() throws IOException
+  {
+    KeyValueLog store = createStore();
+    
+    store.put("expired:8444 /v1/authenticate -", "1 ConnectFailed ");
+    store.put("corrupt:8444 /v1/authenticate -", "garbage");
+    store.put("badstatus:8444 /v1/authenticate -", (System.currentTimeMillis() + 60000) + " HttpStatus 40x");
+    store.put("live:8444 /v1/authenticate -", (System.currentTimeMillis() + 60000) + " ConnectFailed ");
+    
+    new ProbeOutcomeCache(store, 60000);
+    
+    assertEquals(1, store.size());
+  }
+  
+  @Test
+  public void testCorruptHttpStatus() throws IOException
+  {
+    KeyValueLog       store = createStore();
+    ProbeOutcomeCache cache = new ProbeOutcomeCache(store, 60000);
+    
+    cache.put(createProbe(), "-", Outcome.HttpStatus, "not a status");
+    
+    assertNull(cache.get(createProbe(), "-"));
+    assertEquals(0, store.size());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+
+public class ProbePlanTest
+{
+  private final List<String> finished_ = new ArrayList<>();
+  
+  private boolean sleep(long millis, boolean result)
+  {
+    try
+    {
+      Thread.sleep(millis);
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    
+    return result;
+  }
+  
+  private void execute(ProbePlan plan, boolean concurrent)
+  {
+    plan.execute(concurrent, (step) -> finished_.add(step.getName()));
+  }
+  
+  @Test
+  public void testSkipRequired()
+  {
+    ProbePlan plan = new ProbePlan();
+    
+    ProbeStep a = plan.withStep("a", () -> false);
+    ProbeStep b = plan.withStep("b", () -> true).requires(a);
+    ProbeStep c = plan.withStep("c", () -> true).after(a);
+    ProbeStep d = plan.withStep("d", () -> true).requires(b);
+    
+    execute(plan, false);
+    
+    assertEquals(ProbeStep.Status.Failed, a.getStatus());
+    assertEquals(ProbeStep.Status.Skipped, b.getStatus());
+    assertEquals(ProbeStep.Status.Succeeded, c.getStatus());
+    assertEquals(ProbeStep.Status.Skipped, d.getStatus());
+    assertSame(a, b.getFailedRequirement());
+    assertEquals(4, finished_.size());
+  }
+  
+  @Test
+  public void testSequentialOrder()
+  {
+    ProbePlan plan = new ProbePlan();
+    
+    ProbeStep a = plan.withStep("a", () -> true);
+    plan.withStep("b", () -> true).requires(a);
+    plan.withStep("c", () -> true).requires(a);
+    
+    execute(plan, false);
+    
+    assertEquals("[a, b, c]", finished_.toString());
+  }
+  
+  @Test
+  public void testCriticalPath()
+  {
+    ProbePlan plan = new ProbePlan();
+    
+    ProbeStep root  = plan.withStep("root", () -> true);
+    ProbeStep fast  = plan.withStep("fast", () -> sleep(10, true)).requires(root);
+    ProbeStep slow  = plan.withStep("slow", () -> sleep(200, true)).requires(root);
+    ProbeStep last  = plan.withStep("last", () -> true).after(fast, slow);
+    
+    long start = System.currentTimeMillis();
+    
+    execute(plan, true);
+    
+    assertTrue(System.currentTimeMillis() - start < 400);
+    assertTrue(last.isSucceeded());
+    assertEquals("fast", finished_.get(1));
+    
+    List<ProbeStep> path = plan.getCriticalPath();
+    
+    assertEquals(3, path.size());
+    assertSame(root, path.get(0));
+    assertSame(slow, path.get(1));
+    assertSame(last, path.get(2));
+  }
+  
+  @Test
+  public void testException()
+  {
+    ProbePlan plan = new ProbePlan();
+    
+    ProbeStep a = plan.withStep("a", () -> { throw new IllegalStateException("test"); });
+    ProbeStep b = plan.withStep("b", () -> true).requires(a);
+    
+    execute(plan, true);
+    
+    assertEquals(ProbeStep.Status.Failed, a.getStatus());
+    assertTrue(a.getCause() instanceof IllegalStateException);
+    assertEquals(ProbeStep.Status.Skipped, b.getStatus());
+  }
+  
+  @Test(expected=ProgramFault.class)
+  public void testCycle()
+  {
+    ProbePlan plan = new ProbePlan();
+    
+    ProbeStep a = plan.withStep("a", () -> true);
+    ProbeStep b = plan.withStep("b", () -> true).requires(a);
+    
+    a.requires(b);
+    
+    execute(plan, false);
+  }
+}
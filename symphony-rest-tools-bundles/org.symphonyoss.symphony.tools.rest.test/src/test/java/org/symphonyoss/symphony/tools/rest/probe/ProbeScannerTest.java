@@ -0,0 +1,294 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.tools.rest.util.BoundedExecutor;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+
+public class ProbeScannerTest
+{
+  private static final int[] PORTS = new int[] { 8444, 8445, 8446 };
+  
+  private List<Probe> createProbes()
+  {
+    List<Probe> probes = new ArrayList<>();
+    
+    for(int port : PORTS)
+      probes.add(new Probe("test", "-api", ".example.com", port, "/sessionauth"));
+    
+    return probes;
+  }
+  
+  private void succeedOn(Probe probe, int port)
+  {
+    if(probe.getPort() == port)
+    {
+      probe.setFailed(false);
+      probe.setValid(true);
+    }
+  }
+  
+  @Test
+  public void testSequentialScan()
+  {
+    List<Probe> probes = createProbes();
+    ScanResponse response = new ProbeScanner(null).scan(new ScanResponse("Test"), probes,
+        (probe) -> succeedOn(probe, 8445));
+    
+    assertSame(probes.get(1), response.getValidProbe());
+  }
+  
+  @Test
+  public void testConcurrentScan()
+  {
+    BoundedExecutor executor = new BoundedExecutor(2);
+    
+    try
+    {
+      List<Probe> probes = createProbes();
+      ScanResponse response = new ProbeScanner(executor).scan(new ScanResponse("Test"), probes,
+          (probe) -> succeedOn(probe, 8446));
+      
+      assertSame(probes.get(2), response.getValidProbe());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testFailedConcurrentScan()
+  {
+    BoundedExecutor executor = new BoundedExecutor(3);
+    
+    try
+    {
+      List<Probe> probes = createProbes();
+      
+      try
+      {
+        new ProbeScanner(executor).scan(new ScanResponse("Test"), probes, (probe) ->
+        {
+          if(probe.getPort() == 8444)
+            throw new IllegalStateException("Probe failed");
+          
+          try
+          {
+            Thread.sleep(20000);
+          }
+          catch(InterruptedException e)
+          {
+            // Canceled
+          }
+        });
+        
+        fail("Scan did not fail");
+      }
+      catch(IllegalStateException e)
+      {
+        // Expected
+      }
+      
+      // The probes still in flight are aborted rather than left running
+      assertTrue(probes.get(1).isAborted());
+      assertTrue(probes.get(2).isAborted());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testSequentialRace()
+  {
+    List<Probe> probes = createProbes();
+    ScanResponse response = new ProbeScanner(null).race(new ScanResponse("Test"), probes,
+        (probe) -> succeedOn(probe, 8444));
+    
+    assertSame(probes.get(0), response.getValidProbe());
+    assertTrue(probes.get(1).isAborted());
+    assertTrue(probes.get(2).isAborted());
+  }
+  
+  @Test
+  public void testConcurrentRace()
+  {
+    BoundedExecutor executor = new BoundedExecutor(4);
+    
+    try
+    {
+      List<Probe> probes = createProbes();
+      ScanResponse response = new ProbeScanner(executor).race(new ScanResponse("Test"), probes,
+          (probe) ->
+          {
+            if(probe.getPort() == 8445)
+            {
+              succeedOn(probe, 8445);
+            }
+            else
+            {
+              try
+              {
+                Thread.sleep(10000);
+              }
+              catch (InterruptedException e)
+              {
+                Thread.currentThread().interrupt();
+              }
+            }
+          });
+      
+      assertSame(probes.get(1), response.getValidProbe());
+      assertFalse(probes.get(1).isAborted());
+      assertTrue(probes.get(0).isAborted());
+      assertTrue(probes.get(2).isAborted());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testRaceWithNoWinner()
+  {
+    BoundedExecutor executor = new BoundedExecutor(2);
+    
+    try
+    {
+      List<Probe> probes = createProbes();
+      ScanResponse response = new ProbeScanner(executor).race(new ScanResponse("Test"), probes,
+          (probe) -> probe.setFailedCertAuth(true));
+      
+      assertEquals(null, response.getValidProbe());
+      assertEquals(3, response.getCertAuthProbes().size());
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testAsyncScan()
+  {
+    List<Probe>                     probes = createProbes();
+    List<CompletableFuture<Void>>   futures = new ArrayList<>();
+    
+    for(int i=0 ; i<probes.size() ; i++)
+      futures.add(new CompletableFuture<>());
+    
+    // Complete the probes in reverse order once they have all been started
+    Thread completer = new Thread(() ->
+    {
+      for(int i=probes.size() - 1 ; i>=0 ; i--)
+      {
+        succeedOn(probes.get(i), 8445);
+        futures.get(i).complete(null);
+      }
+    });
+    
+    ScanResponse response = new ProbeScanner(null).scanAsync(new ScanResponse("Test"), probes,
+        (probe) ->
+        {
+          CompletableFuture<Void> future = futures.get(probes.indexOf(probe));
+          
+          if(probe == probes.get(probes.size() - 1))
+            completer.start();
+          
+          return future;
+        });
+    
+    assertSame(probes.get(1), response.getValidProbe());
+    
+    for(CompletableFuture<Void> future : futures)
+      assertTrue(future.isDone());
+  }
+  
+  @Test
+  public void testAsyncRace()
+  {
+    List<Probe> probes = createProbes();
+    ScanResponse response = new ProbeScanner(null).raceAsync(new ScanResponse("Test"), probes,
+        (probe) ->
+        {
+          if(probe.getPort() == 8445)
+          {
+            succeedOn(probe, 8445);
+            return CompletableFuture.completedFuture(null);
+          }
+          
+          // Never completes, as a connection which hangs
+          return new CompletableFuture<>();
+        });
+    
+    assertSame(probes.get(1), response.getValidProbe());
+    assertFalse(probes.get(1).isAborted());
+    assertTrue(probes.get(0).isAborted());
+    assertTrue(probes.get(2).isAborted());
+  }
+  
+  @Test
+  public void testAsyncRaceWithNoWinner()
+  {
+    List<Probe> probes = createProbes();
+    ScanResponse response = new ProbeScanner(null).raceAsync(new ScanResponse("Test"), probes,
+        (probe) ->
+        {
+          probe.setFailedCertAuth(true);
+          return CompletableFuture.completedFuture(null);
+        });
+    
+    assertEquals(null, response.getValidProbe());
+    assertEquals(3, response.getCertAuthProbes().size());
+  }
+  
+  @Test
+  public void testCanceledScan()
+  {
+    CancellationToken token = new CancellationToken();
+    List<Probe> probes = createProbes();
+    ScanResponse response = new ProbeScanner(null, token).scan(new ScanResponse("Test"), probes,
+        (probe) -> token.cancel());
+    
+    assertTrue(response.isCanceled());
+    assertEquals(null, response.getValidProbe());
+    
+    for(Probe probe : probes)
+      assertTrue(probe.isAborted());
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.tools.rest.util.home.KeyValueLog;
+
+public class TopologyPriorsTest
+{
+  private static final String[] SUFFIXES = new String[] { "-api", "" };
+  private static final int[]    PORTS = new int[] { 8444, 8445, 8446 };
+  
+  private TopologyPriors createPriors() throws IOException
+  {
+    File file = File.createTempFile("TopologyPriorsTest", ".log");
+    
+    file.delete();
+    file.deleteOnExit();
+    
+    return new TopologyPriors(new KeyValueLog(file));
+  }
+  
+  private List<Probe> createProbes(String name)
+  {
+    List<Probe> probes = new ArrayList<>();
+    
+    for(String suffix : SUFFIXES)
+      for(int port : PORTS)
+        probes.add(new Probe(name, suffix, ".example.com", port, "/sessionauth"));
+    
+    return probes;
+  }
+  
+  private void learn(TopologyPriors priors, String name, int port)
+  {
+    ScanResponse response = new ScanResponse("Test");
+    
+    for(Probe probe : createProbes(name))
+    {
+      if(probe.getSuffix().isEmpty() && probe.getPort() == port)
+        probe.setFailedCertAuth(true);
+      
+      response.add(probe);
+    }
+    
+    priors.record(response);
+  }
+  
+  @Test
+  public void testOrder() throws IOException
+  {
+    TopologyPriors  priors = createPriors();
+    List<Probe>     probes = createProbes("pod1");
+    
+    priors.sort(probes);
+    assertEquals("pod1-api.example.com:8444", probes.get(0).getHostNameAndPort());
+    assertFalse(priors.isConfident(probes.get(0)));
+    
+    learn(priors, "pod2", 8446);
+    learn(priors, "pod3", 8446);
+    
+    probes = createProbes("pod4");
+    priors.sort(probes);
+    
+    assertEquals("pod4.example.com:8446", probes.get(0).getHostNameAndPort());
+    assertTrue(priors.isConfident(probes.get(0)));
+    assertTrue(priors.getScore(probes.get(probes.size() - 1)) < 0.5);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CancellationTokenTest
+{
+  @Test
+  public void testCancel()
+  {
+    CancellationToken token = new CancellationToken();
+    AtomicInteger     count = new AtomicInteger();
+    
+    token.onCancel(count::incrementAndGet);
+    
+    try(CancellationToken.Registration registration = token.onCancel(count::incrementAndGet))
+    {
+      // Closed before the cancel
+    }
+    
+    assertFalse(token.isCanceled());
+    
+    token.cancel();
+    token.cancel();
+    
+    assertTrue(token.isCanceled());
+    assertEquals(1, count.get());
+    
+    token.onCancel(count::incrementAndGet);
+    
+    assertEquals(2, count.get());
+  }
+  
+  @Test
+  public void testInterrupt()
+  {
+    CancellationToken token = new CancellationToken();
+    
+    try(CancellationToken.Registration registration = token.interruptOnCancel())
+    {
+      token.cancel();
+      
+      assertTrue(Thread.currentThread().isInterrupted());
+    }
+    
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+}
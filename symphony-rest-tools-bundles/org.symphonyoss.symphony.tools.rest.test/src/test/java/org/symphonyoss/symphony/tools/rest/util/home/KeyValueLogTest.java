@@ -0,0 +1,120 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.home;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class KeyValueLogTest
+{
+  private File createFile() throws IOException
+  {
+    File file = File.createTempFile("KeyValueLogTest", ".log");
+    
+    file.delete();
+    file.deleteOnExit();
+    
+    return file;
+  }
+  
+  @Test
+  public void testPersistence() throws IOException
+  {
+    File        file = createFile();
+    KeyValueLog log = new KeyValueLog(file);
+    
+    log.put("a", "1");
+    log.put("b", "2");
+    log.put("a", "3");
+    log.remove("b");
+    log.put("c\tx", "4\n5");
+    log.close();
+    
+    KeyValueLog reloaded = new KeyValueLog(file);
+    
+    assertEquals("3", reloaded.get("a"));
+    assertNull(reloaded.get("b"));
+    assertEquals("4 5", reloaded.get("c x"));
+    assertEquals(2, reloaded.size());
+  }
+  
+  @Test
+  public void testCompaction() throws IOException
+  {
+    File        file = createFile();
+    KeyValueLog log = new KeyValueLog(file);
+    
+    for(int i=0 ; i<5000 ; i++)
+      log.put("key" + (i % 10), String.valueOf(i));
+    
+    log.close();
+    
+    assertTrue(Files.readAllLines(file.toPath()).size() < 2000);
+    
+    KeyValueLog reloaded = new KeyValueLog(file);
+    
+    assertEquals(10, reloaded.size());
+    assertEquals("4999", reloaded.get("key9"));
+  }
+  
+  @Test
+  public void testRetentionPolicy() throws IOException
+  {
+    File        file = createFile();
+    KeyValueLog log = new KeyValueLog(file);
+    
+    log.put("a", "live");
+    log.put("b", "dead");
+    log.put("c", "live");
+    log.put("d", "live");
+    log.put("a", "live again");
+    log.close();
+    
+    KeyValueLog reloaded = new KeyValueLog(file);
+    
+    reloaded.setRetentionPolicy(2, (key, value) -> value.startsWith("live"));
+    
+    // b is dead and c is the least recently written of the rest
+    assertEquals(2, reloaded.size());
+    assertNull(reloaded.get("b"));
+    assertNull(reloaded.get("c"));
+    assertEquals("live again", reloaded.get("a"));
+    
+    reloaded.put("e", "live");
+    
+    assertEquals(2, reloaded.size());
+    assertNull(reloaded.get("d"));
+    reloaded.close();
+    
+    // Setting the policy compacted the dropped records out of the file, e was appended after that
+    assertEquals(Arrays.asList("d\tlive", "a\tlive again", "e\tlive"), Files.readAllLines(file.toPath()));
+  }
+}
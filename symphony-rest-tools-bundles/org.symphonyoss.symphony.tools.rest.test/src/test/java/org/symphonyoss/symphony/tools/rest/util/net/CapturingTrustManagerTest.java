@@ -0,0 +1,85 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.X509TrustManager;
+
+import org.junit.Test;
+
+public class CapturingTrustManagerTest
+{
+  private static class TestTrustManager implements X509TrustManager
+  {
+    private CertificateException failure_;
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException
+    {
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException
+    {
+      if(failure_ != null)
+        throw failure_;
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers()
+    {
+      return new X509Certificate[0];
+    }
+  }
+  
+  @Test
+  public void testCapture() throws CertificateException
+  {
+    TestTrustManager      delegate = new TestTrustManager();
+    CapturingTrustManager trustManager = new CapturingTrustManager(delegate);
+    X509Certificate[]     chain = new X509Certificate[0];
+    
+    assertFalse(trustManager.isServerChecked());
+    
+    trustManager.checkServerTrusted(chain, "RSA");
+    
+    assertTrue(trustManager.isServerChecked());
+    assertSame(chain, trustManager.getServerChain());
+    assertNull(trustManager.getTrustFailure());
+    
+    delegate.failure_ = new CertificateException("Untrusted");
+    
+    // Does not throw, the verdict is recorded instead
+    trustManager.checkServerTrusted(chain, "RSA", (Socket)null);
+    
+    assertSame(delegate.failure_, trustManager.getTrustFailure());
+  }
+}
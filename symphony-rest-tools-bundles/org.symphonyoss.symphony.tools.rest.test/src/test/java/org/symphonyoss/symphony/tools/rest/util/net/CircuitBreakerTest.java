@@ -0,0 +1,120 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.util.net.CircuitBreaker.State;
+
+public class CircuitBreakerTest
+{
+  private static final String ENDPOINT = "https://pod.example.com:443";
+  private static final long   COOLDOWN_MILLIS = 1000;
+  
+  private long nanos_;
+  
+  private CircuitBreaker newBreaker()
+  {
+    return new CircuitBreaker(ENDPOINT, 2, COOLDOWN_MILLIS, () -> nanos_);
+  }
+  
+  private void advance(long millis)
+  {
+    nanos_ += TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+  
+  @Test
+  public void testEndpoint() throws MalformedURLException
+  {
+    assertEquals(ENDPOINT, CircuitBreaker.getEndpoint(new URL("https://POD.example.com/pod/v2/sessioninfo")));
+    assertEquals("https://pod.example.com:8444", CircuitBreaker.getEndpoint(new URL("https://pod.example.com:8444/sessionauth")));
+  }
+  
+  @Test
+  public void testOpens()
+  {
+    CircuitBreaker breaker = newBreaker();
+    
+    assertTrue(breaker.tryAcquire());
+    breaker.recordFailure();
+    assertEquals(State.Closed, breaker.getState());
+    
+    assertTrue(breaker.tryAcquire());
+    breaker.recordSuccess();
+    assertTrue(breaker.tryAcquire());
+    breaker.recordFailure();
+    assertEquals(State.Closed, breaker.getState());
+    
+    assertTrue(breaker.tryAcquire());
+    breaker.recordFailure();
+    assertEquals(State.Open, breaker.getState());
+    assertEquals(ComponentStatus.Failed, breaker.getComponentStatus());
+    assertFalse(breaker.tryAcquire());
+    assertEquals(COOLDOWN_MILLIS, breaker.getRemainingCooldownMillis());
+  }
+  
+  @Test
+  public void testHalfOpen()
+  {
+    CircuitBreaker breaker = newBreaker();
+    
+    for(int i=0 ; i<2 ; i++)
+    {
+      breaker.tryAcquire();
+      breaker.recordFailure();
+    }
+    
+    advance(COOLDOWN_MILLIS - 1);
+    assertFalse(breaker.tryAcquire());
+    
+    advance(1);
+    assertTrue(breaker.tryAcquire());
+    assertEquals(State.HalfOpen, breaker.getState());
+    
+    // Only one trial at a time
+    assertFalse(breaker.tryAcquire());
+    
+    // A failed trial opens the breaker again at once
+    breaker.recordFailure();
+    assertEquals(State.Open, breaker.getState());
+    assertFalse(breaker.tryAcquire());
+    
+    advance(COOLDOWN_MILLIS);
+    assertTrue(breaker.tryAcquire());
+    breaker.release();
+    assertEquals(State.HalfOpen, breaker.getState());
+    
+    assertTrue(breaker.tryAcquire());
+    breaker.recordSuccess();
+    assertEquals(State.Closed, breaker.getState());
+    assertEquals(ComponentStatus.OK, breaker.getComponentStatus());
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HappyEyeballsTest
+{
+  private static InetAddress address(String literal) throws UnknownHostException
+  {
+    return InetAddress.getByName(literal);
+  }
+  
+  @Test
+  public void testOrder() throws UnknownHostException
+  {
+    InetAddress[] addresses = new InetAddress[] { address("::1"), address("::2"), address("127.0.0.1"), address("127.0.0.2") };
+    
+    assertEquals(Arrays.asList(addresses[0], addresses[2], addresses[1], addresses[3]),
+        HappyEyeballs.order(addresses, null));
+    
+    assertEquals(Arrays.asList(addresses[2], addresses[0], addresses[3], addresses[1]),
+        HappyEyeballs.order(addresses, Inet4Address.class));
+  }
+  
+  @Test
+  public void testFallback() throws IOException
+  {
+    try(ServerSocket server = new ServerSocket(0, 1, address("127.0.0.1")))
+    {
+      HostResolver resolver = new HostResolver(60000, 60000)
+      {
+        @Override
+        protected InetAddress[] lookup(String hostName) throws UnknownHostException
+        {
+          // Nothing listens on ::1 so the first attempt fails
+          return new InetAddress[] { address("::1"), address("127.0.0.1") };
+        }
+      };
+      
+      HappyEyeballs happyEyeballs = new HappyEyeballs(resolver, 10000);
+      long          start = System.currentTimeMillis();
+      
+      try(Socket socket = happyEyeballs.connect("dual.example.com", server.getLocalPort(), 20000))
+      {
+        assertTrue(socket.isConnected());
+        assertEquals(address("127.0.0.1"), socket.getInetAddress());
+      }
+      
+      // A failed attempt starts the next one without waiting for the attempt delay
+      assertTrue(System.currentTimeMillis() - start < 10000);
+      assertEquals(Inet4Address.class, resolver.getPreferredFamily("DUAL.example.com"));
+      
+      List<InetAddress> ordered = HappyEyeballs.order(resolver.resolve("dual.example.com"),
+          resolver.getPreferredFamily("dual.example.com"));
+      
+      assertEquals(address("127.0.0.1"), ordered.get(0));
+    }
+  }
+  
+  @Test
+  public void testAbandon() throws IOException
+  {
+    try(ServerSocket server = new ServerSocket(0, 1, address("127.0.0.1")))
+    {
+      HostResolver resolver = new HostResolver(60000, 60000)
+      {
+        @Override
+        protected InetAddress[] lookup(String hostName) throws UnknownHostException
+        {
+          return new InetAddress[] { address("127.0.0.1") };
+        }
+      };
+      
+      HappyEyeballs         happyEyeballs = new HappyEyeballs(resolver, 10000);
+      HappyEyeballs.Attempt attempt = new HappyEyeballs.Attempt();
+      
+      attempt.abandon();
+      
+      try(Socket socket = happyEyeballs.connect("local.example.com", server.getLocalPort(), 20000, attempt))
+      {
+        fail("Abandoned connect succeeded");
+      }
+      catch(SocketException e)
+      {
+        // Expected
+      }
+    }
+  }
+  
+  @Test
+  public void testCanceledSocket() throws IOException
+  {
+    try(ServerSocket server = new ServerSocket(0, 1, address("127.0.0.1")))
+    {
+      ConnectionCanceler canceler = new ConnectionCanceler();
+      
+      canceler.cancel();
+      canceler.start();
+      
+      try(Socket socket = new HappyEyeballsSocket(HappyEyeballs.getDefault()))
+      {
+        socket.connect(new InetSocketAddress("127.0.0.1", server.getLocalPort()));
+        fail("Canceled socket connected");
+      }
+      catch(SocketException e)
+      {
+        // The socket attached itself to the canceled canceler and was closed before connecting
+      }
+      finally
+      {
+        canceler.end();
+      }
+    }
+  }
+}
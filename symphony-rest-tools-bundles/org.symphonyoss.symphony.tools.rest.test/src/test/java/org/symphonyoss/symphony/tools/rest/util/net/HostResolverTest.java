@@ -0,0 +1,104 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+public class HostResolverTest
+{
+  private static final String GOOD_HOST = "pod.example.com";
+  private static final String BAD_HOST = "pod-api.example.com";
+  
+  private int lookupCount_;
+  
+  private HostResolver createResolver(long positiveTtlMillis, long negativeTtlMillis)
+  {
+    return new HostResolver(positiveTtlMillis, negativeTtlMillis)
+    {
+      @Override
+      protected InetAddress[] lookup(String hostName) throws UnknownHostException
+      {
+        lookupCount_++;
+        
+        if(GOOD_HOST.equals(hostName))
+          return new InetAddress[] { InetAddress.getByAddress(hostName, new byte[] { 10, 0, 0, 1 }) };
+        
+        throw new UnknownHostException(hostName);
+      }
+    };
+  }
+  
+  @Test
+  public void testCache() throws UnknownHostException
+  {
+    HostResolver resolver = createResolver(60000, 60000);
+    
+    assertEquals(GOOD_HOST, resolver.resolve(GOOD_HOST)[0].getHostName());
+    assertTrue(resolver.isResolvable(GOOD_HOST));
+    assertEquals(1, lookupCount_);
+    
+    assertFalse(resolver.isResolvable(BAD_HOST));
+    assertFalse(resolver.isResolvable(BAD_HOST));
+    assertEquals(2, lookupCount_);
+  }
+  
+  @Test(expected=UnknownHostException.class)
+  public void testNegative() throws UnknownHostException
+  {
+    createResolver(60000, 60000).resolve(BAD_HOST);
+  }
+  
+  @Test
+  public void testExpiry()
+  {
+    HostResolver resolver = createResolver(0, 0);
+    
+    assertTrue(resolver.isResolvable(GOOD_HOST));
+    assertTrue(resolver.isResolvable(GOOD_HOST));
+    assertFalse(resolver.isResolvable(BAD_HOST));
+    assertFalse(resolver.isResolvable(BAD_HOST));
+    assertEquals(4, lookupCount_);
+  }
+  
+  @Test
+  public void testPurge()
+  {
+    HostResolver resolver = createResolver(0, 0);
+    
+    for(int i=0 ; i<HostResolver.PURGE_THRESHOLD + 1 ; i++)
+      resolver.isResolvable("host" + i + ".example.com");
+    
+    assertTrue(resolver.size() <= HostResolver.PURGE_THRESHOLD);
+    
+    resolver.purgeExpired();
+    assertEquals(0, resolver.size());
+  }
+}
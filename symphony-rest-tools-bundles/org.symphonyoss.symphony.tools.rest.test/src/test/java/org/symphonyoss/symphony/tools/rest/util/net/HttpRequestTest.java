@@ -0,0 +1,71 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.jcurl.JCurl;
+
+public class HttpRequestTest
+{
+  private HttpRequest.Builder newBuilder() throws MalformedURLException
+  {
+    return HttpRequest.newBuilder(JCurl.builder(), new URL("https://pod.example.com/"), null);
+  }
+  
+  @Test
+  public void testMimeType()
+  {
+    assertEquals("application/json", HttpResult.getMimeType("Application/JSON; charset=UTF-8"));
+    assertEquals("text/html", HttpResult.getMimeType(" text/html "));
+    assertEquals(null, HttpResult.getMimeType(null));
+  }
+  
+  @Test
+  public void testBodyWanted() throws MalformedURLException
+  {
+    HttpRequest request = newBuilder()
+        .setExpectedContentType("application/json")
+        .setMaxBodyBytes(1024)
+        .build();
+    
+    assertTrue(request.isBodyWanted("application/json;charset=utf-8", -1));
+    assertTrue(request.isBodyWanted("application/json", 1024));
+    assertFalse(request.isBodyWanted("application/json", 1025));
+    assertFalse(request.isBodyWanted("text/html", 100));
+    assertFalse(request.isBodyWanted(null, 100));
+  }
+  
+  @Test
+  public void testHeadersOnly() throws MalformedURLException
+  {
+    assertTrue(newBuilder().build().isBodyWanted("text/html", -1));
+    assertFalse(newBuilder().setHeadersOnly(true).build().isBodyWanted("text/html", -1));
+  }
+}
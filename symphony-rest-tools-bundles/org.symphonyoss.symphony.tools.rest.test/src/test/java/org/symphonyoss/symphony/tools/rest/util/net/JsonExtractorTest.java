@@ -0,0 +1,112 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+public class JsonExtractorTest
+{
+  @Test
+  public void testWildcard() throws IOException
+  {
+    List<String> fields = new ArrayList<>();
+    
+    JsonToken root = new JsonExtractor(JsonExtractor.ANY_FIELD).extract("{\"Agent\":true,\"Ceph\":false,\"nested\":{\"x\":1}}",
+        (path, name, parser) -> fields.add(name + "=" + parser.getValueAsBoolean()));
+    
+    assertEquals(JsonToken.START_OBJECT, root);
+    assertEquals("[Agent=true, Ceph=false, nested=false]", fields.toString());
+  }
+  
+  @Test
+  public void testNestedPaths() throws IOException
+  {
+    String[]  values = new String[3];
+    JsonToken root = new JsonExtractor("data", "data.podId", "data.keyManagerUrl").extract(
+        "{\"status\":\"OK\",\"skip\":{\"podId\":99,\"a\":[1,{\"b\":2}]},\"data\":{\"podId\":42,\"keyManagerUrl\":\"https://km.example.com/relay\"}}",
+        (path, name, parser) -> values[path] = parser.getCurrentToken() == JsonToken.START_OBJECT ? "object" : parser.getValueAsString());
+    
+    assertEquals(JsonToken.START_OBJECT, root);
+    assertEquals("object", values[0]);
+    assertEquals("42", values[1]);
+    assertEquals("https://km.example.com/relay", values[2]);
+  }
+  
+  @Test
+  public void testConsumedValue() throws IOException
+  {
+    List<String> fields = new ArrayList<>();
+    
+    new JsonExtractor("a", "b").extract("{\"a\":{\"x\":[1,2]},\"b\":\"B\"}",
+        (path, name, parser) ->
+        {
+          if(path == 0)
+            parser.skipChildren();
+          
+          fields.add(name);
+        });
+    
+    assertEquals("[a, b]", fields.toString());
+  }
+  
+  @Test
+  public void testNotAnObject() throws IOException
+  {
+    List<String> fields = new ArrayList<>();
+    JsonExtractor extractor = new JsonExtractor(JsonExtractor.ANY_FIELD);
+    
+    assertEquals(JsonToken.START_ARRAY, extractor.extract("[{\"a\":true}]", (path, name, parser) -> fields.add(name)));
+    assertNull(extractor.extract("", (path, name, parser) -> fields.add(name)));
+    assertEquals(0, fields.size());
+  }
+  
+  @Test
+  public void testStreamNotClosed() throws IOException
+  {
+    boolean[]   closed = new boolean[1];
+    InputStream in = new ByteArrayInputStream("{\"a\":true}".getBytes(StandardCharsets.UTF_8))
+    {
+      @Override
+      public void close()
+      {
+        closed[0] = true;
+      }
+    };
+    
+    new JsonExtractor("a").extract(in, (path, name, parser) -> {});
+    
+    assertEquals(false, closed[0]);
+  }
+}
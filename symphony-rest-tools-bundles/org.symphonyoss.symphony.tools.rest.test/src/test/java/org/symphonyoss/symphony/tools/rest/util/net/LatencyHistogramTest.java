@@ -0,0 +1,163 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+  private long nanos_;
+  
+  @Test
+  public void testBuckets()
+  {
+    for(int i=0 ; i<LatencyHistogram.BUCKET_COUNT ; i++)
+    {
+      long low = LatencyHistogram.getLowestValue(i);
+      long high = LatencyHistogram.getHighestValue(i);
+      
+      assertEquals(i, LatencyHistogram.getIndex(low));
+      assertEquals(i, LatencyHistogram.getIndex(high));
+      
+      if(i > 0)
+        assertEquals(LatencyHistogram.getHighestValue(i - 1) + 1, low);
+      
+      // Bucket width is within 1/16 of the values it holds
+      assertTrue(high - low <= Math.max(0, low / 16));
+    }
+    
+    assertEquals(LatencyHistogram.MAX_MICROS, LatencyHistogram.getHighestValue(LatencyHistogram.BUCKET_COUNT - 1));
+  }
+  
+  @Test
+  public void testPercentiles()
+  {
+    LatencyHistogram histogram = new LatencyHistogram();
+    
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    
+    for(int i=1 ; i<=1000 ; i++)
+      histogram.record(i * 1000L);
+    
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000, histogram.getMaxMicros());
+    assertWithin(500000, histogram.getValueAtPercentile(50));
+    assertWithin(900000, histogram.getValueAtPercentile(90));
+    assertWithin(990000, histogram.getValueAtPercentile(99));
+    assertEquals(1000000, histogram.getValueAtPercentile(100));
+  }
+  
+  @Test
+  public void testLimits()
+  {
+    LatencyHistogram histogram = new LatencyHistogram();
+    
+    histogram.record(-1);
+    histogram.record(Long.MAX_VALUE);
+    
+    assertEquals(2, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+    assertEquals(LatencyHistogram.MAX_MICROS, histogram.getMaxMicros());
+  }
+  
+  @Test
+  public void testAdd()
+  {
+    LatencyHistogram fast = new LatencyHistogram();
+    LatencyHistogram slow = new LatencyHistogram();
+    LatencyHistogram fleet = new LatencyHistogram();
+    
+    for(int i=0 ; i<90 ; i++)
+      fast.record(1000);
+    
+    for(int i=0 ; i<10 ; i++)
+      slow.record(200000);
+    
+    fleet.add(fast);
+    fleet.add(slow);
+    
+    assertEquals(100, fleet.getCount());
+    assertEquals(200000, fleet.getMaxMicros());
+    assertWithin(1000, fleet.getValueAtPercentile(90));
+    assertWithin(200000, fleet.getValueAtPercentile(91));
+    
+    fleet.reset();
+    
+    assertEquals(0, fleet.getCount());
+    assertEquals(0, fleet.getMaxMicros());
+  }
+  
+  @Test
+  public void testSlidingWindows()
+  {
+    nanos_ = -TimeUnit.SECONDS.toNanos(10);
+    
+    SlidingLatencyHistogram histogram = new SlidingLatencyHistogram(3, 1000, () -> nanos_);
+    
+    histogram.record(1000);
+    advance(1000);
+    histogram.record(2000);
+    histogram.record(2000);
+    
+    assertEquals(3, histogram.getHistogram().getCount());
+    assertEquals(2, histogram.getHistogram(1).getCount());
+    
+    advance(2000);
+    
+    // The first window has expired, the slot it used is not reset until it is reused
+    assertEquals(2, histogram.getHistogram().getCount());
+    assertEquals(0, histogram.getHistogram(1).getCount());
+    
+    histogram.record(3000);
+    
+    assertEquals(3, histogram.getHistogram().getCount());
+    assertEquals(3000, histogram.getHistogram(1).getMaxMicros());
+    
+    advance(5000);
+    
+    assertEquals(0, histogram.getHistogram().getCount());
+    
+    histogram.record(4000);
+    
+    LatencyHistogram fleet = histogram.addTo(new LatencyHistogram(), 3);
+    
+    assertEquals(1, fleet.getCount());
+    assertEquals(4000, fleet.getMaxMicros());
+  }
+
+  private void advance(long millis)
+  {
+    nanos_ += TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+  
+  private static void assertWithin(long expected, long actual)
+  {
+    assertTrue("Expected about " + expected + " but got " + actual,
+        Math.abs(actual - expected) <= expected / 16);
+  }
+}
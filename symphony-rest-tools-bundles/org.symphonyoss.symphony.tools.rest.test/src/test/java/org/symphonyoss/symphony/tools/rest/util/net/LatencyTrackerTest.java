@@ -0,0 +1,96 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.junit.Test;
+
+public class LatencyTrackerTest
+{
+  private static final String HOST = "pod.example.com";
+  private static final String ENDPOINT = "pod.example.com:443/";
+  
+  @Test
+  public void testDefaults()
+  {
+    LatencyTracker tracker = new LatencyTracker();
+    
+    tracker.recordConnect(HOST, 50);
+    
+    assertEquals(LatencyTracker.DEFAULT_CONNECT_TIMEOUT_MILLIS, tracker.getConnectTimeoutMillis(HOST));
+    assertEquals(LatencyTracker.DEFAULT_READ_TIMEOUT_MILLIS, tracker.getReadTimeoutMillis(ENDPOINT));
+  }
+  
+  @Test
+  public void testAdaptive()
+  {
+    LatencyTracker tracker = new LatencyTracker();
+    
+    for(int i=0 ; i<20 ; i++)
+    {
+      tracker.recordConnect(HOST, 100);
+      tracker.recordFirstByte(ENDPOINT, 1000 + (i % 2) * 200);
+    }
+    
+    int connectTimeout = tracker.getConnectTimeoutMillis(HOST.toUpperCase());
+    int readTimeout = tracker.getReadTimeoutMillis(ENDPOINT);
+    
+    assertEquals(LatencyTracker.MIN_TIMEOUT_MILLIS, connectTimeout);
+    assertTrue(readTimeout > 1200);
+    assertTrue(readTimeout < LatencyTracker.DEFAULT_READ_TIMEOUT_MILLIS);
+  }
+  
+  @Test
+  public void testLimit()
+  {
+    LatencyTracker tracker = new LatencyTracker();
+    
+    for(int i=0 ; i<10 ; i++)
+      tracker.recordFirstByte(ENDPOINT, 100000);
+    
+    assertEquals(LatencyTracker.MAX_READ_TIMEOUT_MILLIS, tracker.getReadTimeoutMillis(ENDPOINT));
+  }
+  
+  @Test
+  public void testEndpoints() throws MalformedURLException
+  {
+    LatencyTracker  tracker = new LatencyTracker();
+    String          root = LatencyTracker.getEndpoint(new URL("https://POD.example.com/?x=1"));
+    String          auth = LatencyTracker.getEndpoint(new URL("https://pod.example.com:8444/sessionauth/v1/authenticate"));
+    
+    assertEquals(ENDPOINT, root);
+    assertEquals("pod.example.com:8444/sessionauth/v1/authenticate", auth);
+    
+    for(int i=0 ; i<20 ; i++)
+      tracker.recordFirstByte(root, 10);
+    
+    // Fast responses from one endpoint do not shorten the timeout for another on the same host
+    assertEquals(LatencyTracker.MIN_TIMEOUT_MILLIS, tracker.getReadTimeoutMillis(root));
+    assertEquals(LatencyTracker.DEFAULT_READ_TIMEOUT_MILLIS, tracker.getReadTimeoutMillis(auth));
+  }
+}
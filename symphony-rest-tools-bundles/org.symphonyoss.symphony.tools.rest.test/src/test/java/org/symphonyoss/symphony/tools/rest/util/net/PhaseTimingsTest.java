@@ -0,0 +1,92 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+public class PhaseTimingsTest
+{
+  @Test
+  public void testPhases() throws IOException
+  {
+    try(ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1")))
+    {
+      HostResolver resolver = new HostResolver(60000, 60000)
+      {
+        @Override
+        protected InetAddress[] lookup(String hostName) throws UnknownHostException
+        {
+          return new InetAddress[] { InetAddress.getByName("127.0.0.1") };
+        }
+      };
+      
+      PhaseTimings timings = new PhaseTimings();
+      
+      timings.start(new URL("https://pod.example.com/"));
+      assertSame(timings, PhaseTimings.getCurrent());
+      
+      try(Socket socket = new HappyEyeballs(resolver, 250).connect("pod.example.com", server.getLocalPort(), 10000))
+      {
+        timings.connected();
+        timings.firstByte();
+        timings.end();
+      }
+      
+      assertNull(PhaseTimings.getCurrent());
+      assertFalse(timings.isReused());
+      assertTrue(timings.getConnectNanos() > 0);
+      assertEquals(timings.getTotalNanos(), timings.getDnsNanos() + timings.getConnectNanos() + timings.getTlsNanos()
+          + timings.getFirstByteNanos() + timings.getBodyNanos());
+    }
+  }
+  
+  @Test
+  public void testReused() throws IOException
+  {
+    PhaseTimings timings = new PhaseTimings();
+    
+    timings.start(new URL("https://pod.example.com/"));
+    timings.connected();
+    timings.firstByte();
+    timings.end();
+    
+    assertTrue(timings.isReused());
+    assertEquals(0, timings.getDnsNanos());
+    assertEquals(0, timings.getConnectNanos());
+    assertEquals(0, timings.getTlsNanos());
+    assertTrue(timings.toString().endsWith("(reused)"));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+public class PortScannerTest
+{
+  private static final String LOCALHOST = "127.0.0.1";
+  private static final String UNKNOWN_HOST = "no-such-host.invalid";
+  
+  @Test
+  public void testScan() throws IOException
+  {
+    int closedPort;
+    
+    try(ServerSocket closed = new ServerSocket(0, 1, InetAddress.getByName(LOCALHOST)))
+    {
+      closedPort = closed.getLocalPort();
+    }
+    
+    try(ServerSocket open = new ServerSocket(0, 1, InetAddress.getByName(LOCALHOST)))
+    {
+      int openPort = open.getLocalPort();
+      
+      PortScanner scanner = new PortScanner()
+          .withTargets(LOCALHOST, openPort, closedPort)
+          .withTarget(UNKNOWN_HOST, 443);
+      
+      assertTrue(scanner.isReachable(LOCALHOST, closedPort));
+      assertFalse(scanner.isScanned(LOCALHOST, closedPort));
+      
+      assertEquals(1, scanner.scan(2000));
+      
+      assertTrue(scanner.isReachable(LOCALHOST, openPort));
+      assertFalse(scanner.isReachable(LOCALHOST, closedPort));
+      assertFalse(scanner.isReachable(UNKNOWN_HOST, 443));
+      assertTrue(scanner.getUnknownHosts().contains(UNKNOWN_HOST));
+      
+      // A second scan only connects to new targets
+      assertEquals(0, scanner.scan(2000));
+    }
+  }
+  
+  @Test
+  public void testDualStack() throws IOException
+  {
+    try(ServerSocket open = new ServerSocket(0, 1, InetAddress.getByName(LOCALHOST)))
+    {
+      HostResolver resolver = new HostResolver(60000, 60000)
+      {
+        @Override
+        protected InetAddress[] lookup(String hostName) throws UnknownHostException
+        {
+          // Nothing listens on ::1, which is listed first
+          return new InetAddress[] { InetAddress.getByName("::1"), InetAddress.getByName(LOCALHOST) };
+        }
+      };
+      
+      PortScanner scanner = new PortScanner(resolver)
+          .withTarget("dual.example.com", open.getLocalPort());
+      
+      assertEquals(1, scanner.scan(2000));
+      assertTrue(scanner.isReachable("dual.example.com", open.getLocalPort()));
+      assertEquals(Inet4Address.class, resolver.getPreferredFamily("dual.example.com"));
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URL;
+import java.security.cert.CertificateParsingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+import org.symphonyoss.symphony.jcurl.JCurl;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.Deadline;
+import org.symphonyoss.symphony.tools.rest.util.net.CircuitBreaker.State;
+
+public class ResilientTransportTest
+{
+  /**
+   * A transport which fails the given number of times and then succeeds.
+   */
+  private static class FlakyTransport implements IHttpTransport
+  {
+    private int failures_;
+    private int attempts_;
+    
+    FlakyTransport(int failures)
+    {
+      failures_ = failures;
+    }
+    
+    @Override
+    public HttpResult execute(HttpRequest request) throws IOException, CertificateParsingException
+    {
+      attempts_++;
+      
+      if(failures_-- > 0)
+        throw new ConnectException("Connection refused");
+      
+      return new HttpResult(200, true, null, null, null);
+    }
+
+    @Override
+    public CompletableFuture<HttpResult> executeAsync(HttpRequest request)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getName()
+    {
+      return "flaky";
+    }
+  }
+  
+  private final List<State> transitions_ = new ArrayList<>();
+  
+  private ResilientTransport newTransport(IHttpTransport delegate, int retries, CircuitBreakers breakers)
+  {
+    return new ResilientTransport(delegate, new RetryPolicy(retries, 1, 2), breakers, Deadline.NONE,
+        new CancellationToken(), (breaker) -> transitions_.add(breaker.getState()));
+  }
+  
+  private HttpRequest newRequest() throws IOException
+  {
+    return HttpRequest.newBuilder(JCurl.builder(), new URL("https://pod.example.com/webcontroller/HealthCheck/aggregated"), null).build();
+  }
+  
+  @Test
+  public void testRetry() throws Exception
+  {
+    FlakyTransport delegate = new FlakyTransport(2);
+    
+    assertEquals(200, newTransport(delegate, 2, new CircuitBreakers(1, 60000)).execute(newRequest()).getStatus());
+    assertEquals(3, delegate.attempts_);
+    assertEquals(0, transitions_.size());
+  }
+  
+  @Test
+  public void testCircuitOpens() throws Exception
+  {
+    FlakyTransport      delegate = new FlakyTransport(100);
+    ResilientTransport  transport = newTransport(delegate, 1, new CircuitBreakers(2, 60000));
+    
+    for(int i=0 ; i<2 ; i++)
+    {
+      try
+      {
+        transport.execute(newRequest());
+        fail("Expected ConnectException");
+      }
+      catch(ConnectException e)
+      {
+        // expected
+      }
+    }
+    
+    assertEquals(4, delegate.attempts_);
+    assertEquals(1, transitions_.size());
+    assertEquals(State.Open, transitions_.get(0));
+    
+    try
+    {
+      transport.execute(newRequest());
+      fail("Expected CircuitOpenException");
+    }
+    catch(CircuitOpenException e)
+    {
+      // expected
+    }
+    
+    assertEquals(4, delegate.attempts_);
+  }
+}
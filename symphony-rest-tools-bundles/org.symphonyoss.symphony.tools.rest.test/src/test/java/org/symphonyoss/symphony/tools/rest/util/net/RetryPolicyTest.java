@@ -0,0 +1,84 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import org.junit.Test;
+
+public class RetryPolicyTest
+{
+  @Test
+  public void testBackoff()
+  {
+    RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+    
+    assertEquals(100, policy.getMaxBackoffMillis(0));
+    assertEquals(200, policy.getMaxBackoffMillis(1));
+    assertEquals(800, policy.getMaxBackoffMillis(3));
+    assertEquals(1000, policy.getMaxBackoffMillis(4));
+    assertEquals(1000, policy.getMaxBackoffMillis(100));
+    
+    for(int i=0 ; i<100 ; i++)
+    {
+      long backoff = policy.getBackoffMillis(2);
+      
+      assertTrue(backoff >= 200);
+      assertTrue(backoff <= 400);
+    }
+  }
+  
+  @Test
+  public void testRetryable()
+  {
+    RetryPolicy policy = new RetryPolicy(2);
+    
+    assertTrue(policy.isRetryable(new SocketTimeoutException()));
+    assertTrue(policy.isRetryable(new ConnectException()));
+    assertFalse(policy.isRetryable(new UnknownHostException()));
+    assertFalse(policy.isRetryable(new SSLHandshakeException("bad_certificate")));
+    assertFalse(policy.isRetryable(new DeadlineExceededException("expired")));
+    assertFalse(policy.isRetryable(new RequestCanceledException("canceled")));
+    
+    assertTrue(policy.isEndpointFailure(new UnknownHostException()));
+    assertFalse(policy.isEndpointFailure(new SSLHandshakeException("bad_certificate")));
+  }
+  
+  @Test
+  public void testRetryableStatus()
+  {
+    RetryPolicy policy = new RetryPolicy(2);
+    
+    assertTrue(policy.isRetryable(new HttpResult(503, false, null, null, null)));
+    assertFalse(policy.isRetryable(new HttpResult(503, true, null, null, null)));
+    assertFalse(policy.isRetryable(new HttpResult(404, false, null, null, null)));
+  }
+}
@@ -38,9 +38,11 @@ import org.symphonyoss.symphony.tools.rest.util.command.Flag;
 
 public class SwtConsole extends Console
 {
+  private static final long CANCEL_POLL_MILLIS = 200;
 
   private Shell shell_;
   private IProgressMonitor monitor_;
+  private Thread           cancelWatcher_;
   private SrtImageRegistry imageRegistry_;
   private int ok_;
 
@@ -75,9 +77,44 @@ public class SwtConsole extends Console
     }
   }
 
-  public void setProgressMonitor(IProgressMonitor monitor)
+  /**
+   * Set the progress monitor for the task being executed, or null when it is complete.
+   * 
+   * IProgressMonitor has no cancellation callback, so while a monitor is set it is
+   * polled and the cancellation token is canceled when the user presses cancel.
+   * 
+   * @param monitor The progress monitor, or null.
+   */
+  public synchronized void setProgressMonitor(IProgressMonitor monitor)
   {
     monitor_ = monitor;
+    
+    if(cancelWatcher_ != null)
+    {
+      cancelWatcher_.interrupt();
+      cancelWatcher_ = null;
+    }
+    
+    if(monitor != null)
+    {
+      cancelWatcher_ = new Thread(() ->
+      {
+        try
+        {
+          while(!monitor.isCanceled())
+            Thread.sleep(CANCEL_POLL_MILLIS);
+          
+          getCancellationToken().cancel();
+        }
+        catch(InterruptedException e)
+        {
+          // The task is complete
+        }
+      }, "SwtConsole cancel watcher");
+      
+      cancelWatcher_.setDaemon(true);
+      cancelWatcher_.start();
+    }
   }
 
 
@@ -106,7 +143,10 @@ public class SwtConsole extends Console
   @Override
   public boolean isTaskCanceled()
   {
-    return monitor_.isCanceled();
+    if(monitor_ != null && monitor_.isCanceled())
+      getCancellationToken().cancel();
+    
+    return super.isTaskCanceled();
   }
 
   @Override
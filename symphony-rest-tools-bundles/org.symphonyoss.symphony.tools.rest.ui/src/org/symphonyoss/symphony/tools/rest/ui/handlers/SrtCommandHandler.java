@@ -38,6 +38,7 @@ import org.symphonyoss.symphony.tools.rest.ui.console.IConsoleManager;
 import org.symphonyoss.symphony.tools.rest.ui.console.SwtConsole;
 import org.symphonyoss.symphony.tools.rest.ui.selection.ISrtSelectionService;
 import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsContextCache;
 
 public abstract class SrtCommandHandler
 {
@@ -63,6 +64,8 @@ public abstract class SrtCommandHandler
     
     SrtCommand   command = createCommand(srtConsole, srtHome_);
     
+    command.setTlsContextCache(TlsContextCache.getProcessCache());
+    
     selectionService_.populate(command.getParser());
     
     srtConsole.getOut().println(command.getProgramName() + " starting...");
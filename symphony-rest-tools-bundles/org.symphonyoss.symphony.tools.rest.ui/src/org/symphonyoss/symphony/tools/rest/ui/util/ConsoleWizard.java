@@ -90,7 +90,14 @@ public class ConsoleWizard extends Wizard
           
           console_.setProgressMonitor(monitor);
           
-          command_.doExecute();
+          try
+          {
+            command_.doExecute();
+          }
+          finally
+          {
+            console_.setProgressMonitor(null);
+          }
           
           if(console_.hasObjectives() && wizardDialog_ != null)
           {
@@ -41,6 +41,7 @@ import org.symphonyoss.symphony.tools.rest.util.IObjective;
 import org.symphonyoss.symphony.tools.rest.util.command.Flag;
 import org.symphonyoss.symphony.tools.rest.util.command.Switch;
 import org.symphonyoss.symphony.tools.rest.util.home.SrtCommandLineHome;
+import org.symphonyoss.symphony.tools.rest.util.net.PhaseTimings;
 
 public class ConsoleWizardConfigPage extends WizardPage
 {
@@ -114,6 +115,7 @@ public class ConsoleWizardConfigPage extends WizardPage
       {
         imageLabel.setImage(console_.getImageRegistry().get(o.getComponentStatus()));
         statusLabel.setText(objective.getComponentStatusMessage());
+        statusLabel.setToolTipText(getPhaseTimings(objective));
       }
     ));
    
@@ -121,6 +123,24 @@ public class ConsoleWizardConfigPage extends WizardPage
     statusLabel.setLayoutData(gd);
   }
 
+  private static String getPhaseTimings(IObjective objective)
+  {
+    if(objective.getPhaseTimings().isEmpty())
+      return null;
+    
+    StringBuilder s = new StringBuilder();
+    
+    for(PhaseTimings timings : objective.getPhaseTimings())
+    {
+      if(s.length() > 0)
+        s.append('\n');
+      
+      s.append(timings.getUrl()).append('\n').append(timings);
+    }
+    
+    return s.toString();
+  }
+
   private void setPageComplete()
   {
     boolean   ok = true;
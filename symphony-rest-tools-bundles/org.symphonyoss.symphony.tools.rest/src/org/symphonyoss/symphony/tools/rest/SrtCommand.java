@@ -23,33 +23,65 @@
 
 package org.symphonyoss.symphony.tools.rest;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
 
 import org.symphonyoss.symphony.jcurl.JCurl;
 import org.symphonyoss.symphony.jcurl.JCurl.Builder;
 import org.symphonyoss.symphony.tools.rest.console.Console;
 import org.symphonyoss.symphony.tools.rest.console.ConsoleDelegate;
 import org.symphonyoss.symphony.tools.rest.console.IConsole;
+import org.symphonyoss.symphony.tools.rest.model.IModelObject;
 import org.symphonyoss.symphony.tools.rest.model.IPod;
+import org.symphonyoss.symphony.tools.rest.model.IUrlEndpoint;
+import org.symphonyoss.symphony.tools.rest.model.UrlEndpoint;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.util.BoundedExecutor;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.Deadline;
 import org.symphonyoss.symphony.tools.rest.util.IObjective;
 import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
 import org.symphonyoss.symphony.tools.rest.util.command.Flag;
 import org.symphonyoss.symphony.tools.rest.util.command.Switch;
 import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
 import org.symphonyoss.symphony.tools.rest.util.home.SrtCommandLineHome;
+import org.symphonyoss.symphony.tools.rest.util.net.AsyncHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.CircuitBreaker;
+import org.symphonyoss.symphony.tools.rest.util.net.CircuitBreakers;
+import org.symphonyoss.symphony.tools.rest.util.net.ConnectionPool;
+import org.symphonyoss.symphony.tools.rest.util.net.IHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.JCurlTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.LatencyHistogram;
+import org.symphonyoss.symphony.tools.rest.util.net.LatencyTracker;
+import org.symphonyoss.symphony.tools.rest.util.net.PhaseTimings;
+import org.symphonyoss.symphony.tools.rest.util.net.ResilientTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.RetryPolicy;
+import org.symphonyoss.symphony.tools.rest.util.net.SlidingLatencyHistogram;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsConfig;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsContextCache;
 
 public abstract class SrtCommand extends ConsoleDelegate
 {
+  private static final long  SHUTDOWN_GRACE_MILLIS = 5000;
+  
   private final String       programName_;
   private String             name_;
   private String             domain_;
   private String             fqdn_;
   private int                connectTimeoutMillis_ = 2000;
-  private int                readTimeoutMillis_    = 0;
+  private int                readTimeoutMillis_    = LatencyTracker.DEFAULT_READ_TIMEOUT_MILLIS;
+  private int                deadlineSeconds_;
+  private Deadline           deadline_             = Deadline.NONE;
 
   private ISrtHome           srtHome_;
   private String             keystore_             = "";
@@ -62,7 +94,18 @@ public abstract class SrtCommand extends ConsoleDelegate
 
   protected final Switch     verbose_              = new Switch('v', "Verbose", "Set verbose Mode", 3);
   protected final Switch     interactive_          = new Switch('i', "Interactive", "Set interactive Mode", 2);
+  protected final Switch     asyncTransport_       = new Switch('a', "Async", "Use the asynchronous HTTP transport", 1);
   private boolean            withHostName_;
+  private Switch             parallel_;
+  private BoundedExecutor    executor_;
+  private TlsContextCache    tlsContextCache_      = new TlsContextCache();
+  private IHttpTransport     transport_;
+  private boolean            withRetries_;
+  private int                retries_;
+  private int                cooldownSeconds_;
+  private CircuitBreakers    circuitBreakers_;
+  private final Map<IModelObject, SavedStatus> breakerSavedStatus_ = new WeakHashMap<>();
+  private boolean            handleInterrupt_;
   
   /**
    * Create an instance with a Console connected to standard I/O.
@@ -75,6 +118,7 @@ public abstract class SrtCommand extends ConsoleDelegate
     this(programName, new Console(System.in, System.out, System.err), null);
     
     parser_.process(argv);
+    handleInterrupt_ = true;
   }
   
   public SrtCommand(String programName, IConsole console, ISrtHome srtHome)
@@ -82,13 +126,20 @@ public abstract class SrtCommand extends ConsoleDelegate
     super(console);
     programName_ = programName;
     
+    ConnectionPool.configure();
+    
     parser_ = new SrtCommandLineHome(programName)
         .withSwitch(verbose_)
         .withSwitch(interactive_)
+        .withSwitch(asyncTransport_)
         .withSwitch(getQuiet());
     
     init();
     
+    parser_.withFlag(new Flag<Integer>("Deadline Seconds", Integer.class, (v) -> deadlineSeconds_ = v, () -> 0)
+        .withName("deadline")
+        .withHelp("The maximum time in seconds for the command to run, 0 for no limit"));
+    
     srtHome_ = srtHome == null ? parser_.createSrtHome(getConsole()) : srtHome;
   }
   
@@ -129,6 +180,34 @@ public abstract class SrtCommand extends ConsoleDelegate
     ;
   }
   
+  /**
+   * Make requests through a ResilientTransport, which retries transient failures and
+   * stops calling endpoints which are down for a cooldown period.
+   * 
+   * @param defaultRetries The default number of retries after the first attempt.
+   */
+  protected void withRetries(int defaultRetries)
+  {
+    withRetries_ = true;
+    
+    parser_
+      .withFlag(new Flag<Integer>("Retries", Integer.class, (v) -> retries_ = v, () -> defaultRetries)
+          .withName("retries")
+          .withHelp("The number of times to retry a request which fails transiently"))
+      .withFlag(new Flag<Integer>("Circuit Breaker Cooldown Seconds", Integer.class, (v) -> cooldownSeconds_ = v,
+          () -> (int)TimeUnit.MILLISECONDS.toSeconds(CircuitBreaker.DEFAULT_COOLDOWN_MILLIS))
+          .withName("cooldown")
+          .withHelp("The time in seconds for which an endpoint which has failed repeatedly is not called"))
+    ;
+  }
+  
+  protected void withParallel()
+  {
+    parallel_ = new Switch('p', "Parallel", "Run independent probes concurrently");
+    
+    parser_.withSwitch(parallel_);
+  }
+  
   private String getStoreTypeFromName(String fileName, String defaultValue)
   {
     int i = fileName.lastIndexOf('.');
@@ -162,15 +241,58 @@ public abstract class SrtCommand extends ConsoleDelegate
       name_ = getDefaultName();
     }
     
-    execute(this);
-    println();
-    getErr().println();
+    CountDownLatch  finished = new CountDownLatch(1);
+    Thread          interruptHandler = null;
+    
+    if(handleInterrupt_)
+    {
+      // On SIGINT cancel the command and give it a chance to report before the JVM exits
+      interruptHandler = new Thread(() ->
+      {
+        getCancellationToken().cancel();
+        
+        try
+        {
+          finished.await(SHUTDOWN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+          // Exit anyway
+        }
+      }, programName_ + " interrupt handler");
+      
+      Runtime.getRuntime().addShutdownHook(interruptHandler);
+    }
     
-    flush();
+    try
+    {
+      execute(this);
+      println();
+      getErr().println();
+      
+      flush();
+    }
+    finally
+    {
+      finished.countDown();
+      
+      if(interruptHandler != null)
+      {
+        try
+        {
+          Runtime.getRuntime().removeShutdownHook(interruptHandler);
+        }
+        catch(IllegalStateException e)
+        {
+          // Shutdown is in progress
+        }
+      }
+    }
    }
    
   public void doExecute()
   {
+    setDeadline(Deadline.after(TimeUnit.SECONDS.toMillis(deadlineSeconds_)));
     prepareToExecute();
     
     try
@@ -193,9 +315,16 @@ public abstract class SrtCommand extends ConsoleDelegate
         for(IObjective objective : getConsole().getObjectives())
         {
           printfln("%-20s %-10s %s", objective.getLabel(), objective.getComponentStatus(), objective.getComponentStatusMessage());
+          
+          for(PhaseTimings timings : objective.getPhaseTimings())
+          {
+            printfln("%-20s %s", "", timings.getUrl());
+            printfln("%-20s %s", "", timings);
+          }
         }
       }
       
+      shutdownExecutor();
       getConsole().flush();
     }
   }
@@ -279,6 +408,48 @@ public abstract class SrtCommand extends ConsoleDelegate
     }
   }
   
+  /**
+   * Indicates if the parallel switch has been set.
+   * 
+   * @return true if independent probes should be run concurrently.
+   */
+  public boolean isParallel()
+  {
+    return parallel_ != null && parallel_.getCount() > 0;
+  }
+  
+  /**
+   * @return The parallel switch, or null if this command does not accept it.
+   */
+  public @Nullable Switch getParallel()
+  {
+    return parallel_;
+  }
+  
+  /**
+   * Return the executor for concurrent probes, which is created on first use and
+   * shut down when the command completes.
+   * 
+   * @return The executor for this command.
+   */
+  protected synchronized BoundedExecutor getExecutor()
+  {
+    if(executor_ == null)
+      executor_ = new BoundedExecutor();
+    
+    return executor_;
+  }
+  
+  private synchronized void shutdownExecutor()
+  {
+    if(executor_ != null)
+    {
+      executor_.shutdown();
+      executor_ = null;
+      transport_ = null;
+    }
+  }
+  
   public URL createURL(String url)
   {
     try
@@ -315,40 +486,245 @@ public abstract class SrtCommand extends ConsoleDelegate
         .extract(Srt.TOKEN, Srt.TOKEN)  // force JCurl to parse JSON
         .header("User-Agent", programName_ + " / 0.1.0 https://github.com/symphonyoss/symphony-rest-tools");
 
-    if (getConnectTimeoutMillis() > 0)
-      builder.connectTimeout(getConnectTimeoutMillis());
+    // Timeouts are set for each request by the transport, see LatencyTracker.
+    // Keystore and truststore are applied to each connection from the
+    // TlsContextCache by connect(), see getTlsConfig().
+    
+    if(verbose_.getCount()>0)
+    {
+      builder.verbosity(verbose_.getCount());
+    }
+    return builder;
+  }
+
+  /**
+   * Return the TLS parameters for connections made by this command.
+   * 
+   * Sub-classes may override to change the trust settings.
+   * 
+   * @return The TLS parameters for connections made by this command.
+   */
+  protected TlsConfig getTlsConfig()
+  {
+    return TlsConfig.newBuilder()
+        .setKeystore(getKeystore(), getStorepass(), getStoretype())
+        .setTruststore(getTruststore(), getTrustpass(), getTrusttype())
+        .build();
+  }
+  
+  /**
+   * Open a connection to the given URL using the TLS context for this command.
+   * 
+   * @param jcurl A JCurl instance.
+   * @param url   The URL to connect to.
+   * @return      The connection.
+   * 
+   * @throws IOException If the connection fails.
+   */
+  public HttpURLConnection connect(JCurl jcurl, URL url) throws IOException
+  {
+    return connect(jcurl, url, getTlsConfig());
+  }
+  
+  /**
+   * Open a connection to the given URL using the TLS context for the given config.
+   * 
+   * Contexts are cached so that repeated connections reuse the same SSLContext and
+   * can resume TLS sessions.
+   * 
+   * @param jcurl     A JCurl instance.
+   * @param url       The URL to connect to.
+   * @param tlsConfig The TLS parameters.
+   * @return          The connection.
+   * 
+   * @throws IOException If the connection fails.
+   */
+  public HttpURLConnection connect(JCurl jcurl, URL url, TlsConfig tlsConfig) throws IOException
+  {
+    return jcurl.connect(tlsContextCache_.wrap(url, tlsConfig));
+  }
+
+  /**
+   * @return true if the async switch is set, in which case commands which make many requests
+   * at once start them all with executeAsync() and compose the results, rather than
+   * blocking a thread for each.
+   */
+  public boolean isAsync()
+  {
+    return asyncTransport_.getCount() > 0;
+  }
 
-    if (getReadTimeoutMillis() > 0)
-      builder.readTimeout(getReadTimeoutMillis());
+  /**
+   * Return the HTTP transport for this command.
+   * 
+   * The asynchronous transport is used if the async switch is set, in which case
+   * requests made with executeAsync() run on the executor for this command. Commands
+   * which call withRetries() have each request retried and guarded by a circuit breaker.
+   * 
+   * @return The HTTP transport for this command.
+   */
+  public synchronized IHttpTransport getTransport()
+  {
+    if(transport_ == null)
+    {
+      IHttpTransport transport = new JCurlTransport(tlsContextCache_, LatencyTracker.getDefault(), deadline_,
+          getCancellationToken());
+      
+      if(withRetries_)
+        transport = new ResilientTransport(transport, new RetryPolicy(retries_), getCircuitBreakers(), deadline_,
+            getCancellationToken(), this::circuitBreakerChanged);
+      
+      if(isAsync())
+        transport = new AsyncHttpTransport(transport, getExecutor());
+      
+      transport_ = transport;
+    }
+    
+    return transport_;
+  }
 
-    String keystore = getKeystore();
+  /**
+   * @return The circuit breakers for this command, which outlive any one transport.
+   */
+  public synchronized CircuitBreakers getCircuitBreakers()
+  {
+    if(circuitBreakers_ == null)
+      circuitBreakers_ = new CircuitBreakers(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD,
+          TimeUnit.SECONDS.toMillis(cooldownSeconds_));
     
-    if(keystore != null && keystore.length()>0)
-    {
-      builder.keystore(keystore);
-      builder.storepass(getStorepass());
+    return circuitBreakers_;
+  }
+  
+  /*
+   * Show the state of the breaker on every endpoint of a known pod which it guards. The
+   * status an endpoint had when the breaker opened is put back when the breaker closes.
+   */
+  private void circuitBreakerChanged(CircuitBreaker breaker)
+  {
+    boolean closed = breaker.getState() == CircuitBreaker.State.Closed;
     
-      String storetype = getStoretype();
-      if(storetype != null && storetype.length()>0)
-        builder.storetype(storetype);
+    for(IPod pod : getSrtHome().getPodManager().getAll())
+    {
+      pod.visit((component) ->
+      {
+        if(component instanceof UrlEndpoint && ((UrlEndpoint) component).getUrl() != null
+            && breaker.getEndpoint().equals(CircuitBreaker.getEndpoint(((UrlEndpoint) component).getUrl())))
+        {
+          synchronized(breakerSavedStatus_)
+          {
+            if(closed)
+            {
+              SavedStatus saved = breakerSavedStatus_.remove(component);
+              
+              if(saved == null)
+                return;
+              
+              component.setComponentStatus(saved.status_, saved.statusMessage_);
+            }
+            else
+            {
+              breakerSavedStatus_.putIfAbsent(component,
+                  new SavedStatus(component.getComponentStatus(), component.getComponentStatusMessage()));
+              component.setComponentStatus(breaker.getComponentStatus(), breaker.getStatusMessage());
+            }
+          }
+          
+          pod.getManager().modelObjectChanged(component);
+        }
+      });
     }
+  }
+  
+  private static class SavedStatus
+  {
+    private final ComponentStatus status_;
+    private final String          statusMessage_;
     
-    String truststore = getTruststore();
-    if(truststore != null && truststore.length()>0)
+    private SavedStatus(ComponentStatus status, String statusMessage)
     {
-      builder.truststore(truststore);
-      builder.trustpass(getTrustpass());
-    
-      String trusttype = getTrusttype();
-      if(trusttype != null && trusttype.length()>0)
-        builder.storetype(trusttype);
+      status_ = status;
+      statusMessage_ = statusMessage;
     }
+  }
+
+  /**
+   * Find the latency histogram for requests to the given URL.
+   * 
+   * The histogram is that of the endpoint of the pod, or of one of its agents, with the longest
+   * URL of which the given URL is an extension, so a request to /agent/v1/util/echo is recorded
+   * against the agent and a request to /webcontroller/HealthCheck against the pod.
+   * 
+   * @param pod The pod to which the request is being made, may be null.
+   * @param url The URL of the request.
+   * 
+   * @return The histogram of the best matching endpoint, or null if there is none.
+   */
+  public @Nullable SlidingLatencyHistogram getLatencyHistogram(@Nullable IPod pod, URL url)
+  {
+    if(pod == null)
+      return null;
     
-    if(verbose_.getCount()>0)
+    String          target = url.toExternalForm();
+    IUrlEndpoint[]  best = new IUrlEndpoint[1];
+    int[]           bestLength = new int[] { -1 };
+    
+    pod.visit((component) ->
     {
-      builder.verbosity(verbose_.getCount());
-    }
-    return builder;
+      if(component instanceof IUrlEndpoint && ((IUrlEndpoint) component).getUrl() != null)
+      {
+        String prefix = ((IUrlEndpoint) component).getUrl().toExternalForm();
+        
+        while(prefix.endsWith("/"))
+          prefix = prefix.substring(0, prefix.length() - 1);
+        
+        if(prefix.length() > bestLength[0] && target.startsWith(prefix)
+            && (target.length() == prefix.length() || "/?#".indexOf(target.charAt(prefix.length())) != -1))
+        {
+          best[0] = (IUrlEndpoint) component;
+          bestLength[0] = prefix.length();
+        }
+      }
+    });
+    
+    return best[0] == null ? null : best[0].getLatencyHistogram();
+  }
+  
+  /**
+   * Print the latency percentiles of every endpoint of the given pod for which any have been recorded.
+   * 
+   * @param pod A pod.
+   */
+  protected void printLatency(IPod pod)
+  {
+    pod.visit((component) ->
+    {
+      if(component instanceof IUrlEndpoint)
+      {
+        LatencyHistogram histogram = ((IUrlEndpoint) component).getLatencyHistogram().getHistogram();
+        
+        if(histogram.getCount() > 0)
+          printfln("%-30s %s", component.getName(), histogram);
+      }
+    });
+  }
+
+  public TlsContextCache getTlsContextCache()
+  {
+    return tlsContextCache_;
+  }
+
+  /**
+   * Set the TLS context cache for this command.
+   * 
+   * By default each command has its own cache, long running processes may
+   * share TlsContextCache.getProcessCache() between commands.
+   * 
+   * @param tlsContextCache The cache to use.
+   */
+  public synchronized void setTlsContextCache(TlsContextCache tlsContextCache)
+  {
+    tlsContextCache_ = tlsContextCache;
+    transport_ = null;
   }
 
   public String getName()
@@ -376,6 +752,26 @@ public abstract class SrtCommand extends ConsoleDelegate
     return readTimeoutMillis_;
   }
 
+  /**
+   * @return The deadline by which this command must complete.
+   */
+  public Deadline getDeadline()
+  {
+    return deadline_;
+  }
+
+  /**
+   * Set the deadline for this command. Requests made through the transport for this
+   * command have their timeouts limited by the deadline and fail once it has expired.
+   * 
+   * @param deadline The deadline.
+   */
+  public synchronized void setDeadline(Deadline deadline)
+  {
+    deadline_ = deadline;
+    transport_ = null;
+  }
+
   public ISrtHome getSrtHome()
   {
     return srtHome_;
@@ -426,6 +822,16 @@ public abstract class SrtCommand extends ConsoleDelegate
     return verbose_;
   }
 
+  /**
+   * Phase timings are only captured in verbose mode, so that other runs pay nothing for them.
+   * 
+   * @return A new PhaseTimings to be passed to HttpRequest.Builder.setPhaseTimings(), or null.
+   */
+  public @Nullable PhaseTimings newPhaseTimings()
+  {
+    return verbose_.getCount() > 0 ? new PhaseTimings() : null;
+  }
+
   public Switch getInteractive()
   {
     return interactive_;
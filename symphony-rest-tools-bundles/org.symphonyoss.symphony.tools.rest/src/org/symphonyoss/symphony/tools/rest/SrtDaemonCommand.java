@@ -32,12 +32,13 @@ public abstract class SrtDaemonCommand extends SrtCommand
 
   public SrtDaemonCommand(String programName, String[] argv)
   {
-    this(programName, new Console(System.in, System.out, System.err), null);
+    // Handles Ctrl-C by canceling the command, see SrtCommand.run()
+    super(programName, argv);
     
-    getParser().process(argv);
+    multiConsole_ = (Console) getConsole();
   }
 
-  private SrtDaemonCommand(String programName, Console console, ISrtHome srtHome)
+  protected SrtDaemonCommand(String programName, Console console, ISrtHome srtHome)
   {
     super(programName, console, srtHome);
     
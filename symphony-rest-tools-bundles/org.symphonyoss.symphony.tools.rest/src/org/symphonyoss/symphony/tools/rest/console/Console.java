@@ -37,6 +37,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.Nullable;
 
 import org.symphonyoss.symphony.tools.rest.SrtCommand;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
 import org.symphonyoss.symphony.tools.rest.util.IObjective;
 import org.symphonyoss.symphony.tools.rest.util.Objective;
 import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
@@ -53,6 +54,7 @@ public class Console implements IConsole
   private IDefaultsProvider                defaultsProvider_;
   private CopyOnWriteArrayList<IObjective> objectives_ = new CopyOnWriteArrayList<>();
   private String taskName_;
+  private final CancellationToken          cancellationToken_ = new CancellationToken();
   
   public Console(InputStream in, OutputStream out, OutputStream err)
   {
@@ -427,7 +429,13 @@ public class Console implements IConsole
   @Override
   public boolean isTaskCanceled()
   {
-    return false;
+    return cancellationToken_.isCanceled();
+  }
+
+  @Override
+  public CancellationToken getCancellationToken()
+  {
+    return cancellationToken_;
   }
 
   @Override
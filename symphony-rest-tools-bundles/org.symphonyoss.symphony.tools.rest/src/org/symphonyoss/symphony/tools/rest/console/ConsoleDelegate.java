@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.Locale;
 
 import org.symphonyoss.symphony.tools.rest.SrtCommand;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
 import org.symphonyoss.symphony.tools.rest.util.IObjective;
 import org.symphonyoss.symphony.tools.rest.util.command.Switch;
 import org.symphonyoss.symphony.tools.rest.util.home.IDefaultsProvider;
@@ -186,6 +187,12 @@ public class ConsoleDelegate implements IConsole
     return console_.isTaskCanceled();
   }
 
+  @Override
+  public CancellationToken getCancellationToken()
+  {
+    return console_.getCancellationToken();
+  }
+
   @Override
   public String title(Locale l, String format, Object... args)
   {
@@ -30,6 +30,7 @@ import java.util.Locale;
 import javax.annotation.Nullable;
 
 import org.symphonyoss.symphony.tools.rest.SrtCommand;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
 import org.symphonyoss.symphony.tools.rest.util.IObjective;
 import org.symphonyoss.symphony.tools.rest.util.home.IDefaultsProvider;
 
@@ -240,6 +241,16 @@ public interface IConsole
    */
   boolean isTaskCanceled();
 
+  /**
+   * Return the token which is canceled when the user cancels the task.
+   * 
+   * Blocking operations should register with the token so that they are aborted
+   * promptly rather than continuing until they complete or time out.
+   * 
+   * @return The cancellation token for this console.
+   */
+  CancellationToken getCancellationToken();
+
   /**
    * Update the name of the task previously passed to beginTask()
    * 
@@ -25,6 +25,7 @@ package org.symphonyoss.symphony.tools.rest.model;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import javax.annotation.Nullable;
 
@@ -38,21 +39,23 @@ public class DynamicComponentContainer extends ModelObjectContainer implements I
 {
   public static final String TYPE_NAME = "DynamicComponentContainer";
   
+  private final IModelObjectContainer           parent_;
   private Map<String, IModelObject>             componentMap_ = new HashMap<>();
 
   public DynamicComponentContainer(IModelObjectContainer parent)
   {
-    super(parent, TYPE_NAME, "Dynamic Components");
+    this(parent, TYPE_NAME, "Dynamic Components");
   }
   
   public DynamicComponentContainer(IModelObjectContainer parent, String name)
   {
-    super(parent, TYPE_NAME, name);
+    this(parent, TYPE_NAME, name);
   }
 
   public DynamicComponentContainer(IModelObjectContainer parent, String typeName, String name)
   {
     super(parent, typeName, name);
+    parent_ = parent;
   }
 
   @Override
@@ -89,14 +92,41 @@ public class DynamicComponentContainer extends ModelObjectContainer implements I
         return vmo;
       }
       
-      setExisting.set(component);
+      if(setExisting != null)
+        setExisting.set(component);
+      
       return component;
     }
   }
 
+  /**
+   * The status of the container is that of its most severe component, so it recovers
+   * when its components do. If no component has a status, for example because they have
+   * all disappeared, the container's status is cleared. The container is reported as changed
+   * only when its status actually changes.
+   */
   @Override
   public void componentStatusChanged(IComponent component)
   {
-    setComponentStatusIfMoreSevere(component.getComponentStatus(), component.getComponentStatusMessage());
+    IComponent mostSevere = null;
+    
+    synchronized (componentMap_)
+    {
+      for(IModelObject child : componentMap_.values())
+      {
+        if(child.getComponentStatus() != null && (mostSevere == null
+            || child.getComponentStatus().isMoreSevereThan(mostSevere.getComponentStatus())))
+          mostSevere = child;
+      }
+    }
+    
+    ComponentStatus status = mostSevere == null ? null : mostSevere.getComponentStatus();
+    String          message = mostSevere == null ? "" : mostSevere.getComponentStatusMessage();
+    
+    if(status != getComponentStatus() || !Objects.equals(message, getComponentStatusMessage()))
+    {
+      setComponentStatus(status, message);
+      parent_.modelObjectChanged(this);
+    }
   }
 }
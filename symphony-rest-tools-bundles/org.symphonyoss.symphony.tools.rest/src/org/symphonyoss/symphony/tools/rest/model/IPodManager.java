@@ -49,4 +49,12 @@ public interface IPodManager extends IModelObjectContainer
 
   IPod save(IPod pod) throws IOException;
 
+  /**
+   * Release the in-memory model of the given pod, the saved configuration is not affected
+   * and the pod will be reloaded by a subsequent call to getPod().
+   * 
+   * @param hostName The name of the pod to unload.
+   */
+  void unloadPod(String hostName);
+
 }
\ No newline at end of file
@@ -25,7 +25,14 @@ package org.symphonyoss.symphony.tools.rest.model;
 
 import java.net.URL;
 
+import org.symphonyoss.symphony.tools.rest.util.net.SlidingLatencyHistogram;
+
 public interface IUrlEndpoint extends IModelObject
 {
   URL getUrl();
+  
+  /**
+   * @return The latencies of recent requests to this endpoint.
+   */
+  SlidingLatencyHistogram getLatencyHistogram();
 }
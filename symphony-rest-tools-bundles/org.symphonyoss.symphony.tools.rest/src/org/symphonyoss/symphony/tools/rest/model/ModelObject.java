@@ -47,7 +47,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class ModelObject extends ComponentProxy implements IModelObject
 {
-  private static final String         FORMAT_1_REQUIRED_FIELD_MISSING = "Required field \"%s\" missing";
+  protected static final String       FORMAT_1_REQUIRED_FIELD_MISSING = "Required field \"%s\" missing";
   private static final String         FORMAT_1_INVALID_STATUS         = "Invalid component status \"%s\"";
   public static final String          NAME                            = "name";
   public static final String          COMPONENT_STATUS                = "componentStatus";
@@ -33,6 +33,7 @@ import java.util.Map;
 import javax.annotation.Nullable;
 
 import org.symphonyoss.symphony.tools.rest.ISrtSelectable;
+import org.symphonyoss.symphony.tools.rest.util.net.SlidingLatencyHistogram;
 import org.symphonyoss.symphony.tools.rest.util.typeutils.ISetter;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -78,6 +79,7 @@ public class Pod extends SslServer implements IPod, ISrtSelectable
   private Map<String, Agent>        agentMap_                    = new HashMap<>();
   private Map<String, Principal>    principalMap_                = new HashMap<>();
   private DynamicComponentContainer dynamicContainer_;
+  private final SlidingLatencyHistogram latencyHistogram_ = new SlidingLatencyHistogram();
   
   /* package */ Pod(PodManager manager, JsonNode config) throws InvalidConfigException
   {
@@ -384,6 +386,12 @@ public class Pod extends SslServer implements IPod, ISrtSelectable
     return podUrl_ == null ? webUrl_ : podUrl_;
   }
 
+  @Override
+  public SlidingLatencyHistogram getLatencyHistogram()
+  {
+    return latencyHistogram_;
+  }
+
   @Override
   public Long getPodId()
   {
@@ -467,9 +475,7 @@ public class Pod extends SslServer implements IPod, ISrtSelectable
       IModelObjectConstructor<? extends IModelObject> constructor,
       @Nullable ISetter<IModelObject> setExisting)
   {
-    return getDynamicContainer().getComponent(name,
-        (parent, componentName) -> new ModelObject(this, GENERIC_COMPONENT, componentName),
-        setExisting);
+    return getDynamicContainer().getComponent(name, constructor, setExisting);
   }
 
   @Override
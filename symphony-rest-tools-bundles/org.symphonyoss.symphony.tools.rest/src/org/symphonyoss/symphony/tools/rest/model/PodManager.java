@@ -214,4 +214,16 @@ public class PodManager extends FileSystemModelObjectManager implements IPodMana
     
     oldPod.modelUpdated(null);
   }
+
+  @Override
+  public void unloadPod(String hostName)
+  {
+    synchronized (podMap_)
+    {
+      Pod oldPod = podMap_.remove(hostName);
+      
+      if(oldPod != null)
+        removeChild(oldPod);
+    }
+  }
 }
@@ -24,15 +24,20 @@
 package org.symphonyoss.symphony.tools.rest.model;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.net.URL;
 import java.security.cert.CertificateParsingException;
 
 import org.symphonyoss.symphony.jcurl.JCurl;
-import org.symphonyoss.symphony.jcurl.JCurl.Response;
 import org.symphonyoss.symphony.tools.rest.Srt;
 import org.symphonyoss.symphony.tools.rest.console.IConsole;
 import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
 import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.IHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.JCurlTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.JsonExtractor;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsConfig;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsContextCache;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -49,6 +54,10 @@ public class Principal extends ModelObject
   private static final String SKEY = "skey";
   private static final String KMSESSION = "kmsession";
 
+  private static final JsonExtractor SESSION_INFO_EXTRACTOR = new JsonExtractor(USER_ID, USER_NAME);
+  private static final int           SESSION_INFO_USER_ID = 0;
+  private static final int           SESSION_INFO_USER_NAME = 1;
+
   // Immutable Config
   private final String        certificate_;
   
@@ -151,6 +160,11 @@ public class Principal extends ModelObject
   }
 
   public static Principal newInstance(IConsole console, IPod pod, String skey, String kmsession) throws IOException
+  {
+    return newInstance(console, pod, skey, kmsession, new JCurlTransport(TlsContextCache.getProcessCache()));
+  }
+  
+  public static Principal newInstance(IConsole console, IPod pod, String skey, String kmsession, IHttpTransport transport) throws IOException
   {
     Builder builder = Principal.newBuilder()
     .setSkey(skey)
@@ -158,26 +172,26 @@ public class Principal extends ModelObject
     
     console.printfln("Validating session");
     
-    JCurl jcurl = JCurl.builder()
-        .header(Srt.SESSION_TOKEN, skey)
-        .extract(KMSESSION, KMSESSION)
-        .build();
+    JCurl.Builder jcurl = JCurl.builder()
+        .header(Srt.SESSION_TOKEN, skey);
+    
+    // {"id":206158450786,"emailAddress":"bruce+qa4@symphony.com","firstName":"Bruce","lastName":"Sk","displayName":"Bruce Sk","company":"companyNameFour","username":"bruce","avatars":[{"size":"original","url":"../avatars/static/orig/default.png"},{"size":"small","url":"../avatars/static/150/default.png"}]}
+    String[] sessionInfo = new String[2];
     
     try
     {
-      HttpURLConnection con = jcurl.connect(pod.getPodApiUrl() + SESSION_INFO);
-      
-      Response response = jcurl.processResponse(con);
-      JsonNode json = response.getJsonNode();
+      transport.execute(HttpRequest.newBuilder(jcurl, new URL(pod.getPodApiUrl() + SESSION_INFO),
+          TlsConfig.newBuilder().build())
+          .setExpectedStatus()
+          .setJsonExtractor(SESSION_INFO_EXTRACTOR, (path, name, parser) -> sessionInfo[path] = parser.getValueAsString())
+          .build());
       
-      console.println(json);
+      console.printfln("%s=%s %s=%s", USER_ID, sessionInfo[SESSION_INFO_USER_ID], USER_NAME, sessionInfo[SESSION_INFO_USER_NAME]);
       
-      // {"id":206158450786,"emailAddress":"bruce+qa4@symphony.com","firstName":"Bruce","lastName":"Sk","displayName":"Bruce Sk","company":"companyNameFour","username":"bruce","avatars":[{"size":"original","url":"../avatars/static/orig/default.png"},{"size":"small","url":"../avatars/static/150/default.png"}]}
-      
-      builder.setUserId(getRequiredLongNode(json, "id"));
-      builder.setName(getRequiredTextNode(json, "username"));
+      builder.setUserId(Long.parseLong(getRequiredField(sessionInfo, SESSION_INFO_USER_ID, USER_ID)));
+      builder.setName(getRequiredField(sessionInfo, SESSION_INFO_USER_NAME, USER_NAME));
     }
-    catch(IOException | CertificateParsingException | InvalidConfigException  e)
+    catch(IOException | CertificateParsingException | InvalidConfigException | NumberFormatException e)
     {
       console.error(e, "Unable to validate user");
     }
@@ -191,4 +205,12 @@ public class Principal extends ModelObject
     return principal;
   }
 
+  private static String getRequiredField(String[] fields, int index, String name) throws InvalidConfigException
+  {
+    if(fields[index] == null)
+      throw new InvalidConfigException(String.format(FORMAT_1_REQUIRED_FIELD_MISSING, name));
+    
+    return fields[index];
+  }
+
 }
@@ -25,9 +25,12 @@ package org.symphonyoss.symphony.tools.rest.model;
 
 import java.net.URL;
 
+import org.symphonyoss.symphony.tools.rest.util.net.SlidingLatencyHistogram;
+
 public class UrlEndpoint extends ModelObject implements IUrlEndpoint
 {
   private URL url_;
+  private final SlidingLatencyHistogram latencyHistogram_ = new SlidingLatencyHistogram();
 
   public UrlEndpoint(IModelObjectContainer parent, String typeName, String name, URL url)
   {
@@ -61,5 +64,11 @@ public class UrlEndpoint extends ModelObject implements IUrlEndpoint
     return url_;
   }
 
+  @Override
+  public SlidingLatencyHistogram getLatencyHistogram()
+  {
+    return latencyHistogram_;
+  }
+
 
 }
@@ -0,0 +1,143 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.io.IOException;
+import java.security.cert.CertificateParsingException;
+
+import javax.net.ssl.SSLException;
+
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+
+/**
+ * The outcome of an attempt to authenticate to an auth endpoint with a client certificate.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public enum AuthOutcome
+{
+  /** The client certificate authenticated. */
+  Authenticated("authenticated"),
+  
+  /** The client certificate is valid but the account was refused. */
+  Forbidden("forbidden"),
+  
+  /** The client certificate was rejected in the TLS handshake. */
+  Rejected("rejected"),
+  
+  /** The endpoint could not be reached, or the connection failed for a reason other than the client certificate. */
+  Unreachable("unreachable"),
+  
+  /** The endpoint returned an unexpected HTTP status. */
+  Unexpected("unexpected");
+  
+  /** The TLS alerts with which a server refuses a client certificate. */
+  private static final String[] CLIENT_CERT_ALERTS = { "bad_certificate", "certificate_unknown", "certificate_required" };
+  
+  private final String label_;
+
+  private AuthOutcome(String label)
+  {
+    label_ = label;
+  }
+
+  /**
+   * Classify the HTTP status returned by an auth endpoint after a successful handshake.
+   * 
+   * @param status An HTTP status.
+   * @return The outcome indicated by the given status.
+   */
+  public static AuthOutcome forStatus(int status)
+  {
+    switch(status)
+    {
+      case 200:
+        return Authenticated;
+        
+      case 401:
+        return Forbidden;
+        
+      default:
+        return Unexpected;
+    }
+  }
+  
+  /**
+   * Classify the failure of a request to an auth endpoint.
+   * 
+   * Only the alerts with which a server refuses a client certificate count as a rejection,
+   * any other TLS failure, such as a reset or a protocol mismatch, counts as unreachable.
+   * 
+   * @param cause The exception with which the request failed.
+   * @return The outcome indicated by the given failure.
+   * 
+   * @throws RuntimeException If the failure was not a network failure.
+   */
+  public static AuthOutcome forFailure(Throwable cause)
+  {
+    if(isClientCertRejection(cause))
+      return Rejected;
+    
+    if(cause instanceof IOException || cause instanceof CertificateParsingException)
+      return Unreachable;
+    
+    if(cause instanceof RuntimeException)
+      throw (RuntimeException) cause;
+    
+    if(cause instanceof Error)
+      throw (Error) cause;
+    
+    throw new ProgramFault(cause);
+  }
+  
+  /**
+   * Determine whether a failure is a TLS alert refusing the client certificate.
+   * 
+   * With TLS 1.3 the server sends the alert after the client considers the handshake
+   * complete, so it may arrive as an SSLException rather than an SSLHandshakeException.
+   * 
+   * @param cause The exception with which a request failed.
+   * @return true if the server refused the client certificate.
+   */
+  public static boolean isClientCertRejection(Throwable cause)
+  {
+    if(!(cause instanceof SSLException) || cause.getMessage() == null)
+      return false;
+    
+    String message = cause.getMessage().toLowerCase();
+    
+    for(String alert : CLIENT_CERT_ALERTS)
+      if(message.contains(alert))
+        return true;
+    
+    return false;
+  }
+  
+  @Override
+  public String toString()
+  {
+    return label_;
+  }
+}
@@ -0,0 +1,353 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.symphonyoss.symphony.jcurl.JCurl;
+import org.symphonyoss.symphony.jcurl.JCurl.HttpMethod;
+import org.symphonyoss.symphony.tools.rest.Srt;
+import org.symphonyoss.symphony.tools.rest.SrtCommand;
+import org.symphonyoss.symphony.tools.rest.console.IConsole;
+import org.symphonyoss.symphony.tools.rest.model.IPod;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.util.BoundedExecutor;
+import org.symphonyoss.symphony.tools.rest.util.IObjective;
+import org.symphonyoss.symphony.tools.rest.util.command.Flag;
+import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
+import org.symphonyoss.symphony.tools.rest.util.net.AsyncHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsConfig;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsContextCache.TlsContext;
+
+/**
+ * Attempts session auth and key auth with every keystore against every known pod.
+ * 
+ * Each keystore is loaded once, when its TLS context is created, and the context
+ * is then shared by all the pods checked with it. Pairs are checked concurrently up to
+ * a limit and a result line is printed as each pair completes.
+ * 
+ * The context trusts all servers, so that an untrusted server does not hide the outcome of
+ * client certificate authentication. Each server chain is then checked against the truststore
+ * and an untrusted server is reported alongside the outcome.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class CertMatrix extends SrtCommand
+{
+  private static final String   PROGRAM_NAME              = "CertMatrix";
+  private static final int      DEFAULT_MAX_CONCURRENCY   = 16;
+  private static final String   KEYSTORE_TYPE             = "pkcs12";
+  private static final String[] KEYSTORE_SUFFIXES         = { ".p12", ".pfx", ".pkcs12" };
+  private static final String   NOT_CONFIGURED            = "-";
+  private static final String   UNTRUSTED                 = " (untrusted)";
+  private static final String   FORMAT                    = "%-30s %-30s %-26s %s";
+
+  private String                      keystores_        = "";
+  private String                      storepass_        = "changeit";
+  private int                         maxConcurrency_   = DEFAULT_MAX_CONCURRENCY;
+
+  private final Map<AuthOutcome, AtomicInteger> counts_ = new ConcurrentHashMap<>();
+  private final AtomicInteger         pairCount_        = new AtomicInteger();
+  private final AtomicInteger         untrustedCount_   = new AtomicInteger();
+  private IObjective                  matrixObjective_;
+  
+  public static void main(String[] argv) throws IOException
+  {
+    new CertMatrix(argv).run();
+  }
+
+  public CertMatrix(IConsole console, ISrtHome srtHome)
+  {
+    super(PROGRAM_NAME, console, srtHome);
+  }
+
+  public CertMatrix(String[] argv)
+  {
+    super(PROGRAM_NAME, argv);
+  }
+
+  @Override
+  protected void init()
+  {
+    super.init();
+
+    withTruststore(false);
+    
+    getParser()
+      .withFlag(new Flag<String>("Keystore Directory", String.class, (v) -> keystores_ = v)
+          .withName("keystores")
+          .withRequired(true)
+          .withHelp("A directory of PKCS12 keystores, or a single keystore file"))
+      .withFlag(new Flag<String>("Keystore Password", String.class, (v) -> storepass_ = v, () -> "changeit")
+          .withName("storepass"))
+      .withFlag(new Flag<Integer>("Max Concurrent Checks", Integer.class, (v) -> maxConcurrency_ = v,
+          () -> DEFAULT_MAX_CONCURRENCY)
+          .withName("concurrency"));
+    
+    matrixObjective_ = createObjective("Certificate Matrix");
+  }
+
+  @Override
+  public void execute()
+  {
+    List<File>  keystores = listKeystores();
+    List<IPod>  pods = new ArrayList<>(getSrtHome().getPodManager().getAll());
+    
+    pods.sort(Comparator.comparing(IPod::getName));
+    
+    if(keystores.isEmpty() || pods.isEmpty())
+    {
+      matrixObjective_.setObjectiveStatus(ComponentStatus.Failed, keystores.isEmpty() ? "No keystores" : "No pods");
+      error("Found %d keystores in %s and %d pods, nothing to do.", keystores.size(), keystores_, pods.size());
+      return;
+    }
+    
+    beginTask(keystores.size(), "Checking %d keystores against %d pods", keystores.size(), pods.size());
+    matrixObjective_.setObjectiveStatus(ComponentStatus.Starting, "Checking...");
+    
+    printfln(FORMAT, "Keystore", "Pod", "Session Auth", "Key Auth");
+    flush();
+    
+    BoundedExecutor executor    = new BoundedExecutor(Math.max(1, maxConcurrency_));
+    Semaphore       permits     = new Semaphore(executor.getMaxConcurrency());
+    
+    try
+    {
+      for(File keystore : keystores)
+      {
+        if(isTaskCanceled() || getDeadline().isExpired())
+          break;
+        
+        TlsConfig   config = TlsConfig.newBuilder()
+            .setKeystore(keystore.getPath(), storepass_, KEYSTORE_TYPE)
+            .setTruststore(getTruststore(), getTrustpass(), getTrusttype())
+            .setTrustAllCertificates(true)
+            .build();
+        TlsContext  context;
+        
+        try
+        {
+          // Load the keystore now, once, the context is cached for the checks below
+          context = getTlsContextCache().getContext(config);
+        }
+        catch(IOException e)
+        {
+          error(e, "Unable to load keystore %s", keystore);
+          continue;
+        }
+        
+        for(IPod pod : pods)
+        {
+          permits.acquire();
+          
+          try
+          {
+            if(isAsync())
+            {
+              // Both requests are started at once and nothing waits for them, the permit
+              // is returned when the pair completes.
+              checkPair(keystore, pod, config, context).whenComplete((v, e) ->
+              {
+                permits.release();
+                
+                if(e != null)
+                  error(AsyncHttpTransport.getCause(e), "Failed to check %s against %s", keystore.getName(), pod.getName());
+              });
+            }
+            else
+            {
+              executor.submit(() ->
+              {
+                try
+                {
+                  checkPair(keystore, pod, config, context).join();
+                }
+                finally
+                {
+                  permits.release();
+                }
+              });
+            }
+          }
+          catch(RuntimeException e)
+          {
+            permits.release();
+            throw e;
+          }
+        }
+        
+        taskWorked(1);
+      }
+      
+      // Wait for the checks in progress to complete
+      permits.acquire(executor.getMaxConcurrency());
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+    
+    title("Matrix Summary");
+    printfln("%-20s=%d", "Pairs checked", pairCount_.get());
+    
+    for(AuthOutcome outcome : AuthOutcome.values())
+      printfln("%-20s=%d", outcome, getCount(outcome));
+    
+    printfln("%-20s=%d", "untrusted servers", untrustedCount_.get());
+    
+    if(isTaskCanceled())
+      matrixObjective_.setObjectiveStatus(ComponentStatus.Stopped, "Canceled");
+    else if(getDeadline().isExpired())
+      matrixObjective_.setObjectiveStatus(ComponentStatus.Stopped, "Deadline expired");
+    else
+      matrixObjective_.setObjectiveStatus(ComponentStatus.OK, "%d pairs checked, %d authenticated",
+          pairCount_.get(), getCount(AuthOutcome.Authenticated));
+  }
+
+  private List<File> listKeystores()
+  {
+    File dir = new File(keystores_);
+    
+    if(!dir.isDirectory())
+      return dir.isFile() ? Arrays.asList(dir) : new ArrayList<>();
+    
+    File[] files = dir.listFiles((file) ->
+    {
+      String name = file.getName().toLowerCase();
+      
+      for(String suffix : KEYSTORE_SUFFIXES)
+        if(name.endsWith(suffix))
+          return file.isFile();
+      
+      return false;
+    });
+    
+    if(files == null)
+      return new ArrayList<>();
+    
+    List<File> keystores = new ArrayList<>(Arrays.asList(files));
+    
+    keystores.sort(Comparator.comparing(File::getName));
+    
+    return keystores;
+  }
+  
+  /*
+   * With the asynchronous transport session auth and key auth are in flight at the same time,
+   * otherwise executeAsync() completes before it returns and they are checked one after the other.
+   */
+  private CompletableFuture<Void> checkPair(File keystore, IPod pod, TlsConfig config, TlsContext context)
+  {
+    return authenticate(pod.getSessionAuthUrl(), config, context).thenAcceptBoth(
+        authenticate(pod.getKeyAuthUrl(), config, context),
+        (sessionAuth, keyAuth) ->
+        {
+          pairCount_.incrementAndGet();
+          
+          synchronized(this)
+          {
+            printfln(FORMAT, keystore.getName(), pod.getName(),
+                sessionAuth == null ? NOT_CONFIGURED : sessionAuth,
+                keyAuth == null ? NOT_CONFIGURED : keyAuth);
+            flush();
+          }
+        });
+  }
+
+  /*
+   * Returns the outcome, marked if the server would not have been trusted, or null if there is no URL.
+   */
+  private CompletableFuture<String> authenticate(URL authUrl, TlsConfig config, TlsContext context)
+  {
+    if(authUrl == null)
+      return CompletableFuture.completedFuture(null);
+    
+    JCurl.Builder builder = getJCurl();
+    
+    builder.method(HttpMethod.POST);
+    
+    return getTransport().executeAsync(
+        HttpRequest.newBuilder(builder, createURL(authUrl, Srt.AUTHENTICATE_PATH), config)
+          .setExpectedStatus()
+          .setHeadersOnly(true)
+          .build())
+      .handle((result, error) ->
+      {
+        AuthOutcome outcome = error == null ? AuthOutcome.forStatus(result.getStatus())
+            : AuthOutcome.forFailure(AsyncHttpTransport.getCause(error));
+        
+        counts_.computeIfAbsent(outcome, (k) -> new AtomicInteger()).incrementAndGet();
+        
+        if(error == null && isUntrusted(result.getServerCertificates(), context))
+        {
+          untrustedCount_.incrementAndGet();
+          
+          return outcome + UNTRUSTED;
+        }
+        
+        return outcome.toString();
+      });
+  }
+  
+  private boolean isUntrusted(Certificate[] chain, TlsContext context)
+  {
+    if(chain == null)
+      return false;
+    
+    try
+    {
+      return context.getTrustFailure(chain) != null;
+    }
+    catch(IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+  }
+  
+  private int getCount(AuthOutcome outcome)
+  {
+    AtomicInteger count = counts_.get(outcome);
+    
+    return count == null ? 0 : count.get();
+  }
+}
@@ -23,12 +23,16 @@
 
 package org.symphonyoss.symphony.tools.rest.probe;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.URL;
+import java.net.UnknownHostException;
 import java.security.Key;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -42,20 +46,32 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
 
 import org.symphonyoss.s2.common.crypto.cert.CertificateUtils;
-import org.symphonyoss.symphony.jcurl.JCurl;
 import org.symphonyoss.symphony.jcurl.JCurl.Builder;
 import org.symphonyoss.symphony.jcurl.JCurl.HttpMethod;
 import org.symphonyoss.symphony.tools.rest.Srt;
 import org.symphonyoss.symphony.tools.rest.SrtCommand;
+import org.symphonyoss.symphony.tools.rest.console.Console;
+import org.symphonyoss.symphony.tools.rest.console.ConsoleDelegate;
 import org.symphonyoss.symphony.tools.rest.console.IConsole;
 import org.symphonyoss.symphony.tools.rest.model.IPod;
 import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
 import org.symphonyoss.symphony.tools.rest.util.IObjective;
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
 import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
+import org.symphonyoss.symphony.tools.rest.util.net.AsyncHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.CapturingTrustManager;
+import org.symphonyoss.symphony.tools.rest.util.net.HostResolver;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpResult;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsContextCache.TlsContext;
 
 public class CheckCerts extends SrtCommand
 {
@@ -67,11 +83,13 @@ public class CheckCerts extends SrtCommand
   private static final String CERTS_ARE_BAD_AUTH    = "Client cert is NOT valid.";
   private static final String CERTS_ARE_BAD_ACCOUNT = "Client cert is valid, auth failed FORBIDDEN.";
   private static final String UNKNOWN_CERT          = "Received fatal alert: certificate_unknown";
-  private static final String BAD_CERT              = "Received fatal alert: bad_unknown";
+  private static final String BAD_CERT              = "Received fatal alert: bad_certificate";
+  private static final String REQUIRED_CERT         = "Received fatal alert: certificate_required";
   private static final String AUTHENTICATED         = "Authenticated OK";
   private static final String CERTS_ARE_BAD_UNKNOWN = "Client cert is valid, auth failed %d.";
   private static final Object ERROR                 = "ERROR";
   private static final Object WARNING               = "WARNING";
+  private static final String CANCELED              = "Canceled";
 
   private IPod                pod_;
   private String              clientCertCommonName_;
@@ -136,17 +154,20 @@ public class CheckCerts extends SrtCommand
 
     println();
     
-    if(validateKeyStore("KeyStore", getKeystore(), getStoretype(), getStorepass().toCharArray(),
-        true, keystoreObjective_) != null)
-    {
-      return;
-    }
+    // The stores are independent of each other, as are the endpoints, so each group is checked concurrently
+    Future<String> keystore = check(null, (console) -> console.validateKeyStore("KeyStore", getKeystore(), getStoretype(),
+        getStorepass().toCharArray(), true, keystoreObjective_));
+    Future<String> truststore = check(null, (console) -> console.validateKeyStore("TrustStore", getTruststore(), getTrusttype(),
+        getTrustpass().toCharArray(), false, truststoreObjective_));
     
-    if(validateKeyStore("TrustStore", getTruststore(), getTrusttype(), getTrustpass().toCharArray(),
-        false, truststoreObjective_) != null)
-    {
+    // Both must complete before we return
+    boolean keystoreFailed = await(keystore) != null;
+    boolean truststoreFailed = await(truststore) != null;
+    
+    if(keystoreFailed || truststoreFailed)
       return;
-    }
+    
+    List<Future<String>> checks = new ArrayList<>();
     
     if(pod_.getPodUrl() == null)
     {
@@ -154,11 +175,8 @@ public class CheckCerts extends SrtCommand
     }
     else
     {
-      println("Checking Pod");
-      println("=============");
-      
-      probe("Pod", createURL(pod_.getPodUrl(),
-          Srt.POD_HEALTHCHECK_PATH), false, podObjective_);
+      checks.add(checkEndpoint("Checking Pod", "Pod", createURL(pod_.getPodUrl(),
+          Srt.POD_HEALTHCHECK_PATH), false, podObjective_));
     }
     
     if(pod_.getSessionAuthUrl() == null)
@@ -167,11 +185,8 @@ public class CheckCerts extends SrtCommand
     }
     else
     {
-      println("Checking Session Auth");
-      println("=====================");
-      
-      probe("Session Auth", createURL(pod_.getSessionAuthUrl(),
-          Srt.AUTHENTICATE_PATH), true, sessionAuthObjective_);
+      checks.add(checkEndpoint("Checking Session Auth", "Session Auth", createURL(pod_.getSessionAuthUrl(),
+          Srt.AUTHENTICATE_PATH), true, sessionAuthObjective_));
     }
     
     if(pod_.getPodUrl() == null)
@@ -181,12 +196,7 @@ public class CheckCerts extends SrtCommand
     }
     else
     {
-      
-      
-      println("Checking Key Manager");
-      println("====================");
-      
-      probe("Key Manager", pod_.getKeyManagerUrl(), false, null);
+      checks.add(checkEndpoint("Checking Key Manager", "Key Manager", pod_.getKeyManagerUrl(), false, null));
     }
     
     if(pod_.getKeyAuthUrl() == null)
@@ -196,305 +206,472 @@ public class CheckCerts extends SrtCommand
     }
     else
     {
-      println("Checking Key Auth");
-      println("=================");
-      
-      probe("Key Auth", createURL(pod_.getKeyAuthUrl(),
-          Srt.AUTHENTICATE_PATH), true, keyAuthObjective_);
+      checks.add(checkEndpoint("Checking Key Auth", "Key Auth", createURL(pod_.getKeyAuthUrl(),
+          Srt.AUTHENTICATE_PATH), true, keyAuthObjective_));
     }
+    
+    for(Future<String> check : checks)
+      await(check);
+    
+    title("Latency");
+    printLatency(pod_);
   }
 
-  
-
-  private String validateKeyStore(String name, String keystore, String storetype, char[] storepass, boolean isKeyStore, IObjective objective)
+  /**
+   * Run the given check on the executor.
+   * 
+   * The check writes to its own buffered console, which is copied to ours in one piece
+   * when the check completes so that the output of concurrent checks does not interleave.
+   * 
+   * @param title The title for the output of the check, or null.
+   * @param check The check.
+   * @return A future for the result of the check, which is null unless it failed.
+   */
+  private Future<String> check(String title, ICheck check)
   {
-    boolean warn = false;
-    
-    beginSubTask("Validate %s %s", name, keystore);
-    try
+    return getExecutor().submit(() ->
     {
-      File keyStoreFile = new File(keystore);
+      StringWriter  buffer = new StringWriter();
+      CheckConsole  console = createCheckConsole(title, buffer);
       
-      if(!keyStoreFile.isFile())
+      try
       {
-        objective.setObjectiveStatus(ComponentStatus.Failed, "Not a file");
-        return error("%s is not a valid file", name);
+        return check.check(console);
       }
-      
-      if(!keyStoreFile.canRead())
+      finally
       {
-        objective.setObjectiveStatus(ComponentStatus.Failed, "Not readable");
-        return error("%s is not readable", name);
+        printCheck(console, buffer);
       }
+    });
+  }
+
+  /**
+   * Check the given endpoint.
+   * 
+   * With the asynchronous transport the request is started with executeAsync() and no thread
+   * waits for it, otherwise the check is run on the executor as for check().
+   * 
+   * @return A future for the result of the check, which is null unless it failed.
+   */
+  private Future<String> checkEndpoint(String title, String name, URL url, boolean authenticate, IObjective objective)
+  {
+    if(!isAsync())
+      return check(title, (console) -> console.probe(name, url, authenticate, objective).join());
+    
+    StringWriter              buffer = new StringWriter();
+    CheckConsole              console = createCheckConsole(title, buffer);
+    CompletableFuture<String> future;
+    
+    try
+    {
+      future = console.probe(name, url, authenticate, objective);
+    }
+    catch(RuntimeException e)
+    {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    
+    return future.whenComplete((result, error) -> printCheck(console, buffer));
+  }
+  
+  private CheckConsole createCheckConsole(String title, StringWriter buffer)
+  {
+    PrintWriter   out = new PrintWriter(buffer);
+    CheckConsole  console = new CheckConsole(new Console(new BufferedReader(new StringReader("")), out, out));
+    
+    if(title != null)
+      console.title(title);
+    
+    return console;
+  }
+  
+  private void printCheck(CheckConsole console, StringWriter buffer)
+  {
+    console.flush();
+    
+    synchronized(this)
+    {
+      getOut().print(buffer);
+      flush();
+    }
+  }
+
+  private String await(Future<String> future)
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return CANCELED;
+    }
+    catch (ExecutionException e)
+    {
+      Throwable cause = e.getCause();
       
-      KeyStore keyStore;
-      if(storetype == null)
-      {
-        keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
-      }
-      else
-      {
-        keyStore = KeyStore.getInstance(storetype);
-      }
-      try(InputStream in = new FileInputStream(keyStoreFile))
-      {
-        keyStore.load(in, storepass);
-      }
-      catch (NoSuchAlgorithmException | CertificateException | IOException e)
+      if(cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      
+      if(cause instanceof Error)
+        throw (Error) cause;
+      
+      throw new ProgramFault(cause);
+    }
+  }
+  
+  @FunctionalInterface
+  private interface ICheck
+  {
+    String check(CheckConsole console);
+  }
+  
+  /**
+   * The checks, which write to the console for a single check.
+   */
+  private class CheckConsole extends ConsoleDelegate
+  {
+    CheckConsole(IConsole console)
+    {
+      super(console);
+    }
+    
+    private String validateKeyStore(String name, String keystore, String storetype, char[] storepass, boolean isKeyStore, IObjective objective)
+    {
+      boolean warn = false;
+    
+      CheckCerts.this.beginSubTask("Validate %s %s", name, keystore);
+      try
       {
-        objective.setObjectiveStatus(ComponentStatus.Failed, "Not valid keystore file (%s)", e);
-        return error(e, "%s is not readable", name);
-      }
+        File keyStoreFile = new File(keystore);
       
-      List<String>  aliases = new ArrayList<>();
-      Enumeration<String> it = keyStore.aliases();
+        if(!keyStoreFile.isFile())
+        {
+          objective.setObjectiveStatus(ComponentStatus.Failed, "Not a file");
+          return error("%s is not a valid file", name);
+        }
       
-      while(it.hasMoreElements())
-        aliases.add(it.nextElement());
+        if(!keyStoreFile.canRead())
+        {
+          objective.setObjectiveStatus(ComponentStatus.Failed, "Not readable");
+          return error("%s is not readable", name);
+        }
       
-      if(aliases.isEmpty())
-      {
-        objective.setObjectiveStatus(ComponentStatus.Failed, "Empty Keystore");
-        return error("%s is empty", name);
-      }
+        KeyStore keyStore;
+        if(storetype == null)
+        {
+          keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        }
+        else
+        {
+          keyStore = KeyStore.getInstance(storetype);
+        }
+        try(InputStream in = new FileInputStream(keyStoreFile))
+        {
+          keyStore.load(in, storepass);
+        }
+        catch (NoSuchAlgorithmException | CertificateException | IOException e)
+        {
+          objective.setObjectiveStatus(ComponentStatus.Failed, "Not valid keystore file (%s)", e);
+          return error(e, "%s is not readable", name);
+        }
       
-      if(isKeyStore && aliases.size() != 1)
-      {
-        warn = true;
-        objective.setObjectiveStatus(ComponentStatus.Warning, "Keystore has multiple entries");
-        error("%s has %d entries", name, aliases.size());
-      }
-      else
-      {
-        printfln("%s has %d entries", name, aliases.size());
-      }
+        List<String>  aliases = new ArrayList<>();
+        Enumeration<String> it = keyStore.aliases();
       
-      for(String alias : aliases)
-      {
-        if(keyStore.isCertificateEntry(alias))
+        while(it.hasMoreElements())
+          aliases.add(it.nextElement());
+      
+        if(aliases.isEmpty())
         {
-          Certificate cert = keyStore.getCertificate(alias);
-          
-          if(cert == null)
-          {
-            error("%-20s is an unreadable Trusted Certificate", alias);
-          }
-          else
+          objective.setObjectiveStatus(ComponentStatus.Failed, "Empty Keystore");
+          return error("%s is empty", name);
+        }
+      
+        if(isKeyStore && aliases.size() != 1)
+        {
+          warn = true;
+          objective.setObjectiveStatus(ComponentStatus.Warning, "Keystore has multiple entries");
+          error("%s has %d entries", name, aliases.size());
+        }
+        else
+        {
+          printfln("%s has %d entries", name, aliases.size());
+        }
+      
+        for(String alias : aliases)
+        {
+          if(keyStore.isCertificateEntry(alias))
           {
-            printfln("%-20s is a Trusted Certificate", alias);
-            X509Certificate x509Cert = (X509Certificate) cert;
-            String dn = x509Cert.getSubjectX500Principal().getName();
-            String cn = CertificateUtils.getCommonName(x509Cert.getSubjectX500Principal());
+            Certificate cert = keyStore.getCertificate(alias);
+          
+            if(cert == null)
+            {
+              error("%-20s is an unreadable Trusted Certificate", alias);
+            }
+            else
+            {
+              printfln("%-20s is a Trusted Certificate", alias);
+              X509Certificate x509Cert = (X509Certificate) cert;
+              String dn = x509Cert.getSubjectX500Principal().getName();
+              String cn = CertificateUtils.getCommonName(x509Cert.getSubjectX500Principal());
             
             
-            //        12345678901234567890 XXX
-            printfln("                     %-20s %s", cn, dn);
-            validateCert(alias, x509Cert, objective);
+              //        12345678901234567890 XXX
+              printfln("                     %-20s %s", cn, dn);
+              validateCert(alias, x509Cert, objective);
+            }
           }
-        }
-        else if(keyStore.isKeyEntry(alias))
-        {
-          try
+          else if(keyStore.isKeyEntry(alias))
           {
-            Key key = keyStore.getKey(alias, storepass);
+            try
+            {
+              Key key = keyStore.getKey(alias, storepass);
             
-            printfln("%-20s is a %s Private Key", alias, key.getAlgorithm());
+              printfln("%-20s is a %s Private Key", alias, key.getAlgorithm());
             
-            Certificate[] certs = keyStore.getCertificateChain(alias);
+              Certificate[] certs = keyStore.getCertificateChain(alias);
             
-            if(certs == null)
-            {
-              error("There are no certificates attached to this private key");
-            }
-            else
-            {
-              int i=0;
-              for(Certificate cert : certs)
+              if(certs == null)
               {
-                X509Certificate x509Cert = (X509Certificate) cert;
-                String dn = x509Cert.getSubjectX500Principal().getName();
-                String cn = CertificateUtils.getCommonName(x509Cert.getSubjectX500Principal());
+                error("There are no certificates attached to this private key");
+              }
+              else
+              {
+                int i=0;
+                for(Certificate cert : certs)
+                {
+                  X509Certificate x509Cert = (X509Certificate) cert;
+                  String dn = x509Cert.getSubjectX500Principal().getName();
+                  String cn = CertificateUtils.getCommonName(x509Cert.getSubjectX500Principal());
                 
-                //        12345678901234567890 XXX
-                printfln("        cert[%02d] %-20s %s", i++, cn, dn);
-                validateCert(alias, x509Cert, objective);
+                  //        12345678901234567890 XXX
+                  printfln("        cert[%02d] %-20s %s", i++, cn, dn);
+                  validateCert(alias, x509Cert, objective);
                 
-                if(isKeyStore && clientCertCommonName_==null)
-                  clientCertCommonName_ = cn;
-              }   
+                  if(isKeyStore && clientCertCommonName_==null)
+                    clientCertCommonName_ = cn;
+                }   
+              }
+            }
+            catch (UnrecoverableKeyException | KeyStoreException | NoSuchAlgorithmException e)
+            {
+             return printfln("%-20s is an unreadable Private Key (%s)", alias, e.getMessage());
             }
-          }
-          catch (UnrecoverableKeyException | KeyStoreException | NoSuchAlgorithmException e)
-          {
-           return printfln("%-20s is an unreadable Private Key (%s)", alias, e.getMessage());
           }
         }
-      }
       
-      if(!warn)
+        if(!warn)
+        {
+          if(isKeyStore)
+            objective.setObjectiveStatus(ComponentStatus.OK, "Account Name: %s", clientCertCommonName_);
+          else
+            objective.setObjectiveStatusOK();
+        }
+      
+        return null;
+      }
+      catch (KeyStoreException e)
       {
-        if(isKeyStore)
-          objective.setObjectiveStatus(ComponentStatus.OK, "Account Name: %s", clientCertCommonName_);
-        else
-          objective.setObjectiveStatusOK();
+        objective.setObjectiveStatus(ComponentStatus.Failed, "Invalid keystore type \"%s\"", storetype);
+        return error(e, "Unable to validate keystore");
+      }
+      finally 
+      {
+        println();
       }
-      
-      return null;
-    }
-    catch (KeyStoreException e)
-    {
-      objective.setObjectiveStatus(ComponentStatus.Failed, "Invalid keystore type \"%s\"", storetype);
-      return error(e, "Unable to validate keystore");
-    }
-    finally 
-    {
-      println();
     }
-  }
 
-  private void validateCert(X509Certificate x509Cert, IObjective objective)
-  {
-    String cn = CertificateUtils.getCommonName(x509Cert.getSubjectX500Principal());
+    private void validateCert(X509Certificate x509Cert, IObjective objective)
+    {
+      String cn = CertificateUtils.getCommonName(x509Cert.getSubjectX500Principal());
     
-    validateCert(cn, x509Cert, objective);
-  }
+      validateCert(cn, x509Cert, objective);
+    }
 
-  private void validateCert(String alias, X509Certificate x509Cert, IObjective objective)
-  {
-    Date now = new Date();
-    
-    if(x509Cert.getNotBefore().after(now))
+    private void validateCert(String alias, X509Certificate x509Cert, IObjective objective)
     {
-      printfln("                     %-20s %s", ERROR, "Certificate is not valid until " + x509Cert.getNotBefore());
-      if(objective != null)
-        objective.setObjectiveStatus(ComponentStatus.Error, "Certificate \"%s\" is not valid until %s", alias, x509Cert.getNotBefore());
-    }
+      Date now = new Date();
     
-    if(x509Cert.getNotAfter().before(now))
-    {
-      printfln("                     %-20s %s", ERROR, "Certificate expired on " + x509Cert.getNotBefore());
-      if(objective != null)
-        objective.setObjectiveStatus(ComponentStatus.Error, "Certificate \"%s\" expired on %s", alias, x509Cert.getNotAfter());
+      if(x509Cert.getNotBefore().after(now))
+      {
+        printfln("                     %-20s %s", ERROR, "Certificate is not valid until " + x509Cert.getNotBefore());
+        if(objective != null)
+          objective.setObjectiveStatus(ComponentStatus.Error, "Certificate \"%s\" is not valid until %s", alias, x509Cert.getNotBefore());
+      }
+    
+      if(x509Cert.getNotAfter().before(now))
+      {
+        printfln("                     %-20s %s", ERROR, "Certificate expired on " + x509Cert.getNotBefore());
+        if(objective != null)
+          objective.setObjectiveStatus(ComponentStatus.Error, "Certificate \"%s\" expired on %s", alias, x509Cert.getNotAfter());
 
-    }
+      }
 
-  }
+    }
 
-  private String probe(String name, URL url, boolean authenticate, IObjective objective)
-  {
-    try
+    private CompletableFuture<String> probe(String name, URL url, boolean authenticate, IObjective objective)
     {
-      Builder builder = getJCurl()
-          .trustAllCertificates(true)
-          .trustAllHostnames(true)
-          ;
+      try
+      {
+        HostResolver.getDefault().resolve(url.getHost());
+      }
+      catch(UnknownHostException e)
+      {
+        if(objective != null)
+          objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
       
-      if(authenticate)
-        builder.method(HttpMethod.POST);
+        return CompletableFuture.completedFuture(
+            error("%s is NOT reachable, %s is not a valid host name%n%s%n", name, url.getHost(), WE_CANT_TELL));
+      }
+    
+      CapturingTrustManager trustManager;
+      HttpRequest           request;
+    
+      try
+      {
+        // One handshake captures the server chain and the truststore verdict, and then goes
+        // on to present the client cert whether or not the server is trusted.
+        TlsContext  context = TlsContext.newCapturingContext(getTlsConfig());
+        Builder     builder = getJCurl();
       
-      JCurl jCurl = builder
-          .build();
+        trustManager = context.getCapturingTrustManager();
       
-      HttpURLConnection connection = jCurl.connect(url);
+        if(authenticate)
+          builder.method(HttpMethod.POST);
       
-      println(name + " is reachable bypasssing server cert checks, status: " + connection.getResponseCode());
+        request = HttpRequest.newBuilder(builder, url, getTlsConfig())
+            .setTlsContext(context)
+            .setExpectedStatus()
+            .setLatencyHistogram(getLatencyHistogram(pod_, url))
+            .build();
+      }
+      catch(IOException e)
+      {
+        return CompletableFuture.completedFuture(failed(name, authenticate, objective, e));
+      }
       
-      JCurl.Response jcr = jCurl.processResponse(connection);
-
-      Certificate[] certs = jcr.getServerCertificates();
-
-      println("Server cert chain is:");
-      for(Certificate cert : certs)
+      return getTransport().executeAsync(request).handle((result, error) ->
       {
-        X509Certificate x509Cert = (X509Certificate) cert;
-        println(x509Cert.getSubjectX500Principal().getName());
-        validateCert(x509Cert, objective);
-      }      
+        if(error == null)
+          return completed(name, authenticate, objective, trustManager, result);
+        
+        return failed(name, authenticate, objective, AsyncHttpTransport.getCause(error));
+      });
     }
-    catch(SSLHandshakeException e)
+    
+    private String failed(String name, boolean authenticate, IObjective objective, Throwable e)
     {
-      if(authenticate)
+      if(e instanceof SSLHandshakeException || isClientCertRejected(e))
       {
-        // We already succeeded without client auth, so this is a client auth problem.
-        if(objective != null)
-          objective.setObjectiveStatus(ComponentStatus.Failed, CERTS_ARE_BAD_AUTH);
+        if(authenticate && isClientCertRejected(e))
+        {
+          // Server certs are always accepted, so this is a client auth problem.
+          if(objective != null)
+            objective.setObjectiveStatus(ComponentStatus.Failed, CERTS_ARE_BAD_AUTH);
         
-        return error("%s is NOT reachable - Client Cert Rejected%n%s%n", name, CERTS_ARE_BAD_AUTH);
+          return error("%s is NOT reachable - Client Cert Rejected%n%s%n", name, CERTS_ARE_BAD_AUTH);
+        }
+      
+        if(objective != null)
+          objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
+      
+        return error("%s is NOT reachable (SSL problem)%n%s%n", name, WE_CANT_TELL);
       }
       
-      if(objective != null)
-        objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
+      if(e instanceof IOException)
+      {
+        if(objective != null)
+          objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
       
-      return error("%s is NOT reachable (SSL problem)%n%s%n", name, WE_CANT_TELL);
-    }
-    catch(IOException e)
-    {
-      if(objective != null)
-        objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
+        return error(e, "%s is NOT reachable%n%s%n", name, WE_CANT_TELL);
+      }
       
-      return error(e, "%s is NOT reachable%n%s%n", name, WE_CANT_TELL);
-    }
-    catch (CertificateParsingException e)
-    {
-      if(objective != null)
-        objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
+      if(e instanceof CertificateParsingException)
+      {
+        if(objective != null)
+          objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
+      
+        return error(e, "%s is reachable but we can't parse their certificates.%n%s%n", name, WE_CANT_TELL);
+      }
+      
+      if(e instanceof RuntimeException)
+        throw (RuntimeException) e;
+      
+      if(e instanceof Error)
+        throw (Error) e;
       
-      return error(e, "%s is reachable but we can't parse their certificates.%n%s%n", name, WE_CANT_TELL);
+      throw new ProgramFault(e);
     }
     
-    
-    try
+    /*
+     * With TLS 1.3 the alert refusing a client cert may arrive after the handshake, as an SSLException.
+     */
+    private boolean isClientCertRejected(Throwable e)
     {
-      Builder builder = getJCurl();
-      
-      if(authenticate)
-        builder.method(HttpMethod.POST);
+      if(!(e instanceof SSLException) || e.getMessage() == null)
+        return false;
       
-      JCurl jCurl = builder
-          .build();
-      HttpURLConnection connection = jCurl.connect(url);
+      String message = e.getMessage();
       
-      if(authenticate)
+      return message.contains(UNKNOWN_CERT) || message.contains(BAD_CERT) || message.contains(REQUIRED_CERT);
+    }
+    
+    private String completed(String name, boolean authenticate, IObjective objective, CapturingTrustManager trustManager,
+        HttpResult result)
+    {
+      int status = result.getStatus();
+    
+      println(name + " is reachable bypasssing server cert checks, status: " + status);
+    
+      Certificate[] certs = trustManager.isServerChecked() ? trustManager.getServerChain() : result.getServerCertificates();
+
+      if(certs != null)
       {
-        if(connection.getResponseCode() == 200)
+        println("Server cert chain is:");
+        for(Certificate cert : certs)
         {
-          if(objective!= null)
-            objective.setObjectiveStatus(ComponentStatus.OK, AUTHENTICATED);
-          return printf("%s is reachable%n", name, CERTS_ARE_GOOD);
+          X509Certificate x509Cert = (X509Certificate) cert;
+          println(x509Cert.getSubjectX500Principal().getName());
+          validateCert(x509Cert, objective);
         }
-        else if(connection.getResponseCode() == 401)
-        {
-          if(objective!= null)
-            objective.setObjectiveStatus(ComponentStatus.Failed, CERTS_ARE_BAD_ACCOUNT);
-          return printfln("%s is reachable, but authentication is rejected%nThe account \"%s\" probably does not exist in this pod.%n%s", name, clientCertCommonName_, CERTS_ARE_BAD_ACCOUNT);
-        }
-        else
+      }
+    
+      if(trustManager.getTrustFailure() != null)
+      {
+        if(objective!= null)
+          objective.setObjectiveStatus(ComponentStatus.Error, CERTS_ARE_BAD_TRUST);
+      
+        return error("%s is NOT reachable - SSL Problem%n%s%n", name, CERTS_ARE_BAD_TRUST);
+      }
+    
+      if(authenticate)
+      {
+        switch(AuthOutcome.forStatus(status))
         {
-          if(objective!= null)
-            objective.setObjectiveStatus(ComponentStatus.Error, CERTS_ARE_BAD_UNKNOWN, connection.getResponseCode());
-          return error("%s is reachable, with unexpected status: %d", name, connection.getResponseCode());
+          case Authenticated:
+            if(objective!= null)
+              objective.setObjectiveStatus(ComponentStatus.OK, AUTHENTICATED);
+            return printf("%s is reachable%n", name, CERTS_ARE_GOOD);
+            
+          case Forbidden:
+            if(objective!= null)
+              objective.setObjectiveStatus(ComponentStatus.Failed, CERTS_ARE_BAD_ACCOUNT);
+            return printfln("%s is reachable, but authentication is rejected%nThe account \"%s\" probably does not exist in this pod.%n%s", name, clientCertCommonName_, CERTS_ARE_BAD_ACCOUNT);
+            
+          default:
+            if(objective!= null)
+              objective.setObjectiveStatus(ComponentStatus.Error, CERTS_ARE_BAD_UNKNOWN, status);
+            return error("%s is reachable, with unexpected status: %d", name, status);
         }
       }
       if(objective!= null)
         objective.setObjectiveStatus(ComponentStatus.OK, CERTS_ARE_GOOD_SERVER);
-      
-      return printf("%s is reachable, status: %d%n", name, connection.getResponseCode(), CERTS_ARE_GOOD_SERVER);
-    }
-    catch(SSLHandshakeException e)
-    {
-      if(objective!= null)
-        objective.setObjectiveStatus(ComponentStatus.Error, CERTS_ARE_BAD_TRUST);
-      
-      return error("%s is NOT reachable - SSL Problem%n%s%n", name, CERTS_ARE_BAD_TRUST);
-    }
-    catch(IOException e)
-    {
-      if(objective != null)
-        objective.setObjectiveStatus(ComponentStatus.Failed, WE_CANT_TELL);
-      
-      return error(e, "%s is NOT reachable.%n%s", name, WE_CANT_TELL);
-    }
-    
     
+      return printf("%s is reachable, status: %d%n", name, status, CERTS_ARE_GOOD_SERVER);
+    }
   }
 }
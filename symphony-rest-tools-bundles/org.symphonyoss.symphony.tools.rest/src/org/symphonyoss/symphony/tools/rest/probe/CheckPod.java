@@ -24,36 +24,30 @@
 package org.symphonyoss.symphony.tools.rest.probe;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.cert.CertificateParsingException;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.Map.Entry;
 
-import org.symphonyoss.symphony.jcurl.JCurl;
-import org.symphonyoss.symphony.jcurl.JCurl.Response;
 import org.symphonyoss.symphony.tools.rest.Srt;
 import org.symphonyoss.symphony.tools.rest.SrtCommand;
 import org.symphonyoss.symphony.tools.rest.console.IConsole;
-import org.symphonyoss.symphony.tools.rest.model.IModelObject;
 import org.symphonyoss.symphony.tools.rest.model.IPod;
-import org.symphonyoss.symphony.tools.rest.model.ModelObject;
 import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
-import org.symphonyoss.symphony.tools.rest.model.osmosis.IComponent;
 import org.symphonyoss.symphony.tools.rest.util.IObjective;
 import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
-
-import com.fasterxml.jackson.databind.JsonNode;
+import org.symphonyoss.symphony.tools.rest.util.net.CircuitOpenException;
+import org.symphonyoss.symphony.tools.rest.util.net.HostResolver;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.PhaseTimings;
 
 public class CheckPod extends SrtCommand
 {
   private static final String PROGRAM_NAME       = "CheckPod";
   private static final String CANNOT_CONNECT     = "Cannot Connect";
+  private static final String CIRCUIT_OPEN       = "Not checked, circuit breaker open";
+  private static final int    DEFAULT_RETRIES    = 2;
 
   private IPod                pod_;
-  private boolean             structureChange_;
-  private Set<IModelObject>   changedComponents_ = new HashSet<>();
 
   private IObjective podObjective_;
   
@@ -80,6 +74,7 @@ public class CheckPod extends SrtCommand
     withHostName(true);
     withKeystore(false);
     withTruststore(false);
+    withRetries(DEFAULT_RETRIES);
     
     podObjective_ = createObjective("Check Pod");
   }
@@ -123,144 +118,53 @@ public class CheckPod extends SrtCommand
 
   private void probePod()
   {
+    PodHealthCheck healthCheck = new PodHealthCheck(pod_);
+    
     try
     {
       
       println("Checking Pod");
       println("=============");
       
-      pod_.visit((component) -> 
-      {
-        component.resetStatus();
-      });
-      
       URL url = createURL(pod_.getPodUrl(),
           Srt.POD_HEALTHCHECK_PATH);
       
-      JCurl jCurl = getJCurl().build();
-      HttpURLConnection connection = jCurl.connect(url);
+      HostResolver.getDefault().resolve(url.getHost());
       
-      int responseCode = connection.getResponseCode();
-      
-      switch(responseCode)
-      {
-        case 200:
-        case 500:
-          break;
-          
-        default:
-          println("Healthcheck failed.");
-          pod_.setComponentStatus(ComponentStatus.Failed, "Error " + connection.getResponseCode());
-          pod_.getManager().modelObjectChanged(pod_);
-          return;
-      }
-  
-      Response response = jCurl.processResponse(connection);
-      JsonNode healthJson = response.getJsonNode();
-  
-      if (healthJson == null)
-      {
-        println("This looks a lot like a Symphony Pod, but it isn't");
-        pod_.setComponentStatus(ComponentStatus.Failed, "Non-JSON response from HealthCheck");
-        pod_.getManager().modelObjectChanged(pod_);
-        return;
-      }
-  
-      if (!healthJson.isObject())
-      {
-        println("This looks like a Symphony Pod, but the healthcheck returns something other than an object");
-        println(healthJson);
-        pod_.setComponentStatus(ComponentStatus.Failed, String.format("Received a JSON %s from HealthCheck, but we expect an object", healthJson.getNodeType()));
-        pod_.getManager().modelObjectChanged(pod_);
-        return;
-      }
+      PhaseTimings timings = newPhaseTimings();
       
-      Iterator<String> it = healthJson.fieldNames();
-      int failedComponents = 0;
-      int totalComponents = 0;
+      ComponentStatus status = healthCheck.execute(getTransport(), HttpRequest.newBuilder(getJCurl(), url, getTlsConfig())
+          .setExpectedStatus(200, 500)
+          .setPhaseTimings(timings));
       
-      while(it.hasNext())
-      {
-        String name = it.next();
-        boolean healthy = healthJson.get(name).asBoolean();
-        
-        printf("%30s %s\n", name, healthy);
-        
-        pod_.getComponent(name, 
-            (parent, componentName) -> 
-            {
-              ModelObject component = new ModelObject(pod_, IComponent.GENERIC_COMPONENT, componentName);
-              
-              structureChange_ = true;
-              return component;
-            },
-            (existingComponent) -> changedComponents_.add(existingComponent)
-        ).setComponentStatus(healthy ? ComponentStatus.OK : ComponentStatus.Failed, "");
-        
-        if(!healthy)
-          failedComponents++;
-        
-        totalComponents++;
-      }
+      if(timings != null)
+        podObjective_.addPhaseTimings(timings);
       
-      switch(responseCode)
-      {
-        case 200:
-          println("Pod is healthy.");
-          
-          if(failedComponents == 0)
-          {
-            pod_.setComponentStatus(ComponentStatus.OK, "Healthcheck OK");
-            podObjective_.setObjectiveStatusOK();
-          }
-          else
-          {
-            String msg = String.format("Healthcheck OK but %d of %d non-critical components failed", failedComponents, totalComponents);
-            pod_.setComponentStatus(ComponentStatus.Error, msg);
-            podObjective_.setObjectiveStatus(ComponentStatus.Error, msg);
-          }
-          break;
-          
-        case 500:
-          println("Pod is unwell.");
-          String msg = String.format("Healthcheck FAILED (%d of %d components failed)", failedComponents, totalComponents);
-          
-          pod_.setComponentStatus(ComponentStatus.Failed, msg);
-          podObjective_.setObjectiveStatus(ComponentStatus.Failed, msg);
-          break;
-          
-        default:
-          msg = "Unexpected Error " + responseCode;
-          pod_.setComponentStatus(ComponentStatus.Failed, msg);
-          podObjective_.setObjectiveStatus(ComponentStatus.Failed, msg);
-          return;
-      }
+      for(Entry<String, Boolean> component : healthCheck.getComponents().entrySet())
+        printf("%30s %s\n", component.getKey(), component.getValue());
       
+      println(healthCheck.getStatusMessage());
+      println();
+      println("Latency");
+      println("=======");
+      printLatency(pod_);
       
-      if(structureChange_)
-      {
-        pod_.getManager().modelObjectStructureChanged(pod_);
-      }
+      if(status == ComponentStatus.OK)
+        podObjective_.setObjectiveStatusOK();
       else
-      {
-//        for(IModelObject component : structureChangedComponents_)
-//        {
-//          changedComponents_.remove(component);
-//          pod_.getManager().modelObjectStructureChanged(component);
-//        }
-        
-        for(IModelObject component : changedComponents_)
-        {
-          pod_.getManager().modelObjectChanged(component);
-        }
-      }
+        podObjective_.setObjectiveStatus(status, healthCheck.getStatusMessage());
+    }
+    catch(CircuitOpenException e)
+    {
+      error(e.getMessage());
+      healthCheck.setUnreachable(CIRCUIT_OPEN);
+      podObjective_.setObjectiveStatus(ComponentStatus.Stopped, CIRCUIT_OPEN);
     }
     catch(IOException | CertificateParsingException e)
     {
       error(e, "Cannot connect to pod");
-      pod_.setComponentStatus(ComponentStatus.Stopped, CANNOT_CONNECT);
+      healthCheck.setUnreachable(CANNOT_CONNECT);
       podObjective_.setObjectiveStatus(ComponentStatus.Stopped, CANNOT_CONNECT);
-      pod_.getManager().modelObjectChanged(pod_);
     }
   }
 }
@@ -0,0 +1,313 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.io.IOException;
+import java.security.cert.CertificateParsingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.symphonyoss.symphony.tools.rest.Srt;
+import org.symphonyoss.symphony.tools.rest.SrtDaemonCommand;
+import org.symphonyoss.symphony.tools.rest.model.IPod;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.IObjective;
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+import org.symphonyoss.symphony.tools.rest.util.command.Flag;
+import org.symphonyoss.symphony.tools.rest.util.net.AsyncHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.CircuitOpenException;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.LatencyHistogram;
+
+/**
+ * Polls the HealthCheck endpoint of every known pod until canceled.
+ * 
+ * Each pod is polled on its own schedule, the interval between polls is varied
+ * randomly by up to the jitter so that polls do not synchronise, and the first poll
+ * of each pod is spread over the first interval. Polls share the TLS context cache
+ * and keep-alive connections of this command, so repeated polls of a pod resume
+ * TLS sessions. The status of each pod and its components is updated in place and
+ * a line is printed whenever the status of a pod changes.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class MonitorPods extends SrtDaemonCommand
+{
+  private static final String PROGRAM_NAME              = "MonitorPods";
+  private static final String CANNOT_CONNECT            = "Cannot Connect";
+  private static final String CIRCUIT_OPEN              = "Not polled, circuit breaker open";
+  private static final int    DEFAULT_RETRIES           = 2;
+  private static final int    DEFAULT_INTERVAL_SECONDS  = 30;
+  private static final int    DEFAULT_JITTER_PERCENT    = 10;
+  private static final int    DEFAULT_MAX_CONCURRENCY   = 16;
+  private static final String FORMAT                    = "%-20s %-40s %-10s %s";
+  private static final String TIME_FORMAT               = "%1$tF %1$tT";
+
+  private static final AtomicInteger THREAD_COUNT       = new AtomicInteger();
+
+  private int                         intervalSeconds_  = DEFAULT_INTERVAL_SECONDS;
+  private int                         jitterPercent_    = DEFAULT_JITTER_PERCENT;
+  private int                         maxConcurrency_   = DEFAULT_MAX_CONCURRENCY;
+
+  private final Map<String, ComponentStatus> podStatus_ = new ConcurrentHashMap<>();
+  private final AtomicLong            pollCount_        = new AtomicLong();
+  private final AtomicLong            failCount_        = new AtomicLong();
+  private ScheduledThreadPoolExecutor scheduler_;
+  private IObjective                  monitorObjective_;
+  
+  public static void main(String[] argv) throws IOException
+  {
+    new MonitorPods(argv).run();
+  }
+
+  public MonitorPods(String[] argv)
+  {
+    super(PROGRAM_NAME, argv);
+  }
+
+  @Override
+  protected void init()
+  {
+    super.init();
+
+    withKeystore(false);
+    withTruststore(false);
+    withRetries(DEFAULT_RETRIES);
+    
+    getParser()
+      .withFlag(new Flag<Integer>("Poll Interval Seconds", Integer.class, (v) -> intervalSeconds_ = v,
+          () -> DEFAULT_INTERVAL_SECONDS)
+          .withName("interval"))
+      .withFlag(new Flag<Integer>("Poll Jitter Percent", Integer.class, (v) -> jitterPercent_ = v,
+          () -> DEFAULT_JITTER_PERCENT)
+          .withName("jitter")
+          .withHelp("The maximum random variation of each poll interval, as a percentage of the interval"))
+      .withFlag(new Flag<Integer>("Max Concurrent Polls", Integer.class, (v) -> maxConcurrency_ = v,
+          () -> DEFAULT_MAX_CONCURRENCY)
+          .withName("concurrency"));
+    
+    monitorObjective_ = createObjective("Monitor Pods");
+  }
+
+  @Override
+  public void execute()
+  {
+    List<IPod> pods = new ArrayList<>();
+    
+    for(IPod pod : getSrtHome().getPodManager().getAll())
+    {
+      if(pod.getPodUrl() == null)
+        error("%s has no pod URL and will not be monitored.", pod.getName());
+      else
+        pods.add(pod);
+    }
+    
+    if(pods.isEmpty())
+    {
+      monitorObjective_.setObjectiveStatus(ComponentStatus.Failed, "No pods to monitor");
+      error("There are no pods to monitor. Try probe first?");
+      return;
+    }
+    
+    monitorObjective_.setObjectiveStatus(ComponentStatus.Starting, "Monitoring %d pods", pods.size());
+    printfln("Monitoring %d pods every %d seconds, press Ctrl-C to stop.", pods.size(), intervalSeconds_);
+    printfln(FORMAT, "Time", "Pod", "Status", "Message");
+    flush();
+    
+    scheduler_ = new ScheduledThreadPoolExecutor(Math.max(1, maxConcurrency_), (r) ->
+    {
+      Thread thread = new Thread(r, "srt-monitor-" + THREAD_COUNT.incrementAndGet());
+      
+      thread.setDaemon(true);
+      
+      return thread;
+    });
+    
+    CountDownLatch stopped = new CountDownLatch(1);
+    
+    try(CancellationToken.Registration registration = getCancellationToken().onCancel(stopped::countDown))
+    {
+      for(IPod pod : pods)
+        schedule(pod, ThreadLocalRandom.current().nextLong(getIntervalMillis()));
+      
+      if(getDeadline().isEnabled())
+        stopped.await(getDeadline().getRemainingMillis(), TimeUnit.MILLISECONDS);
+      else
+        stopped.await();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    finally
+    {
+      scheduler_.shutdownNow();
+    }
+    
+    title("Monitor Summary");
+    printfln("%-20s=%d", "Pods monitored", pods.size());
+    printfln("%-20s=%d", "Polls", pollCount_.get());
+    printfln("%-20s=%d", "Unhealthy polls", failCount_.get());
+    
+    title("HealthCheck Latency");
+    
+    LatencyHistogram fleet = new LatencyHistogram();
+    
+    for(IPod pod : pods)
+    {
+      LatencyHistogram histogram = pod.getLatencyHistogram().getHistogram();
+      
+      fleet.add(histogram);
+      printfln("%-30s %s", pod.getName(), histogram);
+    }
+    
+    printfln("%-30s %s", "All pods", fleet);
+    
+    monitorObjective_.setObjectiveStatus(ComponentStatus.Stopped, "%d polls of %d pods, %d unhealthy",
+        pollCount_.get(), pods.size(), failCount_.get());
+  }
+
+  private long getIntervalMillis()
+  {
+    return TimeUnit.SECONDS.toMillis(Math.max(1, intervalSeconds_));
+  }
+  
+  /**
+   * Return the delay before the next poll of a pod.
+   * 
+   * @param intervalMillis  The poll interval.
+   * @param jitterPercent   The percentage of the interval by which the delay may vary, limited to 0-100.
+   * @return A delay chosen uniformly at random within the jitter either side of the interval.
+   */
+  static long getNextDelayMillis(long intervalMillis, int jitterPercent)
+  {
+    long jitter = intervalMillis * Math.max(0, Math.min(100, jitterPercent)) / 100;
+    
+    if(jitter == 0)
+      return intervalMillis;
+    
+    return intervalMillis - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+  }
+  
+  private void schedule(IPod pod, long delayMillis)
+  {
+    try
+    {
+      scheduler_.schedule(() -> poll(pod), delayMillis, TimeUnit.MILLISECONDS);
+    }
+    catch(RejectedExecutionException e)
+    {
+      // We are shutting down
+    }
+  }
+
+  /*
+   * With the asynchronous transport the poll is started and the scheduler thread returns at once,
+   * the next poll of the pod is scheduled when this one completes.
+   */
+  private void poll(IPod pod)
+  {
+    PodHealthCheck  healthCheck = new PodHealthCheck(pod);
+    
+    try
+    {
+      healthCheck.executeAsync(getTransport(), HttpRequest.newBuilder(getJCurl(),
+          createURL(pod.getPodUrl(), Srt.POD_HEALTHCHECK_PATH), getTlsConfig())
+          .setExpectedStatus(200, 500))
+        .whenComplete((status, error) -> polled(pod, healthCheck, status, error));
+    }
+    catch(RuntimeException e)
+    {
+      polled(pod, healthCheck, null, e);
+    }
+  }
+
+  private void polled(IPod pod, PodHealthCheck healthCheck, ComponentStatus status, Throwable error)
+  {
+    try
+    {
+      if(error != null)
+      {
+        Throwable cause = AsyncHttpTransport.getCause(error);
+        
+        if(cause instanceof CircuitOpenException)
+        {
+          status = healthCheck.setUnreachable(CIRCUIT_OPEN);
+        }
+        else if(cause instanceof IOException || cause instanceof CertificateParsingException)
+        {
+          if(getCancellationToken().isCanceled())
+            return;
+          
+          status = healthCheck.setUnreachable(CANNOT_CONNECT);
+        }
+        else if(cause instanceof RuntimeException)
+        {
+          throw (RuntimeException) cause;
+        }
+        else
+        {
+          throw new ProgramFault(cause);
+        }
+      }
+      
+      pollCount_.incrementAndGet();
+      
+      if(status != ComponentStatus.OK)
+        failCount_.incrementAndGet();
+      
+      ComponentStatus previous = podStatus_.put(pod.getName(), status);
+      
+      if(status != previous || getVerbose().getCount() > 0)
+      {
+        synchronized(this)
+        {
+          printfln(FORMAT, String.format(TIME_FORMAT, System.currentTimeMillis()), pod.getName(), status,
+              healthCheck.getStatusMessage());
+          flush();
+        }
+      }
+    }
+    catch(RuntimeException e)
+    {
+      error(e, "Failed to poll %s", pod.getName());
+    }
+    finally
+    {
+      if(!getCancellationToken().isCanceled())
+        schedule(pod, getNextDelayMillis(getIntervalMillis(), jitterPercent_));
+    }
+  }
+}
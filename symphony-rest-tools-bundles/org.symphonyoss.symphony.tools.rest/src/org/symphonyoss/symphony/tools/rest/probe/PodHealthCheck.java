@@ -0,0 +1,399 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.io.IOException;
+import java.security.cert.CertificateParsingException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.symphonyoss.symphony.tools.rest.Srt;
+import org.symphonyoss.symphony.tools.rest.model.IModelObject;
+import org.symphonyoss.symphony.tools.rest.model.IPod;
+import org.symphonyoss.symphony.tools.rest.model.ModelObject;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.IComponent;
+import org.symphonyoss.symphony.tools.rest.util.net.AsyncHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpResult;
+import org.symphonyoss.symphony.tools.rest.util.net.IHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.JsonExtractor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A single call to the HealthCheck endpoint of a pod, the result of which is applied
+ * to the status of the pod and its components in place.
+ * 
+ * The parsed result of the last check of each pod is kept, and only the components
+ * whose health changed, or which appeared or disappeared since then, are updated, so
+ * that polling a pod whose health is unchanged produces no model events. Snapshots are
+ * held weakly by pod, so a pod which is reloaded gets a full update.
+ * 
+ * The response is streamed through a JsonExtractor and compared with the snapshot as it
+ * is read, so an unchanged response allocates no tree, map or snapshot.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class PodHealthCheck
+{
+  private static final String                 NOT_REPORTED = "Not reported by HealthCheck";
+  private static final String                 INVALID_JSON = "Invalid JSON response from HealthCheck";
+  private static final Snapshot               EMPTY = new Snapshot(new String[0], new boolean[0], 0, null, null);
+  private static final JsonExtractor          EXTRACTOR = new JsonExtractor(JsonExtractor.ANY_FIELD);
+  private static final Map<IPod, Snapshot>    SNAPSHOTS = Collections.synchronizedMap(new WeakHashMap<>());
+  
+  private final IPod                  pod_;
+  private final Snapshot              previous_;
+  private final Set<IModelObject>     changedComponents_ = new HashSet<>();
+  private final BitSet                seen_;
+  private Map<String, Boolean>        updates_;
+  private String[]                    names_;
+  private boolean[]                   healthy_;
+  private boolean                     structureChange_;
+  private int                         failedComponents_;
+  private ComponentStatus             status_;
+  private String                      statusMessage_;
+
+  public PodHealthCheck(IPod pod)
+  {
+    Snapshot previous = SNAPSHOTS.get(pod);
+    
+    pod_ = pod;
+    previous_ = previous == null ? EMPTY : previous;
+    names_ = previous_.names_;
+    healthy_ = previous_.healthy_;
+    failedComponents_ = previous_.failedComponents_;
+    seen_ = new BitSet(names_.length);
+  }
+  
+  /**
+   * Call the HealthCheck endpoint and update the pod.
+   * 
+   * @param transport The transport with which to make the request.
+   * @param request   A request for the HealthCheck endpoint of the pod, expecting status 200 and 500.
+   *                  The response is streamed through the extractor for the HealthCheck.
+   * @return The new status of the pod.
+   * 
+   * @throws IOException                  If the request fails.
+   * @throws CertificateParsingException  If the server certificates cannot be parsed.
+   */
+  public ComponentStatus execute(IHttpTransport transport, HttpRequest.Builder request) throws IOException, CertificateParsingException
+  {
+    HttpResult  result;
+    
+    try
+    {
+      result = transport.execute(prepare(request));
+    }
+    catch(JsonProcessingException e)
+    {
+      return setPodStatus(ComponentStatus.Failed, INVALID_JSON);
+    }
+    
+    return completed(result);
+  }
+  
+  /**
+   * Call the HealthCheck endpoint with executeAsync() and update the pod when the response arrives.
+   * 
+   * @param transport The transport with which to make the request.
+   * @param request   A request for the HealthCheck endpoint of the pod, expecting status 200 and 500.
+   * @return A future for the new status of the pod, which completes exceptionally if the request fails.
+   */
+  public CompletableFuture<ComponentStatus> executeAsync(IHttpTransport transport, HttpRequest.Builder request)
+  {
+    return transport.executeAsync(prepare(request)).handle((result, error) ->
+    {
+      if(error == null)
+        return completed(result);
+      
+      Throwable cause = AsyncHttpTransport.getCause(error);
+      
+      if(cause instanceof JsonProcessingException)
+        return setPodStatus(ComponentStatus.Failed, INVALID_JSON);
+      
+      throw new CompletionException(cause);
+    });
+  }
+  
+  private HttpRequest prepare(HttpRequest.Builder request)
+  {
+    return request
+        .setExpectedContentType(Srt.MIME_JSON)
+        .setJsonExtractor(EXTRACTOR, this::visitComponent)
+        .setLatencyHistogram(pod_.getLatencyHistogram())
+        .build();
+  }
+  
+  private ComponentStatus completed(HttpResult result)
+  {
+    int         responseCode = result.getStatus();
+    
+    if(!result.isExpectedStatus())
+      return setPodStatus(ComponentStatus.Failed, "Error " + responseCode);
+    
+    JsonToken healthJson = result.getJsonRoot();
+
+    if (healthJson == null)
+      return setPodStatus(ComponentStatus.Failed, "Non-JSON response from HealthCheck");
+
+    if (healthJson != JsonToken.START_OBJECT)
+      return setPodStatus(ComponentStatus.Failed, String.format("Received a JSON %s from HealthCheck, but we expect an object", healthJson));
+    
+    if(updates_ != null || seen_.cardinality() < names_.length)
+      applyUpdates();
+    
+    switch(responseCode)
+    {
+      case 200:
+        if(failedComponents_ == 0)
+          return setPodStatus(ComponentStatus.OK, "Healthcheck OK");
+        
+        return setPodStatus(ComponentStatus.Error, String.format("Healthcheck OK but %d of %d non-critical components failed",
+            failedComponents_, names_.length));
+        
+      case 500:
+        return setPodStatus(ComponentStatus.Failed, String.format("Healthcheck FAILED (%d of %d components failed)",
+            failedComponents_, names_.length));
+        
+      default:
+        return setPodStatus(ComponentStatus.Failed, "Unexpected Error " + responseCode);
+    }
+  }
+  
+  /*
+   * Called by the extractor for each field of the HealthCheck, only fields which differ from
+   * the snapshot are recorded.
+   */
+  private void visitComponent(int path, String name, JsonParser parser) throws IOException
+  {
+    boolean healthy = parser.getValueAsBoolean();
+    Integer position = previous_.positions_.get(name);
+    
+    if(position != null)
+    {
+      seen_.set(position);
+      
+      if(healthy_[position] == healthy)
+        return;
+    }
+    
+    if(updates_ == null)
+      updates_ = new LinkedHashMap<>();
+    
+    updates_.put(name, healthy);
+  }
+  
+  /*
+   * Apply the differences from the snapshot to the model. Components keep the order in which
+   * they were first reported.
+   */
+  private void applyUpdates()
+  {
+    Map<String, Boolean>  updates = updates_ == null ? Collections.emptyMap() : updates_;
+    List<String>          names = new ArrayList<>(names_.length + updates.size());
+    List<Boolean>         healthy = new ArrayList<>(names_.length + updates.size());
+    
+    for(int i=0 ; i<names_.length ; i++)
+    {
+      if(!seen_.get(i))
+      {
+        // This component has disappeared from the HealthCheck
+        if(!healthy_[i])
+          failedComponents_--;
+        
+        setComponentStatus(names_[i], null, NOT_REPORTED);
+        continue;
+      }
+      
+      Boolean update = updates.remove(names_[i]);
+      
+      names.add(names_[i]);
+      
+      if(update == null)
+      {
+        healthy.add(healthy_[i]);
+        continue;
+      }
+      
+      healthy.add(update);
+      updateComponent(names_[i], healthy_[i], update);
+    }
+    
+    // Whatever is left is new
+    for(Entry<String, Boolean> entry : updates.entrySet())
+    {
+      names.add(entry.getKey());
+      healthy.add(entry.getValue());
+      updateComponent(entry.getKey(), true, entry.getValue());
+    }
+    
+    names_ = names.toArray(new String[names.size()]);
+    healthy_ = new boolean[healthy.size()];
+    
+    for(int i=0 ; i<healthy_.length ; i++)
+      healthy_[i] = healthy.get(i);
+  }
+
+  private void updateComponent(String name, boolean wasHealthy, boolean healthy)
+  {
+    if(!wasHealthy)
+      failedComponents_--;
+    
+    if(!healthy)
+      failedComponents_++;
+    
+    setComponentStatus(name, healthy ? ComponentStatus.OK : ComponentStatus.Failed, "");
+  }
+  
+  /**
+   * Record that the pod could not be reached, the components keep their last known status.
+   * 
+   * @param statusMessage The reason.
+   * @return The new status of the pod.
+   */
+  public ComponentStatus setUnreachable(String statusMessage)
+  {
+    return setPodStatus(ComponentStatus.Stopped, statusMessage);
+  }
+  
+  private void setComponentStatus(String name, ComponentStatus status, String statusMessage)
+  {
+    IModelObject component = pod_.getComponent(name, 
+        (parent, componentName) -> 
+        {
+          structureChange_ = true;
+          return new ModelObject(pod_, IComponent.GENERIC_COMPONENT, componentName);
+        },
+        (existingComponent) -> changedComponents_.add(existingComponent)
+    );
+    
+    component.setComponentStatus(status, statusMessage);
+  }
+  
+  private ComponentStatus setPodStatus(ComponentStatus status, String statusMessage)
+  {
+    status_ = status;
+    statusMessage_ = statusMessage;
+    
+    boolean podChanged = previous_ == EMPTY || status != previous_.status_ || !Objects.equals(statusMessage, previous_.statusMessage_);
+    
+    if(podChanged || names_ != previous_.names_ || failedComponents_ != previous_.failedComponents_)
+      SNAPSHOTS.put(pod_, new Snapshot(names_, healthy_, failedComponents_, status, statusMessage));
+    
+    if(podChanged)
+      pod_.setComponentStatus(status, statusMessage);
+    
+    if(structureChange_)
+    {
+      pod_.getManager().modelObjectStructureChanged(pod_);
+    }
+    else
+    {
+      if(podChanged)
+        pod_.getManager().modelObjectChanged(pod_);
+      
+      for(IModelObject component : changedComponents_)
+        pod_.getManager().modelObjectChanged(component);
+    }
+    
+    return status;
+  }
+  /**
+   * Discard the snapshot for the given pod, so that the next check updates every component.
+   * 
+   * @param pod A pod.
+   */
+  public static void reset(IPod pod)
+  {
+    SNAPSHOTS.remove(pod);
+  }
+
+  /**
+   * @return The health of each component last reported by the pod, in the order reported.
+   */
+  public Map<String, Boolean> getComponents()
+  {
+    Map<String, Boolean> components = new LinkedHashMap<>();
+    
+    for(int i=0 ; i<names_.length ; i++)
+      components.put(names_[i], healthy_[i]);
+    
+    return components;
+  }
+
+  public int getFailedComponents()
+  {
+    return failedComponents_;
+  }
+
+  public ComponentStatus getStatus()
+  {
+    return status_;
+  }
+
+  public String getStatusMessage()
+  {
+    return statusMessage_;
+  }
+  
+  private static class Snapshot
+  {
+    private final String[]              names_;
+    private final boolean[]             healthy_;
+    private final Map<String, Integer>  positions_ = new HashMap<>();
+    private final int                   failedComponents_;
+    private final ComponentStatus       status_;
+    private final String                statusMessage_;
+    
+    private Snapshot(String[] names, boolean[] healthy, int failedComponents, ComponentStatus status, String statusMessage)
+    {
+      names_ = names;
+      healthy_ = healthy;
+      
+      for(int i=0 ; i<names.length ; i++)
+        positions_.put(names[i], i);
+      
+      failedComponents_ = failedComponents;
+      status_ = status;
+      statusMessage_ = statusMessage;
+    }
+  }
+}
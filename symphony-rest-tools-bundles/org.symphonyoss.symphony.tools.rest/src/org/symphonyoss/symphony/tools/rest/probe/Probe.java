@@ -25,30 +25,72 @@ package org.symphonyoss.symphony.tools.rest.probe;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import javax.annotation.Nullable;
+
+import org.symphonyoss.s2.common.crypto.cert.CertificateUtils;
 import org.symphonyoss.symphony.jcurl.JCurl;
-import org.symphonyoss.symphony.jcurl.JCurl.Response;
+import org.symphonyoss.symphony.tools.rest.Srt;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
 import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpResult;
+import org.symphonyoss.symphony.tools.rest.util.net.IJsonFieldVisitor;
+import org.symphonyoss.symphony.tools.rest.util.net.JsonExtractor;
+import org.symphonyoss.symphony.tools.rest.util.net.PhaseTimings;
 
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
+/**
+ * A probe of a single candidate endpoint.
+ * 
+ * Only the facts extracted from the response are retained, the status, content type,
+ * named tags, server certificate fingerprints and, for JSON responses no larger than
+ * MAX_BODY_BYTES, the JSON body. This keeps the memory used by large scans low.
+ * 
+ * @author Bruce Skingle
+ *
+ */
 public class Probe
 {
+  /** The largest response body which will be processed. */
+  public static final long MAX_BODY_BYTES = 64 * 1024;
+  
   private final int      port_;
   private final String   basePath_;
 
   private final String   hostName_;
+  private final String   suffix_;
+  private final String   domain_;
   private final URL      baseUrl_;
 
   private URL            probeUrl_;
   private String         expectedContentType_;
 
   private int            httpStatus_;
-  private JCurl.Response jcurlResponse_;
+  private String         contentType_;
+  private JsonNode       jsonNode_;
+  private JsonExtractor  jsonExtractor_;
+  private IJsonFieldVisitor jsonVisitor_;
+  private JsonToken      jsonRoot_;
+  private String[]       tagNames_ = new String[0];
+  private Map<String, String> tags_ = new HashMap<>();
+  private List<String>   certFingerprints_ = Collections.emptyList();
+  private PhaseTimings   phaseTimings_;
   private boolean        failed_ = true;
   private boolean        failedCertAuth_;
   private boolean        unhealthy_;
   private boolean        valid_;
+  
+  private final CancellationToken abortToken_ = new CancellationToken();
     
   public Probe(String name, String suffix, String domain, int port,
       String basePath)
@@ -59,6 +101,8 @@ public class Probe
       basePath_ = basePath;
       
       hostName_ = name + suffix + domain;
+      suffix_ = suffix;
+      domain_ = domain;
       baseUrl_ = new URL("https://" + hostName_ + 
           (port == 443 ? "" : ":" + port_) + basePath_);
       probeUrl_ = baseUrl_;
@@ -69,6 +113,22 @@ public class Probe
     }
   }
   
+  /**
+   * Create a probe for a known endpoint.
+   * 
+   * @param baseUrl The base URL of the endpoint.
+   */
+  public Probe(URL baseUrl)
+  {
+    port_ = baseUrl.getPort() == -1 ? baseUrl.getDefaultPort() : baseUrl.getPort();
+    basePath_ = baseUrl.getPath();
+    hostName_ = baseUrl.getHost();
+    suffix_ = null;
+    domain_ = null;
+    baseUrl_ = baseUrl;
+    probeUrl_ = baseUrl_;
+  }
+  
   public Probe setProbePath(String probePath, String expectedContentType)
   {
     String base = baseUrl_.toString();
@@ -89,7 +149,12 @@ public class Probe
     failed_ = true;
     unhealthy_ = false;
     valid_ = false;
-    jcurlResponse_ = null;
+    contentType_ = null;
+    jsonNode_ = null;
+    jsonRoot_ = null;
+    tags_.clear();
+    certFingerprints_ = Collections.emptyList();
+    phaseTimings_ = null;
     
     return this;
   }
@@ -104,12 +169,151 @@ public class Probe
     return failed_ = failed;
   }
 
-  public JsonNode getJsonNode()
+  /**
+   * @return The JSON body of the response, or null if there was none or it was too large.
+   */
+  public @Nullable JsonNode getJsonNode()
+  {
+    return jsonNode_;
+  }
+
+  /**
+   * Stream the JSON body of the response through the given extractor rather than building
+   * a tree, in which case getJsonNode() returns null and the tags are not available.
+   * 
+   * @param jsonExtractor The extractor.
+   * @param jsonVisitor   The visitor to be called for each extracted field.
+   * @return this probe.
+   */
+  public Probe withJsonExtractor(JsonExtractor jsonExtractor, IJsonFieldVisitor jsonVisitor)
+  {
+    jsonExtractor_ = jsonExtractor;
+    jsonVisitor_ = jsonVisitor;
+    
+    return this;
+  }
+
+  public @Nullable JsonExtractor getJsonExtractor()
+  {
+    return jsonExtractor_;
+  }
+
+  public @Nullable IJsonFieldVisitor getJsonVisitor()
+  {
+    return jsonVisitor_;
+  }
+
+  /**
+   * @return The first token of a body streamed through the JSON extractor, START_OBJECT if its
+   * fields were visited, or null if there was none.
+   */
+  public @Nullable JsonToken getJsonRoot()
+  {
+    return jsonRoot_;
+  }
+
+  /**
+   * Set the names of the tags to be retained from the response, the tags must also be
+   * extracted by the JCurl instance used to make the request.
+   * 
+   * @param tagNames  The names of the tags to retain.
+   * @return this probe.
+   */
+  public Probe withTags(String ...tagNames)
   {
-    if(jcurlResponse_ == null)
-      return null;
+    tagNames_ = tagNames;
+    
+    return this;
+  }
+
+  public @Nullable String getTag(String name)
+  {
+    return tags_.get(name);
+  }
+
+  /**
+   * Record the facts of interest from the given result.
+   * 
+   * @param result The result of the request made by this probe.
+   */
+  public void setResult(HttpResult result)
+  {
+    httpStatus_ = result.getStatus();
+    contentType_ = result.getContentType();
+    certFingerprints_ = getFingerprints(result.getServerCertificates());
+    jsonRoot_ = result.getJsonRoot();
+    
+    JCurl.Response response = result.getResponse();
+    
+    if(response != null)
+    {
+      jsonNode_ = response.getJsonNode();
+      
+      for(String name : tagNames_)
+      {
+        String value = response.getTag(name);
+        
+        if(value != null)
+          tags_.put(name, value);
+      }
+    }
+  }
+  
+  private static List<String> getFingerprints(@Nullable Certificate[] certs)
+  {
+    if(certs == null)
+      return Collections.emptyList();
+    
+    List<String> fingerprints = new ArrayList<>(certs.length);
     
-    return jcurlResponse_.getJsonNode();
+    for(Certificate cert : certs)
+    {
+      try
+      {
+        if(cert instanceof X509Certificate)
+          fingerprints.add(CertificateUtils.getFingerPrint((X509Certificate) cert));
+      }
+      catch(CertificateEncodingException e)
+      {
+        // Not a certificate we can identify, ignore it
+      }
+    }
+    
+    return fingerprints;
+  }
+
+  /**
+   * @return The fingerprints of the certificate chain presented by the server, end certificate first.
+   */
+  public List<String> getCertFingerprints()
+  {
+    return certFingerprints_;
+  }
+
+  public @Nullable String getContentType()
+  {
+    return contentType_;
+  }
+
+  /**
+   * @return The phase timings of the last request made by this probe, or null if they were not captured.
+   */
+  public @Nullable PhaseTimings getPhaseTimings()
+  {
+    return phaseTimings_;
+  }
+
+  public void setPhaseTimings(@Nullable PhaseTimings phaseTimings)
+  {
+    phaseTimings_ = phaseTimings;
+  }
+
+  /**
+   * @return true if the body of the response is needed, only JSON bodies are ever examined.
+   */
+  public boolean isBodyRequired()
+  {
+    return Srt.MIME_JSON.equals(expectedContentType_);
   }
 
   public String getHostName()
@@ -117,29 +321,40 @@ public class Probe
     return hostName_;
   }
 
-  public URL getBaseUrl()
+  /**
+   * @return The suffix added to the host name, or null if this probe was created from a URL.
+   */
+  public @Nullable String getSuffix()
   {
-    return baseUrl_;
+    return suffix_;
   }
 
-  public URL getProbeUrl()
+  /**
+   * @return The domain of the host name, or null if this probe was created from a URL.
+   */
+  public @Nullable String getDomain()
   {
-    return probeUrl_;
+    return domain_;
   }
 
-  public String getExpectedContentType()
+  public String getBasePath()
   {
-    return expectedContentType_;
+    return basePath_;
   }
 
-  public JCurl.Response getJcurlResponse()
+  public URL getBaseUrl()
   {
-    return jcurlResponse_;
+    return baseUrl_;
   }
 
-  public Response setJcurlResponse(JCurl.Response jcurlResponse)
+  public URL getProbeUrl()
   {
-    return jcurlResponse_ = jcurlResponse;
+    return probeUrl_;
+  }
+
+  public String getExpectedContentType()
+  {
+    return expectedContentType_;
   }
 
   public int getHttpStatus()
@@ -169,7 +384,7 @@ public class Probe
 
   public boolean isResponseTypeValid()
   {
-    return expectedContentType_ == null || jcurlResponse_.getContentType().equals(expectedContentType_);
+    return expectedContentType_ == null || expectedContentType_.equals(contentType_);
   }
 
   public String getHostNameAndPort()
@@ -196,4 +411,28 @@ public class Probe
   {
     valid_ = valid;
   }
+
+  /**
+   * @return A token which is canceled when this probe is aborted, requests for the
+   * probe should be made with it so that an in-flight connection is closed.
+   */
+  public CancellationToken getAbortToken()
+  {
+    return abortToken_;
+  }
+
+  /**
+   * Abandon this probe, closing any in-flight connection.
+   * 
+   * Used when another probe in a race has already produced a valid result.
+   */
+  public void abort()
+  {
+    abortToken_.cancel();
+  }
+
+  public boolean isAborted()
+  {
+    return abortToken_.isCanceled();
+  }
 }
@@ -0,0 +1,363 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.tools.rest.Srt;
+import org.symphonyoss.symphony.tools.rest.SrtCommand;
+import org.symphonyoss.symphony.tools.rest.console.Console;
+import org.symphonyoss.symphony.tools.rest.console.IConsole;
+import org.symphonyoss.symphony.tools.rest.model.IPodManager;
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.util.BoundedExecutor;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.IObjective;
+import org.symphonyoss.symphony.tools.rest.util.command.Flag;
+import org.symphonyoss.symphony.tools.rest.util.command.Switch;
+import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
+
+/**
+ * Runs ProbePod over a stream of host names read from a file or standard input.
+ * 
+ * Hosts are probed concurrently, subject to a global limit and a limit per domain.
+ * A host whose domain is at its limit is queued for that domain and dispatched when
+ * a probe in the domain completes, so it never ties up a worker or a slot which a host
+ * in another domain could use, and the thread reading the inventory carries on to hosts
+ * in other domains. The inventory is read at most a fixed number of hosts ahead of the
+ * probes and each probe's output is buffered and written when it completes, so memory
+ * use does not depend on the size of the inventory.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ProbeFleet extends SrtCommand
+{
+  private static final String PROGRAM_NAME              = "ProbeFleet";
+  private static final String STDIN                     = "-";
+  private static final int    DEFAULT_MAX_CONCURRENCY   = 16;
+  private static final int    DEFAULT_MAX_PER_DOMAIN    = 2;
+  private static final int    MAX_READ_AHEAD            = 1024;
+  private static final String FORMAT                    = "%-40s %-10s %s";
+
+  private String                      inventory_        = "";
+  private int                         maxConcurrency_   = DEFAULT_MAX_CONCURRENCY;
+  private int                         maxPerDomain_     = DEFAULT_MAX_PER_DOMAIN;
+  private int                         cacheTtlSeconds_  = ProbeOutcomeCache.DEFAULT_TTL_SECONDS;
+  private Switch                      overwriteConfig_;
+  private Switch                      race_;
+  private Switch                      preScan_;
+  private Switch                      refresh_;
+
+  private final Map<String, DomainQueue> domainQueues_ = new HashMap<>();
+  private final AtomicInteger         hostCount_        = new AtomicInteger();
+  private final AtomicInteger         podCount_         = new AtomicInteger();
+  private final AtomicInteger         failCount_        = new AtomicInteger();
+  private IObjective                  fleetObjective_;
+  
+  public static void main(String[] argv) throws IOException
+  {
+    new ProbeFleet(argv).run();
+  }
+
+  public ProbeFleet(IConsole console, ISrtHome srtHome)
+  {
+    super(PROGRAM_NAME, console, srtHome);
+  }
+
+  public ProbeFleet(String[] argv)
+  {
+    super(PROGRAM_NAME, argv);
+  }
+
+  @Override
+  protected void init()
+  {
+    super.init();
+
+    withKeystore(false);
+    withTruststore(false);
+    withParallel();
+    
+    overwriteConfig_ = new Switch('s', "Overwrite Config", "Overwrite any existing saved config for each pod", 1);
+    race_ = new Switch('r', "Race", "Stop probing for an endpoint as soon as one is found", 1);
+    preScan_ = new Switch('t', "TCP Pre-scan", "Check which ports accept TCP connections before probing with HTTPS", 1);
+    refresh_ = new Switch('f', "Refresh", "Ignore cached probe outcomes", 1);
+    
+    getParser()
+      .withSwitch(overwriteConfig_)
+      .withSwitch(race_)
+      .withSwitch(preScan_)
+      .withSwitch(refresh_)
+      .withFlag(new Flag<String>("Inventory File", String.class, (v) -> inventory_ = v)
+          .withName("inventory")
+          .withHelp("A file containing host names, one per line, - or no value for standard input"))
+      .withFlag(new Flag<Integer>("Max Concurrent Probes", Integer.class, (v) -> maxConcurrency_ = v,
+          () -> DEFAULT_MAX_CONCURRENCY)
+          .withName("concurrency"))
+      .withFlag(new Flag<Integer>("Max Concurrent Probes Per Domain", Integer.class, (v) -> maxPerDomain_ = v,
+          () -> DEFAULT_MAX_PER_DOMAIN)
+          .withName("perdomain"))
+      .withFlag(new Flag<Integer>("Probe Cache TTL", Integer.class, (v) -> cacheTtlSeconds_ = v,
+          () -> ProbeOutcomeCache.DEFAULT_TTL_SECONDS)
+          .withName("cachettl")
+          .withHelp("The time in seconds for which failed probe outcomes are cached, 0 to disable"));
+    
+    fleetObjective_ = createObjective("Probe Fleet");
+  }
+
+  @Override
+  public void execute()
+  {
+    beginTask(1, "Probing fleet from %s", isStdin() ? "standard input" : inventory_);
+    fleetObjective_.setObjectiveStatus(ComponentStatus.Starting, "Probing...");
+    
+    BoundedExecutor executor    = new BoundedExecutor(Math.max(1, maxConcurrency_));
+    int             maxHosts    = executor.getMaxConcurrency() + MAX_READ_AHEAD;
+    Semaphore       permits     = new Semaphore(maxHosts);
+    
+    try(BufferedReader in = new BufferedReader(new InputStreamReader(openInventory(), StandardCharsets.UTF_8)))
+    {
+      String line;
+      
+      while((line = in.readLine()) != null && !isTaskCanceled() && !getDeadline().isExpired())
+      {
+        String host = line.trim();
+        
+        if(host.length() == 0 || host.startsWith("#"))
+          continue;
+        
+        // A permit is held from when a host is read until its probe completes, which
+        // limits how far the inventory is read ahead of hosts waiting for their domain.
+        permits.acquire();
+        
+        try
+        {
+          dispatch(executor, permits, getDomain(host), host);
+        }
+        catch(RuntimeException e)
+        {
+          permits.release();
+          throw e;
+        }
+      }
+      
+      // Wait for the probes in progress, and the hosts queued for their domains, to complete
+      permits.acquire(maxHosts);
+    }
+    catch(IOException e)
+    {
+      fleetObjective_.setObjectiveStatus(ComponentStatus.Failed, "Unable to read inventory");
+      error(e, "Unable to read inventory %s", inventory_);
+      return;
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      fleetObjective_.setObjectiveStatus(ComponentStatus.Stopped, "Interrupted");
+    }
+    finally
+    {
+      executor.shutdown();
+      taskWorked(1);
+    }
+    
+    title("Fleet Summary");
+    printfln("%-20s=%d", "Hosts probed", hostCount_.get());
+    printfln("%-20s=%d", "Pods found", podCount_.get());
+    printfln("%-20s=%d", "Probes failed", failCount_.get());
+    
+    if(isTaskCanceled())
+      fleetObjective_.setObjectiveStatus(ComponentStatus.Stopped, "Canceled");
+    else if(failCount_.get() == 0)
+      fleetObjective_.setObjectiveStatusOK();
+    else
+      fleetObjective_.setObjectiveStatus(ComponentStatus.Warning, "%d of %d probes failed", failCount_.get(), hostCount_.get());
+  }
+
+  private boolean isStdin()
+  {
+    return inventory_ == null || inventory_.length() == 0 || STDIN.equals(inventory_);
+  }
+
+  private InputStream openInventory() throws IOException
+  {
+    if(isStdin())
+      return System.in;
+    
+    return new FileInputStream(inventory_);
+  }
+  
+  /*
+   * Start a probe of the given host if its domain is below its limit, otherwise queue the
+   * host to be started when a probe in the domain completes.
+   */
+  private void dispatch(BoundedExecutor executor, Semaphore permits, String domain, String host)
+  {
+    synchronized(domainQueues_)
+    {
+      DomainQueue queue = domainQueues_.computeIfAbsent(domain, (k) -> new DomainQueue());
+      
+      if(queue.running_ >= Math.max(1, maxPerDomain_))
+      {
+        queue.pending_.add(host);
+        return;
+      }
+      
+      queue.running_++;
+    }
+    
+    submit(executor, permits, domain, host);
+  }
+  
+  private void submit(BoundedExecutor executor, Semaphore permits, String domain, String host)
+  {
+    executor.submit(() ->
+    {
+      try
+      {
+        // Hosts queued for their domain when the fleet probe is stopped are not probed
+        if(!isTaskCanceled() && !getDeadline().isExpired())
+          probeHost(host);
+      }
+      finally
+      {
+        permits.release();
+        
+        String next;
+        
+        synchronized(domainQueues_)
+        {
+          DomainQueue queue = domainQueues_.get(domain);
+          
+          next = queue.pending_.poll();
+          
+          if(next == null && --queue.running_ == 0)
+            domainQueues_.remove(domain);
+        }
+        
+        // This probe's place in the domain passes to the next host queued for it
+        if(next != null)
+          submit(executor, permits, domain, next);
+      }
+    });
+  }
+  
+  private void probeHost(String host)
+  {
+    StringWriter  buffer = new StringWriter();
+    PrintWriter   out = new PrintWriter(buffer);
+    Console       hostConsole = new Console(new BufferedReader(new StringReader("")), out, out);
+    ProbePod      probePod = new ProbePod(hostConsole, getSrtHome());
+    
+    setAllFlags(probePod);
+    setSwitches(probePod, getVerbose(), getParallel(), overwriteConfig_, race_, preScan_, refresh_);
+    
+    probePod.setCacheTtlSeconds(cacheTtlSeconds_);
+    probePod.getParser().getArgSetter().set(host);
+    probePod.setTlsContextCache(getTlsContextCache());
+    
+    try(CancellationToken.Registration registration = getCancellationToken().onCancel(
+        hostConsole.getCancellationToken()::cancel))
+    {
+      probePod.doExecute();
+    }
+    catch(RuntimeException e)
+    {
+      reportHost(host, hostConsole, buffer, ComponentStatus.Failed, String.valueOf(e), e);
+      return;
+    }
+    finally
+    {
+      // Release the model for this pod, the config has been saved.
+      IPodManager podManager = getSrtHome().getPodManager();
+      
+      if(probePod.getFqdn() != null)
+        podManager.unloadPod(probePod.getFqdn());
+    }
+    
+    IObjective podObjective = probePod.getPodObjective();
+    
+    reportHost(host, hostConsole, buffer, podObjective.getComponentStatus(), podObjective.getComponentStatusMessage(), null);
+  }
+
+  private void reportHost(String host, Console hostConsole, StringWriter buffer, ComponentStatus status,
+      String message, @Nullable RuntimeException failure)
+  {
+    hostCount_.incrementAndGet();
+    
+    if(status == ComponentStatus.OK)
+      podCount_.incrementAndGet();
+    else
+      failCount_.incrementAndGet();
+    
+    synchronized(this)
+    {
+      if(getVerbose().getCount() > 0)
+      {
+        hostConsole.flush();
+        getOut().print(buffer);
+      }
+      
+      if(failure != null)
+        error(failure, "Probe of %s failed", host);
+      
+      printfln(FORMAT, host, status, message);
+      flush();
+    }
+  }
+
+  private String getDomain(String host)
+  {
+    int i = host.indexOf('.');
+    
+    return i == -1 ? Srt.DEFAULT_DOMAIN : host.substring(i);
+  }
+  
+  /*
+   * The hosts in one domain being probed and waiting to be probed, guarded by domainQueues_.
+   */
+  private static class DomainQueue
+  {
+    private final Deque<String> pending_ = new ArrayDeque<>();
+    private int                 running_;
+  }
+}
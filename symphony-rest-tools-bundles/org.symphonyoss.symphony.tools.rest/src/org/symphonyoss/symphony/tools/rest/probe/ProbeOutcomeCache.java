@@ -0,0 +1,195 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.tools.rest.util.home.KeyValueLog;
+
+/**
+ * A persistent cache of the outcomes of failed probes.
+ * 
+ * Entries are keyed by host, port, path and authentication mode and hold the
+ * classification of the failure and an expiry time. Only failures are cached,
+ * a successful probe is needed for the response it returns, and a success
+ * removes any cached failure for the same key.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ProbeOutcomeCache
+{
+  public static final String STORE_NAME          = "probes";
+  public static final int    DEFAULT_TTL_SECONDS = 300;
+  
+  /** The maximum number of outcomes kept, beyond which the least recently recorded are dropped. */
+  public static final int    MAX_ENTRIES         = 10000;
+  
+  public enum Outcome
+  {
+    /** The host name could not be resolved. */
+    UnknownHost,
+    /** The connection was refused or timed out. */
+    ConnectFailed,
+    /** The server requires a client certificate which we did not provide or it rejected. */
+    CertAuthRequired,
+    /** The TLS handshake failed for some other reason. */
+    SslFailed,
+    /** The server returned an unexpected HTTP status, the detail is the status code. */
+    HttpStatus,
+    /** The server returned an unexpected content type, the detail is the content type. */
+    ContentType
+  }
+  
+  private final KeyValueLog store_;
+  private final long        ttlMillis_;
+
+  /**
+   * Constructor.
+   * 
+   * Expired outcomes are dropped from the store, which is limited to MAX_ENTRIES.
+   * 
+   * @param store     The store in which outcomes are kept.
+   * @param ttlMillis The time for which failed outcomes are cached, 0 to disable the cache.
+   */
+  public ProbeOutcomeCache(KeyValueLog store, long ttlMillis)
+  {
+    store_ = store;
+    ttlMillis_ = ttlMillis;
+    
+    store_.setRetentionPolicy(MAX_ENTRIES, (key, value) -> parse(value, System.currentTimeMillis()) != null);
+  }
+
+  public boolean isEnabled()
+  {
+    return ttlMillis_ > 0;
+  }
+
+  /**
+   * Return the cached outcome for the given probe, if there is one which has not expired.
+   * 
+   * @param probe     A probe.
+   * @param authMode  The authentication mode of the probe.
+   * @return The cached outcome or null.
+   */
+  public @Nullable Entry get(Probe probe, String authMode)
+  {
+    if(!isEnabled())
+      return null;
+    
+    String key = getKey(probe, authMode);
+    String value = store_.get(key);
+    
+    if(value == null)
+      return null;
+    
+    Entry entry = parse(value, System.currentTimeMillis());
+    
+    if(entry == null)
+      store_.remove(key);
+    
+    return entry;
+  }
+  
+  /*
+   * Return the entry for the given stored value, or null if it has expired or is corrupt.
+   */
+  private static @Nullable Entry parse(String value, long now)
+  {
+    String[] parts = value.split(" ", 3);
+    
+    try
+    {
+      if(parts.length == 3 && Long.parseLong(parts[0]) > now)
+      {
+        Outcome outcome = Outcome.valueOf(parts[1]);
+        
+        // The status is replayed as a number, so a record which does not have one is corrupt
+        if(outcome == Outcome.HttpStatus)
+          Integer.parseInt(parts[2]);
+        
+        return new Entry(outcome, parts[2]);
+      }
+    }
+    catch(IllegalArgumentException e)
+    {
+      // Corrupt record, treat as expired
+    }
+    
+    return null;
+  }
+
+  /**
+   * Record a failed probe.
+   * 
+   * @param probe     A probe.
+   * @param authMode  The authentication mode of the probe.
+   * @param outcome   The classification of the failure.
+   * @param detail    Any detail for the outcome, may be empty.
+   */
+  public void put(Probe probe, String authMode, Outcome outcome, String detail)
+  {
+    if(isEnabled() && !probe.isAborted())
+      store_.put(getKey(probe, authMode), (System.currentTimeMillis() + ttlMillis_) + " " + outcome + " " + detail);
+  }
+
+  /**
+   * Record a successful probe, discarding any cached failure.
+   * 
+   * @param probe     A probe.
+   * @param authMode  The authentication mode of the probe.
+   */
+  public void remove(Probe probe, String authMode)
+  {
+    store_.remove(getKey(probe, authMode));
+  }
+
+  private static String getKey(Probe probe, String authMode)
+  {
+    return probe.getHostNameAndPort() + " " + probe.getProbeUrl().getFile() + " " + authMode;
+  }
+  
+  public static class Entry
+  {
+    private final Outcome outcome_;
+    private final String  detail_;
+    
+    private Entry(Outcome outcome, String detail)
+    {
+      outcome_ = outcome;
+      detail_ = detail;
+    }
+
+    public Outcome getOutcome()
+    {
+      return outcome_;
+    }
+
+    public String getDetail()
+    {
+      return detail_;
+    }
+  }
+}
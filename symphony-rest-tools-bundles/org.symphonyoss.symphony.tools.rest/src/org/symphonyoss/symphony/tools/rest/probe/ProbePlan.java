@@ -0,0 +1,201 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.symphonyoss.symphony.tools.rest.util.BoundedExecutor;
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+import org.symphonyoss.symphony.tools.rest.util.typeutils.ISetter;
+
+/**
+ * A set of probe steps with explicit dependencies between them.
+ * 
+ * When the plan is executed every step whose dependencies are satisfied is started,
+ * concurrently if requested, and steps which require a step that failed are skipped.
+ * Once the plan completes the critical path, the chain of steps which determined the
+ * elapsed time, can be obtained.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ProbePlan
+{
+  private final List<ProbeStep> steps_ = new ArrayList<>();
+  private final Set<Thread>     workers_ = ConcurrentHashMap.newKeySet();
+  private volatile boolean      canceled_;
+
+  /**
+   * Add a step to the plan.
+   * 
+   * @param name    The name of the step.
+   * @param action  The work done by the step.
+   * 
+   * @return The new step, to which dependencies can be added.
+   */
+  public ProbeStep withStep(String name, IProbeAction action)
+  {
+    ProbeStep step = new ProbeStep(name, action);
+    
+    steps_.add(step);
+    
+    return step;
+  }
+
+  public List<ProbeStep> getSteps()
+  {
+    return Collections.unmodifiableList(steps_);
+  }
+
+  /**
+   * Skip all steps which have not yet started. Steps in progress on worker threads are
+   * interrupted, a step running on the calling thread is allowed to complete.
+   */
+  public void cancel()
+  {
+    canceled_ = true;
+    
+    for(Thread worker : workers_)
+      worker.interrupt();
+  }
+
+  /**
+   * Execute the plan, returning when every step has finished or been skipped.
+   * 
+   * @param concurrent  If true then independent steps run concurrently, otherwise
+   *                    steps run one at a time on the calling thread in the order
+   *                    in which they were added.
+   * @param listener    Called on the calling thread as each step finishes or is skipped.
+   */
+  public void execute(boolean concurrent, ISetter<ProbeStep> listener)
+  {
+    BlockingQueue<ProbeStep> finished = new LinkedBlockingQueue<>();
+    BoundedExecutor          executor = concurrent && steps_.size() > 1 ? new BoundedExecutor(steps_.size()) : null;
+    int                      remaining = steps_.size();
+    int                      outstanding = 0;
+    
+    try
+    {
+      while(remaining > 0)
+      {
+        for(ProbeStep step : steps_)
+        {
+          if(step.getStatus() != ProbeStep.Status.Pending)
+            continue;
+          
+          if(canceled_ || step.getFailedRequirement() != null)
+          {
+            step.skip();
+            outstanding++;
+            finished.add(step);
+          }
+          else if(step.isReady())
+          {
+            step.start();
+            outstanding++;
+            
+            if(executor == null)
+            {
+              step.run();
+              finished.add(step);
+              break;
+            }
+            
+            executor.submit(() ->
+            {
+              workers_.add(Thread.currentThread());
+              
+              try
+              {
+                if(canceled_)
+                  step.skip();
+                else
+                  step.run();
+              }
+              finally
+              {
+                workers_.remove(Thread.currentThread());
+                Thread.interrupted();
+                finished.add(step);
+              }
+            });
+          }
+        }
+        
+        if(outstanding == 0)
+          throw new ProgramFault("Probe plan contains a dependency cycle");
+        
+        ProbeStep step = finished.take();
+        
+        outstanding--;
+        remaining--;
+        listener.set(step);
+      }
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      canceled_ = true;
+    }
+    finally
+    {
+      if(executor != null)
+        executor.shutdown();
+    }
+  }
+
+  /**
+   * Return the chain of steps which determined the elapsed time of the plan, that is
+   * the step which finished last, preceded by the step it waited for, and so on.
+   * 
+   * @return The critical path, in execution order.
+   */
+  public List<ProbeStep> getCriticalPath()
+  {
+    ProbeStep last = null;
+    
+    for(ProbeStep step : steps_)
+    {
+      if(step.getStatus() == ProbeStep.Status.Succeeded || step.getStatus() == ProbeStep.Status.Failed)
+      {
+        if(last == null || step.getEndNanos() - last.getEndNanos() > 0)
+          last = step;
+      }
+    }
+    
+    List<ProbeStep> path = new ArrayList<>();
+    
+    for(ProbeStep step = last ; step != null ; step = step.getCriticalPredecessor())
+      path.add(0, step);
+    
+    return path;
+  }
+}
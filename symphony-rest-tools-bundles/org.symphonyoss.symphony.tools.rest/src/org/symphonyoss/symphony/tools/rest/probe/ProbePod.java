@@ -25,7 +25,6 @@ package org.symphonyoss.symphony.tools.rest.probe;
 
 import java.io.IOException;
 import java.net.ConnectException;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
@@ -33,11 +32,17 @@ import java.net.UnknownHostException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateParsingException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.net.ssl.SSLHandshakeException;
 
 import org.symphonyoss.symphony.jcurl.JCurl;
@@ -47,16 +52,35 @@ import org.symphonyoss.symphony.tools.rest.Srt;
 import org.symphonyoss.symphony.tools.rest.SrtCommand;
 import org.symphonyoss.symphony.tools.rest.console.IConsole;
 import org.symphonyoss.symphony.tools.rest.model.Agent;
+import org.symphonyoss.symphony.tools.rest.model.IAgent;
+import org.symphonyoss.symphony.tools.rest.model.IModelObject;
 import org.symphonyoss.symphony.tools.rest.model.IPod;
 import org.symphonyoss.symphony.tools.rest.model.InvalidConfigException;
 import org.symphonyoss.symphony.tools.rest.model.Pod;
 import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.probe.ProbeOutcomeCache.Outcome;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
 import org.symphonyoss.symphony.tools.rest.util.IObjective;
 import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
 import org.symphonyoss.symphony.tools.rest.util.SubTaskMonitor;
+import org.symphonyoss.symphony.tools.rest.util.command.Flag;
 import org.symphonyoss.symphony.tools.rest.util.command.Switch;
 import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
-
+import org.symphonyoss.symphony.tools.rest.util.net.AsyncHttpTransport;
+import org.symphonyoss.symphony.tools.rest.util.net.DeadlineExceededException;
+import org.symphonyoss.symphony.tools.rest.util.net.HappyEyeballs;
+import org.symphonyoss.symphony.tools.rest.util.net.HostResolver;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpRequest;
+import org.symphonyoss.symphony.tools.rest.util.net.HttpResult;
+import org.symphonyoss.symphony.tools.rest.util.net.IJsonFieldVisitor;
+import org.symphonyoss.symphony.tools.rest.util.net.JsonExtractor;
+import org.symphonyoss.symphony.tools.rest.util.net.PlainHttpClient;
+import org.symphonyoss.symphony.tools.rest.util.net.PortScanner;
+import org.symphonyoss.symphony.tools.rest.util.net.RequestCanceledException;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsConfig;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 
 public class ProbePod extends SrtCommand
@@ -68,7 +92,7 @@ public class ProbePod extends SrtCommand
   private static final int[]    AgentPorts   = new int[] { 443, 8444, 8445, 8446 };
   private static final String[] SUFFIXES     = new String[] { "-api", "" };
 
-  private static final int PROBE_POD_WORK = 6;
+  private static final int PROBE_POD_WORK = 3;
   private static final int AUTH_PROBE_WORK = 1;
   private static final int AGENT_PROBE_WORK = 1;
   private static final int SAVE_CONFIG_WORK = 2;
@@ -83,6 +107,17 @@ public class ProbePod extends SrtCommand
 
   private static final String UNABLE_TO_AUTHENTICATE = "Unable to authenticate";
 
+  private static final String DEADLINE_EXPIRED = "Deadline expired";
+
+  private static final String CANCELED = "Canceled";
+
+  private static final JsonExtractor HEALTH_CHECK_EXTRACTOR = new JsonExtractor(JsonExtractor.ANY_FIELD);
+
+  private static final JsonExtractor POD_INFO_EXTRACTOR = new JsonExtractor("data", "data.podId", "data.keyManagerUrl");
+  private static final int           POD_INFO_DATA = 0;
+  private static final int           POD_INFO_POD_ID = 1;
+  private static final int           POD_INFO_KEY_MANAGER_URL = 2;
+
   private boolean               podHealthy_;
   private int                   podId_;
 
@@ -94,9 +129,19 @@ public class ProbePod extends SrtCommand
 
   private Pod.Builder           podConfig_   = Pod.newBuilder();
   private Agent.Builder         agentConfig_ = Agent.newBuilder();
-  private Set<X509Certificate>  serverCerts_ = new HashSet<>();
+  private Set<X509Certificate>  serverCerts_ = Collections.synchronizedSet(new HashSet<>());
   
   private Switch               overwriteConfig_;
+  private Switch               race_;
+  private Switch               preScan_;
+  private Switch               revalidate_;
+  private IPod                 known_;
+  private TopologyPriors       priors_;
+  private Switch               refresh_;
+  private int                  cacheTtlSeconds_ = ProbeOutcomeCache.DEFAULT_TTL_SECONDS;
+  private ProbeOutcomeCache    outcomeCache_;
+  private PortScanner          portScanner_;
+  private Set<String>          invalidHosts_ = ConcurrentHashMap.newKeySet();
 
   private IObjective podObjective_;
 
@@ -110,9 +155,16 @@ public class ProbePod extends SrtCommand
 
   private IObjective keyAuthObjective_;
 
-  private String sessionToken_;
+  // Read by getAuthMode() from probes of concurrently running steps
+  private volatile String sessionToken_;
+
+  private volatile String keymanagerToken_;
 
-  private String keymanagerToken_;
+  private int    podPort_;
+  private URL    checkAuthKeyManagerUrl_;
+  private URL    podInfoKeyManagerUrl_;
+  private String keyManagerName_;
+  private String keyManagerDomain_;
   
   public static void main(String[] argv) throws IOException
   {
@@ -138,11 +190,24 @@ public class ProbePod extends SrtCommand
     withHostName(true);
     withKeystore(false);
     withTruststore(false);
+    withParallel();
     
     overwriteConfig_ = new Switch('s', "Overwrite Config", "Overwrite any existingsaved config for this pod", 1);
+    race_ = new Switch('r', "Race", "Stop probing for an endpoint as soon as one is found", 1);
+    preScan_ = new Switch('t', "TCP Pre-scan", "Check which ports accept TCP connections before probing with HTTPS", 1);
+    revalidate_ = new Switch('u', "Revalidate", "Check the saved endpoints of a known pod and scan only for those which no longer respond", 1);
+    refresh_ = new Switch('f', "Refresh", "Ignore cached probe outcomes", 1);
     
     getParser()
-      .withSwitch(overwriteConfig_);
+      .withSwitch(overwriteConfig_)
+      .withSwitch(race_)
+      .withSwitch(preScan_)
+      .withSwitch(revalidate_)
+      .withSwitch(refresh_)
+      .withFlag(new Flag<Integer>("Probe Cache TTL", Integer.class, (v) -> cacheTtlSeconds_ = v,
+          () -> ProbeOutcomeCache.DEFAULT_TTL_SECONDS)
+          .withName("cachettl")
+          .withHelp("The time in seconds for which failed probe outcomes are cached, 0 to disable"));
     
     podObjective_ = createObjective("Locate Pod");
     sessionAuthObjective_ = createObjective("Locate Session Auth Endpoint");
@@ -152,14 +217,31 @@ public class ProbePod extends SrtCommand
     agentObjective_ = createObjective("Locate Agent");
   }
   
+  /**
+   * @return The objective which reports whether a pod was found.
+   */
+  public IObjective getPodObjective()
+  {
+    return podObjective_;
+  }
+  
+  /**
+   * Set the time for which failed probe outcomes are cached.
+   * 
+   * @param cacheTtlSeconds The TTL in seconds, 0 to disable the cache.
+   */
+  public void setCacheTtlSeconds(int cacheTtlSeconds)
+  {
+    cacheTtlSeconds_ = cacheTtlSeconds;
+  }
+
   @Override
-  protected Builder getJCurl()
+  protected TlsConfig getTlsConfig()
   {
-    Builder builder = super.getJCurl()
-        .trustAllHostnames(true)
-        .trustAllCertificates(true);
-    
-    return builder;
+    return TlsConfig.newBuilder(super.getTlsConfig())
+        .setTrustAllHostnames(true)
+        .setTrustAllCertificates(true)
+        .build();
   }
 
   @Override
@@ -175,7 +257,7 @@ public class ProbePod extends SrtCommand
 //      println("We have an existing config for this Pod:");
 //      println("========================================");
 //      
-//      pod.print(getOut());
+//      pod.print(getConsole());
 //      
 //      doProbe = promptBoolean("Continue with probe?");
 //    }
@@ -186,39 +268,126 @@ public class ProbePod extends SrtCommand
 //      return;
 //    }
     
-    int totalWork = (PROBE_POD_WORK  * POD_PORTS.length) + AUTH_PROBE_WORK + AGENT_PROBE_WORK + SAVE_CONFIG_WORK;
+    if(pod != null && revalidate_.getCount() > 0)
+    {
+      known_ = pod;
+      
+      println("Revalidating known configuration");
+      println("================================");
+      pod.print(getConsole());
+      println();
+    }
+    
+    priors_ = TopologyPriors.load(getSrtHome());
+    outcomeCache_ = new ProbeOutcomeCache(getSrtHome().getStore(ProbeOutcomeCache.STORE_NAME),
+        TimeUnit.SECONDS.toMillis(cacheTtlSeconds_));
+    
+    ProbePlan plan = new ProbePlan();
+    
+    ProbeStep podStep = plan.withStep("Pod", this::locatePod)
+        .withWork(PROBE_POD_WORK * POD_PORTS.length);
+    
+    ProbeStep sessionAuthStep = plan.withStep("Session Auth", this::probeSessionAuth)
+        .withWork(AUTH_PROBE_WORK)
+        .requires(podStep);
+    
+    plan.withStep("Session Info", this::probeSessionInfo)
+        .requires(sessionAuthStep);
+    
+    ProbeStep keyManagerStep;
+    
+    if(known_ != null && known_.getKeyManagerUrl() != null && known_.getPodId() != null)
+    {
+      podId_ = known_.getPodId().intValue();
+      
+      keyManagerStep = plan.withStep("Key Manager", this::locateKeyManager)
+          .requires(podStep);
+    }
+    else
+    {
+      ProbeStep checkAuthStep = plan.withStep("Check Auth", this::probeCheckAuth)
+          .requires(podStep)
+          .after(sessionAuthStep);
+      
+      ProbeStep podInfoStep = plan.withStep("Pod Info", this::probePodInfo)
+          .requires(podStep)
+          .after(sessionAuthStep);
+      
+      keyManagerStep = plan.withStep("Key Manager", this::locateKeyManager)
+          .requires(podStep)
+          .after(checkAuthStep, podInfoStep);
+    }
+    
+    ProbeStep keyAuthStep = plan.withStep("Key Auth", this::probeKeyAuth)
+        .withWork(AUTH_PROBE_WORK)
+        .requires(keyManagerStep);
+    
+    // The agent is probed even without a session token, a cert auth failure still identifies its endpoint
+    ProbeStep agentStep = plan.withStep("Agent", this::probeAgent)
+        .withWork(AGENT_PROBE_WORK)
+        .requires(podStep)
+        .after(sessionAuthStep, keyAuthStep);
+    
+    int totalWork = SAVE_CONFIG_WORK;
+    
+    for(ProbeStep step : plan.getSteps())
+      totalWork += step.getWork();
     
     beginTask(totalWork, "Probing %s for a Pod", getFqdn());
     podObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
     podApiObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
     sessionAuthObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
 
-    println("Probing for Pod");
-    println("===============");
-    
-    int skippedWork = PROBE_POD_WORK  * POD_PORTS.length;
-    
-    for(int port : POD_PORTS)
+    if(preScan_.getCount() > 0)
     {
-      if(isTaskCanceled())
-        return;
+      portScanner_ = new PortScanner();
       
-      probePod(port);
-      
-      skippedWork -= PROBE_POD_WORK;
+      for(String suffix : SUFFIXES)
+      {
+        String host = getName() + suffix + getDomain();
+        
+        portScanner_
+          .withTargets(host, POD_PORTS)
+          .withTargets(host, AUTH_PORTS)
+          .withTargets(host, AgentPorts);
+      }
       
-      if(podConfig_.getPodUrl() != null)
-        break;
+      try(CancellationToken.Registration registration = getCancellationToken().interruptOnCancel())
+      {
+        preScan();
+      }
+    }
+    
+    try(CancellationToken.Registration registration = getCancellationToken().onCancel(plan::cancel))
+    {
+      plan.execute(isParallel(), (step) ->
+      {
+        if(step.getCause() != null)
+          error(step.getCause(), "Probe step \"%s\" failed unexpectedly.", step.getName());
+        
+        if(taskWorked(step.getWork()) || getDeadline().isExpired())
+          plan.cancel();
+      });
     }
     
-    if(skippedWork > 0)
-      taskWorked(skippedWork);
+    printCriticalPath(plan);
+    
+    if(isTaskCanceled())
+    {
+      failIncomplete("Canceled, the probe is incomplete.", CANCELED);
+      return;
+    }
+    
+    if(getDeadline().isExpired())
+    {
+      failIncomplete("Deadline expired, the probe is incomplete.", DEADLINE_EXPIRED);
+      return;
+    }
     
     if(podConfig_.getWebUrl() == null)
     {
       flush();
       error("Probe did not even find a website.");
-      podObjective_.setObjectiveStatus(ComponentStatus.Failed, NO_WEB_SERVER);
       
       podObjective_.setObjectiveStatus(ComponentStatus.Failed, NO_WEB_SERVER);
       podApiObjective_.setObjectiveStatus(ComponentStatus.Failed, NO_WEB_SERVER);
@@ -227,7 +396,7 @@ public class ProbePod extends SrtCommand
       return;
     }
     
-    if(podConfig_.getPodUrl() == null)
+    if(!podStep.isSucceeded())
     {
       println();
       println("Probe Reveals a Website but no Pod");
@@ -244,191 +413,72 @@ public class ProbePod extends SrtCommand
       
       return;
     }
+    
+    addPhaseTimings(podApiObjective_, sessionInfoResult_);
+    addPhaseTimings(sessionAuthObjective_, sessionAuthResponse_);
+    addPhaseTimings(keyAuthObjective_, keyAuthResponse_);
+    addPhaseTimings(agentObjective_, agentResponse_);
+    
+    podObjective_.setObjectiveStatusOK();
+    
+    if(podConfig_.getPodApiUrl() == null)
+      podApiObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
     else
-    {
-      if(isTaskCanceled())
-        return;
-      
-      podObjective_.setObjectiveStatusOK();
-      
-      if(podConfig_.getPodApiUrl() == null)
-        podApiObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
-      else
-        podApiObjective_.setObjectiveStatusOK();
-      
-      if(podConfig_.getSessionAuthUrl() == null)
-      {
-        sessionAuthObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
-      }
-      else
-      {
-        if(sessionToken_ == null)
-        {
-          sessionAuthObjective_.setObjectiveStatus(ComponentStatus.Warning, UNABLE_TO_AUTHENTICATE);
-        }
-        else
-        {
-          sessionAuthObjective_.setObjectiveStatusOK();
-        }
-      }
-
-      if(podConfig_.getKeyManagerUrl() == null)
-      {
-        println("No podInfo, try to look for an in-cloud key manager...");
-        
-        podConfig_.setKeyManagerUrl(createURL(podConfig_.getPodUrl(), "/relay"));
-      }
-      
-      // How can this ever be true?
-      if(podConfig_.getKeyManagerUrl() == null)
-      {
-        // We found a pod but can't get podInfo - fatal error
-        podObjective_.setObjectiveStatus(ComponentStatus.Failed, "Can't get podinfo");
-        return;
-      }
-      
-      keyManagerObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
-      
-      URL kmUrl = podConfig_.getKeyManagerUrl();
-      String keyManagerDomain;
-      String keyManagerName = kmUrl.getHost();
-      
-      int i = keyManagerName.indexOf('.');
-
-      if (i == -1)
-        keyManagerDomain = Srt.DEFAULT_DOMAIN;
-      else
-      {
-        keyManagerDomain = keyManagerName.substring(i);
-        keyManagerName = keyManagerName.substring(0, i);
-      }
-
-      println("keyManagerName=" + keyManagerName);
-      println("keyManagerDomain=" + keyManagerDomain);
-      
-
-      // Need to find a reliable health check indicator of keymanager in
-      // all deployments, for now assume that as the pod told is this
-      // is the KM that it is.
-      
-//      Builder builder = getJCurl();
-//      builder = cookieAuth(builder);
-//      
-//      ProbeResponse response = probe(builder.build(), keyManagerName + keyManagerDomain, podConfig_.getKeyManagerUrl(), MIME_HTML);
-//      
-//      if(response.isFailed())
-//        return;
-      println("Found key manager at " + podConfig_.getKeyManagerUrl());
-      keyManagerObjective_.setObjectiveStatusOK();
-      
-      if(isTaskCanceled())
-        return;
-
-      println();
-      println("Probing for API Keyauth");
-      println("=======================");
-
-      keyAuthObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
-      SubTaskMonitor subTaskMonitor = new SubTaskMonitor(getConsole(), "Probing for API Keyauth", AUTH_PROBE_WORK);
-      
-      keyAuthResponse_ = probeAuth("Key Auth", "/keyauth", keyManagerName, keyManagerDomain);
-      
-      if(keyAuthResponse_ != null)
-      {
-        podConfig_.setKeyAuthUrl(getUrl(keyAuthResponse_, Srt.TOKEN));
-        
-        String token = getTag(keyAuthResponse_, Srt.TOKEN);
-        
-        if(token != null)
-        {
-          keymanagerToken_ = token;
-          getSrtHome().saveSessionToken(getFqdn(), Srt.KEYMANAGER_TOKEN, token);
-        }
-      }
-      
-      if(podConfig_.getSessionAuthUrl() == null)
-      {
-        keyAuthObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
-      }
-      else
-      {
-        if(keymanagerToken_ == null)
-        {
-          keyAuthObjective_.setObjectiveStatus(ComponentStatus.Warning, UNABLE_TO_AUTHENTICATE);
-        }
-        else
-        {
-          keyAuthObjective_.setObjectiveStatusOK();
-        }
-      }
-      
-      if(subTaskMonitor.worked(1))
-        return;
-
+      podApiObjective_.setObjectiveStatusOK();
+    
+    if(podConfig_.getSessionAuthUrl() == null)
+      sessionAuthObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
+    else if(sessionToken_ == null)
+      sessionAuthObjective_.setObjectiveStatus(ComponentStatus.Warning, UNABLE_TO_AUTHENTICATE);
+    else
+      sessionAuthObjective_.setObjectiveStatusOK();
+    
+    if(podConfig_.getKeyAuthUrl() == null)
+      keyAuthObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
+    else if(keymanagerToken_ == null)
+      keyAuthObjective_.setObjectiveStatus(ComponentStatus.Warning, UNABLE_TO_AUTHENTICATE);
+    else
+      keyAuthObjective_.setObjectiveStatusOK();
+    
+    if(agentStep.isSucceeded())
+      agentObjective_.setObjectiveStatusOK();
+    else if(agentStep.getStatus() == ProbeStep.Status.Skipped)
+      agentObjective_.setObjectiveStatus(ComponentStatus.Failed, "Not probed, " + UNABLE_TO_AUTHENTICATE.toLowerCase());
+    else
+      agentObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
+    
+    println();
+    println("Probe Successful");
+    println("================");
+    
+    String  format = "%-20s=%s\n";
+    
+    printf(format, "Web URL", podConfig_.getWebUrl());
+    printf(format, "Pod URL", podConfig_.getPodUrl());
+    printf(format, "Pod ID", podId_);
+    printf(format, "Key Manager URL", podConfig_.getKeyManagerUrl());
+    printf(format, "Session Auth URL", podConfig_.getSessionAuthUrl());
+    printf(format, "Key Auth URL", podConfig_.getKeyAuthUrl());
+    printf(format, "Pod API URL", podConfig_.getPodApiUrl());
+    printf(format, "Agent API URL", agentConfig_.getAgentApiUrl());
 
-      agentObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
-      subTaskMonitor = new SubTaskMonitor(getConsole(), "Probing for API Agent", AUTH_PROBE_WORK);
+    if(getKeystore() != null)
+    {
       println();
-      println("Probing for API Agent");
-      println("=====================");
+      printf(format, "Client cert", getKeystore());
       
-      agentResponse_ = probeAgent(getName(), getDomain());
-      
-      URL agentUrl = getUrl(agentResponse_, null);
-      
-      if(agentUrl != null)
+      if(sessionInfoResult_ == null || sessionInfoResult_.isFailed())
       {
-        agentConfig_.setName(agentUrl.getHost());
-        agentConfig_.setAgentApiUrl(agentUrl);
-        agentObjective_.setObjectiveStatusOK();
+        println("This cert was not accepted for authentication");
       }
       else
       {
-        agentObjective_.setObjectiveStatus(ComponentStatus.Failed, UNABLE_TO_LOCATE_URL);
-      }
-      
-      if(subTaskMonitor.worked(1))
-        return;
-      
-      println();
-      println("Probe Successful");
-      println("================");
-      
-      String  format = "%-20s=%s\n";
-      
-      printf(format, "Web URL", podConfig_.getWebUrl());
-      printf(format, "Pod URL", podConfig_.getPodUrl());
-      printf(format, "Pod ID", podId_);
-      printf(format, "Key Manager URL", podConfig_.getKeyManagerUrl());
-      printf(format, "Session Auth URL", podConfig_.getSessionAuthUrl());
-      printf(format, "Key Auth URL", podConfig_.getKeyAuthUrl());
-      printf(format, "Pod API URL", podConfig_.getPodApiUrl());
-      printf(format, "Agent API URL", agentConfig_.getAgentApiUrl());
-      
-      
-
-      if(getKeystore() != null)
-      {
-        println();
-        printf(format, "Client cert", getKeystore());
-        
-        if(sessionInfoResult_.isFailed())
-        {
-          println("This cert was not accepted for authentication");
-        }
-        else
-        {
-          println("We authenticated as");
-          for(String field : Srt.SESSION_INFO_FIELDS)
-            printf(format, "userInfo." + field, sessionInfoResult_.getJcurlResponse().getTag(field));
-        }
+        println("We authenticated as");
+        for(String field : Srt.SESSION_INFO_FIELDS)
+          printf(format, "userInfo." + field, sessionInfoResult_.getTag(field));
       }
-      println();
     }
-    
-    if(isTaskCanceled())
-      return;
-
+    println();
         
     println("Root server certs:");
     for (X509Certificate cert : podConfig_.getTrustCerts())
@@ -469,6 +519,41 @@ public class ProbePod extends SrtCommand
     }
   }
 
+  private void failIncomplete(String error, String status)
+  {
+    error(error);
+    
+    for(IObjective objective : getConsole().getObjectives())
+    {
+      if(objective.getComponentStatus() == ComponentStatus.Starting)
+        objective.setObjectiveStatus(ComponentStatus.Failed, status);
+    }
+  }
+
+  private void printCriticalPath(ProbePlan plan)
+  {
+    println();
+    println("Critical Path");
+    println("=============");
+    
+    for(ProbeStep step : plan.getCriticalPath())
+      printfln("%-20s %-10s %6dms", step.getName(), step.getStatus(), step.getElapsedMillis());
+    
+    println();
+  }
+
+  private void preScan()
+  {
+    int reachable = portScanner_.scan(getConnectTimeoutMillis());
+    
+    println("Pre-scan found " + reachable + " open ports");
+    
+    for(String host : portScanner_.getUnknownHosts())
+      invalidHost(host);
+    
+    flush();
+  }
+
   private URL getUrl(ScanResponse scanResponse, String token)
   {
     URL url = null;
@@ -507,10 +592,33 @@ public class ProbePod extends SrtCommand
     return url;
   }
 
-  private void probePod(int port)
+  private boolean locatePod()
   {
-    SubTaskMonitor subTaskMonitor = new SubTaskMonitor(getConsole(), "Probing Port " + port, PROBE_POD_WORK);
+    println("Probing for Pod");
+    println("===============");
+    
+    if(known_ != null && known_.getPodUrl() != null)
+    {
+      if(revalidatePod(known_.getPodUrl()))
+        return true;
+      
+      println("Known pod URL " + known_.getPodUrl() + " did not respond, scanning...");
+    }
+    
+    for(int port : POD_PORTS)
+    {
+      if(isTaskCanceled())
+        return false;
+      
+      if(probePod(port))
+        return true;
+    }
     
+    return false;
+  }
+
+  private boolean probePod(int port)
+  {
     Probe probe = new Probe(getName(), "", getDomain(), port,
         "/");
     
@@ -523,18 +631,12 @@ public class ProbePod extends SrtCommand
       else
         println("This is not a website");
 
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
     else if(podConfig_.getWebUrl() == null)
     {
       podConfig_.setWebUrl(probe.getProbeUrl());
     }
-    
-    if(subTaskMonitor.worked(1))
-      return;
-    
 
     probe = new Probe(getName(), getDomain(), "", port,
         "/").setProbePath(Srt.POD_CLIENT_PATH, Srt.MIME_HTML);
@@ -545,220 +647,377 @@ public class ProbePod extends SrtCommand
     {
       println("This is a website but not a Symphony Pod");
       
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
 
     Probe healthCheckResult = new Probe(getName(), "", getDomain(), port,
         "/").setProbePath(Srt.POD_HEALTHCHECK_PATH, Srt.MIME_JSON);
     
-    JCurl jcurl = getJCurl().build();
-    doProbe(jcurl, healthCheckResult, 200, 500);
+    if(!checkHealth(healthCheckResult))
+      return false;
+    
+    setPodUrl(createUrl("https://" + getFqdn() + (port == 443 ? "" : ":" + port)), port);
+    
+    return true;
+  }
+
+  private boolean revalidatePod(URL podUrl)
+  {
+    Probe healthCheckResult = new Probe(podUrl).setProbePath(Srt.POD_HEALTHCHECK_PATH, Srt.MIME_JSON);
+    
+    if(!checkHealth(healthCheckResult))
+      return false;
+    
+    podConfig_.setWebUrl(known_.getWebUrl() == null ? podUrl : known_.getWebUrl());
+    setPodUrl(podUrl, healthCheckResult.getPort());
+    
+    return true;
+  }
+
+  private void setPodUrl(URL podUrl, int port)
+  {
+    podPort_ = port;
+    podConfig_.setPodUrl(podUrl);
+    podConfig_.setPodApiUrl(createURL(podUrl, "/pod"));
+    
+    if (podHealthy_)
+      println("We found a Symphony Pod!");
+    else
+      println("We found a Symphony Pod, but it's not feeling well");
+  }
+
+  private boolean checkHealth(Probe healthCheckResult)
+  {
+    List<String> unhealthy = new ArrayList<>();
+    
+    healthCheckResult.withJsonExtractor(HEALTH_CHECK_EXTRACTOR, (path, name, parser) ->
+    {
+      if(!parser.getValueAsBoolean())
+        unhealthy.add(name);
+    });
+    
+    doProbe(getJCurl(), healthCheckResult, 200, 500);
 
     if (healthCheckResult.isFailed())
     {
       println("This looks quite like a Symphony Pod, but it isn't");
       
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
-    
-    if(subTaskMonitor.worked(1))
-      return;
 
-    JsonNode healthJson = healthCheckResult.getJsonNode();
+    JsonToken healthJson = healthCheckResult.getJsonRoot();
 
     if (healthJson == null)
     {
       println("This looks a lot like a Symphony Pod, but it isn't");
       
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
 
-    if (!healthJson.isObject())
+    if (healthJson != JsonToken.START_OBJECT)
     {
       println("This looks like a Symphony Pod, but the healthcheck returns something other than an object");
       println(healthJson);
       
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
     
-    podConfig_.setPodUrl(createUrl("https://" + getFqdn() + (port == 443 ? "" : ":" + port)));
-    podHealthy_ = true;
-    healthJson.fields().forEachRemaining((field) ->
-    {
-      if (!field.getValue().asBoolean())
-      {
-        println(field.getKey() + " is UNHEALTHY");
-        podHealthy_ = false;
-      }
-    });
-
-    if (podHealthy_)
-      println("We found a Symphony Pod!");
-    else
-      println("We found a Symphony Pod, but it's not feeling well");
+    for(String name : unhealthy)
+      println(name + " is UNHEALTHY");
+    
+    podHealthy_ = unhealthy.isEmpty();
+    
+    addPhaseTimings(podObjective_, healthCheckResult);
+    
+    return true;
+  }
 
+  private boolean probeSessionAuth()
+  {
     println();
     println("Probing for API Sessionauth");
     println("===========================");
     
-    sessionAuthResponse_ = probeAuth("Session Auth", "/sessionauth", getName(), getDomain());
+    sessionAuthResponse_ = revalidateAuth("Session Auth", known_ == null ? null : known_.getSessionAuthUrl());
+    
+    if(sessionAuthResponse_ == null)
+      sessionAuthResponse_ = probeAuth("Session Auth", "/sessionauth", getName(), getDomain());
+    
+    podConfig_.setSessionAuthUrl(getUrl(sessionAuthResponse_, Srt.TOKEN));
+    
+    String token = getTag(sessionAuthResponse_, Srt.TOKEN);
+    
+    if(token == null)
+      return false;
+    
+    sessionToken_ = token;
+    getSrtHome().saveSessionToken(getFqdn(), Srt.SESSION_TOKEN, token);
+    
+    return true;
+  }
 
-    if(subTaskMonitor.worked(1))
-      return;
+  private boolean probeSessionInfo()
+  {
+    Builder builder = getJCurl();
+    
+    for(String field : Srt.SESSION_INFO_FIELDS)
+      builder.extract(field, field);
+    
+    cookieAuth(builder);
     
-    if(sessionAuthResponse_ != null)
+    Probe sessionInfoResult = (known_ == null || known_.getPodApiUrl() == null
+        ? new Probe(getName(), getDomain(), "", podPort_, "/pod")
+        : new Probe(known_.getPodApiUrl())).setProbePath("/v2/sessioninfo", Srt.MIME_JSON)
+        .withTags(Srt.SESSION_INFO_FIELDS);
+    
+    doProbe(builder, sessionInfoResult);
+    
+    sessionInfoResult_ = sessionInfoResult;
+    
+    println("JSON=" + sessionInfoResult.getJsonNode());
+    
+    if(sessionInfoResult.isFailed())
     {
-      String token = getTag(sessionAuthResponse_, Srt.TOKEN);
-      
-      if(token != null)
-      {
-        sessionToken_ = token;
-        getSrtHome().saveSessionToken(getFqdn(), Srt.SESSION_TOKEN, token);
-      }
-      
-      podConfig_.setSessionAuthUrl(getUrl(sessionAuthResponse_, Srt.TOKEN));
-      
-      Builder builder = getJCurl();
-      
-      for(String field : Srt.SESSION_INFO_FIELDS)
-        builder.extract(field, field);
-      
-      cookieAuth(builder);
-      
-      sessionInfoResult_ = new Probe(getName(), getDomain(), "", port,
-          "/pod").setProbePath("/v2/sessioninfo", Srt.MIME_JSON);
+      println("Failed to connect to POD API");
       
-      doProbe(builder.build(), sessionInfoResult_);
-      
-      println("JSON=" + sessionInfoResult_.getJsonNode());
-      
-      if(sessionInfoResult_.isFailed())
-      {
-        println("Failed to connect to POD API");
-        podConfig_.setPodApiUrl(sessionInfoResult_.getBaseUrl());
-      }
-      else
-      {
-        podConfig_.setPodApiUrl(sessionInfoResult_.getBaseUrl());
-        
-        println("found pod API endpoint at " + podConfig_.getPodApiUrl());
-        
-        for(String field : Srt.SESSION_INFO_FIELDS)
-          printf("%-20s=%s\n", field, sessionInfoResult_.getJcurlResponse().getTag(field));
-      }
+      return false;
     }
     
-    if(subTaskMonitor.worked(1))
-      return;
+    podConfig_.setPodApiUrl(sessionInfoResult.getBaseUrl());
+    
+    println("found pod API endpoint at " + podConfig_.getPodApiUrl());
     
+    for(String field : Srt.SESSION_INFO_FIELDS)
+      printf("%-20s=%s\n", field, sessionInfoResult.getTag(field));
+    
+    return true;
+  }
+
+  private boolean probeCheckAuth()
+  {
     Builder builder = getJCurl()
         .expect(401)
         .expect(200);
     
     cookieAuth(builder);
     
-    Probe checkAuthResult = new Probe(getName(), getDomain(), "", port,
+    Probe checkAuthResult = new Probe(getName(), getDomain(), "", podPort_,
         "/").setProbePath("/login/checkauth?type=user", Srt.MIME_JSON);
     
-    doProbe(builder.build(), checkAuthResult, 200, 401);
-    
-    if(subTaskMonitor.worked(1))
-      return;
+    doProbe(builder, checkAuthResult, 200, 401);
 
     if (checkAuthResult.isFailed())
     {
       println("Can't do checkauth from this Pod.");
       
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
     
     JsonNode checkAuthJson = checkAuthResult.getJsonNode();
-
-    if (checkAuthJson == null)
-    {
-      println("Invalid checkAuth response");
-      
-      subTaskMonitor.done();
-      
-      return;
-    }
-    
-    JsonNode km = checkAuthJson.get("keymanagerUrl");
+    JsonNode km = checkAuthJson == null ? null : checkAuthJson.get("keymanagerUrl");
 
     if (km == null)
     {
       println("Invalid checkAuth response");
+      
+      return false;
     }
-    else
-    {
-      podConfig_.setKeyManagerUrl(createURL(km.asText()));
     
-      println("keyManagerUrl is " + podConfig_.getKeyManagerUrl());
-    }
+    checkAuthKeyManagerUrl_ = createURL(km.asText());
+    println("keyManagerUrl is " + checkAuthKeyManagerUrl_);
     
-    builder = getJCurl();
+    return true;
+  }
+
+  private boolean probePodInfo()
+  {
+    Builder builder = getJCurl();
     
     cookieAuth(builder);
     
-    Probe podInfoResult = new Probe(getName(), getDomain(), "", port,
-        "/").setProbePath("/webcontroller/public/podInfo", Srt.MIME_JSON);
-    
-    doProbe(builder.build(), podInfoResult);
+    PodInfo podInfo = new PodInfo();
+    Probe podInfoResult = new Probe(getName(), getDomain(), "", podPort_,
+        "/").setProbePath("/webcontroller/public/podInfo", Srt.MIME_JSON)
+        .withJsonExtractor(POD_INFO_EXTRACTOR, podInfo);
     
-    if(subTaskMonitor.worked(1))
-      return;
+    doProbe(builder, podInfoResult);
 
     if (podInfoResult.isFailed())
     {
       println("Can't get podInfo from this Pod.");
       
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
 
-    JsonNode podInfoJson = podInfoResult.getJsonNode();
-
-    if (podInfoJson == null)
+    if (podInfoResult.getJsonRoot() != JsonToken.START_OBJECT)
     {
       println("Invalid podInfo response");
       
-      subTaskMonitor.done();
-      
-      return;
+      return false;
     }
     
-    JsonNode podInfoJsonData = podInfoJson.get("data");
-
-    if (podInfoJsonData == null || !podInfoJsonData.isObject())
+    if (podInfo.data_ != JsonToken.START_OBJECT || podInfo.keyManagerUrl_ == null)
     {
       println("This looks like a Symphony Pod, but the podInfo returns something unexpected");
-      println(podInfoJson);
+      println("data=" + podInfo.data_ + " keyManagerUrl=" + podInfo.keyManagerUrl_);
       
-      subTaskMonitor.done();
+      return false;
+    }
+    
+    podId_ = podInfo.podId_;
+    podInfoKeyManagerUrl_ = createURL(podInfo.keyManagerUrl_);
+    
+    return true;
+  }
+  
+  /**
+   * The fields of interest from podInfo, which are extracted as the response is read.
+   */
+  private static class PodInfo implements IJsonFieldVisitor
+  {
+    private JsonToken data_;
+    private int       podId_;
+    private String    keyManagerUrl_;
+    
+    @Override
+    public void visit(int path, String name, JsonParser parser) throws IOException
+    {
+      switch(path)
+      {
+        case POD_INFO_DATA:
+          data_ = parser.getCurrentToken();
+          break;
+          
+        case POD_INFO_POD_ID:
+          podId_ = parser.getValueAsInt();
+          break;
+          
+        case POD_INFO_KEY_MANAGER_URL:
+          keyManagerUrl_ = parser.getValueAsString();
+          break;
+      }
+    }
+  }
+
+  private boolean locateKeyManager()
+  {
+    keyManagerObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
+    
+    if(podInfoKeyManagerUrl_ != null)
+    {
+      podConfig_.setKeyManagerUrl(podInfoKeyManagerUrl_);
+    }
+    else if(checkAuthKeyManagerUrl_ != null)
+    {
+      podConfig_.setKeyManagerUrl(checkAuthKeyManagerUrl_);
+    }
+    else if(known_ != null && known_.getKeyManagerUrl() != null)
+    {
+      podConfig_.setKeyManagerUrl(known_.getKeyManagerUrl());
+    }
+    else
+    {
+      println("No podInfo, try to look for an in-cloud key manager...");
       
-      return;
+      podConfig_.setKeyManagerUrl(createURL(podConfig_.getPodUrl(), "/relay"));
     }
     
-    podId_ = podInfoJsonData.get("podId").asInt();
-    podConfig_.setKeyManagerUrl(createURL(podInfoJsonData.get("keyManagerUrl").asText()));
+    String keyManagerName = podConfig_.getKeyManagerUrl().getHost();
+    
+    int i = keyManagerName.indexOf('.');
 
+    if (i == -1)
+    {
+      keyManagerDomain_ = Srt.DEFAULT_DOMAIN;
+    }
+    else
+    {
+      keyManagerDomain_ = keyManagerName.substring(i);
+      keyManagerName = keyManagerName.substring(0, i);
+    }
     
-    subTaskMonitor.done();
+    keyManagerName_ = keyManagerName;
+
+    println("keyManagerName=" + keyManagerName_);
+    println("keyManagerDomain=" + keyManagerDomain_);
+
+    // Need to find a reliable health check indicator of keymanager in
+    // all deployments, for now assume that as the pod told is this
+    // is the KM that it is.
+    println("Found key manager at " + podConfig_.getKeyManagerUrl());
+    keyManagerObjective_.setObjectiveStatusOK();
     
+    return true;
   }
 
-  
+  private boolean probeKeyAuth()
+  {
+    println();
+    println("Probing for API Keyauth");
+    println("=======================");
+
+    keyAuthObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
+    
+    if(portScanner_ != null)
+    {
+      for(String suffix : SUFFIXES)
+        portScanner_.withTargets(keyManagerName_ + suffix + keyManagerDomain_, AUTH_PORTS);
+      
+      preScan();
+    }
+    
+    keyAuthResponse_ = revalidateAuth("Key Auth", known_ == null ? null : known_.getKeyAuthUrl());
+    
+    if(keyAuthResponse_ == null)
+      keyAuthResponse_ = probeAuth("Key Auth", "/keyauth", keyManagerName_, keyManagerDomain_);
+    
+    podConfig_.setKeyAuthUrl(getUrl(keyAuthResponse_, Srt.TOKEN));
+    
+    String token = getTag(keyAuthResponse_, Srt.TOKEN);
+    
+    if(token == null)
+      return false;
+    
+    keymanagerToken_ = token;
+    getSrtHome().saveSessionToken(getFqdn(), Srt.KEYMANAGER_TOKEN, token);
+    
+    return true;
+  }
+
+  private boolean probeAgent()
+  {
+    agentObjective_.setObjectiveStatus(ComponentStatus.Starting, PROBING);
+    println();
+    println("Probing for API Agent");
+    println("=====================");
+    
+    URL knownAgentUrl = getKnownAgentUrl();
+    
+    if(knownAgentUrl != null)
+    {
+      agentResponse_ = scan(new ScanResponse("Agent API"), Collections.singletonList(new Probe(knownAgentUrl)),
+          (probe) -> probeAgent(probe));
+      
+      if(!isResponding(agentResponse_))
+      {
+        println("Known agent URL " + knownAgentUrl + " did not respond, scanning...");
+        agentResponse_ = null;
+      }
+    }
+    
+    if(agentResponse_ == null)
+      agentResponse_ = probeAgent(getName(), getDomain());
+    
+    URL agentUrl = getUrl(agentResponse_, null);
+    
+    if(agentUrl == null)
+      return false;
+    
+    agentConfig_.setName(agentUrl.getHost());
+    agentConfig_.setAgentApiUrl(agentUrl);
+    
+    return true;
+  }
 
   private URL createUrl(String url)
   {
@@ -772,59 +1031,172 @@ public class ProbePod extends SrtCommand
     }
   }
 
-  private @Nonnull ScanResponse probeAuth(String title, String basePath, String name, String domain)
+  private ProbeScanner getProbeScanner()
+  {
+    return new ProbeScanner(isParallel() || isRace() ? getExecutor() : null, getCancellationToken());
+  }
+  
+  private boolean isRace()
+  {
+    return race_.getCount() > 0;
+  }
+  
+  /*
+   * With the asynchronous transport every candidate is started at once and the futures are
+   * composed, otherwise each candidate is probed on a thread of its own, or one at a time.
+   */
+  private ScanResponse scan(ScanResponse response, List<Probe> probes, IAsyncProber prober)
   {
-    ScanResponse  response = new ScanResponse(title);
+    if(isAsync())
+    {
+      if(isRace())
+        return getProbeScanner().raceAsync(response, probes, prober);
+      
+      return getProbeScanner().scanAsync(response, probes, prober);
+    }
     
-    for(String suffix : SUFFIXES)
+    if(isRace())
+      return getProbeScanner().race(response, probes, (probe) -> prober.probe(probe).join());
+    
+    return getProbeScanner().scan(response, probes, (probe) -> prober.probe(probe).join());
+  }
+
+  /**
+   * Scan the given candidates in order of their topology priors. If the most likely
+   * candidate is very likely indeed then it is probed alone first and the others
+   * are probed only if it fails.
+   */
+  private ScanResponse scanCandidates(ScanResponse response, List<Probe> probes, IAsyncProber prober)
+  {
+    priors_.sort(probes);
+    
+    Probe first = probes.get(0);
+    
+    if(priors_.isConfident(first))
     {
-      for(int authPort : AUTH_PORTS)
+      println("Trying most likely " + response.getName() + " endpoint " + first.getHostNameAndPort() + " first");
+      
+      prober.probe(first).join();
+      response.add(first);
+      
+      if(TopologyPriors.isFound(first))
       {
-        Probe probe = new Probe(name, suffix, domain, authPort,
-            basePath);
-        
-        JCurl jcurl = getJCurl()
-            .method(JCurl.HttpMethod.POST)
-            .extract(Srt.TOKEN, Srt.TOKEN)
-            .build();
-        
-        probe.setProbePath("/v1/authenticate", Srt.MIME_JSON);
-        
-        doProbe(jcurl, probe);
-        
-        if(!probe.isFailed())
+        for(Probe probe : probes.subList(1, probes.size()))
         {
-          probe.setValid(true);
+          probe.abort();
+          response.add(probe);
         }
-        
-        response.add(probe);
       }
+      else
+      {
+        scan(response, probes.subList(1, probes.size()), prober);
+      }
+    }
+    else
+    {
+      scan(response, probes, prober);
     }
     
+    priors_.record(response);
+    
     return response;
   }
   
+  private @Nullable URL getKnownAgentUrl()
+  {
+    if(known_ == null)
+      return null;
+    
+    for(IModelObject child : known_.getChildren())
+    {
+      if(child instanceof IAgent && ((IAgent)child).getAgentApiUrl() != null)
+        return createURL(((IAgent)child).getAgentApiUrl());
+    }
+    
+    return null;
+  }
+  
+  private boolean isResponding(ScanResponse response)
+  {
+    return response.getValidProbe() != null || !response.getCertAuthProbes().isEmpty();
+  }
+  
+  /**
+   * Probe the known URL of an auth endpoint.
+   * 
+   * @return The response, or null if there is no known URL or it did not respond.
+   */
+  private @Nullable ScanResponse revalidateAuth(String title, @Nullable URL knownUrl)
+  {
+    if(knownUrl == null)
+      return null;
+    
+    ScanResponse response = probeAuth(title, Collections.singletonList(
+        new Probe(knownUrl).setProbePath("/v1/authenticate", Srt.MIME_JSON)));
+    
+    if(isResponding(response))
+      return response;
+    
+    println("Known " + title + " URL " + knownUrl + " did not respond, scanning...");
+    
+    return null;
+  }
+  
+  private @Nonnull ScanResponse probeAuth(String title, String basePath, String name, String domain)
+  {
+    List<Probe> probes = new ArrayList<>();
+    
+    for(String suffix : SUFFIXES)
+    {
+      for(int authPort : AUTH_PORTS)
+      {
+        probes.add(new Probe(name, suffix, domain, authPort,
+            basePath).setProbePath("/v1/authenticate", Srt.MIME_JSON));
+      }
+    }
+    
+    return scanCandidates(new ScanResponse(title), probes, (probe) -> probeAuth(probe));
+  }
+  
+  private @Nonnull ScanResponse probeAuth(String title, List<Probe> probes)
+  {
+    return scan(new ScanResponse(title), probes, (probe) -> probeAuth(probe));
+  }
+  
+  private CompletableFuture<Void> probeAuth(Probe probe)
+  {
+    Builder builder = getJCurl()
+        .method(JCurl.HttpMethod.POST)
+        .extract(Srt.TOKEN, Srt.TOKEN);
+    
+    probe.withTags(Srt.TOKEN);
+    
+    return doProbeAsync(builder, probe).thenRun(() ->
+    {
+      if(!probe.isFailed())
+      {
+        probe.setValid(true);
+      }
+    });
+  }
+  
   private @Nonnull ScanResponse probeAgent(String name, String domain)
   {
-    ScanResponse  response = new ScanResponse("Agent API");
+    List<Probe> probes = new ArrayList<>();
     
     for(String suffix : SUFFIXES)
     {
       for(int authPort : AgentPorts)
       {
-        Probe agentProbe = new Probe(name, suffix, domain, authPort,
-            "/agent");
-            
-        probeAgent(agentProbe);
-        
-        response.add(agentProbe);
+        probes.add(new Probe(name, suffix, domain, authPort,
+            "/agent"));
       }
     }
     
-    return response;
+    return scanCandidates(new ScanResponse("Agent API"), probes, (probe) -> probeAgent(probe));
   }
   
-  private void probeAgent(Probe probe)
+  private CompletableFuture<Void> probeAgent(Probe probe)
   {
     Builder builder = getJCurl()
         .method(HttpMethod.POST)
@@ -833,20 +1205,22 @@ public class ProbePod extends SrtCommand
     headerAuth(builder);
 
     probe.setProbePath("/v1/util/echo", Srt.MIME_JSON);
-    doProbe(builder.build(), probe);
-    
-    if(probe.isFailed())
-      return;
     
-    // Can't do 2 calls on one probe, leave this out for now....
-    probe.setValid(true);
+    return doProbeAsync(builder, probe).thenRun(() ->
+    {
+      if(probe.isFailed())
+        return;
+      
+      // Can't do 2 calls on one probe, leave this out for now....
+      probe.setValid(true);
+    });
     
 //    builder = getJCurl();
 //    
 //    headerAuth(builder);
 //
 //    probe.setProbePath("/v2/HealthCheck", Srt.MIME_JSON);
-//    doProbe(builder.build(), probe);
+//    doProbe(builder, probe);
 //    
 //    if(probe.isFailed())
 //    {
@@ -897,52 +1271,142 @@ public class ProbePod extends SrtCommand
 //    }
   }
 
+  private void addPhaseTimings(IObjective objective, @Nullable ScanResponse response)
+  {
+    if(response != null)
+      addPhaseTimings(objective, response.getValidProbe());
+  }
+  
+  private void addPhaseTimings(IObjective objective, @Nullable Probe probe)
+  {
+    if(probe != null && probe.getPhaseTimings() != null)
+      objective.addPhaseTimings(probe.getPhaseTimings());
+  }
+  
   private void doProbe(Probe probe)
   {
-    doProbe(getJCurl().build(), probe);
+    doProbe(getJCurl(), probe);
   }
   
-  private void doProbe(JCurl jcurl, Probe probe, int ...expectedStatus)
+  private void doProbe(Builder builder, Probe probe, int ...expectedStatus)
   {
     try
     {
-      println("Probing " + probe.getProbeUrl() + "...");
-      
-      HttpURLConnection connection = jcurl.connect(probe.getProbeUrl());
-
-      boolean ok = false;
-      int status = connection.getResponseCode();
-      
-      probe.setHttpStatus(status);
+      HttpRequest request = prepareProbe(builder, probe, expectedStatus);
       
-      if(expectedStatus.length == 0)
+      if(request != null)
+        probeCompleted(probe, getTransport().execute(request));
+    }
+    catch (CertificateParsingException | IOException e)
+    {
+      probeFailed(probe, e);
+    }
+    finally
+    {
+      flush();
+    }
+  }
+  
+  /*
+   * As doProbe() but the request is made with executeAsync(), the outcome is recorded in
+   * the probe when the returned future completes.
+   */
+  private CompletableFuture<Void> doProbeAsync(Builder builder, Probe probe, int ...expectedStatus)
+  {
+    HttpRequest request;
+    
+    try
+    {
+      request = prepareProbe(builder, probe, expectedStatus);
+    }
+    finally
+    {
+      flush();
+    }
+    
+    if(request == null)
+      return CompletableFuture.completedFuture(null);
+    
+    return getTransport().executeAsync(request).handle((result, error) ->
+    {
+      try
       {
-        ok = status == 200;
+        if(error == null)
+          probeCompleted(probe, result);
+        else
+          probeFailed(probe, AsyncHttpTransport.getCause(error));
       }
-      else
+      finally
       {
-        for(int exp : expectedStatus)
-        {
-          if(status == exp)
-          {
-            ok = true;
-            break;
-          }
-        }
+        flush();
       }
       
-      if (!ok)
-      {
-        println("Failed with HTTP status " + probe.getHttpStatus());
-        return;
-      }
-
-      JCurl.Response jcr = probe.setJcurlResponse(jcurl.processResponse(connection));
+      return null;
+    });
+  }
+  
+  /*
+   * Return the request for the given probe, or null if the outcome is already known.
+   */
+  private @Nullable HttpRequest prepareProbe(Builder builder, Probe probe, int ...expectedStatus)
+  {
+    println("Probing " + probe.getProbeUrl() + "...");
+    
+    if(replayOutcome(probe))
+      return null;
+    
+    if(!isResolvable(probe.getHostName()))
+    {
+      cacheOutcome(probe, Outcome.UnknownHost, "");
+      return null;
+    }
+    
+    if(portScanner_ != null && !portScanner_.isReachable(probe.getHostName(), probe.getPort()))
+    {
+      println("Cannot connect to " + probe.getHostNameAndPort());
+      cacheOutcome(probe, Outcome.ConnectFailed, "");
+      return null;
+    }
+    
+    HttpRequest.Builder request = HttpRequest.newBuilder(builder, probe.getProbeUrl(), getTlsConfig())
+        .setCancellationToken(probe.getAbortToken())
+        .setHeadersOnly(!probe.isBodyRequired())
+        .setMaxBodyBytes(Probe.MAX_BODY_BYTES)
+        .setLatencyHistogram(getLatencyHistogram(known_, probe.getProbeUrl()));
+    
+    probe.setPhaseTimings(newPhaseTimings());
+    request.setPhaseTimings(probe.getPhaseTimings());
+    
+    if(expectedStatus.length > 0)
+      request.setExpectedStatus(expectedStatus);
+    
+    if(probe.getJsonExtractor() != null)
+      request.setJsonExtractor(probe.getJsonExtractor(), probe.getJsonVisitor());
+    
+    return request.build();
+  }
+  
+  private void probeCompleted(Probe probe, HttpResult result)
+  {
+    probe.setResult(result);
+    
+    if (!result.isExpectedStatus())
+    {
+      println("Failed with HTTP status " + probe.getHttpStatus());
+      cacheOutcome(probe, Outcome.HttpStatus, String.valueOf(probe.getHttpStatus()));
+      return;
+    }
 
-      Certificate[] certs = jcr.getServerCertificates();
+    Certificate[] certs = result.getServerCertificates();
 
+    if(certs != null && certs.length > 0)
+    {
       X509Certificate cert = (X509Certificate) certs[certs.length - 1];
-      podConfig_.addTrustCert(cert);
+      
+      synchronized (podConfig_)
+      {
+        podConfig_.addTrustCert(cert);
+      }
 
       println("Root server cert " + cert.getSubjectX500Principal().getName());
       
@@ -950,43 +1414,161 @@ public class ProbePod extends SrtCommand
       
       println("End server cert " + cert.getSubjectX500Principal().getName());
       serverCerts_.add(cert);
+    }
 
-      if (!probe.isResponseTypeValid())
-        return;
-
-      probe.setFailed(false);
+    if (!probe.isResponseTypeValid())
+    {
+      cacheOutcome(probe, Outcome.ContentType, String.valueOf(probe.getContentType()));
+      return;
     }
-    catch (SSLHandshakeException e)
+
+    probe.setFailed(false);
+    outcomeCache_.remove(probe, getAuthMode());
+  }
+  
+  private void probeFailed(Probe probe, Throwable e)
+  {
+    if (e instanceof SSLHandshakeException)
     {
-      String msg = e.getMessage().toLowerCase();
+      String msg = String.valueOf(e.getMessage()).toLowerCase();
       
       if (msg.contains("bad_certificate") || msg.contains("certificate_unknown"))
       {
         probe.setFailedCertAuth(true);
         println("Certificate auth required for " + probe.getHostNameAndPort());
+        cacheOutcome(probe, Outcome.CertAuthRequired, "");
       }
       else
+      {
         println("SSL problem to " + probe.getHostNameAndPort());
+        cacheOutcome(probe, Outcome.SslFailed, "");
+      }
+    }
+    else if (e instanceof UnknownHostException)
+    {
+      invalidHost(probe.getHostName());
+      cacheOutcome(probe, Outcome.UnknownHost, "");
+    }
+    else if (e instanceof DeadlineExceededException)
+    {
+      println("Deadline expired, abandoned probe of " + probe.getHostNameAndPort());
     }
-    catch (UnknownHostException e)
+    else if (e instanceof RequestCanceledException)
     {
-      println(probe.getHostName() + " is not a valid host name");
+      if(probe.isAborted())
+      {
+        println("Abandoned probe of " + probe.getHostNameAndPort());
+      }
+      else
+      {
+        probe.abort();
+        println("Canceled probe of " + probe.getHostNameAndPort());
+      }
     }
-    catch (SocketTimeoutException | ConnectException e)
+    else if (e instanceof SocketTimeoutException || e instanceof ConnectException)
     {
       println("Cannot connect to " + probe.getHostNameAndPort());
+      cacheOutcome(probe, Outcome.ConnectFailed, "");
     }
-    catch (CertificateParsingException | IOException e)
+    else if (e instanceof CertificateParsingException || e instanceof IOException)
     {
-      e.printStackTrace();
+      if(probe.isAborted())
+        println("Abandoned probe of " + probe.getHostNameAndPort());
+      else
+        e.printStackTrace();
     }
-    finally
+    else if (e instanceof RuntimeException)
     {
-      flush();
+      throw (RuntimeException) e;
+    }
+    else if (e instanceof Error)
+    {
+      throw (Error) e;
+    }
+    else
+    {
+      throw new ProgramFault(e);
     }
   }
 
+  /**
+   * If there is a cached outcome for the given probe then apply it.
+   * 
+   * @return true if the probe was answered from the cache.
+   */
+  private boolean replayOutcome(Probe probe)
+  {
+    if(refresh_.getCount() > 0)
+      return false;
+    
+    ProbeOutcomeCache.Entry entry = outcomeCache_.get(probe, getAuthMode());
+    
+    if(entry == null)
+      return false;
+    
+    switch(entry.getOutcome())
+    {
+      case UnknownHost:
+        invalidHost(probe.getHostName());
+        break;
+        
+      case ConnectFailed:
+        println("Cannot connect to " + probe.getHostNameAndPort() + " (cached)");
+        break;
+        
+      case CertAuthRequired:
+        probe.setFailedCertAuth(true);
+        println("Certificate auth required for " + probe.getHostNameAndPort() + " (cached)");
+        break;
+        
+      case SslFailed:
+        println("SSL problem to " + probe.getHostNameAndPort() + " (cached)");
+        break;
+        
+      case HttpStatus:
+        probe.setHttpStatus(Integer.parseInt(entry.getDetail()));
+        println("Failed with HTTP status " + probe.getHttpStatus() + " (cached)");
+        break;
+        
+      case ContentType:
+        println("Unexpected content type " + entry.getDetail() + " (cached)");
+        break;
+    }
+    
+    return true;
+  }
+  
+  private void cacheOutcome(Probe probe, Outcome outcome, String detail)
+  {
+    outcomeCache_.put(probe, getAuthMode(), outcome, detail);
+  }
+  
+  /**
+   * The authentication mode of a probe is the client certificate, if any, and
+   * which tokens have been obtained, since all of these can change the response.
+   */
+  private String getAuthMode()
+  {
+    return (getKeystore() == null || getKeystore().isEmpty() ? "-" : getKeystore())
+        + (sessionToken_ == null ? "" : "+session")
+        + (keymanagerToken_ == null ? "" : "+km");
+  }
+  
+  private boolean isResolvable(String hostName)
+  {
+    if(HostResolver.getDefault().isResolvable(hostName))
+      return true;
+    
+    invalidHost(hostName);
+    
+    return false;
+  }
   
+  private void invalidHost(String hostName)
+  {
+    if(invalidHosts_.add(hostName))
+      println(hostName + " is not a valid host name");
+  }
   
   private Builder headerAuth(Builder builder)
   {
@@ -1013,7 +1595,7 @@ public class ProbePod extends SrtCommand
     if(probe == null)
       return null;
     
-    return probe.getJcurlResponse().getTag(tag);
+    return probe.getTag(tag);
   }
   
   private Builder cookieAuth(Builder builder)
@@ -1054,17 +1636,20 @@ public class ProbePod extends SrtCommand
 
   private boolean probeNonSSL(int port)
   {
-    JCurl jcurl = getJCurl().build();
+    if(!isResolvable(getFqdn()))
+      return false;
+    
+    URL             url = createUrl("http://" + getFqdn() + ":" + port);
+    PlainHttpClient client = new PlainHttpClient(HappyEyeballs.getDefault(), getCancellationToken());
     
     try
     {
-      URL url = new URL("http://" + getFqdn() + ":" + port);
+      int status = client.getStatus(getFqdn(), port, "/",
+          getDeadline().clip(getConnectTimeoutMillis()), getDeadline().clip(getReadTimeoutMillis()));
       
-      HttpURLConnection connection = jcurl.connect(url);
-
-      println("response from " + url + " = " + connection.getResponseCode());
+      println("response from " + url + " = " + status);
 
-      if(connection.getResponseCode() == 200)
+      if(status == 200)
       {
         podConfig_.setWebUrl(url);
         
@@ -1072,16 +1657,9 @@ public class ProbePod extends SrtCommand
       }
       return false;
     }
-    catch(MalformedURLException e)
-    {
-      throw new ProgramFault(e);
-    }
     catch (IOException e)
     {
       return false;
     }
-    finally
-    {
-    }
   }
 }
@@ -0,0 +1,398 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.tools.rest.util.BoundedExecutor;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+
+/**
+ * Runs a set of candidate probes and collects the results into a ScanResponse.
+ * 
+ * If an executor is provided then all of the candidates are probed concurrently, otherwise
+ * they are probed one after another. In either case results are added to the ScanResponse
+ * in the order in which the candidates were given, so the selection of the valid probe does
+ * not depend on which connection happens to complete first.
+ * 
+ * The race strategy stops as soon as one candidate produces a valid probe and aborts
+ * any which are still in flight. Candidates should be given in priority order.
+ * 
+ * scanAsync() and raceAsync() start every candidate with an asynchronous prober and
+ * compose the resulting futures, so no thread is held while the probes are in flight.
+ * 
+ * If the cancellation token is canceled all outstanding probes are aborted and the
+ * ScanResponse is marked as canceled.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ProbeScanner
+{
+  private final BoundedExecutor   executor_;
+  private final CancellationToken cancellationToken_;
+
+  public ProbeScanner(@Nullable BoundedExecutor executor)
+  {
+    this(executor, new CancellationToken());
+  }
+
+  public ProbeScanner(@Nullable BoundedExecutor executor, CancellationToken cancellationToken)
+  {
+    executor_ = executor;
+    cancellationToken_ = cancellationToken;
+  }
+
+  public boolean isConcurrent()
+  {
+    return executor_ != null;
+  }
+
+  public ScanResponse scan(ScanResponse response, List<Probe> probes, IProber prober)
+  {
+    try(CancellationToken.Registration registration = abortOnCancel(probes))
+    {
+      doScan(response, probes, prober);
+    }
+    
+    response.setCanceled(cancellationToken_.isCanceled());
+    
+    return response;
+  }
+  
+  private void doScan(ScanResponse response, List<Probe> probes, IProber prober)
+  {
+    if(executor_ == null)
+    {
+      for(Probe probe : probes)
+      {
+        if(!probe.isAborted())
+          prober.probe(probe);
+        
+        response.add(probe);
+      }
+      
+      return;
+    }
+    
+    List<Future<?>> futures = new ArrayList<>(probes.size());
+    
+    for(Probe probe : probes)
+      futures.add(executor_.submit(() ->
+      {
+        if(!probe.isAborted())
+          prober.probe(probe);
+      }));
+    
+    int i = 0;
+    
+    try
+    {
+      for( ; i<probes.size() ; i++)
+      {
+        if(!await(futures.get(i)))
+        {
+          cancel(futures, probes, i);
+          break;
+        }
+        
+        response.add(probes.get(i));
+      }
+    }
+    catch(RuntimeException | Error e)
+    {
+      // A failed probe stops the scan, the others must not carry on after it returns
+      cancel(futures, probes, i + 1);
+      throw e;
+    }
+  }
+
+  /**
+   * Run the given candidates until one of them produces a valid probe.
+   * 
+   * Candidates are launched in the order given. Any which have not completed when the
+   * winner is found are aborted and recorded in the response as such, so the winner
+   * is the only valid probe in the response.
+   * 
+   * @param response  The response to which results are added.
+   * @param probes    The candidates in priority order.
+   * @param prober    The probe to be applied to each candidate.
+   * @return          The given response.
+   */
+  public ScanResponse race(ScanResponse response, List<Probe> probes, IProber prober)
+  {
+    try(CancellationToken.Registration registration = abortOnCancel(probes))
+    {
+      doRace(response, probes, prober);
+    }
+    
+    response.setCanceled(cancellationToken_.isCanceled());
+    
+    return response;
+  }
+  
+  private void doRace(ScanResponse response, List<Probe> probes, IProber prober)
+  {
+    if(executor_ == null)
+    {
+      boolean won = false;
+      
+      for(Probe probe : probes)
+      {
+        if(won)
+          probe.abort();
+        else if(!probe.isAborted())
+          prober.probe(probe);
+        
+        won |= probe.isValid();
+        response.add(probe);
+      }
+      
+      return;
+    }
+    
+    BlockingQueue<Integer>  completed = new LinkedBlockingQueue<>();
+    List<Future<?>>         futures = new ArrayList<>(probes.size());
+    
+    for(int i=0 ; i<probes.size() ; i++)
+    {
+      Probe probe = probes.get(i);
+      Integer index = i;
+      
+      futures.add(executor_.submit(() ->
+      {
+        try
+        {
+          if(!probe.isAborted())
+            prober.probe(probe);
+        }
+        finally
+        {
+          completed.add(index);
+        }
+      }));
+    }
+    
+    boolean[] done = new boolean[probes.size()];
+    
+    for(int remaining = probes.size() ; remaining > 0 ; remaining--)
+    {
+      int index;
+      
+      try
+      {
+        index = completed.take();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      
+      await(futures.get(index));
+      done[index] = true;
+      
+      if(probes.get(index).isValid())
+        break;
+    }
+    
+    for(int i=0 ; i<probes.size() ; i++)
+    {
+      if(!done[i])
+      {
+        probes.get(i).abort();
+        futures.get(i).cancel(true);
+      }
+    }
+    
+    for(Probe probe : probes)
+      response.add(probe);
+  }
+
+  /**
+   * Start all of the given candidates with the given asynchronous prober and wait for them
+   * all to complete.
+   * 
+   * @param response  The response to which results are added, in the order given.
+   * @param probes    The candidates.
+   * @param prober    The probe to be applied to each candidate.
+   * @return          The given response.
+   */
+  public ScanResponse scanAsync(ScanResponse response, List<Probe> probes, IAsyncProber prober)
+  {
+    try(CancellationToken.Registration registration = abortOnCancel(probes))
+    {
+      List<CompletableFuture<Void>> futures = start(probes, prober);
+      
+      await(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])), probes);
+      
+      for(int i=0 ; i<probes.size() && futures.get(i).isDone() ; i++)
+      {
+        await(futures.get(i));
+        response.add(probes.get(i));
+      }
+    }
+    
+    response.setCanceled(cancellationToken_.isCanceled());
+    
+    return response;
+  }
+
+  /**
+   * Start all of the given candidates with the given asynchronous prober and wait until
+   * one of them produces a valid probe, or all of them have completed.
+   * 
+   * Any which have not completed when the winner is found are aborted, as for race().
+   * 
+   * @param response  The response to which results are added.
+   * @param probes    The candidates in priority order.
+   * @param prober    The probe to be applied to each candidate.
+   * @return          The given response.
+   */
+  public ScanResponse raceAsync(ScanResponse response, List<Probe> probes, IAsyncProber prober)
+  {
+    try(CancellationToken.Registration registration = abortOnCancel(probes))
+    {
+      List<CompletableFuture<Void>> futures = start(probes, prober);
+      CompletableFuture<Void>       finished = new CompletableFuture<>();
+      
+      for(int i=0 ; i<probes.size() ; i++)
+      {
+        Probe probe = probes.get(i);
+        
+        futures.get(i).whenComplete((v, e) ->
+        {
+          if(e != null || probe.isValid())
+            finished.complete(null);
+        });
+      }
+      
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+        .whenComplete((v, e) -> finished.complete(null));
+      
+      await(finished, probes);
+      
+      for(int i=0 ; i<probes.size() ; i++)
+      {
+        if(futures.get(i).isDone())
+          await(futures.get(i));
+        else
+          probes.get(i).abort();
+        
+        response.add(probes.get(i));
+      }
+    }
+    
+    response.setCanceled(cancellationToken_.isCanceled());
+    
+    return response;
+  }
+  
+  private List<CompletableFuture<Void>> start(List<Probe> probes, IAsyncProber prober)
+  {
+    List<CompletableFuture<Void>> futures = new ArrayList<>(probes.size());
+    
+    for(Probe probe : probes)
+      futures.add(probe.isAborted() ? CompletableFuture.completedFuture(null) : prober.probe(probe));
+    
+    return futures;
+  }
+  
+  /*
+   * Wait for the given future, if we are interrupted then abort all of the probes, which
+   * causes any still in flight to fail promptly.
+   */
+  private void await(CompletableFuture<Void> future, List<Probe> probes)
+  {
+    try
+    {
+      future.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      
+      for(Probe probe : probes)
+        probe.abort();
+    }
+    catch (ExecutionException e)
+    {
+      // Reported by the individual future
+    }
+  }
+
+  private CancellationToken.Registration abortOnCancel(List<Probe> probes)
+  {
+    return cancellationToken_.onCancel(() ->
+    {
+      for(Probe probe : probes)
+        probe.abort();
+    });
+  }
+
+  private boolean await(Future<?> future)
+  {
+    try
+    {
+      future.get();
+      return true;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    catch (ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      
+      if(cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      
+      if(cause instanceof Error)
+        throw (Error) cause;
+      
+      throw new ProgramFault(cause);
+    }
+  }
+
+  private void cancel(List<Future<?>> futures, List<Probe> probes, int from)
+  {
+    for(int i=from ; i<futures.size() ; i++)
+    {
+      probes.get(i).abort();
+      futures.get(i).cancel(true);
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * One step of a ProbePlan.
+ * 
+ * A step may require other steps, in which case it runs only if they all succeed,
+ * and may be ordered after other steps, in which case it waits for them to finish
+ * but runs whatever their outcome.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ProbeStep
+{
+  public enum Status { Pending, Running, Succeeded, Failed, Skipped }
+  
+  private final String          name_;
+  private final IProbeAction    action_;
+  private final List<ProbeStep> requires_ = new ArrayList<>();
+  private final List<ProbeStep> after_    = new ArrayList<>();
+  private int                   work_     = 1;
+
+  private volatile Status       status_   = Status.Pending;
+  private long                  startNanos_;
+  private long                  endNanos_;
+  private ProbeStep             criticalPredecessor_;
+  private RuntimeException      cause_;
+
+  ProbeStep(String name, IProbeAction action)
+  {
+    name_ = name;
+    action_ = action;
+  }
+
+  /**
+   * Run this step only if all of the given steps succeed.
+   * 
+   * @param steps Steps whose results this step depends on.
+   * @return this (fluent method).
+   */
+  public ProbeStep requires(ProbeStep ...steps)
+  {
+    Collections.addAll(requires_, steps);
+    
+    return this;
+  }
+
+  /**
+   * Run this step after the given steps have finished, whether or not they succeed.
+   * 
+   * @param steps Steps which should run before this one.
+   * @return this (fluent method).
+   */
+  public ProbeStep after(ProbeStep ...steps)
+  {
+    Collections.addAll(after_, steps);
+    
+    return this;
+  }
+
+  /**
+   * Set the amount of work this step represents for progress reporting.
+   * 
+   * @param work The number of units of work.
+   * @return this (fluent method).
+   */
+  public ProbeStep withWork(int work)
+  {
+    work_ = work;
+    
+    return this;
+  }
+
+  public String getName()
+  {
+    return name_;
+  }
+
+  public int getWork()
+  {
+    return work_;
+  }
+
+  public Status getStatus()
+  {
+    return status_;
+  }
+
+  public boolean isFinished()
+  {
+    return status_ == Status.Succeeded || status_ == Status.Failed || status_ == Status.Skipped;
+  }
+
+  public boolean isSucceeded()
+  {
+    return status_ == Status.Succeeded;
+  }
+
+  /**
+   * @return The exception thrown by the action, if any.
+   */
+  public @Nullable RuntimeException getCause()
+  {
+    return cause_;
+  }
+
+  /**
+   * @return The first required step which did not succeed, or null.
+   */
+  public @Nullable ProbeStep getFailedRequirement()
+  {
+    for(ProbeStep step : requires_)
+    {
+      if(step.status_ == Status.Failed || step.status_ == Status.Skipped)
+        return step;
+    }
+    
+    return null;
+  }
+
+  /**
+   * @return The step which finished last of those this step waited for, or null.
+   */
+  public @Nullable ProbeStep getCriticalPredecessor()
+  {
+    return criticalPredecessor_;
+  }
+
+  /**
+   * @return The time this step took to run, zero if it did not run.
+   */
+  public long getElapsedMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(endNanos_ - startNanos_);
+  }
+
+  long getEndNanos()
+  {
+    return endNanos_;
+  }
+
+  boolean isReady()
+  {
+    for(ProbeStep step : requires_)
+    {
+      if(!step.isSucceeded())
+        return false;
+    }
+    
+    for(ProbeStep step : after_)
+    {
+      if(!step.isFinished())
+        return false;
+    }
+    
+    return true;
+  }
+
+  void start()
+  {
+    status_ = Status.Running;
+    
+    for(ProbeStep step : requires_)
+      updateCriticalPredecessor(step);
+    
+    for(ProbeStep step : after_)
+      updateCriticalPredecessor(step);
+  }
+
+  private void updateCriticalPredecessor(ProbeStep step)
+  {
+    if(step.status_ != Status.Skipped &&
+        (criticalPredecessor_ == null || step.endNanos_ - criticalPredecessor_.endNanos_ > 0))
+      criticalPredecessor_ = step;
+  }
+
+  void run()
+  {
+    Status status = Status.Failed;
+    
+    startNanos_ = System.nanoTime();
+    
+    try
+    {
+      if(action_.run())
+        status = Status.Succeeded;
+    }
+    catch(RuntimeException e)
+    {
+      cause_ = e;
+    }
+    finally
+    {
+      endNanos_ = System.nanoTime();
+      status_ = status;
+    }
+  }
+
+  void skip()
+  {
+    status_ = Status.Skipped;
+  }
+
+  @Override
+  public String toString()
+  {
+    return name_ + " " + status_;
+  }
+}
@@ -39,9 +39,10 @@ public class ScanResponse
   
   private Probe         validProbe_;
   private List<Probe>   allProbes_ = new ArrayList<>();
-  private List<Probe>   successfulProbes_ = new ArrayList<>();
-  private List<Probe>   validProbes_ = new ArrayList<>();
+  private int           successfulCount_;
+  private int           validCount_;
   private List<Probe>   certAuthProbes_ = new ArrayList<>();
+  private boolean       canceled_;
   
   public ScanResponse(String name)
   {
@@ -52,21 +53,24 @@ public class ScanResponse
   {
     allProbes_.add(probeResponse);
     
+    if(probeResponse.isAborted())
+      return;
+    
     if(probeResponse.isFailedCertAuth())
       certAuthProbes_.add(probeResponse);
     else if(!probeResponse.isFailed())
     {
       if(probeResponse.isValid())
       {
-        if(validProbes_.isEmpty())
+        if(validCount_ == 0)
           validProbe_ = probeResponse;
         else
           validProbe_ = null;
         
-        validProbes_.add(probeResponse);
+        validCount_++;
       }
       
-      successfulProbes_.add(probeResponse);
+      successfulCount_++;
     }
   }
 
@@ -75,24 +79,56 @@ public class ScanResponse
     return name_;
   }
 
+  /**
+   * @return All of the probes added, including any which were aborted.
+   */
+  public List<Probe> getAllProbes()
+  {
+    return allProbes_;
+  }
+
   public Probe getValidProbe()
   {
     return validProbe_;
   }
 
+  public int getValidCount()
+  {
+    return validCount_;
+  }
+
+  public int getSuccessfulCount()
+  {
+    return successfulCount_;
+  }
+
   public List<Probe> getCertAuthProbes()
   {
     return certAuthProbes_;
   }
 
+  /**
+   * @return True if the scan was canceled, in which case the probes which were
+   * abandoned are recorded as aborted and the response may be incomplete.
+   */
+  public boolean isCanceled()
+  {
+    return canceled_;
+  }
+
+  public void setCanceled(boolean canceled)
+  {
+    canceled_ = canceled;
+  }
+
 
 //  public boolean isFailed()
 //  {
-//    return successfulProbes_.size() != 1;
+//    return successfulCount_ != 1;
 //  }
 //  
 //  public boolean isProbable()
 //  {
-//    return successfulProbes_.size() != 1;
+//    return successfulCount_ != 1;
 //  }
 }
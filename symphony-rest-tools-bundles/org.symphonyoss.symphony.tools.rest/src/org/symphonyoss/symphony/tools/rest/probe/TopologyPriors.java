@@ -0,0 +1,260 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.probe;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.tools.rest.model.IAgent;
+import org.symphonyoss.symphony.tools.rest.model.IModelObject;
+import org.symphonyoss.symphony.tools.rest.model.IPod;
+import org.symphonyoss.symphony.tools.rest.model.IPodManager;
+import org.symphonyoss.symphony.tools.rest.util.home.ISrtHome;
+import org.symphonyoss.symphony.tools.rest.util.home.KeyValueLog;
+
+/**
+ * Records which host name suffix and port combinations have been found to host
+ * each kind of endpoint in each domain, so that the most likely candidates can
+ * be probed first.
+ * 
+ * Counts are kept for each (domain, base path, suffix, port) and the score of a
+ * candidate is its success rate, smoothed so that an unknown candidate scores 0.5.
+ * Old evidence is discounted by halving the counts once there are more than
+ * MAX_ATTEMPTS, so that the priors follow changes in the estate.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class TopologyPriors
+{
+  public static final String  STORE_NAME     = "topology";
+  
+  private static final int    MIN_EVIDENCE   = 2;
+  private static final double MIN_CONFIDENCE = 0.75;
+  private static final int    MAX_ATTEMPTS   = 20;
+
+  private final KeyValueLog   store_;
+
+  public TopologyPriors(KeyValueLog store)
+  {
+    store_ = store;
+  }
+
+  /**
+   * Return the priors for the given home area. If there are none yet then they are
+   * seeded from the saved configurations of all known pods.
+   * 
+   * @param srtHome The home area.
+   * @return The priors.
+   */
+  public static TopologyPriors load(ISrtHome srtHome)
+  {
+    KeyValueLog    store = srtHome.getStore(STORE_NAME);
+    TopologyPriors priors = new TopologyPriors(store);
+    
+    synchronized(store)
+    {
+      if(store.isEmpty())
+      {
+        IPodManager podManager = srtHome.getPodManager();
+        
+        podManager.loadAll();
+        
+        for(IPod pod : podManager.getAll())
+          priors.learn(pod);
+      }
+    }
+    
+    return priors;
+  }
+
+  /**
+   * Learn from the saved configuration of a pod.
+   * 
+   * @param pod A pod configuration.
+   */
+  public void learn(IPod pod)
+  {
+    String[] podName = splitHostName(pod.getName());
+    
+    learn(podName, pod.getSessionAuthUrl());
+    
+    if(pod.getKeyManagerUrl() != null)
+      learn(splitHostName(pod.getKeyManagerUrl().getHost()), pod.getKeyAuthUrl());
+    
+    for(IModelObject child : pod.getChildren())
+    {
+      if(child instanceof IAgent && ((IAgent)child).getAgentApiUrl() != null)
+      {
+        try
+        {
+          learn(podName, new URL(((IAgent)child).getAgentApiUrl()));
+        }
+        catch(MalformedURLException e)
+        {
+          // Ignore this agent
+        }
+      }
+    }
+  }
+
+  private void learn(String[] hostName, @Nullable URL url)
+  {
+    if(url == null)
+      return;
+    
+    String host   = url.getHost();
+    String name   = hostName[0];
+    String domain = hostName[1];
+    
+    if(host.length() < name.length() + domain.length() || !host.startsWith(name) || !host.endsWith(domain))
+      return;
+    
+    record(domain, url.getPath(), host.substring(name.length(), host.length() - domain.length()),
+        url.getPort() == -1 ? url.getDefaultPort() : url.getPort(), true);
+  }
+
+  private static String[] splitHostName(String hostName)
+  {
+    int i = hostName.indexOf('.');
+    
+    if(i == -1)
+      return new String[] { hostName, "" };
+    
+    return new String[] { hostName.substring(0, i), hostName.substring(i) };
+  }
+
+  /**
+   * @param probe A completed probe.
+   * @return true if the probe found an endpoint, even one which refused our credentials.
+   */
+  public static boolean isFound(Probe probe)
+  {
+    return !probe.isAborted() && (probe.isValid() || probe.isFailedCertAuth());
+  }
+
+  /**
+   * Record the outcome of all of the completed probes in the given response.
+   * 
+   * @param response A scan response.
+   */
+  public void record(ScanResponse response)
+  {
+    for(Probe probe : response.getAllProbes())
+    {
+      if(!probe.isAborted() && probe.getSuffix() != null)
+        record(probe.getDomain(), probe.getBasePath(), probe.getSuffix(), probe.getPort(), isFound(probe));
+    }
+  }
+
+  private synchronized void record(String domain, String basePath, String suffix, int port, boolean success)
+  {
+    String key    = getKey(domain, basePath, suffix, port);
+    int[]  counts = getCounts(key);
+    
+    if(success)
+      counts[0]++;
+    
+    counts[1]++;
+    
+    if(counts[1] > MAX_ATTEMPTS)
+    {
+      counts[0] /= 2;
+      counts[1] /= 2;
+    }
+    
+    store_.put(key, counts[0] + " " + counts[1]);
+  }
+
+  /**
+   * @param probe A candidate probe.
+   * @return The estimated probability that the given candidate will find an endpoint.
+   */
+  public double getScore(Probe probe)
+  {
+    if(probe.getSuffix() == null)
+      return 0.5;
+    
+    int[] counts = getCounts(getKey(probe.getDomain(), probe.getBasePath(), probe.getSuffix(), probe.getPort()));
+    
+    return (counts[0] + 1.0) / (counts[1] + 2.0);
+  }
+
+  /**
+   * @param probe A candidate probe.
+   * @return true if there is enough evidence that the given candidate will succeed
+   * that it is worth probing it alone before any others.
+   */
+  public boolean isConfident(Probe probe)
+  {
+    if(probe.getSuffix() == null)
+      return false;
+    
+    int[] counts = getCounts(getKey(probe.getDomain(), probe.getBasePath(), probe.getSuffix(), probe.getPort()));
+    
+    return counts[0] >= MIN_EVIDENCE && getScore(probe) >= MIN_CONFIDENCE;
+  }
+
+  /**
+   * Sort the given candidates so that the most likely are first. The sort is stable
+   * so candidates with equal scores remain in the order given.
+   * 
+   * @param probes Candidate probes.
+   */
+  public void sort(List<Probe> probes)
+  {
+    probes.sort(Comparator.comparingDouble(this::getScore).reversed());
+  }
+
+  private int[] getCounts(String key)
+  {
+    String value = store_.get(key);
+    
+    if(value != null)
+    {
+      int i = value.indexOf(' ');
+      
+      try
+      {
+        return new int[] { Integer.parseInt(value.substring(0, i)), Integer.parseInt(value.substring(i + 1)) };
+      }
+      catch(RuntimeException e)
+      {
+        // Corrupt record, start again
+      }
+    }
+    
+    return new int[] { 0, 0 };
+  }
+
+  private static String getKey(String domain, String basePath, String suffix, int port)
+  {
+    return domain + " " + basePath + " " + suffix + " " + port;
+  }
+}
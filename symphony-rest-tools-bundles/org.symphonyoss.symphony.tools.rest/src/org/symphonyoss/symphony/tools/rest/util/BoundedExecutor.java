@@ -0,0 +1,176 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor which runs at most a fixed number of tasks at the same time.
+ * 
+ * Where the runtime supports virtual threads (Java 21 and later) each task runs on its own
+ * virtual thread and the bound is enforced with a semaphore, otherwise a fixed pool of
+ * daemon platform threads is used. The bundle targets Java 8 so virtual threads are located
+ * by reflection.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class BoundedExecutor implements Executor
+{
+  public static final int       DEFAULT_MAX_CONCURRENCY = 16;
+
+  private static final String   THREAD_NAME_PREFIX      = "srt-worker-";
+  private static final AtomicInteger THREAD_COUNT       = new AtomicInteger();
+
+  private final int             maxConcurrency_;
+  private final ExecutorService executor_;
+  private final Semaphore       semaphore_;
+  
+  public BoundedExecutor()
+  {
+    this(DEFAULT_MAX_CONCURRENCY);
+  }
+  
+  public BoundedExecutor(int maxConcurrency)
+  {
+    if(maxConcurrency < 1)
+      throw new IllegalArgumentException("maxConcurrency must be at least 1");
+    
+    maxConcurrency_ = maxConcurrency;
+    
+    ExecutorService virtualExecutor = createVirtualThreadExecutor();
+    
+    if(virtualExecutor == null)
+    {
+      executor_ = Executors.newFixedThreadPool(maxConcurrency, new DaemonThreadFactory());
+      semaphore_ = null;
+    }
+    else
+    {
+      executor_ = virtualExecutor;
+      semaphore_ = new Semaphore(maxConcurrency);
+    }
+  }
+
+  private static ExecutorService createVirtualThreadExecutor()
+  {
+    try
+    {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      
+      return (ExecutorService) method.invoke(null);
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      // Virtual threads are not available in this runtime.
+      return null;
+    }
+  }
+
+  /**
+   * Submit a task for execution.
+   * 
+   * @param task  The task to be executed.
+   * @return      A Future representing the result of the task.
+   */
+  public <T> Future<T> submit(Callable<T> task)
+  {
+    if(semaphore_ == null)
+      return executor_.submit(task);
+    
+    return executor_.submit(() ->
+    {
+      semaphore_.acquire();
+      try
+      {
+        return task.call();
+      }
+      finally
+      {
+        semaphore_.release();
+      }
+    });
+  }
+
+  /**
+   * Submit a task for execution.
+   * 
+   * @param task  The task to be executed.
+   * @return      A Future representing the completion of the task.
+   */
+  public Future<?> submit(Runnable task)
+  {
+    return submit(() ->
+    {
+      task.run();
+      return null;
+    });
+  }
+
+  @Override
+  public void execute(Runnable task)
+  {
+    submit(task);
+  }
+
+  public int getMaxConcurrency()
+  {
+    return maxConcurrency_;
+  }
+
+  public boolean isVirtual()
+  {
+    return semaphore_ != null;
+  }
+
+  /**
+   * Stop accepting new tasks and interrupt any which are running.
+   */
+  public void shutdown()
+  {
+    executor_.shutdownNow();
+  }
+  
+  private static class DaemonThreadFactory implements ThreadFactory
+  {
+    @Override
+    public Thread newThread(Runnable r)
+    {
+      Thread thread = new Thread(r, THREAD_NAME_PREFIX + THREAD_COUNT.incrementAndGet());
+      
+      thread.setDaemon(true);
+      
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A signal that some work should stop as soon as possible.
+ * 
+ * Code which blocks registers an action, such as closing a connection or
+ * interrupting a thread, which is run when the token is canceled so that
+ * blocked I/O is aborted rather than waiting for a timeout.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class CancellationToken
+{
+  private final List<Runnable> actions_ = new ArrayList<>();
+  private volatile boolean     canceled_;
+
+  /**
+   * Cancel the work, running all registered actions. Subsequent calls have no effect.
+   */
+  public void cancel()
+  {
+    // Actions run under the lock so that none runs after its registration is closed
+    synchronized(actions_)
+    {
+      if(canceled_)
+        return;
+      
+      canceled_ = true;
+      
+      for(Runnable action : actions_)
+      {
+        try
+        {
+          action.run();
+        }
+        catch(RuntimeException e)
+        {
+          // Carry on, the remaining actions must still be run
+        }
+      }
+      
+      actions_.clear();
+    }
+  }
+
+  public boolean isCanceled()
+  {
+    return canceled_;
+  }
+
+  /**
+   * Register an action to be run when this token is canceled. If it has already been
+   * canceled then the action is run immediately.
+   * 
+   * @param action  The action to run.
+   * @return A registration which should be closed when the action is no longer needed.
+   */
+  public Registration onCancel(Runnable action)
+  {
+    synchronized(actions_)
+    {
+      if(!canceled_)
+      {
+        actions_.add(action);
+        
+        return new Registration(action, false);
+      }
+    }
+    
+    action.run();
+    
+    return new Registration(action, false);
+  }
+
+  /**
+   * Interrupt the current thread when this token is canceled.
+   * 
+   * Closing the returned registration clears any interrupt caused by this token
+   * so that the thread can continue to be used.
+   * 
+   * @return A registration which must be closed on the current thread.
+   */
+  public Registration interruptOnCancel()
+  {
+    Thread thread = Thread.currentThread();
+    
+    synchronized(actions_)
+    {
+      Registration registration = new Registration(thread::interrupt, true);
+      
+      if(canceled_)
+        thread.interrupt();
+      else
+        actions_.add(registration.action_);
+      
+      return registration;
+    }
+  }
+
+  public class Registration implements AutoCloseable
+  {
+    private final Runnable action_;
+    private final boolean  interrupt_;
+
+    private Registration(Runnable action, boolean interrupt)
+    {
+      action_ = action;
+      interrupt_ = interrupt;
+    }
+
+    @Override
+    public void close()
+    {
+      synchronized(actions_)
+      {
+        actions_.remove(action_);
+        
+        if(interrupt_ && canceled_)
+          Thread.interrupted();
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which some work must be complete.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class Deadline
+{
+  /** A deadline which never expires. */
+  public static final Deadline NONE = new Deadline(0, false);
+  
+  private final long    deadlineNanos_;
+  private final boolean enabled_;
+
+  private Deadline(long deadlineNanos, boolean enabled)
+  {
+    deadlineNanos_ = deadlineNanos;
+    enabled_ = enabled;
+  }
+
+  /**
+   * Create a deadline the given time from now.
+   * 
+   * @param millis  The time allowed in milliseconds, if not positive then the deadline never expires.
+   * @return A deadline.
+   */
+  public static Deadline after(long millis)
+  {
+    if(millis <= 0)
+      return NONE;
+    
+    return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), true);
+  }
+
+  public boolean isEnabled()
+  {
+    return enabled_;
+  }
+
+  public boolean isExpired()
+  {
+    return enabled_ && System.nanoTime() - deadlineNanos_ >= 0;
+  }
+
+  /**
+   * @return The time remaining in milliseconds, Long.MAX_VALUE if there is no deadline.
+   */
+  public long getRemainingMillis()
+  {
+    if(!enabled_)
+      return Long.MAX_VALUE;
+    
+    return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos_ - System.nanoTime()));
+  }
+
+  /**
+   * Limit the given timeout so that it does not extend beyond this deadline.
+   * 
+   * @param timeoutMillis A timeout in milliseconds, 0 meaning no timeout.
+   * @return The given timeout or the time remaining, whichever is less, but at least 1.
+   */
+  public int clip(int timeoutMillis)
+  {
+    if(!enabled_)
+      return timeoutMillis;
+    
+    long remaining = Math.max(1, getRemainingMillis());
+    
+    if(timeoutMillis <= 0 || timeoutMillis > remaining)
+      return (int)Math.min(Integer.MAX_VALUE, remaining);
+    
+    return timeoutMillis;
+  }
+}
@@ -23,8 +23,11 @@
 
 package org.symphonyoss.symphony.tools.rest.util;
 
+import java.util.List;
+
 import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
 import org.symphonyoss.symphony.tools.rest.model.osmosis.IComponent;
+import org.symphonyoss.symphony.tools.rest.util.net.PhaseTimings;
 
 /**
  * Represents an objective.
@@ -43,4 +46,17 @@ public interface IObjective extends IComponent
   void setObjectiveStatus(ComponentStatus status, String statusMessageFormat, Object ...args);
 
   String getLabel();
+  
+  /**
+   * Record the phase timings of a request made in pursuit of this objective.
+   * 
+   * @param phaseTimings The timings of a request.
+   */
+  void addPhaseTimings(PhaseTimings phaseTimings);
+  
+  /**
+   * @return The timings of all requests recorded against this objective, which will be
+   * empty unless timings were captured.
+   */
+  List<PhaseTimings> getPhaseTimings();
 }
@@ -23,12 +23,18 @@
 
 package org.symphonyoss.symphony.tools.rest.util;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.symphonyoss.symphony.tools.rest.model.osmosis.Component;
 import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+import org.symphonyoss.symphony.tools.rest.util.net.PhaseTimings;
 
 public class Objective extends Component implements IObjective
 {
   private final String                             label_;
+  private final List<PhaseTimings>                 phaseTimings_ = new CopyOnWriteArrayList<>();
     
   public Objective(String label)
   {
@@ -52,4 +58,16 @@ public class Objective extends Component implements IObjective
   {
     return label_;
   }
+
+  @Override
+  public void addPhaseTimings(PhaseTimings phaseTimings)
+  {
+    phaseTimings_.add(phaseTimings);
+  }
+
+  @Override
+  public List<PhaseTimings> getPhaseTimings()
+  {
+    return Collections.unmodifiableList(phaseTimings_);
+  }
 }
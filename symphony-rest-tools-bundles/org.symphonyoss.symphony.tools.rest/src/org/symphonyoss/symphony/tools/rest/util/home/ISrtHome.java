@@ -41,4 +41,12 @@ public interface ISrtHome extends IDefaultsProvider
   IPodManager getPodManager();
 
   ICertificateManager getCertificateManager();
+
+  /**
+   * Return the persistent store with the given name, creating it if necessary.
+   * 
+   * @param name The name of the store.
+   * @return The store.
+   */
+  KeyValueLog getStore(String name);
 }
@@ -0,0 +1,271 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.home;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+
+/**
+ * A persistent map of strings, held in memory and stored as an append only log.
+ * 
+ * Each update appends a single line to the file, so updates are cheap and lookups
+ * are served from memory. When the file holds many superseded records it is
+ * rewritten with only the current ones.
+ * 
+ * Keys and values may not contain tabs or line breaks, any which do are replaced
+ * with spaces.
+ * 
+ * A store may be given a retention policy, in which case records which are no longer
+ * live are dropped, and the least recently written records are dropped once the store
+ * reaches its maximum size, so that a store of expiring records does not grow without bound.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class KeyValueLog
+{
+  private static final String SEPARATOR        = "\t";
+  private static final int    MIN_COMPACT_SIZE = 1000;
+  
+  private final File                file_;
+  private final Map<String, String> map_ = new LinkedHashMap<>();
+  private int                       recordCount_;
+  private PrintWriter               writer_;
+  private int                       maxSize_;
+  private BiPredicate<String, String> isLive_;
+
+  public KeyValueLog(File file)
+  {
+    file_ = file;
+    
+    try(BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file_), StandardCharsets.UTF_8)))
+    {
+      String line;
+      
+      while((line = in.readLine()) != null)
+      {
+        int i = line.indexOf(SEPARATOR);
+        
+        String key = i == -1 ? line : line.substring(0, i);
+        
+        // Keep the map in order of last write
+        map_.remove(key);
+        
+        if(i != -1)
+          map_.put(key, line.substring(i + 1));
+        
+        recordCount_++;
+      }
+    }
+    catch (FileNotFoundException e)
+    {
+      // Empty log
+    }
+    catch (IOException e)
+    {
+      throw new ProgramFault("Unable to read \"" + file_.getAbsolutePath() + "\"", e);
+    }
+  }
+
+  public synchronized @Nullable String get(String key)
+  {
+    return map_.get(clean(key));
+  }
+  
+  public synchronized void put(String key, String value)
+  {
+    key = clean(key);
+    value = clean(value);
+    
+    String previous = map_.remove(key);
+    
+    map_.put(key, value);
+    
+    if(value.equals(previous))
+      return;
+    
+    append(key + SEPARATOR + value);
+    trim();
+  }
+  
+  public synchronized void remove(String key)
+  {
+    key = clean(key);
+    
+    if(map_.remove(key) != null)
+      append(key);
+  }
+  
+  public synchronized boolean isEmpty()
+  {
+    return map_.isEmpty();
+  }
+  
+  public synchronized int size()
+  {
+    return map_.size();
+  }
+  
+  /**
+   * @return A copy of the current contents.
+   */
+  public synchronized Map<String, String> getAll()
+  {
+    return new HashMap<>(map_);
+  }
+  
+  /**
+   * Set the retention policy for this store and drop any records which it does not retain.
+   * 
+   * The policy is applied now and whenever the file is compacted. Dropped records are not
+   * logged as removed, so until the next compaction they are read back from the file, and
+   * dropped again when the policy is set.
+   * 
+   * @param maxSize The maximum number of records, 0 for no limit.
+   * @param isLive  A predicate on key and value which is false for records which should be dropped, may be null.
+   */
+  public synchronized void setRetentionPolicy(int maxSize, @Nullable BiPredicate<String, String> isLive)
+  {
+    maxSize_ = maxSize;
+    isLive_ = isLive;
+    
+    if(purge())
+      compact();
+  }
+  
+  /**
+   * Rewrite the file with only the current records.
+   */
+  public synchronized void compact()
+  {
+    close();
+    purge();
+    
+    File tmp = new File(file_.getParentFile(), file_.getName() + ".tmp");
+    
+    try
+    {
+      try(PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)))
+      {
+        for(Map.Entry<String, String> entry : map_.entrySet())
+          out.println(entry.getKey() + SEPARATOR + entry.getValue());
+      }
+      
+      Files.move(tmp.toPath(), file_.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      recordCount_ = map_.size();
+    }
+    catch (IOException e)
+    {
+      throw new ProgramFault("Unable to compact \"" + file_.getAbsolutePath() + "\"", e);
+    }
+  }
+  
+  public synchronized void close()
+  {
+    if(writer_ != null)
+    {
+      writer_.close();
+      writer_ = null;
+    }
+  }
+
+  /*
+   * Drop records which are not live and then the oldest records over the maximum size.
+   * 
+   * Return true if any records were dropped.
+   */
+  private boolean purge()
+  {
+    int size = map_.size();
+    
+    if(isLive_ != null)
+      map_.entrySet().removeIf((entry) -> !isLive_.test(entry.getKey(), entry.getValue()));
+    
+    trim();
+    
+    return map_.size() != size;
+  }
+  
+  private void trim()
+  {
+    if(maxSize_ <= 0)
+      return;
+    
+    Iterator<String> it = map_.keySet().iterator();
+    
+    while(map_.size() > maxSize_ && it.hasNext())
+    {
+      it.next();
+      it.remove();
+    }
+  }
+  
+  private void append(String record)
+  {
+    if(recordCount_ >= MIN_COMPACT_SIZE && recordCount_ > 2 * map_.size())
+      compact();
+    
+    try
+    {
+      if(writer_ == null)
+      {
+        file_.getParentFile().mkdirs();
+        writer_ = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file_, true), StandardCharsets.UTF_8));
+      }
+    }
+    catch (IOException e)
+    {
+      throw new ProgramFault("Unable to write \"" + file_.getAbsolutePath() + "\"", e);
+    }
+    
+    writer_.println(record);
+    writer_.flush();
+    recordCount_++;
+  }
+  
+  private static String clean(String s)
+  {
+    return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+  }
+}
@@ -36,6 +36,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.symphonyoss.symphony.tools.rest.console.IConsole;
@@ -53,6 +55,8 @@ public class SrtHome implements ISrtHome
   private final File        sessionDir_;
   private final IConsole     console_;
   private final IPodManager podManager_;
+  private final File        storeDir_;
+  private final Map<String, KeyValueLog> storeMap_ = new HashMap<>();
   private File              defaultsFile_;
   private Properties        defaultsProps_; //TODO: switch to JSON
 
@@ -83,6 +87,8 @@ public class SrtHome implements ISrtHome
     sessionDir_ = new File(home_, "session");
     sessionDir_.mkdirs();
     
+    storeDir_ = new File(home_, "store");
+    
     podManager_ = new PodManager(configDir_);
     
     defaultsFile_ = new File(home_, "defaults.properties");
@@ -223,6 +229,15 @@ public class SrtHome implements ISrtHome
     return null;
   }
 
+  @Override
+  public KeyValueLog getStore(String name)
+  {
+    synchronized(storeMap_)
+    {
+      return storeMap_.computeIfAbsent(name, (k) -> new KeyValueLog(new File(storeDir_, name + ".log")));
+    }
+  }
+
   @Override
   public String getDefault(String label)
   {
@@ -0,0 +1,105 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.security.cert.CertificateParsingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * An asynchronous transport which executes requests on an executor.
+ * 
+ * Requests are executed by a delegate transport on the given executor and
+ * the results are delivered through CompletableFutures. When the executor
+ * uses virtual threads many requests can be in flight on a small number of
+ * platform threads.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class AsyncHttpTransport implements IHttpTransport
+{
+  public static final String   NAME = "async";
+  
+  private final IHttpTransport delegate_;
+  private final Executor       executor_;
+
+  public AsyncHttpTransport(IHttpTransport delegate, Executor executor)
+  {
+    delegate_ = delegate;
+    executor_ = executor;
+  }
+
+  @Override
+  public String getName()
+  {
+    return NAME;
+  }
+
+  @Override
+  public CompletableFuture<HttpResult> executeAsync(HttpRequest request)
+  {
+    return CompletableFuture.supplyAsync(() ->
+    {
+      try
+      {
+        return delegate_.execute(request);
+      }
+      catch(IOException | CertificateParsingException e)
+      {
+        throw new CompletionException(e);
+      }
+    }, executor_);
+  }
+
+  /**
+   * Return the failure which caused a future to complete exceptionally.
+   * 
+   * @param error The exception with which a future completed, which may be wrapped in a CompletionException.
+   * @return The underlying cause.
+   */
+  public static Throwable getCause(Throwable error)
+  {
+    while(error instanceof CompletionException && error.getCause() != null)
+      error = error.getCause();
+    
+    return error;
+  }
+
+  /**
+   * Execute the given request on the calling thread.
+   * 
+   * A caller which is prepared to block gains nothing from handing the request to
+   * another thread, and doing so from a task already running on the executor could
+   * exhaust it.
+   */
+  @Override
+  public HttpResult execute(HttpRequest request) throws IOException, CertificateParsingException
+  {
+    return delegate_.execute(request);
+  }
+}
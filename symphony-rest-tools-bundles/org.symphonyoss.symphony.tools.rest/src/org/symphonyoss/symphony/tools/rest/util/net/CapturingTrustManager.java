@@ -0,0 +1,155 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * A trust manager which accepts any server, recording the chain presented and the
+ * verdict of the real trust manager.
+ * 
+ * This allows a single handshake to both read the server certificates and find out
+ * whether they are trusted, and then to go on to test client certificate authentication
+ * whatever that verdict was.
+ * 
+ * An instance records the last server check made, so it should only be used for a
+ * single connection, see TlsContext.newCapturingContext().
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class CapturingTrustManager extends X509ExtendedTrustManager
+{
+  private final X509TrustManager       delegate_;
+  
+  private volatile X509Certificate[]   serverChain_;
+  private volatile CertificateException trustFailure_;
+  
+  public CapturingTrustManager(X509TrustManager delegate)
+  {
+    delegate_ = delegate;
+  }
+
+  /**
+   * @return The chain presented by the server, or null if no server has been checked.
+   */
+  public @Nullable X509Certificate[] getServerChain()
+  {
+    return serverChain_;
+  }
+
+  /**
+   * @return true if a server has been checked.
+   */
+  public boolean isServerChecked()
+  {
+    return serverChain_ != null;
+  }
+  
+  /**
+   * @return The reason the real trust manager rejected the server, or null if it was trusted.
+   */
+  public @Nullable CertificateException getTrustFailure()
+  {
+    return trustFailure_;
+  }
+
+  @Override
+  public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException
+  {
+    capture(chain, () -> delegate_.checkServerTrusted(chain, authType));
+  }
+
+  @Override
+  public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException
+  {
+    if(delegate_ instanceof X509ExtendedTrustManager)
+      capture(chain, () -> ((X509ExtendedTrustManager)delegate_).checkServerTrusted(chain, authType, socket));
+    else
+      checkServerTrusted(chain, authType);
+  }
+
+  @Override
+  public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException
+  {
+    if(delegate_ instanceof X509ExtendedTrustManager)
+      capture(chain, () -> ((X509ExtendedTrustManager)delegate_).checkServerTrusted(chain, authType, engine));
+    else
+      checkServerTrusted(chain, authType);
+  }
+  
+  private void capture(X509Certificate[] chain, ICheck check)
+  {
+    CertificateException failure = null;
+    
+    try
+    {
+      check.check();
+    }
+    catch(CertificateException e)
+    {
+      failure = e;
+    }
+    
+    trustFailure_ = failure;
+    serverChain_ = chain;
+  }
+
+  @Override
+  public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException
+  {
+    delegate_.checkClientTrusted(chain, authType);
+  }
+
+  @Override
+  public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException
+  {
+    delegate_.checkClientTrusted(chain, authType);
+  }
+
+  @Override
+  public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException
+  {
+    delegate_.checkClientTrusted(chain, authType);
+  }
+
+  @Override
+  public X509Certificate[] getAcceptedIssuers()
+  {
+    return delegate_.getAcceptedIssuers();
+  }
+  
+  @FunctionalInterface
+  private interface ICheck
+  {
+    void check() throws CertificateException;
+  }
+}
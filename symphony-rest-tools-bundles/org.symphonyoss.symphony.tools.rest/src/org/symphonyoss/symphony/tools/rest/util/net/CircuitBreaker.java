@@ -0,0 +1,227 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.symphonyoss.symphony.tools.rest.model.osmosis.ComponentStatus;
+
+/**
+ * A circuit breaker for a single endpoint.
+ * 
+ * The breaker starts closed. When the given number of consecutive requests have failed
+ * it opens, and requests are refused without any attempt to connect until the cooldown
+ * has passed. It is then half open, and a single trial request is allowed through. If
+ * the trial succeeds the breaker closes, otherwise it opens for another cooldown.
+ * 
+ * Endpoints are identified by scheme, host and port, since it is connectivity to the
+ * server rather than the health of any one resource which is being tracked.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class CircuitBreaker
+{
+  public static final int     DEFAULT_FAILURE_THRESHOLD = 3;
+  public static final long    DEFAULT_COOLDOWN_MILLIS   = 30000;
+  
+  public enum State
+  {
+    Closed(ComponentStatus.OK),
+    HalfOpen(ComponentStatus.Warning),
+    Open(ComponentStatus.Failed);
+    
+    private final ComponentStatus componentStatus_;
+
+    private State(ComponentStatus componentStatus)
+    {
+      componentStatus_ = componentStatus;
+    }
+
+    public ComponentStatus getComponentStatus()
+    {
+      return componentStatus_;
+    }
+  }
+  
+  private final String        endpoint_;
+  private final int           failureThreshold_;
+  private final long          cooldownNanos_;
+  private final LongSupplier  clock_;
+  
+  private State               state_ = State.Closed;
+  private int                 failures_;
+  private long                openedAt_;
+  private boolean             trialInProgress_;
+
+  /**
+   * Constructor.
+   * 
+   * @param endpoint          The endpoint, as returned by getEndpoint(URL).
+   * @param failureThreshold  The number of consecutive failures which open the breaker.
+   * @param cooldownMillis    The time for which the breaker stays open.
+   */
+  public CircuitBreaker(String endpoint, int failureThreshold, long cooldownMillis)
+  {
+    this(endpoint, failureThreshold, cooldownMillis, System::nanoTime);
+  }
+
+  CircuitBreaker(String endpoint, int failureThreshold, long cooldownMillis, LongSupplier clock)
+  {
+    endpoint_ = endpoint;
+    failureThreshold_ = Math.max(1, failureThreshold);
+    cooldownNanos_ = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+    clock_ = clock;
+  }
+  
+  /**
+   * @param url A URL.
+   * @return The endpoint of the given URL, its scheme, host and port.
+   */
+  public static String getEndpoint(URL url)
+  {
+    int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+    
+    return (url.getProtocol() + "://" + url.getHost() + ":" + port).toLowerCase(Locale.ROOT);
+  }
+
+  public String getEndpoint()
+  {
+    return endpoint_;
+  }
+  
+  /**
+   * Ask permission to make a request. Every request which is allowed must be followed by
+   * exactly one call to recordSuccess(), recordFailure() or release().
+   * 
+   * @return true if the request may be made, false if the breaker is open, or half open
+   * with a trial already in progress.
+   */
+  public synchronized boolean tryAcquire()
+  {
+    switch(state_)
+    {
+      case Closed:
+        return true;
+        
+      case Open:
+        if(clock_.getAsLong() - openedAt_ < cooldownNanos_)
+          return false;
+        
+        state_ = State.HalfOpen;
+        trialInProgress_ = false;
+        // fall through
+        
+      case HalfOpen:
+      default:
+        if(trialInProgress_)
+          return false;
+        
+        trialInProgress_ = true;
+        return true;
+    }
+  }
+  
+  /**
+   * Record that a request reached the endpoint.
+   */
+  public synchronized void recordSuccess()
+  {
+    failures_ = 0;
+    trialInProgress_ = false;
+    state_ = State.Closed;
+  }
+  
+  /**
+   * Record that a request failed because the endpoint could not be reached.
+   */
+  public synchronized void recordFailure()
+  {
+    trialInProgress_ = false;
+    
+    if(state_ == State.HalfOpen || ++failures_ >= failureThreshold_)
+    {
+      state_ = State.Open;
+      openedAt_ = clock_.getAsLong();
+    }
+  }
+  
+  /**
+   * Record that a request was abandoned, for example because it was canceled, without
+   * telling us anything about the endpoint.
+   */
+  public synchronized void release()
+  {
+    trialInProgress_ = false;
+  }
+
+  public synchronized State getState()
+  {
+    return state_;
+  }
+
+  /**
+   * @return The time until the breaker becomes half open in milliseconds, 0 unless it is open.
+   */
+  public synchronized long getRemainingCooldownMillis()
+  {
+    if(state_ != State.Open)
+      return 0;
+    
+    return Math.max(0, TimeUnit.NANOSECONDS.toMillis(cooldownNanos_ - (clock_.getAsLong() - openedAt_)));
+  }
+
+  public ComponentStatus getComponentStatus()
+  {
+    return getState().getComponentStatus();
+  }
+
+  /**
+   * @return A description of the state of the breaker, suitable for a component status message.
+   */
+  public synchronized String getStatusMessage()
+  {
+    switch(state_)
+    {
+      case Open:
+        return String.format("Circuit open after %d failures, retry in %ds", failures_,
+            TimeUnit.MILLISECONDS.toSeconds(getRemainingCooldownMillis()));
+        
+      case HalfOpen:
+        return "Circuit half open, trying again";
+        
+      default:
+        return "Circuit closed";
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return endpoint_ + " " + getStatusMessage();
+  }
+}
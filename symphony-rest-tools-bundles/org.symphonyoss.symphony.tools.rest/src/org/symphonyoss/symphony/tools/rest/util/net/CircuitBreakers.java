@@ -0,0 +1,63 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The circuit breakers for a set of endpoints, created on demand.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class CircuitBreakers
+{
+  private final int                         failureThreshold_;
+  private final long                        cooldownMillis_;
+  private final Map<String, CircuitBreaker> breakers_ = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   * 
+   * @param failureThreshold  The number of consecutive failures which open a breaker.
+   * @param cooldownMillis    The time for which a breaker stays open.
+   */
+  public CircuitBreakers(int failureThreshold, long cooldownMillis)
+  {
+    failureThreshold_ = failureThreshold;
+    cooldownMillis_ = cooldownMillis;
+  }
+  
+  /**
+   * @param url A URL.
+   * @return The breaker for the endpoint of the given URL.
+   */
+  public CircuitBreaker getBreaker(URL url)
+  {
+    return breakers_.computeIfAbsent(CircuitBreaker.getEndpoint(url),
+        (endpoint) -> new CircuitBreaker(endpoint, failureThreshold_, cooldownMillis_));
+  }
+}
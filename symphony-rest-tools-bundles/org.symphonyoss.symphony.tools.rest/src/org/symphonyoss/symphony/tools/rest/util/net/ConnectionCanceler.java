@@ -0,0 +1,150 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+
+import javax.annotation.Nullable;
+
+/**
+ * Aborts a request which is in progress on another thread.
+ * 
+ * HttpURLConnection creates and connects its socket inside JCurl.connect(), before
+ * the transport has the connection, so a canceler is made current on the thread
+ * making the request and HappyEyeballsSocket attaches itself when it starts to
+ * connect. Canceling closes that socket, which abandons a connect or TLS handshake
+ * in progress, and disconnects the connection once the transport has it.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+class ConnectionCanceler
+{
+  private static final ThreadLocal<ConnectionCanceler> CURRENT = new ThreadLocal<>();
+  
+  private Socket            socket_;
+  private HttpURLConnection connection_;
+  private boolean           canceled_;
+  
+  /**
+   * @return The canceler for the request being made on the current thread, or null.
+   */
+  static @Nullable ConnectionCanceler getCurrent()
+  {
+    return CURRENT.get();
+  }
+
+  void start()
+  {
+    CURRENT.set(this);
+  }
+  
+  void end()
+  {
+    CURRENT.remove();
+  }
+  
+  /**
+   * Attach the socket being connected for this request, if the request has already
+   * been canceled the socket is closed immediately.
+   * 
+   * @param socket A socket which is about to connect.
+   */
+  void setSocket(Socket socket)
+  {
+    synchronized(this)
+    {
+      socket_ = socket;
+      
+      if(!canceled_)
+        return;
+    }
+    
+    close(socket);
+  }
+  
+  /**
+   * Attach the connection for this request, if the request has already been
+   * canceled the connection is disconnected immediately.
+   * 
+   * @param connection The connection returned by JCurl.
+   */
+  void setConnection(HttpURLConnection connection)
+  {
+    synchronized(this)
+    {
+      connection_ = connection;
+      
+      if(!canceled_)
+        return;
+    }
+    
+    connection.disconnect();
+  }
+  
+  /**
+   * @return true if a socket was connected for this request, false if a kept-alive
+   * connection was reused.
+   */
+  synchronized boolean isNewConnection()
+  {
+    return socket_ != null;
+  }
+  
+  /**
+   * Cancel the request, closing its socket and connection. May be called from any thread.
+   */
+  void cancel()
+  {
+    Socket            socket;
+    HttpURLConnection connection;
+    
+    synchronized(this)
+    {
+      canceled_ = true;
+      socket = socket_;
+      connection = connection_;
+    }
+    
+    if(socket != null)
+      close(socket);
+    
+    if(connection != null)
+      connection.disconnect();
+  }
+  
+  private static void close(Socket socket)
+  {
+    try
+    {
+      socket.close();
+    }
+    catch(IOException e)
+    {
+      // Nothing we can do about this
+    }
+  }
+}
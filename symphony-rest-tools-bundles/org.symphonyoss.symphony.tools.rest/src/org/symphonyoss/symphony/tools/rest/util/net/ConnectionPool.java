@@ -0,0 +1,148 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+/**
+ * Support for HTTP keep-alive connection reuse.
+ * 
+ * HttpURLConnection keeps idle connections in a process wide cache keyed by
+ * origin (and for HTTPS by SSLSocketFactory, which is why connections made
+ * with the same TlsContextCache entry can share it). A connection is only
+ * returned to the cache when its response body has been read to the end
+ * and closed, so every connection should be passed to release() when the
+ * caller has finished with it.
+ * 
+ * The time for which an idle connection is kept is not configurable on Java 8,
+ * the JDK uses the timeout from the server's Keep-Alive header or, if there
+ * is none, a fixed default of 5 seconds.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ConnectionPool
+{
+  /** The maximum number of idle connections kept per origin. */
+  public static final int    DEFAULT_MAX_IDLE_PER_ORIGIN   = 8;
+  
+  /** Bodies larger than this are not worth draining, the connection is closed instead. */
+  public static final int    MAX_DRAIN_BYTES               = 64 * 1024;
+
+  private static final String KEEP_ALIVE            = "http.keepAlive";
+  private static final String MAX_CONNECTIONS       = "http.maxConnections";
+
+  private static boolean      configured_;
+  
+  /**
+   * Configure the JDK connection cache with the default limits, unless they have
+   * been set explicitly with system properties.
+   * 
+   * This needs to be called before the first HTTP connection is made.
+   */
+  public static synchronized void configure()
+  {
+    if(configured_)
+      return;
+    
+    setIfAbsent(KEEP_ALIVE, "true");
+    setIfAbsent(MAX_CONNECTIONS, String.valueOf(DEFAULT_MAX_IDLE_PER_ORIGIN));
+    
+    configured_ = true;
+  }
+  
+  private static void setIfAbsent(String name, String value)
+  {
+    if(System.getProperty(name) == null)
+      System.setProperty(name, value);
+  }
+  
+  /**
+   * Finish with the given connection, draining any unread response body so that
+   * the underlying connection can be reused.
+   * 
+   * @param connection A connection, may be null.
+   */
+  public static void release(HttpURLConnection connection)
+  {
+    if(connection == null)
+      return;
+    
+    InputStream in;
+    
+    try
+    {
+      in = connection.getInputStream();
+    }
+    catch(IOException e)
+    {
+      in = connection.getErrorStream();
+    }
+    
+    if(in == null)
+      return;
+    
+    try
+    {
+      if(!drain(in))
+        connection.disconnect();
+    }
+    catch(IOException e)
+    {
+      // The stream was already consumed and closed, or the connection failed,
+      // either way there is nothing more to do.
+    }
+    finally
+    {
+      try
+      {
+        in.close();
+      }
+      catch(IOException e)
+      {
+        // Nothing we can do about this
+      }
+    }
+  }
+
+  private static boolean drain(InputStream in) throws IOException
+  {
+    byte[]  buf = new byte[4096];
+    int     total = 0;
+    int     n;
+    
+    while((n = in.read(buf)) != -1)
+    {
+      total += n;
+      
+      if(total > MAX_DRAIN_BYTES)
+        return false;
+    }
+    
+    return true;
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+
+/**
+ * Connects to a host with more than one address by racing connection attempts,
+ * as described in RFC 8305.
+ * 
+ * Addresses are tried alternating between IPv6 and IPv4, starting with the family
+ * which last connected to the host. A new attempt is started each time the
+ * attempt delay passes without a connection, or when all attempts in progress
+ * have failed, and the first connection to succeed is used. So a host with a
+ * broken IPv6 route costs the attempt delay rather than the whole connect timeout.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class HappyEyeballs
+{
+  /** The recommended connection attempt delay from RFC 8305. */
+  public static final long            DEFAULT_ATTEMPT_DELAY_MILLIS = 250;
+
+  private static final HappyEyeballs  DEFAULT_INSTANCE = new HappyEyeballs(HostResolver.getDefault(), DEFAULT_ATTEMPT_DELAY_MILLIS);
+
+  private final HostResolver          resolver_;
+  private final long                  attemptDelayNanos_;
+
+  public HappyEyeballs(HostResolver resolver, long attemptDelayMillis)
+  {
+    resolver_ = resolver;
+    attemptDelayNanos_ = TimeUnit.MILLISECONDS.toNanos(attemptDelayMillis);
+  }
+
+  /**
+   * @return The process wide instance, which uses the default HostResolver.
+   */
+  public static HappyEyeballs getDefault()
+  {
+    return DEFAULT_INSTANCE;
+  }
+
+  /**
+   * Connect to the given host.
+   * 
+   * @param hostName        The host name.
+   * @param port            The port number.
+   * @param timeoutMillis   The time allowed for all attempts, 0 for no limit.
+   * @return A connected socket.
+   * 
+   * @throws IOException If no attempt succeeds.
+   */
+  public Socket connect(String hostName, int port, int timeoutMillis) throws IOException
+  {
+    return connect(hostName, port, timeoutMillis, null);
+  }
+
+  /**
+   * Connect to the given host, giving up if the given attempt is abandoned.
+   * 
+   * @param hostName        The host name.
+   * @param port            The port number.
+   * @param timeoutMillis   The time allowed for all attempts, 0 for no limit.
+   * @param attempt         A handle with which another thread can abandon the connect, or null.
+   * @return A connected socket.
+   * 
+   * @throws IOException If no attempt succeeds or the connect is abandoned.
+   */
+  Socket connect(String hostName, int port, int timeoutMillis, @Nullable Attempt attempt) throws IOException
+  {
+    List<InetAddress>   addresses = order(resolver_.resolve(hostName), resolver_.getPreferredFamily(hostName));
+    List<SocketChannel> channels = new ArrayList<>(addresses.size());
+    SocketChannel       winner = null;
+    IOException         failure = null;
+    PhaseTimings        timings = PhaseTimings.getCurrent();
+    
+    if(timings != null)
+      timings.tcpStart();
+    
+    try
+    {
+      try(Selector selector = Selector.open())
+      {
+        long  start = System.nanoTime();
+        long  nextAttempt = start;
+        int   next = 0;
+        
+        if(attempt != null)
+          attempt.setSelector(selector);
+        
+        try
+        {
+          while(winner == null)
+          {
+            if(attempt != null && attempt.isAbandoned())
+              throw new SocketException("Connect to " + hostName + ":" + port + " abandoned");
+            
+            long now = System.nanoTime();
+            
+            if(next < addresses.size() && (now - nextAttempt >= 0 || selector.keys().isEmpty()))
+            {
+              SocketChannel channel = SocketChannel.open();
+              
+              channels.add(channel);
+              
+              try
+              {
+                channel.configureBlocking(false);
+                
+                if(channel.connect(new InetSocketAddress(addresses.get(next), port)))
+                  winner = channel;
+                else
+                  channel.register(selector, SelectionKey.OP_CONNECT);
+              }
+              catch(IOException e)
+              {
+                failure = e;
+                channel.close();
+              }
+              
+              next++;
+              nextAttempt = now + attemptDelayNanos_;
+              continue;
+            }
+            
+            if(selector.keys().isEmpty())
+              break;
+            
+            long wait = Long.MAX_VALUE;
+            
+            if(timeoutMillis > 0)
+            {
+              wait = TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - (now - start);
+              
+              if(wait <= 0)
+                throw new SocketTimeoutException("Connect to " + hostName + ":" + port + " timed out");
+            }
+            
+            if(next < addresses.size())
+              wait = Math.min(wait, nextAttempt - now);
+            
+            selector.select(wait == Long.MAX_VALUE ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+            
+            for(SelectionKey key : selector.selectedKeys())
+            {
+              SocketChannel channel = (SocketChannel) key.channel();
+              
+              key.cancel();
+              
+              try
+              {
+                if(channel.finishConnect() && winner == null)
+                  winner = channel;
+              }
+              catch(IOException e)
+              {
+                failure = e;
+                channel.close();
+              }
+            }
+            
+            selector.selectedKeys().clear();
+            selector.selectNow();
+          }
+        }
+        finally
+        {
+          // Inside the try-with-resources so that abandon() never wakes a closed selector
+          if(attempt != null)
+            attempt.setSelector(null);
+        }
+      }
+      
+      if(winner == null)
+      {
+        if(failure != null)
+          throw failure;
+        
+        throw new ConnectException("Unable to connect to " + hostName + ":" + port);
+      }
+      
+      if(timings != null)
+        timings.tcpEnd();
+      
+      winner.configureBlocking(true);
+      resolver_.setPreferredFamily(hostName, ((InetSocketAddress)winner.getRemoteAddress()).getAddress());
+      
+      return winner.socket();
+    }
+    finally
+    {
+      for(SocketChannel channel : channels)
+      {
+        if(channel != winner)
+          close(channel);
+      }
+    }
+  }
+
+  /**
+   * Order the given addresses for connection attempts, alternating between
+   * address families starting with the preferred family.
+   * 
+   * @param addresses       The addresses of a host.
+   * @param preferredFamily The preferred address class, if null the family of the first address is preferred.
+   * @return The addresses in the order in which they should be tried.
+   */
+  public static List<InetAddress> order(InetAddress[] addresses, @Nullable Class<? extends InetAddress> preferredFamily)
+  {
+    List<InetAddress> preferred = new ArrayList<>();
+    List<InetAddress> other = new ArrayList<>();
+    
+    if(preferredFamily == null && addresses.length > 0)
+      preferredFamily = addresses[0].getClass();
+    
+    for(InetAddress address : addresses)
+    {
+      if(address.getClass() == preferredFamily)
+        preferred.add(address);
+      else
+        other.add(address);
+    }
+    
+    List<InetAddress> ordered = new ArrayList<>(addresses.length);
+    
+    for(int i=0 ; i<preferred.size() || i<other.size() ; i++)
+    {
+      if(i < preferred.size())
+        ordered.add(preferred.get(i));
+      
+      if(i < other.size())
+        ordered.add(other.get(i));
+    }
+    
+    return ordered;
+  }
+
+  /**
+   * A connect which can be abandoned from another thread, waking the selector
+   * on which it is waiting.
+   */
+  static class Attempt
+  {
+    private Selector selector_;
+    private boolean  abandoned_;
+    
+    synchronized void abandon()
+    {
+      abandoned_ = true;
+      
+      if(selector_ != null)
+        selector_.wakeup();
+    }
+    
+    synchronized boolean isAbandoned()
+    {
+      return abandoned_;
+    }
+    
+    private synchronized void setSelector(@Nullable Selector selector)
+    {
+      selector_ = selector;
+    }
+  }
+
+  private static void close(SocketChannel channel)
+  {
+    try
+    {
+      channel.close();
+    }
+    catch(IOException e)
+    {
+      // Nothing we can do about this
+    }
+  }
+}
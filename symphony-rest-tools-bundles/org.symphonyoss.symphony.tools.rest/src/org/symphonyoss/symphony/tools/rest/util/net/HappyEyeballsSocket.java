@@ -0,0 +1,324 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+
+/**
+ * An unconnected socket which connects using HappyEyeballs.
+ * 
+ * HttpsURLConnection creates its socket unconnected and then connects it to the
+ * first address of the host, this socket instead races all of the addresses and
+ * then delegates to the socket which won. Options set before the connection is
+ * made are applied to the winning socket.
+ * 
+ * Closing the socket from another thread abandons a connect in progress, and the
+ * socket attaches itself to the current ConnectionCanceler, if any, so that a
+ * request can be canceled before HttpURLConnection has finished connecting.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+class HappyEyeballsSocket extends Socket
+{
+  private final HappyEyeballs         happyEyeballs_;
+  private final HappyEyeballs.Attempt attempt_ = new HappyEyeballs.Attempt();
+  
+  private volatile Socket             socket_;
+  private volatile boolean            closed_;
+  private int                         soTimeout_;
+  private boolean                     tcpNoDelay_;
+  private boolean                     keepAlive_;
+
+  HappyEyeballsSocket(HappyEyeballs happyEyeballs)
+  {
+    happyEyeballs_ = happyEyeballs;
+  }
+
+  @Override
+  public void connect(SocketAddress endpoint) throws IOException
+  {
+    connect(endpoint, 0);
+  }
+
+  @Override
+  public void connect(SocketAddress endpoint, int timeout) throws IOException
+  {
+    if(!(endpoint instanceof InetSocketAddress))
+      throw new IllegalArgumentException("Unsupported address type");
+    
+    ConnectionCanceler canceler = ConnectionCanceler.getCurrent();
+    
+    if(canceler != null)
+      canceler.setSocket(this);
+    
+    if(closed_)
+      throw new SocketException("Socket is closed");
+    
+    if(socket_ != null)
+      throw new SocketException("Already connected");
+    
+    InetSocketAddress address = (InetSocketAddress) endpoint;
+    Socket            socket = happyEyeballs_.connect(address.getHostString(), address.getPort(), timeout, attempt_);
+    
+    socket.setSoTimeout(soTimeout_);
+    socket.setTcpNoDelay(tcpNoDelay_);
+    socket.setKeepAlive(keepAlive_);
+    
+    socket_ = socket;
+    
+    if(closed_)
+      socket.close();
+  }
+
+  private Socket getSocket() throws SocketException
+  {
+    Socket socket = socket_;
+    
+    if(socket == null)
+      throw new SocketException("Socket is not connected");
+    
+    return socket;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException
+  {
+    return getSocket().getInputStream();
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException
+  {
+    return getSocket().getOutputStream();
+  }
+
+  @Override
+  public InetAddress getInetAddress()
+  {
+    Socket socket = socket_;
+    
+    return socket == null ? null : socket.getInetAddress();
+  }
+
+  @Override
+  public InetAddress getLocalAddress()
+  {
+    Socket socket = socket_;
+    
+    return socket == null ? null : socket.getLocalAddress();
+  }
+
+  @Override
+  public int getPort()
+  {
+    Socket socket = socket_;
+    
+    return socket == null ? 0 : socket.getPort();
+  }
+
+  @Override
+  public int getLocalPort()
+  {
+    Socket socket = socket_;
+    
+    return socket == null ? -1 : socket.getLocalPort();
+  }
+
+  @Override
+  public SocketAddress getRemoteSocketAddress()
+  {
+    Socket socket = socket_;
+    
+    return socket == null ? null : socket.getRemoteSocketAddress();
+  }
+
+  @Override
+  public SocketAddress getLocalSocketAddress()
+  {
+    Socket socket = socket_;
+    
+    return socket == null ? null : socket.getLocalSocketAddress();
+  }
+
+  @Override
+  public synchronized void setSoTimeout(int timeout) throws SocketException
+  {
+    soTimeout_ = timeout;
+    
+    if(socket_ != null)
+      socket_.setSoTimeout(timeout);
+  }
+
+  @Override
+  public synchronized int getSoTimeout() throws SocketException
+  {
+    return socket_ == null ? soTimeout_ : socket_.getSoTimeout();
+  }
+
+  @Override
+  public void setTcpNoDelay(boolean on) throws SocketException
+  {
+    tcpNoDelay_ = on;
+    
+    if(socket_ != null)
+      socket_.setTcpNoDelay(on);
+  }
+
+  @Override
+  public boolean getTcpNoDelay() throws SocketException
+  {
+    return socket_ == null ? tcpNoDelay_ : socket_.getTcpNoDelay();
+  }
+
+  @Override
+  public void setKeepAlive(boolean on) throws SocketException
+  {
+    keepAlive_ = on;
+    
+    if(socket_ != null)
+      socket_.setKeepAlive(on);
+  }
+
+  @Override
+  public boolean getKeepAlive() throws SocketException
+  {
+    return socket_ == null ? keepAlive_ : socket_.getKeepAlive();
+  }
+
+  @Override
+  public void setSoLinger(boolean on, int linger) throws SocketException
+  {
+    getSocket().setSoLinger(on, linger);
+  }
+
+  @Override
+  public int getSoLinger() throws SocketException
+  {
+    return getSocket().getSoLinger();
+  }
+
+  @Override
+  public void setSendBufferSize(int size) throws SocketException
+  {
+    getSocket().setSendBufferSize(size);
+  }
+
+  @Override
+  public int getSendBufferSize() throws SocketException
+  {
+    return getSocket().getSendBufferSize();
+  }
+
+  @Override
+  public void setReceiveBufferSize(int size) throws SocketException
+  {
+    getSocket().setReceiveBufferSize(size);
+  }
+
+  @Override
+  public int getReceiveBufferSize() throws SocketException
+  {
+    return getSocket().getReceiveBufferSize();
+  }
+
+  @Override
+  public void shutdownInput() throws IOException
+  {
+    getSocket().shutdownInput();
+  }
+
+  @Override
+  public void shutdownOutput() throws IOException
+  {
+    getSocket().shutdownOutput();
+  }
+
+  @Override
+  public boolean isConnected()
+  {
+    Socket socket = socket_;
+    
+    return socket != null && socket.isConnected();
+  }
+
+  @Override
+  public boolean isBound()
+  {
+    Socket socket = socket_;
+    
+    return socket != null && socket.isBound();
+  }
+
+  @Override
+  public boolean isClosed()
+  {
+    Socket socket = socket_;
+    
+    return closed_ || (socket != null && socket.isClosed());
+  }
+
+  @Override
+  public boolean isInputShutdown()
+  {
+    Socket socket = socket_;
+    
+    return socket != null && socket.isInputShutdown();
+  }
+
+  @Override
+  public boolean isOutputShutdown()
+  {
+    Socket socket = socket_;
+    
+    return socket != null && socket.isOutputShutdown();
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    closed_ = true;
+    attempt_.abandon();
+    
+    Socket socket = socket_;
+    
+    if(socket != null)
+      socket.close();
+  }
+
+  @Override
+  public String toString()
+  {
+    Socket socket = socket_;
+    
+    return socket == null ? "HappyEyeballsSocket[unconnected]" : socket.toString();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * An SSLSocketFactory which makes its connections with HappyEyeballs and then
+ * layers TLS over them with the given factory.
+ * 
+ * Connections made by HttpsURLConnection share keep-alive connections by
+ * SSLSocketFactory, so there should be one instance per underlying factory.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class HappyEyeballsSocketFactory extends SSLSocketFactory
+{
+  private final SSLSocketFactory factory_;
+  private final HappyEyeballs    happyEyeballs_;
+
+  public HappyEyeballsSocketFactory(SSLSocketFactory factory, HappyEyeballs happyEyeballs)
+  {
+    factory_ = factory;
+    happyEyeballs_ = happyEyeballs;
+  }
+
+  @Override
+  public String[] getDefaultCipherSuites()
+  {
+    return factory_.getDefaultCipherSuites();
+  }
+
+  @Override
+  public String[] getSupportedCipherSuites()
+  {
+    return factory_.getSupportedCipherSuites();
+  }
+
+  /**
+   * Return an unconnected plain socket which connects with HappyEyeballs, HttpsURLConnection
+   * layers TLS over it with createSocket(Socket, String, int, boolean) once it is connected.
+   */
+  @Override
+  public Socket createSocket() throws IOException
+  {
+    return new HappyEyeballsSocket(happyEyeballs_);
+  }
+
+  @Override
+  public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException
+  {
+    return factory_.createSocket(socket, host, port, autoClose);
+  }
+
+  @Override
+  public Socket createSocket(Socket socket, InputStream consumed, boolean autoClose) throws IOException
+  {
+    return factory_.createSocket(socket, consumed, autoClose);
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException
+  {
+    return factory_.createSocket(happyEyeballs_.connect(host, port, 0), host, port, true);
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException
+  {
+    return factory_.createSocket(host, port, localHost, localPort);
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port) throws IOException
+  {
+    return factory_.createSocket(address, port);
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException
+  {
+    return factory_.createSocket(address, port, localAddress, localPort);
+  }
+}
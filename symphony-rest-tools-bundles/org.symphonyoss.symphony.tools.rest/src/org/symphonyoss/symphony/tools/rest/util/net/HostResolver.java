@@ -0,0 +1,211 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * A caching host name resolver.
+ * 
+ * Successful lookups are cached for the positive TTL and failed lookups
+ * for the (usually shorter) negative TTL, so that probing several ports on
+ * a host which does not exist only costs a single lookup.
+ * 
+ * The address family (IPv4 or IPv6) which last connected successfully to each
+ * host is also remembered, see HappyEyeballs.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class HostResolver
+{
+  public static final long   DEFAULT_POSITIVE_TTL_MILLIS = 60000;
+  public static final long   DEFAULT_NEGATIVE_TTL_MILLIS = 10000;
+  /** Expired entries are purged when the cache grows beyond this size. */
+  public static final int    PURGE_THRESHOLD             = 1024;
+
+  private static final HostResolver DEFAULT_RESOLVER = new HostResolver(DEFAULT_POSITIVE_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+  
+  private final long               positiveTtlNanos_;
+  private final long               negativeTtlNanos_;
+  private final Map<String, Entry> cache_ = new ConcurrentHashMap<>();
+  private final Map<String, Class<? extends InetAddress>> preferredFamily_ = new ConcurrentHashMap<>();
+  
+  public HostResolver(long positiveTtlMillis, long negativeTtlMillis)
+  {
+    positiveTtlNanos_ = TimeUnit.MILLISECONDS.toNanos(positiveTtlMillis);
+    negativeTtlNanos_ = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+  }
+
+  /**
+   * @return The process wide resolver.
+   */
+  public static HostResolver getDefault()
+  {
+    return DEFAULT_RESOLVER;
+  }
+  
+  /**
+   * Resolve the given host name, using a cached result if there is one.
+   * 
+   * @param hostName The host name to resolve.
+   * @return All of the addresses for the given host.
+   * 
+   * @throws UnknownHostException If the host name cannot be resolved.
+   */
+  public InetAddress[] resolve(String hostName) throws UnknownHostException
+  {
+    String key = hostName.toLowerCase();
+    Entry  entry = cache_.get(key);
+    
+    if(entry == null || entry.isExpired())
+    {
+      entry = cache_.compute(key, (k, existing) ->
+          existing == null || existing.isExpired() ? createEntry(hostName) : existing);
+      
+      if(cache_.size() > PURGE_THRESHOLD)
+        purgeExpired();
+    }
+    
+    if(entry.unknownHost_ != null)
+      throw new UnknownHostException(entry.unknownHost_.getMessage());
+    
+    return entry.addresses_.clone();
+  }
+  
+  /**
+   * Return true if the given host name can be resolved.
+   * 
+   * @param hostName The host name to resolve.
+   * @return true if the given host name can be resolved.
+   */
+  public boolean isResolvable(String hostName)
+  {
+    try
+    {
+      resolve(hostName);
+      return true;
+    }
+    catch(UnknownHostException e)
+    {
+      return false;
+    }
+  }
+  
+  /**
+   * Record the address to which a connection to the given host succeeded, so that
+   * its address family can be tried first next time.
+   * 
+   * @param hostName  The host name.
+   * @param address   The address which connected.
+   */
+  public void setPreferredFamily(String hostName, InetAddress address)
+  {
+    if(preferredFamily_.size() > PURGE_THRESHOLD)
+      preferredFamily_.clear();
+    
+    preferredFamily_.put(hostName.toLowerCase(), address.getClass());
+  }
+  
+  /**
+   * @param hostName  The host name.
+   * @return The class (Inet4Address or Inet6Address) of the address which last connected
+   * to the given host, or null if there is none.
+   */
+  public @Nullable Class<? extends InetAddress> getPreferredFamily(String hostName)
+  {
+    return preferredFamily_.get(hostName.toLowerCase());
+  }
+  
+  /**
+   * Discard all expired results, so that resolving a long stream of
+   * different hosts does not grow the cache without limit.
+   */
+  public void purgeExpired()
+  {
+    cache_.values().removeIf((entry) -> entry.isExpired());
+  }
+  
+  /**
+   * @return The number of cached results, including any which have expired.
+   */
+  public int size()
+  {
+    return cache_.size();
+  }
+  
+  /**
+   * Discard all cached results.
+   */
+  public void clear()
+  {
+    cache_.clear();
+    preferredFamily_.clear();
+  }
+
+  protected InetAddress[] lookup(String hostName) throws UnknownHostException
+  {
+    return InetAddress.getAllByName(hostName);
+  }
+  
+  private Entry createEntry(String hostName)
+  {
+    long now = System.nanoTime();
+    
+    try
+    {
+      return new Entry(lookup(hostName), null, now + positiveTtlNanos_);
+    }
+    catch(UnknownHostException e)
+    {
+      return new Entry(null, e, now + negativeTtlNanos_);
+    }
+  }
+  
+  private static class Entry
+  {
+    private final InetAddress[]        addresses_;
+    private final UnknownHostException unknownHost_;
+    private final long                 expiryNanos_;
+    
+    private Entry(InetAddress[] addresses, UnknownHostException unknownHost, long expiryNanos)
+    {
+      addresses_ = addresses;
+      unknownHost_ = unknownHost;
+      expiryNanos_ = expiryNanos;
+    }
+
+    private boolean isExpired()
+    {
+      return System.nanoTime() - expiryNanos_ >= 0;
+    }
+  }
+}
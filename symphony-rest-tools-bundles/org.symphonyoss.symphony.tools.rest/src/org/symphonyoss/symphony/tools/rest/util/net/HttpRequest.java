@@ -0,0 +1,329 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.net.URL;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.jcurl.JCurl;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.net.TlsContextCache.TlsContext;
+
+/**
+ * An HTTP request to be executed by an IHttpTransport.
+ * 
+ * The method, headers, body and fields to be extracted from the response
+ * are described by a JCurl builder, unless a JsonExtractor is set in which case
+ * the body is parsed as it is read and only the extracted fields are kept.
+ * 
+ * The transport sets the connect and read timeouts on the builder before it
+ * builds and connects, so each request needs a builder of its own.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class HttpRequest
+{
+  private static final int[] DEFAULT_EXPECTED_STATUS = new int[] { 200 };
+  
+  private final JCurl.Builder                 jcurlBuilder_;
+  private final URL                           url_;
+  private final TlsConfig                     tlsConfig_;
+  private final int[]                         expectedStatus_;
+  private final CancellationToken             cancellationToken_;
+  private final String                        expectedContentType_;
+  private final long                          maxBodyBytes_;
+  private final boolean                       headersOnly_;
+  private final PhaseTimings                  phaseTimings_;
+  private final TlsContext                    tlsContext_;
+  private final JsonExtractor                 jsonExtractor_;
+  private final IJsonFieldVisitor             jsonVisitor_;
+  private final SlidingLatencyHistogram       latencyHistogram_;
+
+  private HttpRequest(Builder builder)
+  {
+    jcurlBuilder_       = builder.jcurlBuilder_;
+    url_                = builder.url_;
+    tlsConfig_          = builder.tlsConfig_;
+    expectedStatus_     = builder.expectedStatus_;
+    cancellationToken_  = builder.cancellationToken_;
+    expectedContentType_ = builder.expectedContentType_;
+    maxBodyBytes_       = builder.maxBodyBytes_;
+    headersOnly_        = builder.headersOnly_;
+    phaseTimings_       = builder.phaseTimings_;
+    tlsContext_         = builder.tlsContext_;
+    jsonExtractor_      = builder.jsonExtractor_;
+    jsonVisitor_        = builder.jsonVisitor_;
+    latencyHistogram_   = builder.latencyHistogram_;
+  }
+  
+  public static Builder newBuilder(JCurl.Builder jcurlBuilder, URL url, TlsConfig tlsConfig)
+  {
+    return new Builder(jcurlBuilder, url, tlsConfig);
+  }
+  
+  public static class Builder
+  {
+    private final JCurl.Builder               jcurlBuilder_;
+    private final URL                         url_;
+    private final TlsConfig                   tlsConfig_;
+    private int[]                             expectedStatus_ = DEFAULT_EXPECTED_STATUS;
+    private CancellationToken                 cancellationToken_;
+    private String                            expectedContentType_;
+    private long                              maxBodyBytes_ = -1;
+    private boolean                           headersOnly_;
+    private PhaseTimings                      phaseTimings_;
+    private TlsContext                        tlsContext_;
+    private JsonExtractor                     jsonExtractor_;
+    private IJsonFieldVisitor                 jsonVisitor_;
+    private SlidingLatencyHistogram           latencyHistogram_;
+
+    private Builder(JCurl.Builder jcurlBuilder, URL url, TlsConfig tlsConfig)
+    {
+      jcurlBuilder_ = jcurlBuilder;
+      url_ = url;
+      tlsConfig_ = tlsConfig;
+    }
+
+    /**
+     * Set the status codes for which the response body is processed.
+     * 
+     * @param expectedStatus  One or more HTTP status codes, if none are given then any status is accepted.
+     * @return this builder.
+     */
+    public Builder setExpectedStatus(int ...expectedStatus)
+    {
+      expectedStatus_ = expectedStatus;
+      return this;
+    }
+
+    /**
+     * Set a token which cancels this request alone, in addition to the token of the
+     * transport, so that it can be aborted from another thread.
+     * 
+     * @param cancellationToken A token which aborts the request when it is canceled.
+     * @return this builder.
+     */
+    public Builder setCancellationToken(CancellationToken cancellationToken)
+    {
+      cancellationToken_ = cancellationToken;
+      return this;
+    }
+    
+    /**
+     * Set the content type for which the response body is processed. The content type is
+     * checked from the response headers, so the body of a response of any other type is
+     * never read.
+     * 
+     * @param expectedContentType A MIME type, or null to accept any content type.
+     * @return this builder.
+     */
+    public Builder setExpectedContentType(@Nullable String expectedContentType)
+    {
+      expectedContentType_ = expectedContentType;
+      return this;
+    }
+
+    /**
+     * Set the maximum size of a response body which will be processed. A response whose
+     * Content-Length is larger than this is returned without its body.
+     * 
+     * @param maxBodyBytes The maximum body size in bytes, or -1 for no limit.
+     * @return this builder.
+     */
+    public Builder setMaxBodyBytes(long maxBodyBytes)
+    {
+      maxBodyBytes_ = maxBodyBytes;
+      return this;
+    }
+
+    /**
+     * Indicate that only the status, headers and server certificates of the response are
+     * wanted, in which case the body is never processed.
+     * 
+     * @param headersOnly true if the body is not wanted.
+     * @return this builder.
+     */
+    public Builder setHeadersOnly(boolean headersOnly)
+    {
+      headersOnly_ = headersOnly;
+      return this;
+    }
+
+    /**
+     * Capture the time spent in each phase of the request.
+     * 
+     * @param phaseTimings The timings to be filled in by the transport, or null for none.
+     * @return this builder.
+     */
+    public Builder setPhaseTimings(@Nullable PhaseTimings phaseTimings)
+    {
+      phaseTimings_ = phaseTimings;
+      return this;
+    }
+
+    /**
+     * Use the given context rather than the cached context for the TlsConfig, which is then only
+     * used to identify the request.
+     * 
+     * @param tlsContext A context, such as one created by TlsContext.newCapturingContext(), or null.
+     * @return this builder.
+     */
+    public Builder setTlsContext(@Nullable TlsContext tlsContext)
+    {
+      tlsContext_ = tlsContext;
+      return this;
+    }
+
+    /**
+     * Stream the response body through the given extractor rather than having JCurl build
+     * a JSON tree and extract tags from it. The result then has no JCurl response, see
+     * HttpResult.getJsonRoot().
+     * 
+     * @param jsonExtractor The extractor.
+     * @param jsonVisitor   The visitor to be called for each extracted field.
+     * @return this builder.
+     */
+    public Builder setJsonExtractor(JsonExtractor jsonExtractor, IJsonFieldVisitor jsonVisitor)
+    {
+      jsonExtractor_ = jsonExtractor;
+      jsonVisitor_ = jsonVisitor;
+      return this;
+    }
+
+    /**
+     * Record the time taken by the request, from connecting until the response has been
+     * processed, if a response is received.
+     * 
+     * @param latencyHistogram The histogram for the endpoint, such as IUrlEndpoint.getLatencyHistogram(), or null.
+     * @return this builder.
+     */
+    public Builder setLatencyHistogram(@Nullable SlidingLatencyHistogram latencyHistogram)
+    {
+      latencyHistogram_ = latencyHistogram;
+      return this;
+    }
+
+    public HttpRequest build()
+    {
+      return new HttpRequest(this);
+    }
+  }
+
+  public JCurl.Builder getJcurlBuilder()
+  {
+    return jcurlBuilder_;
+  }
+
+  public URL getUrl()
+  {
+    return url_;
+  }
+
+  public TlsConfig getTlsConfig()
+  {
+    return tlsConfig_;
+  }
+
+  public @Nullable CancellationToken getCancellationToken()
+  {
+    return cancellationToken_;
+  }
+
+  public @Nullable String getExpectedContentType()
+  {
+    return expectedContentType_;
+  }
+
+  public long getMaxBodyBytes()
+  {
+    return maxBodyBytes_;
+  }
+
+  public boolean isHeadersOnly()
+  {
+    return headersOnly_;
+  }
+
+  public @Nullable PhaseTimings getPhaseTimings()
+  {
+    return phaseTimings_;
+  }
+
+  public @Nullable TlsContext getTlsContext()
+  {
+    return tlsContext_;
+  }
+
+  public @Nullable JsonExtractor getJsonExtractor()
+  {
+    return jsonExtractor_;
+  }
+
+  public @Nullable IJsonFieldVisitor getJsonVisitor()
+  {
+    return jsonVisitor_;
+  }
+
+  public @Nullable SlidingLatencyHistogram getLatencyHistogram()
+  {
+    return latencyHistogram_;
+  }
+
+  /**
+   * @param contentType   The content type of a response, may be null.
+   * @param contentLength The Content-Length of a response, or -1 if not known.
+   * @return true if the body of a response with the given headers should be processed.
+   */
+  public boolean isBodyWanted(@Nullable String contentType, long contentLength)
+  {
+    if(headersOnly_)
+      return false;
+    
+    if(maxBodyBytes_ >= 0 && contentLength > maxBodyBytes_)
+      return false;
+    
+    return expectedContentType_ == null || expectedContentType_.equals(HttpResult.getMimeType(contentType));
+  }
+
+  /**
+   * @param status An HTTP status code.
+   * @return true if the response body should be processed for the given status.
+   */
+  public boolean isExpectedStatus(int status)
+  {
+    if(expectedStatus_.length == 0)
+      return true;
+    
+    for(int expected : expectedStatus_)
+    {
+      if(status == expected)
+        return true;
+    }
+    
+    return false;
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.security.cert.Certificate;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.jcurl.JCurl;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The result of executing an HttpRequest.
+ * 
+ * The status, content type and server certificates are always available. The
+ * response body is only processed if the request wanted it, see
+ * HttpRequest.isExpectedStatus() and HttpRequest.isBodyWanted().
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class HttpResult
+{
+  private final int             status_;
+  private final boolean         expectedStatus_;
+  private final String          contentType_;
+  private final Certificate[]   serverCertificates_;
+  private final JCurl.Response  response_;
+  private final JsonToken       jsonRoot_;
+
+  public HttpResult(int status, boolean expectedStatus, @Nullable String contentType,
+      @Nullable Certificate[] serverCertificates, @Nullable JCurl.Response response)
+  {
+    this(status, expectedStatus, contentType, serverCertificates, response, null);
+  }
+
+  public HttpResult(int status, boolean expectedStatus, @Nullable String contentType,
+      @Nullable Certificate[] serverCertificates, @Nullable JCurl.Response response, @Nullable JsonToken jsonRoot)
+  {
+    status_ = status;
+    expectedStatus_ = expectedStatus;
+    contentType_ = getMimeType(contentType);
+    serverCertificates_ = serverCertificates;
+    response_ = response;
+    jsonRoot_ = jsonRoot;
+  }
+
+  /**
+   * @param contentType The value of a Content-Type header, may be null.
+   * @return The MIME type without any parameters, in lower case, or null.
+   */
+  public static @Nullable String getMimeType(@Nullable String contentType)
+  {
+    if(contentType == null)
+      return null;
+    
+    int i = contentType.indexOf(';');
+    
+    if(i != -1)
+      contentType = contentType.substring(0, i);
+    
+    return contentType.trim().toLowerCase(Locale.ROOT);
+  }
+
+  public int getStatus()
+  {
+    return status_;
+  }
+
+  /**
+   * @return The MIME type of the response, or null if there was no Content-Type header.
+   */
+  public @Nullable String getContentType()
+  {
+    return contentType_;
+  }
+
+  /**
+   * @return The certificate chain presented by the server, or null if the connection was not TLS.
+   */
+  public @Nullable Certificate[] getServerCertificates()
+  {
+    return serverCertificates_;
+  }
+
+  /**
+   * @return The processed response, or null if the body was not wanted.
+   */
+  public @Nullable JCurl.Response getResponse()
+  {
+    return response_;
+  }
+  
+  /**
+   * @return The first token of a body streamed through the JsonExtractor of the request,
+   * START_OBJECT if its fields were visited, or null if there was no extractor or no body.
+   */
+  public @Nullable JsonToken getJsonRoot()
+  {
+    return jsonRoot_;
+  }
+  
+  public boolean isExpectedStatus()
+  {
+    return expectedStatus_;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.security.cert.CertificateParsingException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A transport which executes HTTP requests.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public interface IHttpTransport
+{
+  /**
+   * Execute the given request, blocking until the response is available.
+   * 
+   * @param request The request.
+   * @return The result.
+   * 
+   * @throws IOException                  If the request fails.
+   * @throws CertificateParsingException  If the server certificates cannot be parsed.
+   */
+  HttpResult execute(HttpRequest request) throws IOException, CertificateParsingException;
+  
+  /**
+   * Execute the given request asynchronously.
+   * 
+   * @param request The request.
+   * @return A future which completes with the result, or exceptionally if the request fails.
+   */
+  CompletableFuture<HttpResult> executeAsync(HttpRequest request);
+  
+  /**
+   * @return The name of this transport.
+   */
+  String getName();
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * A callback for the fields matched by a JsonExtractor.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@FunctionalInterface
+public interface IJsonFieldVisitor
+{
+  /**
+   * Called for each field which matches one of the paths of the extractor.
+   * 
+   * The parser is positioned on the value of the field, scalar values should be read with
+   * the typed accessors of the parser (getBooleanValue(), getValueAsString() etc). The
+   * parser must not be advanced beyond the value, although a structured value may be
+   * consumed with skipChildren() or readValueAsTree().
+   * 
+   * @param path    The index of the matching path in the extractor.
+   * @param name    The name of the field.
+   * @param parser  The parser, positioned on the value of the field.
+   * 
+   * @throws IOException If the value cannot be read.
+   */
+  void visit(int path, String name, JsonParser parser) throws IOException;
+}
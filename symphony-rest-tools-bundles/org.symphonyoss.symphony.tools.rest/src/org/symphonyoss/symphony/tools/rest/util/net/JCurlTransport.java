@@ -0,0 +1,266 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateParsingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import org.symphonyoss.symphony.jcurl.JCurl;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.Deadline;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A blocking transport which executes requests with JCurl on the calling thread.
+ * 
+ * Connections are configured from a TlsContextCache and released to the
+ * keep-alive pool when the response has been processed.
+ * 
+ * Connect and read timeouts are taken from a LatencyTracker, which is updated
+ * with the latency of each request, and limited by the deadline if there is one.
+ * They are set on the JCurl builder of the request before it connects. Only new
+ * HTTPS connections, which are made by HappyEyeballsSocket, are sampled for the
+ * connect latency.
+ * Once the deadline has expired requests fail with DeadlineExceededException.
+ * 
+ * If the cancellation token, or the token of a request, is canceled in-flight
+ * connections are closed and requests fail with RequestCanceledException. This
+ * includes connections which are still connecting or performing the TLS handshake,
+ * see ConnectionCanceler.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class JCurlTransport implements IHttpTransport
+{
+  public static final String    NAME = "jcurl";
+  
+  private static final String   HTTPS = "https";
+  
+  private final TlsContextCache tlsContextCache_;
+  private final LatencyTracker  latencyTracker_;
+  private final Deadline          deadline_;
+  private final CancellationToken cancellationToken_;
+
+  public JCurlTransport(TlsContextCache tlsContextCache)
+  {
+    this(tlsContextCache, LatencyTracker.getDefault(), Deadline.NONE, new CancellationToken());
+  }
+
+  public JCurlTransport(TlsContextCache tlsContextCache, LatencyTracker latencyTracker, Deadline deadline,
+      CancellationToken cancellationToken)
+  {
+    tlsContextCache_ = tlsContextCache;
+    latencyTracker_ = latencyTracker;
+    deadline_ = deadline;
+    cancellationToken_ = cancellationToken;
+  }
+
+  @Override
+  public String getName()
+  {
+    return NAME;
+  }
+
+  @Override
+  public HttpResult execute(HttpRequest request) throws IOException, CertificateParsingException
+  {
+    JCurl.Builder               jcurlBuilder = request.getJcurlBuilder();
+    CancellationToken           requestToken = request.getCancellationToken();
+    String                      host = request.getUrl().getHost();
+    String                      endpoint = LatencyTracker.getEndpoint(request.getUrl());
+    PhaseTimings                timings = request.getPhaseTimings();
+    SlidingLatencyHistogram     histogram = request.getLatencyHistogram();
+    ConnectionCanceler          canceler = new ConnectionCanceler();
+    long                        begin = System.nanoTime();
+    HttpURLConnection           responded = null;
+    boolean                     connected = false;
+    
+    if(deadline_.isExpired())
+      throw new DeadlineExceededException("Deadline expired before request to " + request.getUrl());
+    
+    if(isCanceled(requestToken))
+      throw new RequestCanceledException("Canceled before request to " + request.getUrl());
+    
+    if(timings != null)
+      timings.start(request.getUrl());
+    
+    // Registered before connecting, a new connection's socket attaches itself to the canceler as it connects
+    canceler.start();
+    
+    try(CancellationToken.Registration registration = cancellationToken_.onCancel(canceler::cancel);
+        CancellationToken.Registration requestRegistration = requestToken == null ? null : requestToken.onCancel(canceler::cancel))
+    {
+      // A request with a body is connected inside JCurl.connect(), so the timeouts must be set first
+      JCurl jcurl = jcurlBuilder
+          .connectTimeout(deadline_.clip(latencyTracker_.getConnectTimeoutMillis(host)))
+          .readTimeout(deadline_.clip(latencyTracker_.getReadTimeoutMillis(endpoint)))
+          .build();
+      
+      HttpURLConnection connection = jcurl.connect(wrap(request));
+      
+      canceler.setConnection(connection);
+      connection.connect();
+      connected = true;
+      
+      long connectedAt = System.nanoTime();
+      
+      if(timings != null)
+        timings.connected();
+      
+      int status = connection.getResponseCode();
+      
+      if(timings != null)
+        timings.firstByte();
+      
+      // A kept-alive connection which was reused says nothing about the connect latency
+      if(canceler.isNewConnection())
+        latencyTracker_.recordConnect(host, TimeUnit.NANOSECONDS.toMillis(connectedAt - begin));
+      
+      latencyTracker_.recordFirstByte(endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectedAt));
+      
+      responded = connection;
+      
+      String        contentType = connection.getContentType();
+      Certificate[] serverCertificates = getServerCertificates(connection);
+      
+      if(!request.isExpectedStatus(status))
+        return new HttpResult(status, false, contentType, serverCertificates, null);
+      
+      // Unwanted bodies are left for ConnectionPool.release(), which reads a bounded amount
+      if(!request.isBodyWanted(contentType, connection.getContentLengthLong()))
+        return new HttpResult(status, true, contentType, serverCertificates, null);
+      
+      if(request.getJsonExtractor() != null)
+        return new HttpResult(status, true, contentType, serverCertificates, null, extract(request, connection, status));
+      
+      return new HttpResult(status, true, contentType, serverCertificates, jcurl.processResponse(connection));
+    }
+    catch(SocketTimeoutException e)
+    {
+      if(isCanceled(requestToken))
+        throw new RequestCanceledException("Canceled during request to " + request.getUrl());
+      
+      if(deadline_.isExpired())
+        throw new DeadlineExceededException("Deadline expired during request to " + request.getUrl());
+      
+      // Count the timeout as a sample so that the timeout grows for a slow host or endpoint
+      if(connected)
+        latencyTracker_.recordFirstByte(endpoint, latencyTracker_.getReadTimeoutMillis(endpoint));
+      else
+        latencyTracker_.recordConnect(host, latencyTracker_.getConnectTimeoutMillis(host));
+      
+      throw e;
+    }
+    catch(IOException e)
+    {
+      if(isCanceled(requestToken))
+        throw new RequestCanceledException("Canceled during request to " + request.getUrl());
+      
+      throw e;
+    }
+    finally
+    {
+      canceler.end();
+      
+      if(timings != null)
+        timings.end();
+      
+      // Only requests which got a response say anything about the latency of the endpoint
+      if(histogram != null && responded != null)
+        histogram.recordNanos(System.nanoTime() - begin);
+      
+      ConnectionPool.release(responded);
+    }
+  }
+
+  private boolean isCanceled(@Nullable CancellationToken requestToken)
+  {
+    return cancellationToken_.isCanceled() || (requestToken != null && requestToken.isCanceled());
+  }
+
+  private JsonToken extract(HttpRequest request, HttpURLConnection connection, int status) throws IOException
+  {
+    // Error responses such as a failed HealthCheck have their body on the error stream
+    InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+    
+    if(in == null)
+      return null;
+    
+    return request.getJsonExtractor().extract(in, request.getJsonVisitor());
+  }
+
+  private URL wrap(HttpRequest request) throws IOException
+  {
+    if(request.getTlsContext() != null && HTTPS.equalsIgnoreCase(request.getUrl().getProtocol()))
+      return request.getTlsContext().wrap(request.getUrl());
+    
+    return tlsContextCache_.wrap(request.getUrl(), request.getTlsConfig());
+  }
+
+  private Certificate[] getServerCertificates(HttpURLConnection connection)
+  {
+    if(!(connection instanceof HttpsURLConnection))
+      return null;
+    
+    try
+    {
+      return ((HttpsURLConnection)connection).getServerCertificates();
+    }
+    catch(SSLPeerUnverifiedException e)
+    {
+      return null;
+    }
+  }
+
+  @Override
+  public CompletableFuture<HttpResult> executeAsync(HttpRequest request)
+  {
+    CompletableFuture<HttpResult> future = new CompletableFuture<>();
+    
+    try
+    {
+      future.complete(execute(request));
+    }
+    catch(IOException | CertificateParsingException | RuntimeException e)
+    {
+      future.completeExceptionally(e);
+    }
+    
+    return future;
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Extracts selected fields from a JSON document as it is parsed, without building a tree.
+ * 
+ * The extractor is created once from a set of field paths, each of which is a list of
+ * field names separated by dots, where * matches any name, so "data.podId" matches the
+ * podId field of the data object and "*" matches every top level field. Fields which do
+ * not match any path, and objects which contain no matching fields, are skipped by the
+ * parser.
+ * 
+ * An extractor is immutable and may be shared between threads, the state of each
+ * extraction is held by the visitor passed to extract().
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class JsonExtractor
+{
+  /** The wildcard which matches any field name. */
+  public static final String        ANY_FIELD = "*";
+  
+  private static final JsonFactory  FACTORY = new JsonFactory();
+  private static final int          MAX_PATHS = Long.SIZE;
+  
+  private final String[][]          paths_;
+  private final long                allPaths_;
+  
+  /**
+   * Constructor.
+   * 
+   * @param paths The paths of the fields to be extracted, at most 64.
+   */
+  public JsonExtractor(String ...paths)
+  {
+    if(paths.length > MAX_PATHS)
+      throw new IllegalArgumentException("At most " + MAX_PATHS + " paths may be extracted");
+    
+    paths_ = new String[paths.length][];
+    
+    for(int i=0 ; i<paths.length ; i++)
+      paths_[i] = paths[i].split("\\.");
+    
+    allPaths_ = paths.length == MAX_PATHS ? -1L : (1L << paths.length) - 1;
+  }
+  
+  /**
+   * Parse the given stream, calling the visitor for each field which matches one of the paths.
+   * 
+   * The stream is read to the end of the first JSON value but is not closed. Nothing is
+   * visited unless the document is an object.
+   * 
+   * @param in      A stream containing a JSON document.
+   * @param visitor The visitor to call for matching fields.
+   * @return The first token of the document, START_OBJECT if fields were visited, or null if the stream was empty.
+   * 
+   * @throws IOException If the stream cannot be read or is not valid JSON.
+   */
+  public @Nullable JsonToken extract(InputStream in, IJsonFieldVisitor visitor) throws IOException
+  {
+    try(JsonParser parser = FACTORY.createParser(in))
+    {
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      
+      return extract(parser, visitor);
+    }
+  }
+  
+  /**
+   * Parse the given string, calling the visitor for each field which matches one of the paths.
+   * 
+   * @param json    A JSON document.
+   * @param visitor The visitor to call for matching fields.
+   * @return The first token of the document, START_OBJECT if fields were visited, or null if the document was empty.
+   * 
+   * @throws IOException If the document is not valid JSON.
+   */
+  public @Nullable JsonToken extract(String json, IJsonFieldVisitor visitor) throws IOException
+  {
+    try(JsonParser parser = FACTORY.createParser(json))
+    {
+      return extract(parser, visitor);
+    }
+  }
+  
+  private JsonToken extract(JsonParser parser, IJsonFieldVisitor visitor) throws IOException
+  {
+    JsonToken root = parser.nextToken();
+    
+    if(root == JsonToken.START_OBJECT)
+      extractObject(parser, 0, allPaths_, visitor);
+    else if(root != null)
+      parser.skipChildren();
+    
+    return root;
+  }
+
+  /*
+   * The paths which are still candidates at each level are held as a bit mask, so
+   * matching allocates nothing.
+   */
+  private void extractObject(JsonParser parser, int depth, long candidates, IJsonFieldVisitor visitor) throws IOException
+  {
+    while(parser.nextToken() == JsonToken.FIELD_NAME)
+    {
+      String    name = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      long      children = 0;
+      
+      for(int i=0 ; i<paths_.length ; i++)
+      {
+        if((candidates & (1L << i)) == 0)
+          continue;
+        
+        String[] path = paths_[i];
+        
+        if(!ANY_FIELD.equals(path[depth]) && !path[depth].equals(name))
+          continue;
+        
+        if(depth == path.length - 1)
+          visitor.visit(i, name, parser);
+        else
+          children |= 1L << i;
+      }
+      
+      // The visitor may have consumed a structured value, in which case there is nothing left to do
+      if(parser.getCurrentToken() != value)
+        continue;
+      
+      if(value == JsonToken.START_OBJECT && children != 0)
+        extractObject(parser, depth + 1, children, visitor);
+      else
+        parser.skipChildren();
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies in microseconds, with a fixed memory footprint.
+ * 
+ * Values are counted in log-linear buckets, as in an HDR histogram. Values below 32
+ * have a bucket each, above that each power of two is divided into 16 buckets, so any
+ * reported value is within about 6% of the recorded one. Values above MAX_MICROS
+ * (a little over two minutes, well beyond any request timeout) are counted as MAX_MICROS.
+ * 
+ * Recording is a couple of atomic increments and allocates nothing, so it can be done
+ * on every request from any number of threads. Reads are not atomic with respect to
+ * concurrent recording, which may make a percentile very slightly stale.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class LatencyHistogram
+{
+  /** The largest value which can be distinguished, larger values are recorded as this. */
+  public static final long    MAX_MICROS = (1L << 27) - 1;
+  
+  private static final int    SUB_BUCKET_BITS = 5;
+  private static final int    SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int    HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+  
+  /** The number of buckets, and so the number of longs, in each histogram. */
+  public static final int     BUCKET_COUNT = getIndex(MAX_MICROS) + 1;
+  
+  private final AtomicLongArray counts_ = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong      max_ = new AtomicLong();
+
+  /**
+   * Record a latency.
+   * 
+   * @param micros The latency in microseconds.
+   */
+  public void record(long micros)
+  {
+    long value = Math.max(0, Math.min(MAX_MICROS, micros));
+    
+    counts_.incrementAndGet(getIndex(value));
+    
+    long max;
+    
+    while(value > (max = max_.get()))
+    {
+      if(max_.compareAndSet(max, value))
+        break;
+    }
+  }
+
+  /**
+   * Record a latency.
+   * 
+   * @param nanos The latency in nanoseconds.
+   */
+  public void recordNanos(long nanos)
+  {
+    record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+  
+  /**
+   * Add the counts of the given histogram to this one, so that histograms for several
+   * endpoints can be combined.
+   * 
+   * @param other Another histogram.
+   */
+  public void add(LatencyHistogram other)
+  {
+    for(int i=0 ; i<BUCKET_COUNT ; i++)
+    {
+      long count = other.counts_.get(i);
+      
+      if(count != 0)
+        counts_.addAndGet(i, count);
+    }
+    
+    long max;
+    long otherMax = other.max_.get();
+    
+    while(otherMax > (max = max_.get()))
+    {
+      if(max_.compareAndSet(max, otherMax))
+        break;
+    }
+  }
+  
+  /**
+   * Discard all values.
+   */
+  public void reset()
+  {
+    for(int i=0 ; i<BUCKET_COUNT ; i++)
+      counts_.set(i, 0);
+    
+    max_.set(0);
+  }
+  
+  /**
+   * @return The number of values recorded.
+   */
+  public long getCount()
+  {
+    long count = 0;
+    
+    for(int i=0 ; i<BUCKET_COUNT ; i++)
+      count += counts_.get(i);
+    
+    return count;
+  }
+
+  /**
+   * @return The largest value recorded in microseconds, 0 if there are none.
+   */
+  public long getMaxMicros()
+  {
+    return max_.get();
+  }
+
+  /**
+   * Return the value below which the given percentage of values fall.
+   * 
+   * @param percentile A percentage, such as 99.
+   * @return The highest value equivalent to the value at the given percentile in microseconds,
+   * limited to the maximum recorded, or 0 if there are no values.
+   */
+  public long getValueAtPercentile(double percentile)
+  {
+    long count = getCount();
+    
+    if(count == 0)
+      return 0;
+    
+    long rank = Math.max(1, (long)Math.ceil(Math.min(100.0, percentile) * count / 100.0));
+    long seen = 0;
+    long max = max_.get();
+    
+    for(int i=0 ; i<BUCKET_COUNT ; i++)
+    {
+      seen += counts_.get(i);
+      
+      if(seen >= rank)
+        return Math.min(getHighestValue(i), max);
+    }
+    
+    return max;
+  }
+
+  /*
+   * Values below SUB_BUCKETS have an index each. Above that the value is shifted right
+   * until it has SUB_BUCKET_BITS significant bits, the top one of which is always set,
+   * so each shift contributes HALF_SUB_BUCKETS indexes.
+   */
+  static int getIndex(long value)
+  {
+    if(value < SUB_BUCKETS)
+      return (int)value;
+    
+    int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    
+    return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int)((value >>> shift) - HALF_SUB_BUCKETS);
+  }
+
+  static long getLowestValue(int index)
+  {
+    if(index < SUB_BUCKETS)
+      return index;
+    
+    int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+    
+    return ((long)((index - SUB_BUCKETS) % HALF_SUB_BUCKETS) + HALF_SUB_BUCKETS) << shift;
+  }
+
+  static long getHighestValue(int index)
+  {
+    return index + 1 < BUCKET_COUNT ? getLowestValue(index + 1) - 1 : MAX_MICROS;
+  }
+
+  /**
+   * @return The count and the 50th, 90th and 99th percentiles and maximum in milliseconds.
+   */
+  @Override
+  public String toString()
+  {
+    return String.format("n=%d p50=%s p90=%s p99=%s max=%s", getCount(), formatMillis(getValueAtPercentile(50)),
+        formatMillis(getValueAtPercentile(90)), formatMillis(getValueAtPercentile(99)), formatMillis(getMaxMicros()));
+  }
+  
+  private static String formatMillis(long micros)
+  {
+    return String.format("%.1fms", micros / 1000.0);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the connect latency observed for each host, and the first byte latency
+ * observed for each endpoint, and derives timeouts from them.
+ * 
+ * First byte latency depends on the work the server does for a request, so a host
+ * whose static pages respond quickly may still be slow to authenticate. It is tracked
+ * per endpoint, see getEndpoint(), so that one endpoint never inherits the timeout
+ * of a faster one.
+ * 
+ * Each latency is tracked as an exponentially weighted moving average and mean
+ * deviation, as TCP does for round trip times. The timeout is the average plus
+ * four deviations, which is beyond the 99th percentile for most distributions,
+ * plus a fixed margin, limited to a sensible range. Until enough samples have
+ * been seen for a host or endpoint the default timeouts are used.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class LatencyTracker
+{
+  public static final int     DEFAULT_CONNECT_TIMEOUT_MILLIS = 2000;
+  public static final int     DEFAULT_READ_TIMEOUT_MILLIS    = 10000;
+  public static final int     MIN_TIMEOUT_MILLIS             = 500;
+  public static final int     MAX_CONNECT_TIMEOUT_MILLIS     = 10000;
+  public static final int     MAX_READ_TIMEOUT_MILLIS        = 60000;
+  
+  private static final int    MIN_SAMPLES     = 3;
+  private static final double ALPHA           = 0.125;
+  private static final double BETA            = 0.25;
+  private static final int    K               = 4;
+  private static final int    MARGIN_MILLIS   = 200;
+
+  private static final LatencyTracker DEFAULT_TRACKER = new LatencyTracker();
+  
+  private final Map<String, Estimator> connect_   = new ConcurrentHashMap<>();
+  private final Map<String, Estimator> firstByte_ = new ConcurrentHashMap<>();
+
+  /**
+   * @return The process wide tracker.
+   */
+  public static LatencyTracker getDefault()
+  {
+    return DEFAULT_TRACKER;
+  }
+
+  public void recordConnect(String host, long millis)
+  {
+    connect_.computeIfAbsent(host.toLowerCase(), (k) -> new Estimator()).add(millis);
+  }
+
+  /**
+   * Return the key by which first byte latency is tracked for the given URL.
+   * 
+   * @param url A URL.
+   * @return The host, port and path of the given URL.
+   */
+  public static String getEndpoint(URL url)
+  {
+    int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+    
+    return url.getHost().toLowerCase() + ":" + port + url.getPath();
+  }
+
+  public void recordFirstByte(String endpoint, long millis)
+  {
+    firstByte_.computeIfAbsent(endpoint, (k) -> new Estimator()).add(millis);
+  }
+
+  public int getConnectTimeoutMillis(String host)
+  {
+    return getTimeout(connect_.get(host.toLowerCase()), DEFAULT_CONNECT_TIMEOUT_MILLIS, MAX_CONNECT_TIMEOUT_MILLIS);
+  }
+
+  public int getReadTimeoutMillis(String endpoint)
+  {
+    return getTimeout(firstByte_.get(endpoint), DEFAULT_READ_TIMEOUT_MILLIS, MAX_READ_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Discard all samples.
+   */
+  public void clear()
+  {
+    connect_.clear();
+    firstByte_.clear();
+  }
+  
+  private int getTimeout(Estimator estimator, int defaultMillis, int maxMillis)
+  {
+    if(estimator == null)
+      return defaultMillis;
+    
+    return estimator.getTimeout(defaultMillis, maxMillis);
+  }
+  
+  private static class Estimator
+  {
+    private int    count_;
+    private double average_;
+    private double deviation_;
+    
+    synchronized void add(long millis)
+    {
+      if(count_++ == 0)
+      {
+        average_ = millis;
+        deviation_ = millis / 2.0;
+      }
+      else
+      {
+        deviation_ = (1 - BETA) * deviation_ + BETA * Math.abs(millis - average_);
+        average_ = (1 - ALPHA) * average_ + ALPHA * millis;
+      }
+    }
+    
+    synchronized int getTimeout(int defaultMillis, int maxMillis)
+    {
+      if(count_ < MIN_SAMPLES)
+        return defaultMillis;
+      
+      long timeout = Math.round(average_ + K * deviation_) + MARGIN_MILLIS;
+      
+      return (int)Math.max(MIN_TIMEOUT_MILLIS, Math.min(maxMillis, timeout));
+    }
+  }
+}
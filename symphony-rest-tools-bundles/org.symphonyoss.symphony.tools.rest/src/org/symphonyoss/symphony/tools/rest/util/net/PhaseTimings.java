@@ -0,0 +1,162 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * The time spent in each phase of an HTTP request.
+ * 
+ * Timings are only captured for requests which have a PhaseTimings set, see
+ * HttpRequest.Builder.setPhaseTimings(), so there is no cost for other requests.
+ * The transport records the time at which each phase ends, the DNS and TCP phases
+ * are recorded by HappyEyeballs on the thread making the request. If the request
+ * reused a kept-alive connection there are no DNS, connect or TLS phases.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class PhaseTimings
+{
+  private static final ThreadLocal<PhaseTimings> CURRENT = new ThreadLocal<>();
+  
+  private URL   url_;
+  private long  startNanos_;
+  private long  tcpStartNanos_;
+  private long  tcpEndNanos_;
+  private long  connectedNanos_;
+  private long  firstByteNanos_;
+  private long  endNanos_;
+  
+  /**
+   * @return The timings being captured on the current thread, or null.
+   */
+  static @Nullable PhaseTimings getCurrent()
+  {
+    return CURRENT.get();
+  }
+
+  void start(URL url)
+  {
+    url_ = url;
+    startNanos_ = System.nanoTime();
+    tcpStartNanos_ = 0;
+    tcpEndNanos_ = 0;
+    connectedNanos_ = 0;
+    firstByteNanos_ = 0;
+    endNanos_ = 0;
+    CURRENT.set(this);
+  }
+  
+  void tcpStart()
+  {
+    tcpStartNanos_ = System.nanoTime();
+  }
+  
+  void tcpEnd()
+  {
+    tcpEndNanos_ = System.nanoTime();
+  }
+  
+  void connected()
+  {
+    connectedNanos_ = System.nanoTime();
+  }
+  
+  void firstByte()
+  {
+    firstByteNanos_ = System.nanoTime();
+  }
+  
+  void end()
+  {
+    endNanos_ = System.nanoTime();
+    CURRENT.remove();
+  }
+
+  public URL getUrl()
+  {
+    return url_;
+  }
+
+  /**
+   * @return true if the request reused a kept-alive connection.
+   */
+  public boolean isReused()
+  {
+    return tcpEndNanos_ == 0;
+  }
+
+  public long getDnsNanos()
+  {
+    return isReused() ? 0 : between(startNanos_, tcpStartNanos_);
+  }
+
+  public long getConnectNanos()
+  {
+    return isReused() ? 0 : between(tcpStartNanos_, tcpEndNanos_);
+  }
+
+  public long getTlsNanos()
+  {
+    return isReused() ? 0 : between(tcpEndNanos_, connectedNanos_);
+  }
+
+  public long getFirstByteNanos()
+  {
+    return between(connectedNanos_, firstByteNanos_);
+  }
+
+  public long getBodyNanos()
+  {
+    return between(firstByteNanos_, endNanos_);
+  }
+
+  public long getTotalNanos()
+  {
+    return between(startNanos_, endNanos_);
+  }
+  
+  private static long between(long from, long to)
+  {
+    return from == 0 || to == 0 ? 0 : to - from;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("dns %s connect %s tls %s ttfb %s body %s total %s%s",
+        millis(getDnsNanos()), millis(getConnectNanos()), millis(getTlsNanos()),
+        millis(getFirstByteNanos()), millis(getBodyNanos()), millis(getTotalNanos()),
+        isReused() ? " (reused)" : "");
+  }
+  
+  private static String millis(long nanos)
+  {
+    return String.format("%.1fms", nanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+  }
+}
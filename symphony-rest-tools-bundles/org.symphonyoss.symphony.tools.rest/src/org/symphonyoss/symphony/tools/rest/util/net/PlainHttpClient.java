@@ -0,0 +1,113 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+
+/**
+ * A minimal plain HTTP client, used to find out whether a port serves plain HTTP.
+ * 
+ * The connection is made with HappyEyeballs and only the status line of the
+ * response is read.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class PlainHttpClient
+{
+  private final HappyEyeballs     happyEyeballs_;
+  private final CancellationToken cancellationToken_;
+
+  public PlainHttpClient(HappyEyeballs happyEyeballs, CancellationToken cancellationToken)
+  {
+    happyEyeballs_ = happyEyeballs;
+    cancellationToken_ = cancellationToken;
+  }
+
+  /**
+   * Make a GET request and return the response status.
+   * 
+   * @param host                  The host name.
+   * @param port                  The port number.
+   * @param path                  The request path.
+   * @param connectTimeoutMillis  The connect timeout, 0 for no limit.
+   * @param readTimeoutMillis     The read timeout, 0 for no limit.
+   * @return The HTTP status of the response.
+   * 
+   * @throws IOException If the request fails or the response is not HTTP.
+   */
+  public int getStatus(String host, int port, String path, int connectTimeoutMillis, int readTimeoutMillis) throws IOException
+  {
+    try(Socket socket = happyEyeballs_.connect(host, port, connectTimeoutMillis);
+        CancellationToken.Registration registration = cancellationToken_.onCancel(() -> close(socket)))
+    {
+      socket.setSoTimeout(readTimeoutMillis);
+      
+      OutputStream out = socket.getOutputStream();
+      
+      out.write(("GET " + path + " HTTP/1.1\r\n"
+          + "Host: " + host + (port == 80 ? "" : ":" + port) + "\r\n"
+          + "Connection: close\r\n"
+          + "\r\n").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+      
+      BufferedReader  in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      String          statusLine = in.readLine();
+      
+      if(statusLine == null || !statusLine.startsWith("HTTP/"))
+        throw new ProtocolException("Not an HTTP response from " + host + ":" + port);
+      
+      String[] parts = statusLine.split(" ");
+      
+      try
+      {
+        return Integer.parseInt(parts[1]);
+      }
+      catch(NumberFormatException | ArrayIndexOutOfBoundsException e)
+      {
+        throw new ProtocolException("Invalid HTTP status line \"" + statusLine + "\" from " + host + ":" + port);
+      }
+    }
+  }
+
+  private static void close(Socket socket)
+  {
+    try
+    {
+      socket.close();
+    }
+    catch(IOException e)
+    {
+      // Nothing we can do about this
+    }
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.symphonyoss.symphony.tools.rest.util.ProgramFault;
+
+/**
+ * A TCP port scanner which makes non-blocking connections to a set of
+ * host and port pairs in a single pass.
+ * 
+ * All of the connections are started together and the scan completes when
+ * every connection has either completed or failed or when the timeout
+ * expires, so the whole scan takes at most one connect timeout however
+ * many targets there are.
+ * 
+ * Targets may be added after a scan, a subsequent scan only connects to
+ * targets which have not already been scanned.
+ * 
+ * For a host with both IPv4 and IPv6 addresses one address of each family is
+ * connected to in the same pass, so that a broken route for one family does not
+ * make the host look unreachable. The family which connects is recorded as the
+ * preferred family for the host, so that later connections try it first.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class PortScanner
+{
+  private final Set<String>           pending_   = new LinkedHashSet<>();
+  private final Map<String, Boolean>  reachable_ = new HashMap<>();
+  private final Set<String>           unknownHosts_ = new LinkedHashSet<>();
+  private final HostResolver          resolver_;
+  
+  public PortScanner()
+  {
+    this(HostResolver.getDefault());
+  }
+  
+  public PortScanner(HostResolver resolver)
+  {
+    resolver_ = resolver;
+  }
+  
+  public static String getKey(String host, int port)
+  {
+    return host + ":" + port;
+  }
+  
+  public synchronized PortScanner withTarget(String host, int port)
+  {
+    String key = getKey(host, port);
+    
+    if(!reachable_.containsKey(key))
+      pending_.add(key);
+    
+    return this;
+  }
+  
+  public synchronized PortScanner withTargets(String host, int ...ports)
+  {
+    for(int port : ports)
+      withTarget(host, port);
+    
+    return this;
+  }
+  
+  /**
+   * Connect to all targets which have not yet been scanned.
+   * 
+   * @param timeoutMillis The maximum time to wait for connections to complete.
+   * 
+   * @return The number of targets found to be reachable in this scan.
+   */
+  public synchronized int scan(long timeoutMillis)
+  {
+    if(pending_.isEmpty())
+      return 0;
+    
+    Map<SocketChannel, String>      channels = new HashMap<>();
+    Map<SocketChannel, InetAddress> addresses = new HashMap<>();
+    int                             reachableCount = 0;
+    
+    try(Selector selector = Selector.open())
+    {
+      for(String key : pending_)
+      {
+        int           i = key.lastIndexOf(':');
+        String        host = key.substring(0, i);
+        int           port = Integer.parseInt(key.substring(i + 1));
+        InetAddress[] resolved;
+        
+        reachable_.put(key, false);
+        
+        try
+        {
+          resolved = resolver_.resolve(host);
+        }
+        catch(UnknownHostException e)
+        {
+          unknownHosts_.add(host);
+          continue;
+        }
+        
+        for(InetAddress address : getScanAddresses(resolved, resolver_.getPreferredFamily(host)))
+        {
+          SocketChannel channel = SocketChannel.open();
+          
+          channels.put(channel, key);
+          addresses.put(channel, address);
+          
+          try
+          {
+            channel.configureBlocking(false);
+            
+            if(channel.connect(new InetSocketAddress(address, port)))
+            {
+              if(connected(key, address))
+                reachableCount++;
+            }
+            else
+            {
+              channel.register(selector, SelectionKey.OP_CONNECT);
+            }
+          }
+          catch(IOException e)
+          {
+            // Connection refused or no route, the target is unreachable at this address
+          }
+        }
+      }
+      
+      pending_.clear();
+      
+      long deadline = System.currentTimeMillis() + timeoutMillis;
+      
+      while(!selector.keys().isEmpty())
+      {
+        long remaining = deadline - System.currentTimeMillis();
+        
+        if(remaining <= 0 || Thread.currentThread().isInterrupted())
+          break;
+        
+        selector.select(remaining);
+        
+        List<SelectionKey> selected = new ArrayList<>(selector.selectedKeys());
+        
+        selector.selectedKeys().clear();
+        
+        for(SelectionKey selectionKey : selected)
+        {
+          SocketChannel channel = (SocketChannel) selectionKey.channel();
+          
+          selectionKey.cancel();
+          
+          try
+          {
+            if(channel.finishConnect() && connected(channels.get(channel), addresses.get(channel)))
+            {
+              reachableCount++;
+              
+              // Stop waiting for the other family once the target is reachable
+              for(SelectionKey otherKey : selector.keys())
+              {
+                if(channels.get(otherKey.channel()).equals(channels.get(channel)))
+                  otherKey.cancel();
+              }
+            }
+          }
+          catch(IOException e)
+          {
+            // Connection refused, the target is unreachable
+          }
+        }
+        
+        selector.selectNow();
+      }
+    }
+    catch(IOException e)
+    {
+      throw new ProgramFault("Unable to open selector", e);
+    }
+    finally
+    {
+      for(SocketChannel channel : channels.keySet())
+      {
+        try
+        {
+          channel.close();
+        }
+        catch(IOException e)
+        {
+          // Nothing we can do about this
+        }
+      }
+    }
+    
+    return reachableCount;
+  }
+  
+  /*
+   * Record a connection to the given target, returning true if it is the first for the target.
+   */
+  private boolean connected(String key, InetAddress address)
+  {
+    if(reachable_.put(key, true))
+      return false;
+    
+    resolver_.setPreferredFamily(key.substring(0, key.lastIndexOf(':')), address);
+    
+    return true;
+  }
+  
+  /*
+   * The first address of each family, in the order in which HappyEyeballs would try them.
+   */
+  private static List<InetAddress> getScanAddresses(InetAddress[] resolved, Class<? extends InetAddress> preferredFamily)
+  {
+    List<InetAddress>                   scanAddresses = new ArrayList<>();
+    Set<Class<? extends InetAddress>>   families = new HashSet<>();
+    
+    for(InetAddress address : HappyEyeballs.order(resolved, preferredFamily))
+    {
+      if(families.add(address.getClass()))
+        scanAddresses.add(address);
+    }
+    
+    return scanAddresses;
+  }
+  
+  /**
+   * Return true if the given target was found to be reachable, or if it
+   * has not been scanned.
+   * 
+   * @param host  The host name.
+   * @param port  The port number.
+   * 
+   * @return false if the given target was scanned and could not be reached.
+   */
+  public synchronized boolean isReachable(String host, int port)
+  {
+    Boolean reachable = reachable_.get(getKey(host, port));
+    
+    return reachable == null || reachable;
+  }
+  
+  public synchronized boolean isScanned(String host, int port)
+  {
+    return reachable_.containsKey(getKey(host, port));
+  }
+  
+  public synchronized Set<String> getUnknownHosts()
+  {
+    return new LinkedHashSet<>(unknownHosts_);
+  }
+}
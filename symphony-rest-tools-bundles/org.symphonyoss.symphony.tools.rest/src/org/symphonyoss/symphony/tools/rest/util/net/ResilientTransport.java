@@ -0,0 +1,218 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.cert.CertificateParsingException;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nullable;
+
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken;
+import org.symphonyoss.symphony.tools.rest.util.CancellationToken.Registration;
+import org.symphonyoss.symphony.tools.rest.util.Deadline;
+import org.symphonyoss.symphony.tools.rest.util.typeutils.ISetter;
+
+/**
+ * A transport which retries transient failures and refuses requests to endpoints
+ * which are known to be down.
+ * 
+ * Each request is first checked against the circuit breaker for its endpoint, and
+ * fails immediately with a CircuitOpenException if the breaker is open. Otherwise the
+ * request is executed by the delegate transport and retried according to the
+ * RetryPolicy, backing off between attempts. The final outcome, after any retries,
+ * is recorded with the breaker so a single call counts as a single failure.
+ * 
+ * Backoff waits are limited by the deadline and end early if the request is canceled.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class ResilientTransport implements IHttpTransport
+{
+  public static final String            NAME = "resilient";
+  
+  private final IHttpTransport          delegate_;
+  private final RetryPolicy             retryPolicy_;
+  private final CircuitBreakers         circuitBreakers_;
+  private final Deadline                deadline_;
+  private final CancellationToken       cancellationToken_;
+  private final ISetter<CircuitBreaker> listener_;
+
+  /**
+   * Constructor.
+   * 
+   * @param delegate            The transport which executes each attempt.
+   * @param retryPolicy         The retry policy.
+   * @param circuitBreakers     The breakers for the endpoints to which requests are made.
+   * @param deadline            The deadline beyond which no retry is attempted.
+   * @param cancellationToken   A token which ends any backoff wait when canceled.
+   * @param listener            A listener which is called when the state of a breaker changes, or null.
+   */
+  public ResilientTransport(IHttpTransport delegate, RetryPolicy retryPolicy, CircuitBreakers circuitBreakers,
+      Deadline deadline, CancellationToken cancellationToken, @Nullable ISetter<CircuitBreaker> listener)
+  {
+    delegate_ = delegate;
+    retryPolicy_ = retryPolicy;
+    circuitBreakers_ = circuitBreakers;
+    deadline_ = deadline;
+    cancellationToken_ = cancellationToken;
+    listener_ = listener;
+  }
+
+  @Override
+  public String getName()
+  {
+    return NAME;
+  }
+
+  @Override
+  public HttpResult execute(HttpRequest request) throws IOException, CertificateParsingException
+  {
+    CircuitBreaker        breaker = circuitBreakers_.getBreaker(request.getUrl());
+    CircuitBreaker.State  state = breaker.getState();
+    
+    if(!breaker.tryAcquire())
+      throw new CircuitOpenException(breaker.toString());
+    
+    // Leaving the open state happens here, the other transitions when the outcome is recorded
+    state = notifyIfChanged(breaker, state);
+    
+    boolean reached = false;
+    boolean failed = false;
+    
+    try
+    {
+      HttpResult result = executeWithRetries(request);
+      
+      failed = retryPolicy_.isRetryable(result);
+      reached = !failed;
+      
+      return result;
+    }
+    catch(IOException e)
+    {
+      // Cancellation and an expired deadline tell us nothing about the endpoint
+      failed = retryPolicy_.isEndpointFailure(e);
+      reached = !failed && !(e instanceof InterruptedIOException);
+      
+      throw e;
+    }
+    catch(CertificateParsingException e)
+    {
+      reached = true;
+      
+      throw e;
+    }
+    finally
+    {
+      if(failed)
+        breaker.recordFailure();
+      else if(reached)
+        breaker.recordSuccess();
+      else
+        breaker.release();
+      
+      notifyIfChanged(breaker, state);
+    }
+  }
+
+  private HttpResult executeWithRetries(HttpRequest request) throws IOException, CertificateParsingException
+  {
+    for(int retry=0 ;; retry++)
+    {
+      boolean lastAttempt = retry >= retryPolicy_.getMaxRetries();
+      
+      try
+      {
+        HttpResult result = delegate_.execute(request);
+        
+        if(lastAttempt || !retryPolicy_.isRetryable(result) || !backoff(retry))
+          return result;
+      }
+      catch(IOException e)
+      {
+        if(lastAttempt || !retryPolicy_.isRetryable(e) || !backoff(retry))
+          throw e;
+      }
+    }
+  }
+
+  /*
+   * Wait before the next retry, returning false if there is not enough time left before the deadline.
+   */
+  private boolean backoff(int retry) throws RequestCanceledException, InterruptedIOException
+  {
+    long backoffMillis = retryPolicy_.getBackoffMillis(retry);
+    
+    if(backoffMillis >= deadline_.getRemainingMillis())
+      return false;
+    
+    try(Registration registration = cancellationToken_.interruptOnCancel())
+    {
+      Thread.sleep(backoffMillis);
+    }
+    catch(InterruptedException e)
+    {
+      if(cancellationToken_.isCanceled())
+        throw new RequestCanceledException("Canceled while waiting to retry");
+      
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+    
+    if(cancellationToken_.isCanceled())
+      throw new RequestCanceledException("Canceled while waiting to retry");
+    
+    return true;
+  }
+
+  private CircuitBreaker.State notifyIfChanged(CircuitBreaker breaker, CircuitBreaker.State previous)
+  {
+    CircuitBreaker.State state = breaker.getState();
+    
+    if(state != previous && listener_ != null)
+      listener_.set(breaker);
+    
+    return state;
+  }
+
+  @Override
+  public CompletableFuture<HttpResult> executeAsync(HttpRequest request)
+  {
+    CompletableFuture<HttpResult> future = new CompletableFuture<>();
+    
+    try
+    {
+      future.complete(execute(request));
+    }
+    catch(IOException | CertificateParsingException | RuntimeException e)
+    {
+      future.completeExceptionally(e);
+    }
+    
+    return future;
+  }
+}
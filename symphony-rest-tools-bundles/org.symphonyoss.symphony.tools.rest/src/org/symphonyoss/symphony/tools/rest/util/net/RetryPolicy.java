@@ -0,0 +1,148 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which failed requests are worth retrying, and how long to wait before doing so.
+ * 
+ * Only transient failures are retried, that is connections which time out, are refused
+ * or are reset, and responses with status 502, 503 or 504 which the request did not
+ * expect. The wait before each retry doubles from the initial backoff up to the maximum,
+ * and is then varied randomly by up to half so that clients which failed together do
+ * not retry together.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class RetryPolicy
+{
+  public static final int         DEFAULT_INITIAL_BACKOFF_MILLIS = 200;
+  public static final int         DEFAULT_MAX_BACKOFF_MILLIS     = 5000;
+  
+  /** A policy which never retries. */
+  public static final RetryPolicy NONE = new RetryPolicy(0);
+  
+  private final int               maxRetries_;
+  private final long              initialBackoffMillis_;
+  private final long              maxBackoffMillis_;
+
+  /**
+   * Create a policy with the default backoff.
+   * 
+   * @param maxRetries  The maximum number of retries after the first attempt.
+   */
+  public RetryPolicy(int maxRetries)
+  {
+    this(maxRetries, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param maxRetries            The maximum number of retries after the first attempt.
+   * @param initialBackoffMillis  The wait before the first retry, before jitter is applied.
+   * @param maxBackoffMillis      The maximum wait before any retry, before jitter is applied.
+   */
+  public RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis)
+  {
+    maxRetries_ = Math.max(0, maxRetries);
+    initialBackoffMillis_ = Math.max(1, initialBackoffMillis);
+    maxBackoffMillis_ = Math.max(initialBackoffMillis_, maxBackoffMillis);
+  }
+
+  public int getMaxRetries()
+  {
+    return maxRetries_;
+  }
+
+  /**
+   * @param retry The number of retries already made, starting from zero.
+   * @return The time to wait before the next retry in milliseconds, with jitter applied.
+   */
+  public long getBackoffMillis(int retry)
+  {
+    long backoff = getMaxBackoffMillis(retry);
+    long half = backoff / 2;
+    
+    return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+  }
+
+  /**
+   * @param retry The number of retries already made, starting from zero.
+   * @return The upper bound of the wait before the next retry in milliseconds.
+   */
+  public long getMaxBackoffMillis(int retry)
+  {
+    // Doubling beyond 2^30 would overflow long before reaching any sensible maximum
+    return Math.min(maxBackoffMillis_, initialBackoffMillis_ << Math.min(retry, 30));
+  }
+
+  /**
+   * @param e A failure.
+   * @return true if the failure is transient and the request may succeed if it is retried.
+   */
+  public boolean isRetryable(IOException e)
+  {
+    // ConnectException, NoRouteToHostException and connection resets are all SocketExceptions.
+    // DeadlineExceededException and RequestCanceledException are not SocketTimeoutExceptions.
+    return e instanceof SocketTimeoutException || e instanceof SocketException;
+  }
+
+  /**
+   * @param result The result of a request.
+   * @return true if the response indicates a transient failure and the request may succeed if it is retried.
+   */
+  public boolean isRetryable(HttpResult result)
+  {
+    if(result.isExpectedStatus())
+      return false;
+    
+    switch(result.getStatus())
+    {
+      case 502:
+      case 503:
+      case 504:
+        return true;
+        
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @param e A failure.
+   * @return true if the failure suggests that the endpoint is unavailable, as opposed to reachable
+   * but unwilling, as in the case of a TLS handshake failure.
+   */
+  public boolean isEndpointFailure(IOException e)
+  {
+    return isRetryable(e) || e instanceof UnknownHostException;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * The latencies of an endpoint over a sliding window of recent time.
+ * 
+ * Values are recorded in a ring of LatencyHistograms, each covering a fixed period, and
+ * the histogram for a period is cleared when the ring comes round to it again. The
+ * values for the most recent periods can then be combined to give the latency over,
+ * for example, the last minute or the last five minutes. Memory is fixed at
+ * LatencyHistogram.BUCKET_COUNT longs per period, and recording allocates nothing.
+ * 
+ * A value recorded by one thread while another is clearing the histogram for a new
+ * period may be lost, which is of no consequence for percentiles.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class SlidingLatencyHistogram
+{
+  public static final int           DEFAULT_WINDOW_COUNT  = 5;
+  public static final long          DEFAULT_WINDOW_MILLIS = 60000;
+  
+  private final LatencyHistogram[]  windows_;
+  private final AtomicLongArray     epochs_;
+  private final long                windowNanos_;
+  private final LongSupplier        clock_;
+
+  /**
+   * Create a histogram covering the last five minutes, in one minute windows.
+   */
+  public SlidingLatencyHistogram()
+  {
+    this(DEFAULT_WINDOW_COUNT, DEFAULT_WINDOW_MILLIS);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param windowCount   The number of windows kept.
+   * @param windowMillis  The period covered by each window.
+   */
+  public SlidingLatencyHistogram(int windowCount, long windowMillis)
+  {
+    this(windowCount, windowMillis, System::nanoTime);
+  }
+
+  SlidingLatencyHistogram(int windowCount, long windowMillis, LongSupplier clock)
+  {
+    windows_ = new LatencyHistogram[Math.max(1, windowCount)];
+    epochs_ = new AtomicLongArray(windows_.length);
+    windowNanos_ = TimeUnit.MILLISECONDS.toNanos(Math.max(1, windowMillis));
+    clock_ = clock;
+    
+    for(int i=0 ; i<windows_.length ; i++)
+    {
+      windows_[i] = new LatencyHistogram();
+      epochs_.set(i, Long.MIN_VALUE);
+    }
+  }
+
+  /**
+   * Record a latency.
+   * 
+   * @param micros The latency in microseconds.
+   */
+  public void record(long micros)
+  {
+    long  epoch = Math.floorDiv(clock_.getAsLong(), windowNanos_);
+    int   slot = (int)Math.floorMod(epoch, (long)windows_.length);
+    long  current = epochs_.get(slot);
+    
+    if(current < epoch && epochs_.compareAndSet(slot, current, epoch))
+      windows_[slot].reset();
+    
+    windows_[slot].record(micros);
+  }
+
+  /**
+   * Record a latency.
+   * 
+   * @param nanos The latency in nanoseconds.
+   */
+  public void recordNanos(long nanos)
+  {
+    record(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+  
+  /**
+   * Add the values recorded in the given number of most recent windows, including the
+   * current one, to the given histogram.
+   * 
+   * @param histogram A histogram, which may already hold values for other endpoints.
+   * @param windowCount The number of windows, limited to the number kept.
+   * @return The given histogram.
+   */
+  public LatencyHistogram addTo(LatencyHistogram histogram, int windowCount)
+  {
+    long epoch = Math.floorDiv(clock_.getAsLong(), windowNanos_);
+    long oldest = epoch - Math.min(windowCount, windows_.length) + 1;
+    
+    for(int i=0 ; i<windows_.length ; i++)
+    {
+      long windowEpoch = epochs_.get(i);
+      
+      if(windowEpoch >= oldest && windowEpoch <= epoch)
+        histogram.add(windows_[i]);
+    }
+    
+    return histogram;
+  }
+
+  /**
+   * @param windowCount The number of most recent windows, limited to the number kept.
+   * @return A new histogram holding the values recorded in the given number of windows.
+   */
+  public LatencyHistogram getHistogram(int windowCount)
+  {
+    return addTo(new LatencyHistogram(), windowCount);
+  }
+
+  /**
+   * @return A new histogram holding all of the values in the windows kept.
+   */
+  public LatencyHistogram getHistogram()
+  {
+    return getHistogram(windows_.length);
+  }
+
+  public int getWindowCount()
+  {
+    return windows_.length;
+  }
+
+  public long getWindowMillis()
+  {
+    return TimeUnit.NANOSECONDS.toMillis(windowNanos_);
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.util.Objects;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The parameters from which a TLS context is created.
+ * 
+ * Instances are immutable and are used as the key for the TlsContextCache.
+ * 
+ * @author Bruce Skingle
+ *
+ */
+@Immutable
+public class TlsConfig
+{
+  private final String  keystore_;
+  private final String  storepass_;
+  private final String  storetype_;
+  private final String  truststore_;
+  private final String  trustpass_;
+  private final String  trusttype_;
+  private final boolean trustAllCertificates_;
+  private final boolean trustAllHostnames_;
+
+  private TlsConfig(Builder builder)
+  {
+    keystore_             = builder.keystore_;
+    storepass_            = builder.storepass_;
+    storetype_            = builder.storetype_;
+    truststore_           = builder.truststore_;
+    trustpass_            = builder.trustpass_;
+    trusttype_            = builder.trusttype_;
+    trustAllCertificates_ = builder.trustAllCertificates_;
+    trustAllHostnames_    = builder.trustAllHostnames_;
+  }
+  
+  public static Builder newBuilder()
+  {
+    return new Builder();
+  }
+  
+  public static Builder newBuilder(TlsConfig other)
+  {
+    return new Builder(other);
+  }
+  
+  public static class Builder
+  {
+    private String  keystore_;
+    private String  storepass_;
+    private String  storetype_;
+    private String  truststore_;
+    private String  trustpass_;
+    private String  trusttype_;
+    private boolean trustAllCertificates_;
+    private boolean trustAllHostnames_;
+    
+    private Builder()
+    {
+    }
+    
+    private Builder(TlsConfig other)
+    {
+      keystore_             = other.keystore_;
+      storepass_            = other.storepass_;
+      storetype_            = other.storetype_;
+      truststore_           = other.truststore_;
+      trustpass_            = other.trustpass_;
+      trusttype_            = other.trusttype_;
+      trustAllCertificates_ = other.trustAllCertificates_;
+      trustAllHostnames_    = other.trustAllHostnames_;
+    }
+
+    public Builder setKeystore(String keystore, String storepass, String storetype)
+    {
+      keystore_ = emptyToNull(keystore);
+      storepass_ = storepass;
+      storetype_ = emptyToNull(storetype);
+      return this;
+    }
+
+    public Builder setTruststore(String truststore, String trustpass, String trusttype)
+    {
+      truststore_ = emptyToNull(truststore);
+      trustpass_ = trustpass;
+      trusttype_ = emptyToNull(trusttype);
+      return this;
+    }
+
+    public Builder setTrustAllCertificates(boolean trustAllCertificates)
+    {
+      trustAllCertificates_ = trustAllCertificates;
+      return this;
+    }
+
+    public Builder setTrustAllHostnames(boolean trustAllHostnames)
+    {
+      trustAllHostnames_ = trustAllHostnames;
+      return this;
+    }
+    
+    public TlsConfig build()
+    {
+      return new TlsConfig(this);
+    }
+    
+    private static String emptyToNull(String s)
+    {
+      return s == null || s.length() == 0 ? null : s;
+    }
+  }
+
+  public String getKeystore()
+  {
+    return keystore_;
+  }
+
+  public String getStorepass()
+  {
+    return storepass_;
+  }
+
+  public String getStoretype()
+  {
+    return storetype_;
+  }
+
+  public String getTruststore()
+  {
+    return truststore_;
+  }
+
+  public String getTrustpass()
+  {
+    return trustpass_;
+  }
+
+  public String getTrusttype()
+  {
+    return trusttype_;
+  }
+
+  public boolean isTrustAllCertificates()
+  {
+    return trustAllCertificates_;
+  }
+
+  public boolean isTrustAllHostnames()
+  {
+    return trustAllHostnames_;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(keystore_, storepass_, storetype_, truststore_, trustpass_, trusttype_,
+        trustAllCertificates_, trustAllHostnames_);
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if(this == obj)
+      return true;
+    
+    if(!(obj instanceof TlsConfig))
+      return false;
+    
+    TlsConfig other = (TlsConfig) obj;
+    
+    return Objects.equals(keystore_, other.keystore_) &&
+        Objects.equals(storepass_, other.storepass_) &&
+        Objects.equals(storetype_, other.storetype_) &&
+        Objects.equals(truststore_, other.truststore_) &&
+        Objects.equals(trustpass_, other.trustpass_) &&
+        Objects.equals(trusttype_, other.trusttype_) &&
+        trustAllCertificates_ == other.trustAllCertificates_ &&
+        trustAllHostnames_ == other.trustAllHostnames_;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "TlsConfig [keystore=" + keystore_ + ", truststore=" + truststore_ + 
+        ", trustAllCertificates=" + trustAllCertificates_ + ", trustAllHostnames=" + trustAllHostnames_ + "]";
+  }
+}
@@ -0,0 +1,444 @@
+/*
+ *
+ *
+ * Copyright 2017 Symphony Communication Services, LLC.
+ *
+ * Licensed to The Symphony Software Foundation (SSF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The SSF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.symphonyoss.symphony.tools.rest.util.net;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * A cache of TLS contexts keyed by TlsConfig.
+ * 
+ * Creating an SSLContext means reading and decrypting the keystore, and each
+ * new context starts with an empty session cache so every handshake is a full
+ * one. Connections made through the same cache with the same TlsConfig share
+ * a single SSLSocketFactory and so can resume TLS sessions. The factory connects
+ * with HappyEyeballs, so hosts with a broken IPv6 route do not cost a connect timeout.
+ * 
+ * Each command has its own cache, long running processes may share the process
+ * wide cache returned by getProcessCache().
+ * 
+ * @author Bruce Skingle
+ *
+ */
+public class TlsContextCache
+{
+  public static final int               SESSION_CACHE_SIZE = 256;
+
+  private static final String           HTTPS = "https";
+  private static final TlsContextCache  PROCESS_CACHE = new TlsContextCache();
+  private static final HostnameVerifier TRUST_ALL_HOSTNAMES = (hostname, session) -> true;
+  
+  private final Map<TlsConfig, TlsContext> cache_ = new ConcurrentHashMap<>();
+
+  /**
+   * @return The process wide cache.
+   */
+  public static TlsContextCache getProcessCache()
+  {
+    return PROCESS_CACHE;
+  }
+  
+  /**
+   * Return the context for the given config, creating it if necessary.
+   * 
+   * @param config The TLS parameters.
+   * @return The context for the given config.
+   * 
+   * @throws IOException If the keystore or truststore cannot be loaded.
+   */
+  public TlsContext getContext(TlsConfig config) throws IOException
+  {
+    TlsContext context = cache_.get(config);
+    
+    if(context == null)
+    {
+      synchronized(this)
+      {
+        context = cache_.get(config);
+        
+        if(context == null)
+        {
+          context = new TlsContext(config);
+          cache_.put(config, context);
+        }
+      }
+    }
+    
+    return context;
+  }
+  
+  /**
+   * Return a URL which, when opened, produces a connection configured from the
+   * cached context for the given config.
+   * 
+   * Non-HTTPS URLs are returned unchanged.
+   * 
+   * @param url     A URL.
+   * @param config  The TLS parameters for connections to the URL.
+   * @return A URL which opens connections using the cached context.
+   * 
+   * @throws IOException If the keystore or truststore cannot be loaded.
+   */
+  public URL wrap(URL url, TlsConfig config) throws IOException
+  {
+    if(!HTTPS.equalsIgnoreCase(url.getProtocol()))
+      return url;
+    
+    return getContext(config).wrap(url);
+  }
+  
+  /**
+   * Discard all cached contexts.
+   */
+  public void clear()
+  {
+    cache_.clear();
+  }
+  
+  /**
+   * A TLS context created from a TlsConfig.
+   */
+  public static class TlsContext
+  {
+    private final SSLContext       sslContext_;
+    private final SSLSocketFactory socketFactory_;
+    private final HostnameVerifier hostnameVerifier_;
+    private final CapturingTrustManager capturingTrustManager_;
+    private final TlsConfig        config_;
+    private final Handler          handler_ = new Handler();
+    
+    private volatile X509TrustManager trustManager_;
+
+    private TlsContext(TlsConfig config) throws IOException
+    {
+      this(config, null);
+    }
+    
+    private TlsContext(TlsConfig config, CapturingTrustManager capturingTrustManager) throws IOException
+    {
+      capturingTrustManager_ = capturingTrustManager;
+      config_ = config;
+      
+      try
+      {
+        sslContext_ = SSLContext.getInstance("TLS");
+        sslContext_.init(createKeyManagers(config),
+            capturingTrustManager == null ? createTrustManagers(config) : new TrustManager[] { capturingTrustManager }, null);
+        sslContext_.getClientSessionContext().setSessionCacheSize(SESSION_CACHE_SIZE);
+        
+        socketFactory_ = new HappyEyeballsSocketFactory(sslContext_.getSocketFactory(), HappyEyeballs.getDefault());
+        hostnameVerifier_ = config.isTrustAllHostnames() ? TRUST_ALL_HOSTNAMES : null;
+        
+        // A truststore which the context itself does not use is still loaded now, so that a bad one is reported here
+        if(config.isTrustAllCertificates() && config.getTruststore() != null)
+          trustManager_ = createX509TrustManager(config);
+      }
+      catch(GeneralSecurityException e)
+      {
+        throw new IOException("Unable to create TLS context for " + config, e);
+      }
+    }
+    
+    /**
+     * Create an uncached context which accepts any server certificate, recording the chain
+     * and whether the trust managers for the given config would have accepted it.
+     * 
+     * The context has its own session cache and connection pool so the first connection made
+     * with it always performs a full handshake. It should be used for a single connection.
+     * 
+     * @param config  The TLS parameters.
+     * @return A new capturing context.
+     * 
+     * @throws IOException If the keystore or truststore cannot be loaded.
+     */
+    public static TlsContext newCapturingContext(TlsConfig config) throws IOException
+    {
+      try
+      {
+        return new TlsContext(config, new CapturingTrustManager(createX509TrustManager(config)));
+      }
+      catch(GeneralSecurityException e)
+      {
+        throw new IOException("Unable to create TLS context for " + config, e);
+      }
+    }
+    
+    /**
+     * @return The capturing trust manager for a context created by newCapturingContext(), otherwise null.
+     */
+    public @Nullable CapturingTrustManager getCapturingTrustManager()
+    {
+      return capturingTrustManager_;
+    }
+    
+    /**
+     * Check a server certificate chain against the truststore for this context's config,
+     * whether or not the context itself trusts all certificates.
+     * 
+     * This allows connections made through a trust all context, which are shared by many
+     * servers, to report which of those servers would not have been trusted.
+     * 
+     * @param chain The chain presented by a server, leaf certificate first.
+     * @return The reason the truststore rejects the chain, or null if it is trusted.
+     * 
+     * @throws IOException If the truststore cannot be loaded.
+     */
+    public @Nullable CertificateException getTrustFailure(Certificate[] chain) throws IOException
+    {
+      X509Certificate[] x509Chain = new X509Certificate[chain.length];
+      
+      for(int i=0 ; i<chain.length ; i++)
+      {
+        if(!(chain[i] instanceof X509Certificate))
+          return new CertificateException("Server certificate is not an X.509 certificate");
+        
+        x509Chain[i] = (X509Certificate) chain[i];
+      }
+      
+      if(x509Chain.length == 0)
+        return new CertificateException("Server presented no certificates");
+      
+      try
+      {
+        getTrustManager().checkServerTrusted(x509Chain, getAuthType(x509Chain[0]));
+        
+        return null;
+      }
+      catch(CertificateException e)
+      {
+        return e;
+      }
+    }
+    
+    private X509TrustManager getTrustManager() throws IOException
+    {
+      if(trustManager_ == null)
+      {
+        try
+        {
+          trustManager_ = createX509TrustManager(config_);
+        }
+        catch(GeneralSecurityException e)
+        {
+          throw new IOException("Unable to create trust manager for " + config_, e);
+        }
+      }
+      
+      return trustManager_;
+    }
+    
+    /*
+     * The handshake which produced the chain is over, so take the key exchange the
+     * server's key is used for from its algorithm.
+     */
+    private static String getAuthType(X509Certificate leaf)
+    {
+      switch(leaf.getPublicKey().getAlgorithm())
+      {
+        case "EC":
+          return "ECDHE_ECDSA";
+          
+        case "DSA":
+          return "DHE_DSS";
+          
+        default:
+          return "ECDHE_RSA";
+      }
+    }
+    
+    public SSLContext getSslContext()
+    {
+      return sslContext_;
+    }
+
+    public SSLSocketFactory getSocketFactory()
+    {
+      return socketFactory_;
+    }
+
+    /**
+     * Return a URL which, when opened, produces a connection configured from this context.
+     * 
+     * @param url An HTTPS URL.
+     * @return A URL which opens connections using this context.
+     * 
+     * @throws MalformedURLException If the URL cannot be wrapped.
+     */
+    public URL wrap(URL url) throws MalformedURLException
+    {
+      return new URL(null, url.toExternalForm(), handler_);
+    }
+    
+    /**
+     * Configure the given connection to use this context.
+     * 
+     * @param connection A connection which has not yet been connected.
+     * @return The given connection.
+     */
+    public URLConnection configure(URLConnection connection)
+    {
+      if(connection instanceof HttpsURLConnection)
+      {
+        HttpsURLConnection httpsConnection = (HttpsURLConnection) connection;
+        
+        httpsConnection.setSSLSocketFactory(socketFactory_);
+        
+        if(hostnameVerifier_ != null)
+          httpsConnection.setHostnameVerifier(hostnameVerifier_);
+      }
+      
+      return connection;
+    }
+    
+    private class Handler extends URLStreamHandler
+    {
+      @Override
+      protected URLConnection openConnection(URL url) throws IOException
+      {
+        return configure(new URL(url.toExternalForm()).openConnection());
+      }
+
+      @Override
+      protected URLConnection openConnection(URL url, Proxy proxy) throws IOException
+      {
+        return configure(new URL(url.toExternalForm()).openConnection(proxy));
+      }
+
+      @Override
+      protected int getDefaultPort()
+      {
+        return 443;
+      }
+    }
+  }
+
+  private static KeyManager[] createKeyManagers(TlsConfig config) throws IOException, GeneralSecurityException
+  {
+    if(config.getKeystore() == null)
+      return null;
+    
+    char[]            storepass = config.getStorepass() == null ? null : config.getStorepass().toCharArray();
+    KeyStore          keyStore = loadKeyStore(config.getKeystore(), config.getStoretype(), storepass);
+    KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    
+    factory.init(keyStore, storepass);
+    
+    return factory.getKeyManagers();
+  }
+
+  private static TrustManager[] createTrustManagers(TlsConfig config) throws IOException, GeneralSecurityException
+  {
+    if(config.isTrustAllCertificates())
+      return new TrustManager[] { new TrustAllManager() };
+    
+    if(config.getTruststore() == null)
+      return null;
+    
+    char[]              trustpass = config.getTrustpass() == null ? null : config.getTrustpass().toCharArray();
+    KeyStore            trustStore = loadKeyStore(config.getTruststore(), config.getTrusttype(), trustpass);
+    TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    
+    factory.init(trustStore);
+    
+    return factory.getTrustManagers();
+  }
+
+  private static X509TrustManager createX509TrustManager(TlsConfig config) throws IOException, GeneralSecurityException
+  {
+    TrustManager[] trustManagers = createTrustManagers(TlsConfig.newBuilder(config).setTrustAllCertificates(false).build());
+    
+    if(trustManagers == null)
+    {
+      // The default trust managers, as used by SSLContext.init() when given null
+      TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      
+      factory.init((KeyStore)null);
+      trustManagers = factory.getTrustManagers();
+    }
+    
+    for(TrustManager trustManager : trustManagers)
+    {
+      if(trustManager instanceof X509TrustManager)
+        return (X509TrustManager) trustManager;
+    }
+    
+    throw new GeneralSecurityException("No X509TrustManager available");
+  }
+
+  private static KeyStore loadKeyStore(String fileName, String type, char[] password) throws IOException, GeneralSecurityException
+  {
+    KeyStore keyStore = KeyStore.getInstance(type == null ? KeyStore.getDefaultType() : type);
+    
+    try(InputStream in = new FileInputStream(fileName))
+    {
+      keyStore.load(in, password);
+    }
+    
+    return keyStore;
+  }
+  
+  private static class TrustAllManager implements X509TrustManager
+  {
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType)
+    {
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType)
+    {
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers()
+    {
+      return new X509Certificate[0];
+    }
+  }
+}